@@ -48,6 +48,7 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
                 break;
             case ADVANCED:
             case PARANOID:
+            case SITE:
                 leak = AbstractByteBuf.leakDetector.track(buf);
                 if (leak != null) {
                     buf = new AdvancedLeakAwareByteBuf(buf, leak);
@@ -70,6 +71,7 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
                 break;
             case ADVANCED:
             case PARANOID:
+            case SITE:
                 leak = AbstractByteBuf.leakDetector.track(buf);
                 if (leak != null) {
                     buf = new AdvancedLeakAwareCompositeByteBuf(buf, leak);
@@ -243,6 +245,10 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
      */
     protected abstract ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity);
 
+    final boolean isDirectByDefault() {
+        return directByDefault;
+    }
+
     @Override
     public String toString() {
         return StringUtil.simpleClassName(this) + "(directByDefault: " + directByDefault + ')';
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * A {@link ByteBufAllocator} that pools memory in shared, size-adapting chunks instead of per-thread caches.
+ * <p>
+ * This allocator is a good fit for applications that touch buffers from many short-lived threads, for example
+ * virtual threads or large worker pools, where the thread-local caches of {@link PooledByteBufAllocator} either
+ * waste memory or miss most of the time.
+ */
+@UnstableApi
+public final class AdaptiveByteBufAllocator extends AbstractByteBufAllocator
+        implements ByteBufAllocatorMetricProvider, ByteBufAllocatorMetric {
+
+    public static final AdaptiveByteBufAllocator DEFAULT =
+            new AdaptiveByteBufAllocator(PlatformDependent.directBufferPreferred());
+
+    private final AdaptivePoolingAllocator direct;
+    private final AdaptivePoolingAllocator heap;
+
+    public AdaptiveByteBufAllocator() {
+        this(PlatformDependent.directBufferPreferred());
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param preferDirect {@code true} if {@link #buffer(int)} should try to allocate a direct buffer rather than
+     *                     a heap buffer
+     */
+    public AdaptiveByteBufAllocator(boolean preferDirect) {
+        super(preferDirect);
+        final UnpooledByteBufAllocator chunkMemory = new UnpooledByteBufAllocator(preferDirect, true);
+        direct = new AdaptivePoolingAllocator(this, new AdaptivePoolingAllocator.ChunkAllocator() {
+            @Override
+            public AbstractByteBuf allocate(int capacity) {
+                return (AbstractByteBuf) chunkMemory.newDirectBuffer(capacity, capacity);
+            }
+        });
+        heap = new AdaptivePoolingAllocator(this, new AdaptivePoolingAllocator.ChunkAllocator() {
+            @Override
+            public AbstractByteBuf allocate(int capacity) {
+                return (AbstractByteBuf) chunkMemory.newHeapBuffer(capacity, capacity);
+            }
+        });
+    }
+
+    @Override
+    protected ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
+        return toLeakAwareBuffer(heap.allocate(initialCapacity, maxCapacity));
+    }
+
+    @Override
+    protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+        return toLeakAwareBuffer(direct.allocate(initialCapacity, maxCapacity));
+    }
+
+    @Override
+    public boolean isDirectBufferPooled() {
+        return true;
+    }
+
+    @Override
+    public ByteBufAllocatorMetric metric() {
+        return this;
+    }
+
+    @Override
+    public long usedHeapMemory() {
+        return heap.usedMemory();
+    }
+
+    @Override
+    public long usedDirectMemory() {
+        return direct.usedMemory();
+    }
+
+    @Override
+    public String toString() {
+        return StringUtil.simpleClassName(this) + "(usedHeapMemory: " + usedHeapMemory() +
+                "; usedDirectMemory: " + usedDirectMemory() + ')';
+    }
+}
@@ -0,0 +1,686 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.NettyRuntime;
+import io.netty.util.ReferenceCounted;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.ObjectPool;
+import io.netty.util.internal.ObjectPool.Handle;
+import io.netty.util.internal.ObjectPool.ObjectCreator;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An allocator that carves buffers out of shared, size-adapting chunks without using any thread-local caches.
+ * <p>
+ * Allocations are striped over a fixed number of {@link Magazine}s, selected by the id of the allocating thread.
+ * Each magazine owns a current chunk, from which buffers are handed out by bumping an offset. A magazine keeps a
+ * histogram of the sizes it has been asked for, and periodically derives the size of the next chunk it will allocate
+ * from it, so that chunks are sized to hold a handful of the most common allocations.
+ * <p>
+ * Chunks are reference counted: every buffer carved from a chunk holds a reference to it, and so does the magazine
+ * while the chunk is current. Once all of those references are gone, the chunk is reset and offered to a central
+ * queue shared by all magazines, or freed if that queue is full. Allocations that are too large to be pooled get a
+ * dedicated chunk that is freed as soon as the buffer is released.
+ * <p>
+ * Because no state is bound to threads, this allocator does not waste memory on per-thread caches when used with
+ * many short-lived threads.
+ */
+final class AdaptivePoolingAllocator {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AdaptivePoolingAllocator.class);
+
+    /**
+     * The size histograms use power-of-two buckets, starting at {@code 1 << MIN_HISTO_SHIFT}.
+     */
+    private static final int MIN_HISTO_SHIFT = 6;
+    private static final int HISTO_BUCKETS = 15;
+    private static final int DATUM_TARGET = 1024;
+    private static final int BUFS_PER_CHUNK = 10;
+    private static final int MIN_CHUNK_SIZE = 128 * 1024;
+    private static final int MAX_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int MAX_POOLED_BUF_SIZE = 1 << MIN_HISTO_SHIFT + HISTO_BUCKETS - 1;
+    private static final int DEFAULT_MAGAZINE_COUNT;
+    private static final int DEFAULT_CENTRAL_QUEUE_CAPACITY;
+
+    static {
+        int magazines = SystemPropertyUtil.getInt("io.netty.allocator.adaptive.magazines",
+                Math.min(64, NettyRuntime.availableProcessors() * 2));
+        DEFAULT_MAGAZINE_COUNT = MathUtil.findNextPositivePowerOfTwo(Math.max(1, magazines));
+        DEFAULT_CENTRAL_QUEUE_CAPACITY = Math.max(1, SystemPropertyUtil.getInt(
+                "io.netty.allocator.adaptive.centralQueueCapacity", DEFAULT_MAGAZINE_COUNT * 2));
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.allocator.adaptive.magazines: {}", DEFAULT_MAGAZINE_COUNT);
+            logger.debug("-Dio.netty.allocator.adaptive.centralQueueCapacity: {}", DEFAULT_CENTRAL_QUEUE_CAPACITY);
+        }
+    }
+
+    /**
+     * Allocates the memory backing the chunks of an {@link AdaptivePoolingAllocator}.
+     */
+    interface ChunkAllocator {
+        /**
+         * Allocate a buffer of exactly the given capacity, which will be used as chunk memory.
+         */
+        AbstractByteBuf allocate(int capacity);
+    }
+
+    private final ByteBufAllocator parent;
+    private final ChunkAllocator chunkAllocator;
+    private final Magazine[] magazines;
+    private final Queue<Chunk> centralQueue;
+    private final LongCounter usedMemory = PlatformDependent.newLongCounter();
+
+    AdaptivePoolingAllocator(ByteBufAllocator parent, ChunkAllocator chunkAllocator) {
+        this(parent, chunkAllocator, DEFAULT_MAGAZINE_COUNT, DEFAULT_CENTRAL_QUEUE_CAPACITY);
+    }
+
+    AdaptivePoolingAllocator(ByteBufAllocator parent, ChunkAllocator chunkAllocator,
+                             int magazineCount, int centralQueueCapacity) {
+        this.parent = parent;
+        this.chunkAllocator = chunkAllocator;
+        magazines = new Magazine[MathUtil.findNextPositivePowerOfTwo(magazineCount)];
+        for (int i = 0; i < magazines.length; i++) {
+            magazines[i] = new Magazine(this);
+        }
+        centralQueue = new ArrayBlockingQueue<Chunk>(centralQueueCapacity);
+    }
+
+    /**
+     * Allocate a new buffer with the given initial and maximum capacity.
+     */
+    ByteBuf allocate(int size, int maxCapacity) {
+        AdaptiveByteBuf buf = AdaptiveByteBuf.newInstance();
+        allocate(size, maxCapacity, buf);
+        return buf;
+    }
+
+    private void allocate(int size, int maxCapacity, AdaptiveByteBuf into) {
+        if (size <= MAX_POOLED_BUF_SIZE) {
+            final Magazine[] mags = magazines;
+            final int mask = mags.length - 1;
+            final long threadId = Thread.currentThread().getId();
+            final int home = (int) (threadId ^ threadId >>> 32) & mask;
+            for (int i = 0; i < mags.length; i++) {
+                Magazine mag = mags[home + i & mask];
+                if (mag.tryLock()) {
+                    try {
+                        mag.allocate(size, maxCapacity, into);
+                        return;
+                    } finally {
+                        mag.unlock();
+                    }
+                }
+            }
+            // Every magazine is busy, so wait for our own one instead of spinning.
+            Magazine mag = mags[home];
+            mag.lock();
+            try {
+                mag.allocate(size, maxCapacity, into);
+            } finally {
+                mag.unlock();
+            }
+        } else {
+            // Too big to pool, so give the buffer a chunk of its own which is freed once the buffer is released.
+            Chunk chunk = newChunk(size, false);
+            try {
+                chunk.allocate(size, maxCapacity, into);
+            } finally {
+                // Drop the reference of the chunk itself, the buffer now holds the only one.
+                chunk.release();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes of memory currently held by this allocator, including memory of chunks that are
+     * only retained for reuse.
+     */
+    long usedMemory() {
+        return usedMemory.value();
+    }
+
+    private Chunk newChunk(int capacity, boolean pooled) {
+        AbstractByteBuf memory = chunkAllocator.allocate(capacity);
+        usedMemory.add(memory.capacity());
+        return new Chunk(this, memory, pooled);
+    }
+
+    private Chunk pollCentralQueue(int size, int preferredChunkSize) {
+        Chunk chunk;
+        while ((chunk = centralQueue.poll()) != null) {
+            if (chunk.capacity() >= size && chunk.capacity() >= preferredChunkSize) {
+                return chunk;
+            }
+            // This chunk is smaller than what the magazine wants now, so give its memory back.
+            chunk.destroy();
+        }
+        return null;
+    }
+
+    private boolean offerToCentralQueue(Chunk chunk) {
+        return centralQueue.offer(chunk);
+    }
+
+    private static final class Magazine extends ReentrantLock {
+        private static final long serialVersionUID = -4068223712022528165L;
+
+        private final AdaptivePoolingAllocator parent;
+        private final int[] histogram = new int[HISTO_BUCKETS];
+        private int datumCount;
+        private int preferredChunkSize = MIN_CHUNK_SIZE;
+        private Chunk current;
+
+        Magazine(AdaptivePoolingAllocator parent) {
+            this.parent = parent;
+        }
+
+        void allocate(int size, int maxCapacity, AdaptiveByteBuf into) {
+            recordAllocationSize(size);
+            Chunk curr = current;
+            if (curr != null) {
+                if (curr.remainingCapacity() >= size) {
+                    curr.allocate(size, maxCapacity, into);
+                    return;
+                }
+                // The current chunk can't satisfy the request, so retire it. Its memory becomes reusable once every
+                // buffer that was carved from it has been released.
+                current = null;
+                curr.release();
+            }
+            curr = parent.pollCentralQueue(size, preferredChunkSize);
+            if (curr == null) {
+                curr = parent.newChunk(Math.max(size, preferredChunkSize), true);
+            }
+            current = curr;
+            curr.allocate(size, maxCapacity, into);
+        }
+
+        private void recordAllocationSize(int size) {
+            histogram[sizeBucket(size)]++;
+            if (++datumCount == DATUM_TARGET) {
+                rotateHistogram();
+            }
+        }
+
+        private void rotateHistogram() {
+            // Size the chunks after the 99th percentile of the recorded allocation sizes.
+            int remaining = datumCount / 100;
+            int bucket = HISTO_BUCKETS - 1;
+            for (; bucket > 0; bucket--) {
+                remaining -= histogram[bucket];
+                if (remaining < 0) {
+                    break;
+                }
+            }
+            int bucketSize = 1 << bucket + MIN_HISTO_SHIFT;
+            preferredChunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE,
+                    MathUtil.findNextPositivePowerOfTwo(bucketSize * BUFS_PER_CHUNK)));
+            Arrays.fill(histogram, 0);
+            datumCount = 0;
+        }
+    }
+
+    static int sizeBucket(int size) {
+        if (size <= 1 << MIN_HISTO_SHIFT) {
+            return 0;
+        }
+        int log2 = 32 - Integer.numberOfLeadingZeros(size - 1);
+        return Math.min(log2 - MIN_HISTO_SHIFT, HISTO_BUCKETS - 1);
+    }
+
+    private static final class Chunk extends AbstractReferenceCounted {
+        private final AdaptivePoolingAllocator allocator;
+        private final AbstractByteBuf memory;
+        private final boolean pooled;
+        private int allocatedBytes;
+
+        Chunk(AdaptivePoolingAllocator allocator, AbstractByteBuf memory, boolean pooled) {
+            this.allocator = allocator;
+            this.memory = memory;
+            this.pooled = pooled;
+        }
+
+        int capacity() {
+            return memory.capacity();
+        }
+
+        int remainingCapacity() {
+            return memory.capacity() - allocatedBytes;
+        }
+
+        void allocate(int size, int maxCapacity, AdaptiveByteBuf into) {
+            assert remainingCapacity() >= size;
+            retain();
+            into.init(this, memory, allocatedBytes, size, maxCapacity);
+            allocatedBytes += size;
+        }
+
+        @Override
+        protected void deallocate() {
+            if (pooled) {
+                allocatedBytes = 0;
+                setRefCnt(1);
+                if (allocator.offerToCentralQueue(this)) {
+                    return;
+                }
+            }
+            destroy();
+        }
+
+        void destroy() {
+            allocator.usedMemory.add(-memory.capacity());
+            memory.release();
+        }
+
+        @Override
+        public ReferenceCounted touch(Object hint) {
+            return this;
+        }
+    }
+
+    static final class AdaptiveByteBuf extends AbstractReferenceCountedByteBuf {
+        private static final ObjectPool<AdaptiveByteBuf> RECYCLER = ObjectPool.newPool(
+                new ObjectCreator<AdaptiveByteBuf>() {
+                    @Override
+                    public AdaptiveByteBuf newObject(Handle<AdaptiveByteBuf> handle) {
+                        return new AdaptiveByteBuf(handle);
+                    }
+                });
+
+        static AdaptiveByteBuf newInstance() {
+            AdaptiveByteBuf buf = RECYCLER.get();
+            buf.resetRefCnt();
+            buf.setIndex0(0, 0);
+            buf.discardMarks();
+            return buf;
+        }
+
+        private final Handle<AdaptiveByteBuf> handle;
+        private ByteBufAllocator allocator;
+        private Chunk chunk;
+        private AbstractByteBuf rootParent;
+        private int adjustment;
+        private int length;
+        private ByteBuffer tmpNioBuf;
+        private boolean direct;
+        private boolean hasArray;
+        private boolean hasMemoryAddress;
+
+        private AdaptiveByteBuf(Handle<AdaptiveByteBuf> handle) {
+            super(0);
+            this.handle = handle;
+        }
+
+        void init(Chunk chunk, AbstractByteBuf rootParent, int adjustment, int length, int maxCapacity) {
+            this.chunk = chunk;
+            this.rootParent = rootParent;
+            this.adjustment = adjustment;
+            this.length = length;
+            allocator = chunk.allocator.parent;
+            direct = rootParent.isDirect();
+            hasArray = rootParent.hasArray();
+            hasMemoryAddress = rootParent.hasMemoryAddress();
+            tmpNioBuf = null;
+            maxCapacity(maxCapacity);
+        }
+
+        private int idx(int index) {
+            return index + adjustment;
+        }
+
+        @Override
+        public int capacity() {
+            return length;
+        }
+
+        @Override
+        public ByteBuf capacity(int newCapacity) {
+            if (newCapacity == length) {
+                ensureAccessible();
+                return this;
+            }
+            checkNewCapacity(newCapacity);
+            if (newCapacity < length) {
+                length = newCapacity;
+                tmpNioBuf = null;
+                trimIndicesToCapacity(newCapacity);
+                return this;
+            }
+
+            // Reallocation required, this re-initializes this buffer with new memory.
+            final Chunk oldChunk = chunk;
+            final AbstractByteBuf oldParent = rootParent;
+            final int oldAdjustment = adjustment;
+            final int oldLength = length;
+            oldChunk.allocator.allocate(newCapacity, maxCapacity(), this);
+            oldParent.getBytes(oldAdjustment, rootParent, adjustment, oldLength);
+            oldChunk.release();
+            return this;
+        }
+
+        @Override
+        public ByteBufAllocator alloc() {
+            return allocator;
+        }
+
+        @Override
+        public ByteOrder order() {
+            return ByteOrder.BIG_ENDIAN;
+        }
+
+        @Override
+        public ByteBuf unwrap() {
+            return null;
+        }
+
+        @Override
+        public boolean isDirect() {
+            return direct;
+        }
+
+        @Override
+        public boolean isContiguous() {
+            return true;
+        }
+
+        @Override
+        public ByteBuf retainedDuplicate() {
+            return PooledDuplicatedByteBuf.newInstance(this, this, readerIndex(), writerIndex());
+        }
+
+        @Override
+        public ByteBuf retainedSlice() {
+            final int index = readerIndex();
+            return retainedSlice(index, writerIndex() - index);
+        }
+
+        @Override
+        public ByteBuf retainedSlice(int index, int length) {
+            return PooledSlicedByteBuf.newInstance(this, this, index, length);
+        }
+
+        @Override
+        protected byte _getByte(int index) {
+            return rootParent._getByte(idx(index));
+        }
+
+        @Override
+        protected short _getShort(int index) {
+            return rootParent._getShort(idx(index));
+        }
+
+        @Override
+        protected short _getShortLE(int index) {
+            return rootParent._getShortLE(idx(index));
+        }
+
+        @Override
+        protected int _getUnsignedMedium(int index) {
+            return rootParent._getUnsignedMedium(idx(index));
+        }
+
+        @Override
+        protected int _getUnsignedMediumLE(int index) {
+            return rootParent._getUnsignedMediumLE(idx(index));
+        }
+
+        @Override
+        protected int _getInt(int index) {
+            return rootParent._getInt(idx(index));
+        }
+
+        @Override
+        protected int _getIntLE(int index) {
+            return rootParent._getIntLE(idx(index));
+        }
+
+        @Override
+        protected long _getLong(int index) {
+            return rootParent._getLong(idx(index));
+        }
+
+        @Override
+        protected long _getLongLE(int index) {
+            return rootParent._getLongLE(idx(index));
+        }
+
+        @Override
+        protected void _setByte(int index, int value) {
+            rootParent._setByte(idx(index), value);
+        }
+
+        @Override
+        protected void _setShort(int index, int value) {
+            rootParent._setShort(idx(index), value);
+        }
+
+        @Override
+        protected void _setShortLE(int index, int value) {
+            rootParent._setShortLE(idx(index), value);
+        }
+
+        @Override
+        protected void _setMedium(int index, int value) {
+            rootParent._setMedium(idx(index), value);
+        }
+
+        @Override
+        protected void _setMediumLE(int index, int value) {
+            rootParent._setMediumLE(idx(index), value);
+        }
+
+        @Override
+        protected void _setInt(int index, int value) {
+            rootParent._setInt(idx(index), value);
+        }
+
+        @Override
+        protected void _setIntLE(int index, int value) {
+            rootParent._setIntLE(idx(index), value);
+        }
+
+        @Override
+        protected void _setLong(int index, long value) {
+            rootParent._setLong(idx(index), value);
+        }
+
+        @Override
+        protected void _setLongLE(int index, long value) {
+            rootParent._setLongLE(idx(index), value);
+        }
+
+        @Override
+        public ByteBuf getBytes(int index, ByteBuf dst, int dstIndex, int length) {
+            checkIndex(index, length);
+            rootParent.getBytes(idx(index), dst, dstIndex, length);
+            return this;
+        }
+
+        @Override
+        public ByteBuf getBytes(int index, byte[] dst, int dstIndex, int length) {
+            checkIndex(index, length);
+            rootParent.getBytes(idx(index), dst, dstIndex, length);
+            return this;
+        }
+
+        @Override
+        public ByteBuf getBytes(int index, ByteBuffer dst) {
+            checkIndex(index, dst.remaining());
+            rootParent.getBytes(idx(index), dst);
+            return this;
+        }
+
+        @Override
+        public ByteBuf getBytes(int index, OutputStream out, int length) throws IOException {
+            checkIndex(index, length);
+            rootParent.getBytes(idx(index), out, length);
+            return this;
+        }
+
+        @Override
+        public int getBytes(int index, GatheringByteChannel out, int length) throws IOException {
+            checkIndex(index, length);
+            return rootParent.getBytes(idx(index), out, length);
+        }
+
+        @Override
+        public int getBytes(int index, FileChannel out, long position, int length) throws IOException {
+            checkIndex(index, length);
+            return rootParent.getBytes(idx(index), out, position, length);
+        }
+
+        @Override
+        public ByteBuf setBytes(int index, ByteBuf src, int srcIndex, int length) {
+            checkIndex(index, length);
+            rootParent.setBytes(idx(index), src, srcIndex, length);
+            return this;
+        }
+
+        @Override
+        public ByteBuf setBytes(int index, byte[] src, int srcIndex, int length) {
+            checkIndex(index, length);
+            rootParent.setBytes(idx(index), src, srcIndex, length);
+            return this;
+        }
+
+        @Override
+        public ByteBuf setBytes(int index, ByteBuffer src) {
+            checkIndex(index, src.remaining());
+            rootParent.setBytes(idx(index), src);
+            return this;
+        }
+
+        @Override
+        public int setBytes(int index, InputStream in, int length) throws IOException {
+            checkIndex(index, length);
+            return rootParent.setBytes(idx(index), in, length);
+        }
+
+        @Override
+        public int setBytes(int index, ScatteringByteChannel in, int length) throws IOException {
+            checkIndex(index, length);
+            try {
+                return rootParent.setBytes(idx(index), in, length);
+            } catch (ClosedChannelException ignored) {
+                return -1;
+            }
+        }
+
+        @Override
+        public int setBytes(int index, FileChannel in, long position, int length) throws IOException {
+            checkIndex(index, length);
+            try {
+                return rootParent.setBytes(idx(index), in, position, length);
+            } catch (ClosedChannelException ignored) {
+                return -1;
+            }
+        }
+
+        @Override
+        public ByteBuf copy(int index, int length) {
+            checkIndex(index, length);
+            ByteBuf copy = isDirect() ? alloc().directBuffer(length, maxCapacity())
+                    : alloc().heapBuffer(length, maxCapacity());
+            return copy.writeBytes(this, index, length);
+        }
+
+        @Override
+        public int nioBufferCount() {
+            return 1;
+        }
+
+        @Override
+        public ByteBuffer nioBuffer(int index, int length) {
+            checkIndex(index, length);
+            return rootParent.nioBuffer(idx(index), length);
+        }
+
+        @Override
+        public ByteBuffer[] nioBuffers(int index, int length) {
+            return new ByteBuffer[] { nioBuffer(index, length) };
+        }
+
+        @Override
+        public ByteBuffer internalNioBuffer(int index, int length) {
+            checkIndex(index, length);
+            ByteBuffer tmpNioBuf = this.tmpNioBuf;
+            if (tmpNioBuf == null) {
+                // Cover the whole capacity, so the buffer can be reused for any later index and length.
+                this.tmpNioBuf = tmpNioBuf = rootParent.nioBuffer(adjustment, this.length);
+            }
+            tmpNioBuf.clear().position(index).limit(index + length);
+            return tmpNioBuf;
+        }
+
+        @Override
+        public boolean hasArray() {
+            return hasArray;
+        }
+
+        @Override
+        public byte[] array() {
+            ensureAccessible();
+            return rootParent.array();
+        }
+
+        @Override
+        public int arrayOffset() {
+            ensureAccessible();
+            return idx(rootParent.arrayOffset());
+        }
+
+        @Override
+        public boolean hasMemoryAddress() {
+            return hasMemoryAddress;
+        }
+
+        @Override
+        public long memoryAddress() {
+            ensureAccessible();
+            return rootParent.memoryAddress() + adjustment;
+        }
+
+        @Override
+        protected void deallocate() {
+            Chunk chunk = this.chunk;
+            this.chunk = null;
+            rootParent = null;
+            tmpNioBuf = null;
+            chunk.release();
+            handle.recycle(this);
+        }
+    }
+}
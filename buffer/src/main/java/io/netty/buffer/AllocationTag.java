@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.AbstractConstant;
+import io.netty.util.ConstantPool;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * Names the code that allocates a buffer, so that {@link PooledByteBufAllocatorMetric} can tell how much memory
+ * each part of an application holds. A tag applies to all buffers the current thread allocates from a
+ * {@link PooledByteBufAllocator} between {@link #enter(AllocationTag)} and {@link #exit(AllocationTag)}:
+ *
+ * <pre>
+ * AllocationTag previous = AllocationTag.enter(MY_TAG);
+ * try {
+ *     buf = alloc.buffer(capacity);
+ * } finally {
+ *     AllocationTag.exit(previous);
+ * }
+ * </pre>
+ *
+ * Tagging is disabled by default, in which case both calls return immediately. Enable it with
+ * {@code -Dio.netty.allocator.allocationTags=true} or {@link #setEnabled(boolean)}.
+ */
+public final class AllocationTag extends AbstractConstant<AllocationTag> {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AllocationTag.class);
+
+    private static final ConstantPool<AllocationTag> pool = new ConstantPool<AllocationTag>() {
+        @Override
+        protected AllocationTag newConstant(int id, String name) {
+            return new AllocationTag(id, name);
+        }
+    };
+
+    private static final FastThreadLocal<AllocationTag> CURRENT = new FastThreadLocal<AllocationTag>();
+
+    // Returned by enter() if it did not change the tag of the thread, so exit() knows there is nothing to restore.
+    private static final AllocationTag UNCHANGED = new AllocationTag(-1, "UNCHANGED");
+
+    private static volatile boolean enabled;
+
+    static {
+        enabled = SystemPropertyUtil.getBoolean("io.netty.allocator.allocationTags", false);
+        logger.debug("-Dio.netty.allocator.allocationTags: {}", enabled);
+    }
+
+    /**
+     * Returns the singleton instance of the {@link AllocationTag} which has the specified {@code name}.
+     */
+    public static AllocationTag valueOf(String name) {
+        return pool.valueOf(name);
+    }
+
+    /**
+     * Returns {@code true} if buffers are tagged.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables tagging. Buffers allocated while tagging is disabled are never counted for a tag.
+     */
+    public static void setEnabled(boolean enabled) {
+        AllocationTag.enabled = enabled;
+    }
+
+    /**
+     * Returns the tag of the buffers the current thread allocates, or {@code null} if there is none or tagging is
+     * disabled.
+     */
+    public static AllocationTag current() {
+        return enabled ? CURRENT.get() : null;
+    }
+
+    /**
+     * Tags the buffers the current thread allocates with {@code tag}, until {@link #exit(AllocationTag)} is called
+     * with the returned tag.
+     *
+     * @return what {@link #exit(AllocationTag)} needs to restore the tag that was used before
+     */
+    public static AllocationTag enter(AllocationTag tag) {
+        if (!enabled) {
+            return UNCHANGED;
+        }
+        AllocationTag previous = CURRENT.get();
+        CURRENT.set(tag);
+        return previous;
+    }
+
+    /**
+     * Restores the tag {@link #enter(AllocationTag)} returned. This is done even if tagging was disabled in between,
+     * so the tag does not stick to the thread once tagging is enabled again.
+     */
+    public static void exit(AllocationTag previous) {
+        if (previous != UNCHANGED) {
+            CURRENT.set(previous);
+        }
+    }
+
+    private AllocationTag(int id, String name) {
+        super(id, name);
+    }
+}
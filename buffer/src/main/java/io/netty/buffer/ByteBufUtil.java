@@ -71,6 +71,12 @@ public final class ByteBufUtil {
             (int) CharsetUtil.encoder(CharsetUtil.UTF_8).maxBytesPerChar();
 
     static final int WRITE_CHUNK_SIZE = 8192;
+    private static final boolean BIG_ENDIAN_NATIVE_ORDER = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+    private static final long ASCII_MASK = 0x8080808080808080L;
+    /**
+     * Returned by {@link #firstIndexOf(AbstractByteBuf, int, int, ByteProcessor)} for processors it does not know.
+     */
+    static final int NOT_SEARCHED = -2;
     static final ByteBufAllocator DEFAULT_ALLOCATOR;
 
     static {
@@ -85,6 +91,9 @@ public final class ByteBufUtil {
         } else if ("pooled".equals(allocType)) {
             alloc = PooledByteBufAllocator.DEFAULT;
             logger.debug("-Dio.netty.allocator.type: {}", allocType);
+        } else if ("adaptive".equals(allocType)) {
+            alloc = AdaptiveByteBufAllocator.DEFAULT;
+            logger.debug("-Dio.netty.allocator.type: {}", allocType);
         } else {
             alloc = PooledByteBufAllocator.DEFAULT;
             logger.debug("-Dio.netty.allocator.type: pooled (unknown: {})", allocType);
@@ -519,10 +528,25 @@ public final class ByteBufUtil {
         }
 
         private static int firstAnyPattern(long word, long pattern, boolean leading) {
+            return firstMatch(matches(word, pattern), leading);
+        }
+
+        private static int firstAnyPattern(long word, long pattern1, long pattern2, boolean leading) {
+            return firstMatch(matches(word, pattern1) | matches(word, pattern2), leading);
+        }
+
+        /**
+         * Returns a word with the highest bit of every byte of {@code word} that matches {@code pattern} set.
+         */
+        private static long matches(long word, long pattern) {
             long input = word ^ pattern;
             long tmp = (input & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
-            tmp = ~(tmp | input | 0x7F7F7F7F7F7F7F7FL);
-            final int binaryPosition = leading? Long.numberOfLeadingZeros(tmp) : Long.numberOfTrailingZeros(tmp);
+            return ~(tmp | input | 0x7F7F7F7F7F7F7F7FL);
+        }
+
+        private static int firstMatch(long matches, boolean leading) {
+            final int binaryPosition = leading? Long.numberOfLeadingZeros(matches)
+                    : Long.numberOfTrailingZeros(matches);
             return binaryPosition >>> 3;
         }
     }
@@ -624,6 +648,65 @@ public final class ByteBufUtil {
         return -1;
     }
 
+    /**
+     * Returns the index of the first byte in {@code [fromIndex, toIndex)} that {@code processor} aborts on, if
+     * {@code processor} is one of the {@link ByteProcessor} constants that search for one or two byte values. These
+     * are searched for with the same SWAR technique as {@link #firstIndexOf(AbstractByteBuf, int, int, byte)}.
+     * Returns {@link #NOT_SEARCHED} for any other processor.
+     */
+    static int firstIndexOf(AbstractByteBuf buffer, int fromIndex, int toIndex, ByteProcessor processor) {
+        if (processor == ByteProcessor.FIND_LF) {
+            return firstIndexOf(buffer, fromIndex, toIndex, (byte) '\n');
+        }
+        if (processor == ByteProcessor.FIND_CRLF) {
+            return firstIndexOfAny(buffer, fromIndex, toIndex, (byte) '\r', (byte) '\n');
+        }
+        if (processor == ByteProcessor.FIND_NUL) {
+            return firstIndexOf(buffer, fromIndex, toIndex, (byte) 0);
+        }
+        if (processor == ByteProcessor.FIND_CR) {
+            return firstIndexOf(buffer, fromIndex, toIndex, (byte) '\r');
+        }
+        if (processor == ByteProcessor.FIND_ASCII_SPACE) {
+            return firstIndexOf(buffer, fromIndex, toIndex, (byte) ' ');
+        }
+        if (processor == ByteProcessor.FIND_LINEAR_WHITESPACE) {
+            return firstIndexOfAny(buffer, fromIndex, toIndex, (byte) ' ', (byte) '\t');
+        }
+        if (processor == ByteProcessor.FIND_COMMA) {
+            return firstIndexOf(buffer, fromIndex, toIndex, (byte) ',');
+        }
+        if (processor == ByteProcessor.FIND_SEMI_COLON) {
+            return firstIndexOf(buffer, fromIndex, toIndex, (byte) ';');
+        }
+        return NOT_SEARCHED;
+    }
+
+    private static int firstIndexOfAny(AbstractByteBuf buffer, int fromIndex, int toIndex, byte value1, byte value2) {
+        int offset = fromIndex;
+        if (PlatformDependent.isUnaligned()) {
+            final ByteOrder nativeOrder = ByteOrder.nativeOrder();
+            final boolean isNative = nativeOrder == buffer.order();
+            final boolean useLE = nativeOrder == ByteOrder.LITTLE_ENDIAN;
+            final long pattern1 = SWARByteSearch.compilePattern(value1);
+            final long pattern2 = SWARByteSearch.compilePattern(value2);
+            for (final int lastWord = toIndex - Long.BYTES; offset <= lastWord; offset += Long.BYTES) {
+                final long word = useLE? buffer._getLongLE(offset) : buffer._getLong(offset);
+                int index = SWARByteSearch.firstAnyPattern(word, pattern1, pattern2, isNative);
+                if (index < Long.BYTES) {
+                    return offset + index;
+                }
+            }
+        }
+        for (; offset < toIndex; offset++) {
+            byte value = buffer._getByte(offset);
+            if (value == value1 || value == value2) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
     /**
      * The default implementation of {@link ByteBuf#indexOf(int, int, byte)}.
      * This method is useful when implementing a new buffer type.
@@ -1014,11 +1097,19 @@ public final class ByteBufUtil {
         assert !(seq instanceof AsciiString);
         long writerOffset = memoryOffset + writerIndex;
         final long oldWriterOffset = writerOffset;
+        final boolean asciiWords = PlatformDependent.isUnaligned();
+        if (asciiWords) {
+            final int written = unsafeWriteAsciiWords(buffer, writerOffset, seq, start, end);
+            start += written;
+            writerOffset += written;
+        }
         for (int i = start; i < end; i++) {
             char c = seq.charAt(i);
             if (c < 0x80) {
                 PlatformDependent.putByte(buffer, writerOffset++, (byte) c);
-            } else if (c < 0x800) {
+                continue;
+            }
+            if (c < 0x800) {
                 PlatformDependent.putByte(buffer, writerOffset++, (byte) (0xc0 | (c >> 6)));
                 PlatformDependent.putByte(buffer, writerOffset++, (byte) (0x80 | (c & 0x3f)));
             } else if (isSurrogate(c)) {
@@ -1051,10 +1142,48 @@ public final class ByteBufUtil {
                 PlatformDependent.putByte(buffer, writerOffset++, (byte) (0x80 | ((c >> 6) & 0x3f)));
                 PlatformDependent.putByte(buffer, writerOffset++, (byte) (0x80 | (c & 0x3f)));
             }
+            if (asciiWords) {
+                // A run of ASCII chars may start after a non-ASCII one, e.g. after an accented letter.
+                final int written = unsafeWriteAsciiWords(buffer, writerOffset, seq, i + 1, end);
+                i += written;
+                writerOffset += written;
+            }
         }
         return (int) (writerOffset - oldWriterOffset);
     }
 
+    /**
+     * Writes the ASCII chars of {@code seq} from {@code start} on, 8 chars per step for as long as there are 8 of them
+     * in a row. Returns the number of chars written, which is a multiple of 8.
+     */
+    private static int unsafeWriteAsciiWords(byte[] buffer, long writerOffset, CharSequence seq, int start, int end) {
+        int i = start;
+        for (final int lastWord = end - Long.BYTES; i <= lastWord; i += Long.BYTES) {
+            final long word = asciiWord(seq, i);
+            if (word == -1) {
+                break;
+            }
+            PlatformDependent.putLong(buffer, writerOffset + i - start, word);
+        }
+        return i - start;
+    }
+
+    /**
+     * Returns the 8 chars of {@code seq} at {@code index} packed into a word of 8 bytes in native byte order, or
+     * {@code -1} if any of them is not ASCII.
+     */
+    private static long asciiWord(CharSequence seq, int index) {
+        long word = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            final char c = seq.charAt(index + i);
+            if (c >= 0x80) {
+                return -1;
+            }
+            word |= (long) c << (i << 3);
+        }
+        return BIG_ENDIAN_NATIVE_ORDER ? Long.reverseBytes(word) : word;
+    }
+
     /**
      * Returns max bytes length of UTF8 character sequence of the given length.
      */
@@ -1273,6 +1402,11 @@ public final class ByteBufUtil {
             // Fast-path for US-ASCII which is used frequently.
             return new String(array, 0, offset, len);
         }
+        if (PlatformDependent.javaVersion() < 9 && CharsetUtil.UTF_8.equals(charset) && isAscii(array, offset, len)) {
+            // UTF-8 text is mostly ASCII, which we can copy without going through a decoder. Since Java 9 the
+            // decoder checks for this on its own.
+            return new String(array, 0, offset, len);
+        }
         return new String(array, offset, len, charset);
     }
 
@@ -1728,16 +1862,6 @@ public final class ByteBufUtil {
         }
     }
 
-    /**
-     * Aborts on a byte which is not a valid ASCII character.
-     */
-    private static final ByteProcessor FIND_NON_ASCII = new ByteProcessor() {
-        @Override
-        public boolean process(byte value) {
-            return value >= 0;
-        }
-    };
-
     /**
      * Returns {@code true} if the specified {@link ByteBuf} starting at {@code index} with {@code length} is valid
      * ASCII text, otherwise return {@code false}.
@@ -1747,7 +1871,39 @@ public final class ByteBufUtil {
      * @param length The length of the specified buffer.
      */
     private static boolean isAscii(ByteBuf buf, int index, int length) {
-        return buf.forEachByte(index, length, FIND_NON_ASCII) == -1;
+        final int endIndex = index + length;
+        // Check 8 bytes per step.
+        for (final int lastWord = endIndex - Long.BYTES; index <= lastWord; index += Long.BYTES) {
+            if ((buf.getLong(index) & ASCII_MASK) != 0) {
+                return false;
+            }
+        }
+        for (; index < endIndex; index++) {
+            if (buf.getByte(index) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the {@code length} bytes of {@code array} from {@code offset} on are all ASCII.
+     */
+    private static boolean isAscii(byte[] array, int offset, int length) {
+        final int end = offset + length;
+        if (PlatformDependent.hasUnsafe() && PlatformDependent.isUnaligned()) {
+            for (final int lastWord = end - Long.BYTES; offset <= lastWord; offset += Long.BYTES) {
+                if ((PlatformDependent.getLong(array, offset) & ASCII_MASK) != 0) {
+                    return false;
+                }
+            }
+        }
+        for (; offset < end; offset++) {
+            if (array[offset] < 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -1800,6 +1956,10 @@ public final class ByteBufUtil {
             byte b2, b3, b4;
             if ((b1 & 0x80) == 0) {
                 // 1 byte
+                // Skip the ASCII bytes that follow 8 at a time, as text is mostly ASCII.
+                while (index <= endIndex - Long.BYTES && (buf.getLong(index) & ASCII_MASK) == 0) {
+                    index += Long.BYTES;
+                }
                 continue;
             }
             if ((b1 & 0xE0) == 0xC0) {
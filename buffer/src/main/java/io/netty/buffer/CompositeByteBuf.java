@@ -664,6 +664,34 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         return componentCount == 0 ? EMPTY_ITERATOR : new CompositeByteBufIterator();
     }
 
+    @Override
+    public int indexOf(int fromIndex, int toIndex, byte value) {
+        if (fromIndex > toIndex) {
+            return super.indexOf(fromIndex, toIndex, value);
+        }
+        fromIndex = Math.max(fromIndex, 0);
+        if (fromIndex >= toIndex || capacity() == 0) {
+            return -1;
+        }
+        checkIndex(fromIndex, toIndex - fromIndex);
+        // search each component on its own, so that words are never assembled across components
+        for (int i = toComponentIndex0(fromIndex), length = toIndex - fromIndex; length > 0; i++) {
+            Component c = components[i];
+            if (c.offset == c.endOffset) {
+                continue; // empty
+            }
+            int localStart = c.idx(fromIndex);
+            int localLength = Math.min(length, c.endOffset - fromIndex);
+            int result = c.buf.indexOf(localStart, localStart + localLength, value);
+            if (result != -1) {
+                return result - c.adjustment;
+            }
+            fromIndex += localLength;
+            length -= localLength;
+        }
+        return -1;
+    }
+
     @Override
     protected int forEachByteAsc0(int start, int end, ByteProcessor processor) throws Exception {
         if (end <= start) {
@@ -73,6 +73,17 @@ final class LongPriorityQueue {
         return size == 0;
     }
 
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the values of this queue to {@code dst}, starting at {@code dstIndex}, in no particular order.
+     */
+    public void copyTo(long[] dst, int dstIndex) {
+        System.arraycopy(array, 1, dst, dstIndex, size);
+    }
+
     private void lift(int index) {
         int parentIndex;
         while (index > 1 && subord(parentIndex = index >> 1, index)) {
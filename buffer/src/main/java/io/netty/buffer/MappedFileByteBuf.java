@@ -0,0 +1,705 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.ByteProcessor;
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * Read-only {@link ByteBuf} over a region of a file. The region is mapped in windows of a fixed size when it is
+ * accessed, and at most a fixed number of windows are kept mapped. When a window has to make room for another one, the
+ * least recently used window is evicted (using the second-chance approximation of LRU, so that hits don't need a lock).
+ * Windows overlap by {@code 7} bytes so that any primitive read falls into a single window.
+ * <p>
+ * An evicted window is unmapped as soon as nothing derived from it is in use anymore. Single reads don't pin the
+ * windows they read from, so reading a byte costs no more than a lookup in the window table. Like any other
+ * {@link ByteBuf}, this buffer and the buffers derived from it must therefore not be read by several threads at the
+ * same time, as a window may be unmapped while another thread still reads from it.
+ * <p>
+ * {@link #nioBuffer(int, int)} returns a read-only slice of the mapping without copying, which must not be used after
+ * the buffer was released, like the {@link ByteBuffer}s of any other direct buffer. As there is no telling when such a
+ * slice is not used anymore, its window stays mapped until the buffer is deallocated, even if it was evicted.
+ */
+final class MappedFileByteBuf extends AbstractReferenceCountedByteBuf {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(MappedFileByteBuf.class);
+
+    static final int DEFAULT_WINDOW_SIZE;
+    static final int DEFAULT_MAX_WINDOWS;
+
+    private static final int WINDOW_OVERLAP = 7;
+    private static final ByteBuffer EMPTY_NIO_BUFFER = Unpooled.EMPTY_BUFFER.nioBuffer();
+
+    static {
+        DEFAULT_WINDOW_SIZE = MathUtil.safeFindNextPositivePowerOfTwo(
+                SystemPropertyUtil.getInt("io.netty.buffer.mappedWindowSize", 4 * 1024 * 1024));
+        DEFAULT_MAX_WINDOWS = Math.max(1, SystemPropertyUtil.getInt("io.netty.buffer.mappedMaxWindows", 16));
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.buffer.mappedWindowSize: {}", DEFAULT_WINDOW_SIZE);
+            logger.debug("-Dio.netty.buffer.mappedMaxWindows: {}", DEFAULT_MAX_WINDOWS);
+        }
+    }
+
+    private final ByteBufAllocator allocator;
+    private final FileChannel channel;
+    private final long position;
+    private final boolean closeOnDeallocate;
+    private final int windowShift;
+    private final int maxWindows;
+    private final AtomicReferenceArray<Window> windows;
+    // The windows in the order they were mapped in. Guarded by itself.
+    private final ArrayDeque<Window> mapped = new ArrayDeque<Window>();
+    // The windows that nioBuffer(...) returned a slice of. Guarded by mapped.
+    private final List<Window> exposed = new ArrayList<Window>();
+    private boolean deallocated;
+
+    MappedFileByteBuf(ByteBufAllocator allocator, FileChannel channel, long position, int length,
+                      int windowSize, int maxWindows, boolean closeOnDeallocate) {
+        super(checkPositiveOrZero(length, "length"));
+        checkNotNull(channel, "channel");
+        checkPositiveOrZero(position, "position");
+        checkPositive(windowSize, "windowSize");
+        if ((windowSize & windowSize - 1) != 0) {
+            throw new IllegalArgumentException("windowSize: " + windowSize + " (expected: power of two)");
+        }
+        this.allocator = allocator;
+        this.channel = channel;
+        this.position = position;
+        this.closeOnDeallocate = closeOnDeallocate;
+        this.maxWindows = checkPositive(maxWindows, "maxWindows");
+        windowShift = Integer.numberOfTrailingZeros(windowSize);
+        windows = new AtomicReferenceArray<Window>(length == 0 ? 0 : (length - 1 >>> windowShift) + 1);
+        writerIndex(length);
+    }
+
+    /**
+     * Returns the window that contains {@code index}.
+     */
+    private Window window(int index) {
+        Window window = windows.get(index >>> windowShift);
+        if (window != null) {
+            window.accessed = true;
+            return window;
+        }
+        return map(index >>> windowShift);
+    }
+
+    private Window map(int windowIndex) {
+        synchronized (mapped) {
+            if (deallocated) {
+                throw new IllegalReferenceCountException(0);
+            }
+            Window window = windows.get(windowIndex);
+            if (window != null) {
+                return window;
+            }
+            while (mapped.size() >= maxWindows) {
+                evict();
+            }
+            int offset = windowIndex << windowShift;
+            int size = (int) Math.min((1L << windowShift) + WINDOW_OVERLAP, (long) capacity() - offset);
+            window = new Window(windowIndex, offset, map(offset, size));
+            windows.set(windowIndex, window);
+            mapped.add(window);
+            return window;
+        }
+    }
+
+    private ByteBuffer map(int index, int length) {
+        try {
+            return channel.map(MapMode.READ_ONLY, position + index, length);
+        } catch (IOException e) {
+            PlatformDependent.throwException(e);
+            return null;
+        }
+    }
+
+    private void evict() {
+        assert Thread.holdsLock(mapped);
+        for (;;) {
+            Window window = mapped.poll();
+            if (window.accessed) {
+                // Give it a second chance.
+                window.accessed = false;
+                mapped.add(window);
+            } else {
+                windows.set(window.index, null);
+                window.release();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Keeps {@code window} mapped until this buffer is deallocated, as a slice of it is handed out.
+     */
+    private void expose(Window window) {
+        synchronized (mapped) {
+            if (deallocated) {
+                throw new IllegalReferenceCountException(0);
+            }
+            if (!window.exposed) {
+                window.exposed = true;
+                window.retain();
+                exposed.add(window);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of windows that are mapped and cached.
+     */
+    int numMappedWindows() {
+        synchronized (mapped) {
+            return mapped.size();
+        }
+    }
+
+    @Override
+    protected void deallocate() {
+        synchronized (mapped) {
+            deallocated = true;
+            for (Window window : mapped) {
+                windows.set(window.index, null);
+                window.release();
+            }
+            mapped.clear();
+            for (Window window : exposed) {
+                window.release();
+            }
+            exposed.clear();
+        }
+        if (closeOnDeallocate) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close a file.", e);
+            }
+        }
+    }
+
+    @Override
+    public boolean isWritable() {
+        return false;
+    }
+
+    @Override
+    public boolean isWritable(int numBytes) {
+        return false;
+    }
+
+    @Override
+    public ByteBuf ensureWritable(int minWritableBytes) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public int ensureWritable(int minWritableBytes, boolean force) {
+        return 1;
+    }
+
+    @Override
+    protected byte _getByte(int index) {
+        Window window = window(index);
+        return window.buffer.get(index - window.offset);
+    }
+
+    @Override
+    protected short _getShort(int index) {
+        Window window = window(index);
+        return window.buffer.getShort(index - window.offset);
+    }
+
+    @Override
+    protected short _getShortLE(int index) {
+        return ByteBufUtil.swapShort(_getShort(index));
+    }
+
+    @Override
+    protected int _getUnsignedMedium(int index) {
+        Window window = window(index);
+        int i = index - window.offset;
+        return (window.buffer.get(i) & 0xff)     << 16 |
+               (window.buffer.get(i + 1) & 0xff) << 8  |
+               window.buffer.get(i + 2) & 0xff;
+    }
+
+    @Override
+    protected int _getUnsignedMediumLE(int index) {
+        Window window = window(index);
+        int i = index - window.offset;
+        return window.buffer.get(i)      & 0xff       |
+               (window.buffer.get(i + 1) & 0xff) << 8 |
+               (window.buffer.get(i + 2) & 0xff) << 16;
+    }
+
+    @Override
+    protected int _getInt(int index) {
+        Window window = window(index);
+        return window.buffer.getInt(index - window.offset);
+    }
+
+    @Override
+    protected int _getIntLE(int index) {
+        return ByteBufUtil.swapInt(_getInt(index));
+    }
+
+    @Override
+    protected long _getLong(int index) {
+        Window window = window(index);
+        return window.buffer.getLong(index - window.offset);
+    }
+
+    @Override
+    protected long _getLongLE(int index) {
+        return ByteBufUtil.swapLong(_getLong(index));
+    }
+
+    @Override
+    int forEachByteAsc0(int start, int end, ByteProcessor processor) throws Exception {
+        while (start < end) {
+            Window window = window(start);
+            // The processor may read from this buffer too, and so evict the window.
+            window.retain();
+            try {
+                ByteBuffer buffer = window.buffer;
+                int windowEnd = Math.min(end, window.end());
+                for (; start < windowEnd; ++start) {
+                    if (!processor.process(buffer.get(start - window.offset))) {
+                        return start;
+                    }
+                }
+            } finally {
+                window.release();
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    int forEachByteDesc0(int rStart, int rEnd, ByteProcessor processor) throws Exception {
+        while (rStart >= rEnd) {
+            Window window = window(rStart);
+            window.retain();
+            try {
+                ByteBuffer buffer = window.buffer;
+                int windowStart = Math.max(rEnd, window.offset);
+                for (; rStart >= windowStart; --rStart) {
+                    if (!processor.process(buffer.get(rStart - window.offset))) {
+                        return rStart;
+                    }
+                }
+            } finally {
+                window.release();
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, ByteBuf dst, int dstIndex, int length) {
+        checkDstIndex(index, length, dstIndex, dst.capacity());
+        while (length > 0) {
+            Window window = window(index);
+            ByteBuffer src = window.slice(index, length);
+            int n = src.remaining();
+            dst.setBytes(dstIndex, src);
+            index += n;
+            dstIndex += n;
+            length -= n;
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, byte[] dst, int dstIndex, int length) {
+        checkDstIndex(index, length, dstIndex, dst.length);
+        while (length > 0) {
+            Window window = window(index);
+            ByteBuffer src = window.slice(index, length);
+            int n = src.remaining();
+            src.get(dst, dstIndex, n);
+            index += n;
+            dstIndex += n;
+            length -= n;
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, ByteBuffer dst) {
+        int length = dst.remaining();
+        checkIndex(index, length);
+        while (length > 0) {
+            Window window = window(index);
+            ByteBuffer src = window.slice(index, length);
+            int n = src.remaining();
+            dst.put(src);
+            index += n;
+            length -= n;
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, OutputStream out, int length) throws IOException {
+        checkIndex(index, length);
+        while (length > 0) {
+            int n = Math.min(length, 8192);
+            byte[] tmp = ByteBufUtil.threadLocalTempArray(n);
+            getBytes(index, tmp, 0, n);
+            out.write(tmp, 0, n);
+            index += n;
+            length -= n;
+        }
+        return this;
+    }
+
+    @Override
+    public int getBytes(int index, GatheringByteChannel out, int length) throws IOException {
+        checkIndex(index, length);
+        int written = 0;
+        while (written < length) {
+            Window window = window(index + written);
+            ByteBuffer src = window.slice(index + written, length - written);
+            int expected = src.remaining();
+            int n = out.write(src);
+            written += n;
+            if (n < expected) {
+                break;
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public int getBytes(int index, FileChannel out, long position, int length) throws IOException {
+        checkIndex(index, length);
+        int written = 0;
+        while (written < length) {
+            Window window = window(index + written);
+            ByteBuffer src = window.slice(index + written, length - written);
+            int expected = src.remaining();
+            int n = out.write(src, position + written);
+            written += n;
+            if (n < expected) {
+                break;
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public ByteBuf setByte(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setByte(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setShort(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setShort(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setShortLE(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setShortLE(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setMedium(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setMedium(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setMediumLE(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setMediumLE(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setInt(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setInt(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setIntLE(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setIntLE(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setLong(int index, long value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setLong(int index, long value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setLongLE(int index, long value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setLongLE(int index, long value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, ByteBuf src, int srcIndex, int length) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, byte[] src, int srcIndex, int length) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, ByteBuffer src) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public int setBytes(int index, InputStream in, int length) throws IOException {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public int setBytes(int index, ScatteringByteChannel in, int length) throws IOException {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public int setBytes(int index, FileChannel in, long position, int length) throws IOException {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public int capacity() {
+        return maxCapacity();
+    }
+
+    @Override
+    public ByteBuf capacity(int newCapacity) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBufAllocator alloc() {
+        return allocator;
+    }
+
+    @Override
+    public ByteOrder order() {
+        return ByteOrder.BIG_ENDIAN;
+    }
+
+    @Override
+    public ByteBuf unwrap() {
+        return null;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean isDirect() {
+        return true;
+    }
+
+    @Override
+    public ByteBuf copy(int index, int length) {
+        checkIndex(index, length);
+        ByteBuf copy = alloc().directBuffer(length);
+        getBytes(index, copy, 0, length);
+        copy.writerIndex(length);
+        return copy;
+    }
+
+    @Override
+    public int nioBufferCount() {
+        return 1;
+    }
+
+    @Override
+    public ByteBuffer[] nioBuffers(int index, int length) {
+        return new ByteBuffer[] { nioBuffer(index, length) };
+    }
+
+    @Override
+    public ByteBuffer nioBuffer(int index, int length) {
+        checkIndex(index, length);
+        if (length == 0) {
+            return EMPTY_NIO_BUFFER;
+        }
+        Window window = window(index);
+        if (index + length <= window.end()) {
+            expose(window);
+            return window.slice(index, length).slice();
+        }
+        // The range spans several windows, so map it as a whole. The mapping is not cached, so only the exposed
+        // windows hold a reference to it.
+        Window span = new Window(-1, index, map(index, length));
+        expose(span);
+        span.release();
+        return span.slice(index, length).slice();
+    }
+
+    @Override
+    public ByteBuffer internalNioBuffer(int index, int length) {
+        return nioBuffer(index, length);
+    }
+
+    @Override
+    public boolean hasArray() {
+        return false;
+    }
+
+    @Override
+    public byte[] array() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int arrayOffset() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean hasMemoryAddress() {
+        return false;
+    }
+
+    @Override
+    public long memoryAddress() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * A mapped part of the file.
+     */
+    private static final class Window {
+        private static final AtomicIntegerFieldUpdater<Window> REFCNT_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Window.class, "refCnt");
+
+        final int index;
+        final int offset;
+        final ByteBuffer buffer;
+        // Set on every hit and cleared by eviction, racy on purpose.
+        boolean accessed;
+        // Set once a slice was handed out by nioBuffer(...). Guarded by MappedFileByteBuf.mapped.
+        boolean exposed;
+        // One reference is held by the window table, and one by the exposed windows once a slice was handed out.
+        @SuppressWarnings({ "unused", "FieldMayBeFinal" })
+        private volatile int refCnt = 1;
+
+        Window(int index, int offset, ByteBuffer buffer) {
+            this.index = index;
+            this.offset = offset;
+            this.buffer = buffer;
+        }
+
+        int end() {
+            return offset + buffer.capacity();
+        }
+
+        void retain() {
+            REFCNT_UPDATER.incrementAndGet(this);
+        }
+
+        /**
+         * Unmaps this window once the last reference to it was released.
+         */
+        void release() {
+            if (REFCNT_UPDATER.decrementAndGet(this) == 0) {
+                PlatformDependent.freeDirectBuffer(buffer);
+            }
+        }
+
+        /**
+         * Returns a new read-only buffer over the bytes of this window from {@code index} on, at most {@code length}
+         * of them.
+         */
+        ByteBuffer slice(int index, int length) {
+            int start = index - offset;
+            ByteBuffer slice = buffer.asReadOnlyBuffer();
+            slice.limit(Math.min(buffer.capacity(), start + length)).position(start);
+            return slice;
+        }
+    }
+}
@@ -24,7 +24,10 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static io.netty.buffer.PoolChunk.isSubpage;
 import static java.lang.Math.max;
@@ -52,21 +55,40 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
 
     private final List<PoolChunkListMetric> chunkListMetrics;
 
+    // Guards the chunk lists and the runs of the chunks of this arena. Subpage pools are guarded by the lock of
+    // their head instead, so that small allocations of different sizes don't contend with each other.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongCounter lockContentions = PlatformDependent.newLongCounter();
+    private final LongCounter subpageLockContentions = PlatformDependent.newLongCounter();
+
     // Metrics for allocations and deallocations
-    private long allocationsNormal;
-    // We need to use the LongCounter here as this is not guarded via synchronized block.
+    // We need to use the LongCounter here as these are not guarded by a common lock.
+    private final LongCounter allocationsNormal = PlatformDependent.newLongCounter();
     private final LongCounter allocationsSmall = PlatformDependent.newLongCounter();
     private final LongCounter allocationsHuge = PlatformDependent.newLongCounter();
     private final LongCounter activeBytesHuge = PlatformDependent.newLongCounter();
 
-    private long deallocationsSmall;
-    private long deallocationsNormal;
-
-    // We need to use the LongCounter here as this is not guarded via synchronized block.
+    private final LongCounter deallocationsSmall = PlatformDependent.newLongCounter();
+    private final LongCounter deallocationsNormal = PlatformDependent.newLongCounter();
     private final LongCounter deallocationsHuge = PlatformDependent.newLongCounter();
 
     // Number of thread caches backed by this arena.
     final AtomicInteger numThreadCaches = new AtomicInteger();
+    // The thread caches backed by this arena, so that a snapshot can count the buffers they hold. The references are
+    // weak as the caches of threads that terminated are only freed once they were garbage collected.
+    private final Map<PoolThreadCache, Boolean> threadCaches = new WeakHashMap<PoolThreadCache, Boolean>();
+
+    // The sum of the sizes of the pooled chunks of this arena. Guarded by the arena lock.
+    private long chunkBytes;
+    // Set while the chunks of this arena take more memory than the memory target of the arena.
+    private volatile boolean compacting;
+    private final LongCounter releasedBytes = PlatformDependent.newLongCounter();
+
+    // Usage and capacity of the thread caches backed by this arena per size index. The thread caches publish these
+    // whenever they are trimmed.
+    private final LongCounter[] threadCacheHits;
+    private final LongCounter[] threadCacheMisses;
+    private final LongCounter[] threadCacheCapacities;
 
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
@@ -83,6 +105,10 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
             smallSubpagePools[i] = newSubpagePoolHead();
         }
 
+        threadCacheHits = newLongCounterArray(nSizes);
+        threadCacheMisses = newLongCounterArray(nSizes);
+        threadCacheCapacities = newLongCounterArray(nSizes);
+
         q100 = new PoolChunkList<T>(this, null, 100, Integer.MAX_VALUE, chunkSize);
         q075 = new PoolChunkList<T>(this, q100, 75, 100, chunkSize);
         q050 = new PoolChunkList<T>(this, q075, 50, 100, chunkSize);
@@ -114,6 +140,14 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         return head;
     }
 
+    private static LongCounter[] newLongCounterArray(int size) {
+        LongCounter[] counters = new LongCounter[size];
+        for (int i = 0; i < counters.length; i ++) {
+            counters[i] = PlatformDependent.newLongCounter();
+        }
+        return counters;
+    }
+
     @SuppressWarnings("unchecked")
     private PoolSubpage<T>[] newSubpagePoolArray(int size) {
         return new PoolSubpage[size];
@@ -156,7 +190,8 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
          */
         final PoolSubpage<T> head = smallSubpagePools[sizeIdx];
         final boolean needsNormalAllocation;
-        synchronized (head) {
+        lockSubpagePool(head);
+        try {
             final PoolSubpage<T> s = head.next;
             needsNormalAllocation = s == head;
             if (!needsNormalAllocation) {
@@ -166,11 +201,16 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
                 assert handle >= 0;
                 s.chunk.initBufWithSubpage(buf, null, handle, reqCapacity, cache);
             }
+        } finally {
+            head.lock.unlock();
         }
 
         if (needsNormalAllocation) {
-            synchronized (this) {
+            lock();
+            try {
                 allocateNormal(buf, reqCapacity, sizeIdx, cache);
+            } finally {
+                unlock();
             }
         }
 
@@ -183,15 +223,27 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
             // was able to allocate out of the cache so move on
             return;
         }
-        synchronized (this) {
+        lock();
+        try {
             allocateNormal(buf, reqCapacity, sizeIdx, cache);
-            ++allocationsNormal;
+        } finally {
+            unlock();
         }
+        allocationsNormal.increment();
     }
 
-    // Method must be called inside synchronized(this) { ... } block
+    // Method must be called while holding the arena lock
     private void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int sizeIdx, PoolThreadCache threadCache) {
-        if (q050.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
+        if (compacting) {
+            // Prefer the fullest chunks so that the chunks with a low usage drain and can be released.
+            if (q075.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
+                q050.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
+                q025.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
+                q000.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
+                qInit.allocate(buf, reqCapacity, sizeIdx, threadCache)) {
+                return;
+            }
+        } else if (q050.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
             q025.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
             q000.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
             qInit.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
@@ -204,6 +256,25 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         boolean success = c.allocate(buf, reqCapacity, sizeIdx, threadCache);
         assert success;
         qInit.add(c);
+        updateChunkBytes(chunkSize);
+    }
+
+    // Method must be called while holding the arena lock
+    private void updateChunkBytes(long delta) {
+        chunkBytes += delta;
+        long target = parent.arenaMemoryTarget(isDirect());
+        boolean overTarget = target > 0 && chunkBytes > target;
+        if (compacting != overTarget) {
+            compacting = overTarget;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the chunks of this arena take more memory than its memory target. Empty chunks are then
+     * released right away, normal allocations prefer the fullest chunks and freed buffers are not cached by threads.
+     */
+    boolean isCompacting() {
+        return compacting;
     }
 
     private void incSmallAllocation() {
@@ -225,7 +296,8 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
             deallocationsHuge.increment();
         } else {
             SizeClass sizeClass = sizeClass(handle);
-            if (cache != null && cache.add(this, chunk, nioBuffer, handle, normCapacity, sizeClass)) {
+            // Don't let the thread caches keep chunks alive while the arena tries to give back memory.
+            if (cache != null && !compacting && cache.add(this, chunk, nioBuffer, handle, normCapacity, sizeClass)) {
                 // cached so not free it.
                 return;
             }
@@ -240,27 +312,40 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
 
     void freeChunk(PoolChunk<T> chunk, long handle, int normCapacity, SizeClass sizeClass, ByteBuffer nioBuffer,
                    boolean finalizer) {
+        // We only call this if freeChunk is not called because of the PoolThreadCache finalizer as otherwise this
+        // may fail due lazy class-loading in for example tomcat.
+        if (!finalizer) {
+            switch (sizeClass) {
+                case Normal:
+                    deallocationsNormal.increment();
+                    break;
+                case Small:
+                    deallocationsSmall.increment();
+                    break;
+                default:
+                    throw new Error();
+            }
+        }
+        if (sizeClass == SizeClass.Small && chunk.freeSubpage(handle, normCapacity)) {
+            // The subpage is still in use, so the usage of the chunk did not change and it stays in its chunk list.
+            // This only needed the lock of the subpage pool.
+            return;
+        }
+
         final boolean destroyChunk;
-        synchronized (this) {
-            // We only call this if freeChunk is not called because of the PoolThreadCache finalizer as otherwise this
-            // may fail due lazy class-loading in for example tomcat.
-            if (!finalizer) {
-                switch (sizeClass) {
-                    case Normal:
-                        ++deallocationsNormal;
-                        break;
-                    case Small:
-                        ++deallocationsSmall;
-                        break;
-                    default:
-                        throw new Error();
-                }
+        lock();
+        try {
+            destroyChunk = !chunk.parent.free(chunk, handle, nioBuffer);
+            if (destroyChunk) {
+                updateChunkBytes(-chunk.chunkSize());
             }
-            destroyChunk = !chunk.parent.free(chunk, handle, normCapacity, nioBuffer);
+        } finally {
+            unlock();
         }
         if (destroyChunk) {
             // destroyChunk not need to be called while holding the synchronized lock.
             destroyChunk(chunk);
+            releasedBytes.add(chunk.chunkSize());
         }
     }
 
@@ -268,6 +353,24 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         return smallSubpagePools[sizeIdx];
     }
 
+    void lock() {
+        if (!lock.tryLock()) {
+            lockContentions.increment();
+            lock.lock();
+        }
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    void lockSubpagePool(PoolSubpage<T> head) {
+        if (!head.lock.tryLock()) {
+            subpageLockContentions.increment();
+            head.lock.lock();
+        }
+    }
+
     void reallocate(PooledByteBuf<T> buf, int newCapacity, boolean freeOldMemory) {
         assert newCapacity >= 0 && newCapacity <= buf.maxCapacity();
 
@@ -353,11 +456,7 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
 
     @Override
     public long numAllocations() {
-        final long allocsNormal;
-        synchronized (this) {
-            allocsNormal = allocationsNormal;
-        }
-        return allocationsSmall.value() + allocsNormal + allocationsHuge.value();
+        return allocationsSmall.value() + allocationsNormal.value() + allocationsHuge.value();
     }
 
     @Override
@@ -371,17 +470,13 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     }
 
     @Override
-    public synchronized long numNormalAllocations() {
-        return allocationsNormal;
+    public long numNormalAllocations() {
+        return allocationsNormal.value();
     }
 
     @Override
     public long numDeallocations() {
-        final long deallocs;
-        synchronized (this) {
-            deallocs = deallocationsSmall + deallocationsNormal;
-        }
-        return deallocs + deallocationsHuge.value();
+        return deallocationsSmall.value() + deallocationsNormal.value() + deallocationsHuge.value();
     }
 
     @Override
@@ -390,13 +485,13 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     }
 
     @Override
-    public synchronized long numSmallDeallocations() {
-        return deallocationsSmall;
+    public long numSmallDeallocations() {
+        return deallocationsSmall.value();
     }
 
     @Override
-    public synchronized long numNormalDeallocations() {
-        return deallocationsNormal;
+    public long numNormalDeallocations() {
+        return deallocationsNormal.value();
     }
 
     @Override
@@ -411,11 +506,8 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
 
     @Override
     public  long numActiveAllocations() {
-        long val = allocationsSmall.value() + allocationsHuge.value()
-                - deallocationsHuge.value();
-        synchronized (this) {
-            val += allocationsNormal - (deallocationsSmall + deallocationsNormal);
-        }
+        long val = allocationsSmall.value() + allocationsNormal.value() + allocationsHuge.value()
+                - deallocationsSmall.value() - deallocationsNormal.value() - deallocationsHuge.value();
         return max(val, 0);
     }
 
@@ -431,11 +523,7 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
 
     @Override
     public long numActiveNormalAllocations() {
-        final long val;
-        synchronized (this) {
-            val = allocationsNormal - deallocationsNormal;
-        }
-        return max(val, 0);
+        return max(numNormalAllocations() - numNormalDeallocations(), 0);
     }
 
     @Override
@@ -446,12 +534,15 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     @Override
     public long numActiveBytes() {
         long val = activeBytesHuge.value();
-        synchronized (this) {
+        lock();
+        try {
             for (int i = 0; i < chunkListMetrics.size(); i++) {
                 for (PoolChunkMetric m: chunkListMetrics.get(i)) {
                     val += m.chunkSize();
                 }
             }
+        } finally {
+            unlock();
         }
         return max(0, val);
     }
@@ -462,12 +553,15 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
      */
     public long numPinnedBytes() {
         long val = activeBytesHuge.value(); // Huge chunks are exact-sized for the buffers they were allocated to.
-        synchronized (this) {
+        lock();
+        try {
             for (int i = 0; i < chunkListMetrics.size(); i++) {
                 for (PoolChunkMetric m: chunkListMetrics.get(i)) {
                     val += ((PoolChunk<?>) m).pinnedBytes();
                 }
             }
+        } finally {
+            unlock();
         }
         return max(0, val);
     }
@@ -478,8 +572,160 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     protected abstract void memoryCopy(T src, int srcOffset, PooledByteBuf<T> dst, int length);
     protected abstract void destroyChunk(PoolChunk<T> chunk);
 
+    void updateThreadCacheMetrics(int sizeIdx, int hits, int misses, int capacityDelta) {
+        if (hits != 0) {
+            threadCacheHits[sizeIdx].add(hits);
+        }
+        if (misses != 0) {
+            threadCacheMisses[sizeIdx].add(misses);
+        }
+        if (capacityDelta != 0) {
+            threadCacheCapacities[sizeIdx].add(capacityDelta);
+        }
+    }
+
+    /**
+     * Return the number of allocations of the given size index that were served by the thread caches backed by this
+     * arena. The thread caches publish their numbers whenever they are trimmed.
+     *
+     * @param sizeIdx the size index, see {@link #size2SizeIdx(int)}
+     */
+    public long numThreadCacheHits(int sizeIdx) {
+        return threadCacheHits[sizeIdx].value();
+    }
+
+    /**
+     * Return the number of allocations of the given size index that could not be served by the thread caches backed
+     * by this arena. The thread caches publish their numbers whenever they are trimmed.
+     *
+     * @param sizeIdx the size index, see {@link #size2SizeIdx(int)}
+     */
+    public long numThreadCacheMisses(int sizeIdx) {
+        return threadCacheMisses[sizeIdx].value();
+    }
+
+    /**
+     * Return the number of buffers of the given size index that all thread caches backed by this arena may hold
+     * together. This changes over time if the allocator adapts its thread caches.
+     *
+     * @param sizeIdx the size index, see {@link #size2SizeIdx(int)}
+     */
+    public long threadCacheCapacity(int sizeIdx) {
+        return threadCacheCapacities[sizeIdx].value();
+    }
+
+    /**
+     * Returns a snapshot of the chunks, subpages and thread caches of this arena. Allocations and deallocations are
+     * blocked while the chunks and subpages are copied.
+     */
+    PoolArenaSnapshot snapshot() {
+        int[] sizeClasses = new int[nSizes];
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = sizeIdx2size(i);
+        }
+        List<PoolChunkSnapshot> chunks = new ArrayList<PoolChunkSnapshot>();
+        int[] numSubpages = new int[numSmallSubpagePools];
+        int[] numSubpageElements = new int[numSmallSubpagePools];
+        int[] numUsedSubpageElements = new int[numSmallSubpagePools];
+
+        lock();
+        try {
+            // Subpages are freed while only holding the lock of their pool, so hold all of them to get a consistent
+            // view of the chunks.
+            for (PoolSubpage<T> head : smallSubpagePools) {
+                lockSubpagePool(head);
+            }
+            try {
+                for (PoolChunkList<T> list : new PoolChunkList[] { qInit, q000, q025, q050, q075, q100 }) {
+                    list.snapshot(chunks, numSubpages, numSubpageElements, numUsedSubpageElements);
+                }
+            } finally {
+                for (int i = smallSubpagePools.length - 1; i >= 0; i--) {
+                    smallSubpagePools[i].lock.unlock();
+                }
+            }
+        } finally {
+            unlock();
+        }
+
+        List<PoolThreadCache> caches;
+        synchronized (threadCaches) {
+            caches = new ArrayList<PoolThreadCache>(threadCaches.keySet());
+        }
+        int[] numCachedBuffers = new int[nSizes];
+        for (PoolThreadCache cache : caches) {
+            cache.countCachedBuffers(this, numCachedBuffers);
+        }
+        return new PoolArenaSnapshot(isDirect(), Collections.unmodifiableList(chunks), sizeClasses, numSubpages,
+                numSubpageElements, numUsedSubpageElements, caches.size(), numCachedBuffers);
+    }
+
+    void addThreadCache(PoolThreadCache cache) {
+        numThreadCaches.getAndIncrement();
+        synchronized (threadCaches) {
+            threadCaches.put(cache, Boolean.TRUE);
+        }
+    }
+
+    void removeThreadCache(PoolThreadCache cache) {
+        numThreadCaches.getAndDecrement();
+        synchronized (threadCaches) {
+            threadCaches.remove(cache);
+        }
+    }
+
+    /**
+     * Return the number of bytes in chunks that hold no buffers at all, and so could be released.
+     */
+    long numReclaimableBytes() {
+        long val = 0;
+        lock();
+        try {
+            for (int i = 0; i < chunkListMetrics.size(); i++) {
+                for (PoolChunkMetric m: chunkListMetrics.get(i)) {
+                    if (m.freeBytes() == m.chunkSize()) {
+                        val += m.chunkSize();
+                    }
+                }
+            }
+        } finally {
+            unlock();
+        }
+        return val;
+    }
+
+    /**
+     * Return the number of bytes of chunks that this arena released so far.
+     */
+    long numReleasedBytes() {
+        return releasedBytes.value();
+    }
+
+    /**
+     * Return the number of times a thread had to wait for the lock that guards the chunks of the arena.
+     */
+    public long numLockContentions() {
+        return lockContentions.value();
+    }
+
+    /**
+     * Return the number of times a thread had to wait for the lock of one of the small sub-page pools of the arena.
+     */
+    public long numSubpageLockContentions() {
+        return subpageLockContentions.value();
+    }
+
     @Override
-    public synchronized String toString() {
+    public String toString() {
+        lock();
+        try {
+            return toString0();
+        } finally {
+            unlock();
+        }
+    }
+
+    private String toString0() {
         StringBuilder buf = new StringBuilder()
             .append("Chunk(s) at 0~25%:")
             .append(StringUtil.NEWLINE)
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.StringUtil;
+
+import java.util.List;
+
+/**
+ * The state of a {@link PoolArenaMetric arena} at one point in time, as returned by
+ * {@link PooledByteBufAllocator#snapshot()}.
+ * <p>
+ * The chunks and subpages are copied while allocations from the arena are blocked, so they are consistent with each
+ * other. The buffers held by the thread caches are counted afterwards without blocking the threads that own them, so
+ * these numbers may be slightly off.
+ * <p>
+ * Size classes are identified by their index, from {@code 0} to {@link #numSizeClasses()} - 1. The first
+ * {@link #numSmallSizeClasses()} of them are served by subpages.
+ */
+public final class PoolArenaSnapshot {
+
+    private final boolean direct;
+    private final List<PoolChunkSnapshot> chunks;
+    private final int[] sizeClasses;
+    private final int[] numSubpages;
+    private final int[] numSubpageElements;
+    private final int[] numUsedSubpageElements;
+    private final int numThreadCaches;
+    private final int[] numCachedBuffers;
+
+    PoolArenaSnapshot(boolean direct, List<PoolChunkSnapshot> chunks, int[] sizeClasses, int[] numSubpages,
+                      int[] numSubpageElements, int[] numUsedSubpageElements, int numThreadCaches,
+                      int[] numCachedBuffers) {
+        this.direct = direct;
+        this.chunks = chunks;
+        this.sizeClasses = sizeClasses;
+        this.numSubpages = numSubpages;
+        this.numSubpageElements = numSubpageElements;
+        this.numUsedSubpageElements = numUsedSubpageElements;
+        this.numThreadCaches = numThreadCaches;
+        this.numCachedBuffers = numCachedBuffers;
+    }
+
+    /**
+     * Return {@code true} if the arena holds direct memory.
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Return the chunks of the arena, excluding those of buffers too large to be pooled.
+     */
+    public List<PoolChunkSnapshot> chunks() {
+        return chunks;
+    }
+
+    /**
+     * Return the number of size classes.
+     */
+    public int numSizeClasses() {
+        return sizeClasses.length;
+    }
+
+    /**
+     * Return the number of size classes that are served by subpages.
+     */
+    public int numSmallSizeClasses() {
+        return numSubpages.length;
+    }
+
+    /**
+     * Return the size in bytes of the buffers of the size class at {@code sizeIdx}.
+     */
+    public int sizeClass(int sizeIdx) {
+        return sizeClasses[sizeIdx];
+    }
+
+    /**
+     * Return the number of subpages that serve the small size class at {@code sizeIdx}.
+     */
+    public int numSubpages(int sizeIdx) {
+        return numSubpages[sizeIdx];
+    }
+
+    /**
+     * Return the number of buffers the subpages of the small size class at {@code sizeIdx} can hold.
+     */
+    public int numSubpageElements(int sizeIdx) {
+        return numSubpageElements[sizeIdx];
+    }
+
+    /**
+     * Return the number of buffers the subpages of the small size class at {@code sizeIdx} hold, including those
+     * held by thread caches.
+     */
+    public int numUsedSubpageElements(int sizeIdx) {
+        return numUsedSubpageElements[sizeIdx];
+    }
+
+    /**
+     * Return the number of thread caches that use the arena.
+     */
+    public int numThreadCaches() {
+        return numThreadCaches;
+    }
+
+    /**
+     * Return the number of buffers of the size class at {@code sizeIdx} that are held by thread caches.
+     */
+    public int numCachedBuffers(int sizeIdx) {
+        return numCachedBuffers[sizeIdx];
+    }
+
+    /**
+     * Return the number of bytes in the chunks that are not used by any buffer or subpage.
+     */
+    public long freeBytes() {
+        long freeBytes = 0;
+        for (PoolChunkSnapshot chunk : chunks) {
+            freeBytes += chunk.freeBytes();
+        }
+        return freeBytes;
+    }
+
+    /**
+     * Return the number of bytes of the buffers held by thread caches.
+     */
+    public long cachedBytes() {
+        long cachedBytes = 0;
+        for (int i = 0; i < numCachedBuffers.length; i++) {
+            cachedBytes += (long) numCachedBuffers[i] * sizeClasses[i];
+        }
+        return cachedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+                .append(StringUtil.simpleClassName(this))
+                .append("(direct: ").append(direct)
+                .append("; numChunks: ").append(chunks.size())
+                .append("; freeBytes: ").append(freeBytes())
+                .append("; numThreadCaches: ").append(numThreadCaches)
+                .append("; cachedBytes: ").append(cachedBytes())
+                .append(')')
+                .toString();
+    }
+}
@@ -15,11 +15,13 @@
  */
 package io.netty.buffer;
 
+import io.netty.util.collection.LongLongHashMap;
 import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.PlatformDependent;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.PriorityQueue;
 
@@ -200,7 +202,7 @@ final class PoolChunk<T> implements PoolChunkMetric {
         freeBytes = chunkSize;
 
         runsAvail = newRunsAvailqueueArray(maxPageIdx);
-        runsAvailMap = new LongLongHashMap(-1);
+        runsAvailMap = new LongLongHashMap(LongLongHashMap.DEFAULT_CAPACITY, LongLongHashMap.DEFAULT_LOAD_FACTOR, -1);
         subpages = new PoolSubpage[chunkSize >> pageShifts];
 
         //insert initial run, offset = 0, pages = chunkSize / pageSize
@@ -282,8 +284,11 @@ final class PoolChunk<T> implements PoolChunkMetric {
     @Override
     public int usage() {
         final int freeBytes;
-        synchronized (arena) {
+        arena.lock();
+        try {
             freeBytes = this.freeBytes;
+        } finally {
+            arena.unlock();
         }
         return usage(freeBytes);
     }
@@ -429,7 +434,8 @@ final class PoolChunk<T> implements PoolChunkMetric {
         // Obtain the head of the PoolSubPage pool that is owned by the PoolArena and synchronize on it.
         // This is need as we may add it back and so alter the linked-list structure.
         PoolSubpage<T> head = arena.findSubpagePoolHead(sizeIdx);
-        synchronized (head) {
+        arena.lockSubpagePool(head);
+        try {
             //allocate a new run
             int runSize = calculateRunSize(sizeIdx);
             //runSize must be multiples of pageSize
@@ -447,39 +453,55 @@ final class PoolChunk<T> implements PoolChunkMetric {
 
             subpages[runOffset] = subpage;
             return subpage.allocate();
+        } finally {
+            head.lock.unlock();
         }
     }
 
     /**
-     * Free a subpage or a run of pages When a subpage is freed from PoolSubpage, it might be added back to subpage pool
+     * Free an element of a subpage. When a subpage is freed from PoolSubpage, it might be added back to subpage pool
      * of the owning PoolArena. If the subpage pool in PoolArena has at least one other PoolSubpage of given elemSize,
-     * we can completely free the owning Page so it is available for subsequent allocations
+     * we can completely free the owning Page so it is available for subsequent allocations.
+     * <p>
+     * This only needs the lock of the subpage pool and not the one of the arena.
      *
      * @param handle handle to free
+     * @return {@code true} if the subpage is still in use, {@code false} if its run must be freed via
+     *         {@link #free(long, ByteBuffer)}.
      */
-    void free(long handle, int normCapacity, ByteBuffer nioBuffer) {
-        int runSize = runSize(pageShifts, handle);
-        if (isSubpage(handle)) {
-            int sizeIdx = arena.size2SizeIdx(normCapacity);
-            PoolSubpage<T> head = arena.findSubpagePoolHead(sizeIdx);
+    boolean freeSubpage(long handle, int normCapacity) {
+        assert isSubpage(handle);
+        int sizeIdx = arena.size2SizeIdx(normCapacity);
+        PoolSubpage<T> head = arena.findSubpagePoolHead(sizeIdx);
+        int sIdx = runOffset(handle);
 
-            int sIdx = runOffset(handle);
+        // Obtain the head of the PoolSubPage pool that is owned by the PoolArena and lock it.
+        // This is need as we may add it back and so alter the linked-list structure.
+        arena.lockSubpagePool(head);
+        try {
             PoolSubpage<T> subpage = subpages[sIdx];
             assert subpage != null && subpage.doNotDestroy;
-
-            // Obtain the head of the PoolSubPage pool that is owned by the PoolArena and synchronize on it.
-            // This is need as we may add it back and so alter the linked-list structure.
-            synchronized (head) {
-                if (subpage.free(head, bitmapIdx(handle))) {
-                    //the subpage is still used, do not free it
-                    return;
-                }
-                assert !subpage.doNotDestroy;
-                // Null out slot in the array as it was freed and we should not use it anymore.
-                subpages[sIdx] = null;
+            if (subpage.free(head, bitmapIdx(handle))) {
+                //the subpage is still used, do not free it
+                return true;
             }
+            assert !subpage.doNotDestroy;
+            // Null out slot in the array as it was freed and we should not use it anymore.
+            subpages[sIdx] = null;
+            return false;
+        } finally {
+            head.lock.unlock();
         }
+    }
 
+    /**
+     * Free a run of pages. If the handle belongs to a subpage, {@link #freeSubpage(long, int)} must have returned
+     * {@code false} before. Must be called while holding the lock of the arena.
+     *
+     * @param handle handle to free
+     */
+    void free(long handle, ByteBuffer nioBuffer) {
+        int runSize = runSize(pageShifts, handle);
         //start free run
         synchronized (runsAvail) {
             // collapse continuous runs, successfully collapsed runs
@@ -583,6 +605,46 @@ final class PoolChunk<T> implements PoolChunkMetric {
         buf.init(this, nioBuffer, handle, offset, reqCapacity, s.elemSize, threadCache);
     }
 
+    /**
+     * Returns the free runs of this chunk and adds the occupancy of its subpages to the given arrays, which are
+     * indexed by size class. Must be called while holding the lock of the arena and the locks of all its subpage
+     * pools.
+     */
+    PoolChunkSnapshot snapshot(int[] numSubpages, int[] numSubpageElements, int[] numUsedSubpageElements) {
+        long[] runs;
+        synchronized (runsAvail) {
+            int numRuns = 0;
+            for (LongPriorityQueue queue : runsAvail) {
+                numRuns += queue.size();
+            }
+            runs = new long[numRuns];
+            int index = 0;
+            for (LongPriorityQueue queue : runsAvail) {
+                queue.copyTo(runs, index);
+                index += queue.size();
+            }
+        }
+        // The offset is stored in the most significant bits, so this orders the runs by offset.
+        Arrays.sort(runs);
+        int[] freeRunOffsets = new int[runs.length];
+        int[] freeRunPages = new int[runs.length];
+        for (int i = 0; i < runs.length; i++) {
+            freeRunOffsets[i] = runOffset(runs[i]);
+            freeRunPages[i] = runPages(runs[i]);
+        }
+
+        for (PoolSubpage<T> subpage : subpages) {
+            if (subpage != null) {
+                int sizeIdx = arena.size2SizeIdx(subpage.elemSize);
+                int maxNumElements = subpage.maxNumElements();
+                numSubpages[sizeIdx]++;
+                numSubpageElements[sizeIdx] += maxNumElements;
+                numUsedSubpageElements[sizeIdx] += maxNumElements - subpage.numAvailable();
+            }
+        }
+        return new PoolChunkSnapshot(chunkSize, pageSize, freeBytes, freeRunOffsets, freeRunPages);
+    }
+
     void incrementPinnedMemory(int delta) {
         assert delta > 0;
         pinnedBytes.add(delta);
@@ -600,8 +662,11 @@ final class PoolChunk<T> implements PoolChunkMetric {
 
     @Override
     public int freeBytes() {
-        synchronized (arena) {
+        arena.lock();
+        try {
             return freeBytes;
+        } finally {
+            arena.unlock();
         }
     }
 
@@ -612,8 +677,11 @@ final class PoolChunk<T> implements PoolChunkMetric {
     @Override
     public String toString() {
         final int freeBytes;
-        synchronized (arena) {
+        arena.lock();
+        try {
             freeBytes = this.freeBytes;
+        } finally {
+            arena.unlock();
         }
 
         return new StringBuilder()
@@ -116,8 +116,24 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         return false;
     }
 
-    boolean free(PoolChunk<T> chunk, long handle, int normCapacity, ByteBuffer nioBuffer) {
-        chunk.free(handle, normCapacity, nioBuffer);
+    /**
+     * Adds a snapshot of each chunk of this list to {@code chunks}. Must be called while holding the lock of the arena
+     * and the locks of all its subpage pools.
+     */
+    void snapshot(List<PoolChunkSnapshot> chunks, int[] numSubpages, int[] numSubpageElements,
+                  int[] numUsedSubpageElements) {
+        for (PoolChunk<T> cur = head; cur != null; cur = cur.next) {
+            chunks.add(cur.snapshot(numSubpages, numSubpageElements, numUsedSubpageElements));
+        }
+    }
+
+    boolean free(PoolChunk<T> chunk, long handle, ByteBuffer nioBuffer) {
+        chunk.free(handle, nioBuffer);
+        if (chunk.freeBytes == chunk.chunkSize() && arena.isCompacting()) {
+            // The arena holds more memory than its target, so release the chunk as soon as it is empty.
+            remove(chunk);
+            return false;
+        }
         if (chunk.freeBytes > freeMaxThreshold) {
             remove(chunk);
             // Move the PoolChunk down the PoolChunkList linked-list.
@@ -209,7 +225,8 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
 
     @Override
     public Iterator<PoolChunkMetric> iterator() {
-        synchronized (arena) {
+        arena.lock();
+        try {
             if (head == null) {
                 return EMPTY_METRICS;
             }
@@ -222,13 +239,16 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
                 }
             }
             return metrics.iterator();
+        } finally {
+            arena.unlock();
         }
     }
 
     @Override
     public String toString() {
         StringBuilder buf = new StringBuilder();
-        synchronized (arena) {
+        arena.lock();
+        try {
             if (head == null) {
                 return "none";
             }
@@ -241,6 +261,8 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
                 }
                 buf.append(StringUtil.NEWLINE);
             }
+        } finally {
+            arena.unlock();
         }
         return buf.toString();
     }
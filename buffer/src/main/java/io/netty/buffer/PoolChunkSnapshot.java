@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.StringUtil;
+
+/**
+ * The state of a chunk of a {@link PoolArenaSnapshot}. The free runs are the ranges of pages that are not used by any
+ * buffer or subpage, ordered by their offset.
+ */
+public final class PoolChunkSnapshot {
+
+    private final int chunkSize;
+    private final int pageSize;
+    private final int freeBytes;
+    private final int[] freeRunOffsets;
+    private final int[] freeRunPages;
+
+    PoolChunkSnapshot(int chunkSize, int pageSize, int freeBytes, int[] freeRunOffsets, int[] freeRunPages) {
+        this.chunkSize = chunkSize;
+        this.pageSize = pageSize;
+        this.freeBytes = freeBytes;
+        this.freeRunOffsets = freeRunOffsets;
+        this.freeRunPages = freeRunPages;
+    }
+
+    /**
+     * Return the size of the chunk in bytes.
+     */
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Return the size of a page in bytes.
+     */
+    public int pageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Return the number of bytes that are not used by any buffer or subpage.
+     */
+    public int freeBytes() {
+        return freeBytes;
+    }
+
+    /**
+     * Return the percentage of the chunk that is used.
+     */
+    public int usage() {
+        return 100 - (int) (freeBytes * 100L / chunkSize);
+    }
+
+    /**
+     * Return the number of free runs.
+     */
+    public int numFreeRuns() {
+        return freeRunOffsets.length;
+    }
+
+    /**
+     * Return the index of the first page of the free run at {@code index}.
+     */
+    public int freeRunOffset(int index) {
+        return freeRunOffsets[index];
+    }
+
+    /**
+     * Return the number of pages of the free run at {@code index}.
+     */
+    public int freeRunPages(int index) {
+        return freeRunPages[index];
+    }
+
+    /**
+     * Return the number of pages of the largest free run, which bounds the largest buffer that can still be allocated
+     * from this chunk.
+     */
+    public int largestFreeRunPages() {
+        int largest = 0;
+        for (int pages : freeRunPages) {
+            largest = Math.max(largest, pages);
+        }
+        return largest;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+                .append(StringUtil.simpleClassName(this))
+                .append("(usage: ").append(usage())
+                .append("%; freeBytes: ").append(freeBytes)
+                .append("; numFreeRuns: ").append(numFreeRuns())
+                .append("; largestFreeRunPages: ").append(largestFreeRunPages())
+                .append(')')
+                .toString();
+    }
+}
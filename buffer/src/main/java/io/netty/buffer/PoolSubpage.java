@@ -22,9 +22,15 @@ import static io.netty.buffer.PoolChunk.IS_USED_SHIFT;
 import static io.netty.buffer.PoolChunk.IS_SUBPAGE_SHIFT;
 import static io.netty.buffer.SizeClasses.LOG2_QUANTUM;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 final class PoolSubpage<T> implements PoolSubpageMetric {
 
     final PoolChunk<T> chunk;
+    // The head of the pool this subpage belongs to, or this instance if it is the head itself.
+    private final PoolSubpage<T> head;
+    // Guards the pool, only set for the head.
+    final ReentrantLock lock;
     final int elemSize;
     private final int pageShifts;
     private final int runOffset;
@@ -46,6 +52,8 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
     /** Special constructor that creates a linked list head */
     PoolSubpage() {
         chunk = null;
+        head = this;
+        lock = new ReentrantLock();
         pageShifts = -1;
         runOffset = -1;
         elemSize = -1;
@@ -55,6 +63,8 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
 
     PoolSubpage(PoolSubpage<T> head, PoolChunk<T> chunk, int pageShifts, int runOffset, int runSize, int elemSize) {
         this.chunk = chunk;
+        this.head = head;
+        lock = null;
         this.pageShifts = pageShifts;
         this.runOffset = runOffset;
         this.runSize = runSize;
@@ -128,8 +138,9 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
             return true;
         } else {
             // Subpage not in use (numAvail == maxNumElems)
-            if (prev == next) {
-                // Do not remove if this subpage is the only one left in the pool.
+            if (prev == next && !chunk.arena.isCompacting()) {
+                // Do not remove if this subpage is the only one left in the pool, unless the arena tries to give
+                // back memory as then it could keep the whole chunk alive.
                 return true;
             }
 
@@ -221,7 +232,8 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
             numAvail = 0;
             elemSize = -1;
         } else {
-            synchronized (chunk.arena) {
+            head.lock.lock();
+            try {
                 if (!this.doNotDestroy) {
                     doNotDestroy = false;
                     // Not used for creating the String.
@@ -232,6 +244,8 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
                     numAvail = this.numAvail;
                     elemSize = this.elemSize;
                 }
+            } finally {
+                head.lock.unlock();
             }
         }
 
@@ -250,8 +264,11 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
             return 0;
         }
 
-        synchronized (chunk.arena) {
+        head.lock.lock();
+        try {
             return maxNumElems;
+        } finally {
+            head.lock.unlock();
         }
     }
 
@@ -262,8 +279,11 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
             return 0;
         }
 
-        synchronized (chunk.arena) {
+        head.lock.lock();
+        try {
             return numAvail;
+        } finally {
+            head.lock.unlock();
         }
     }
 
@@ -274,8 +294,11 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
             return -1;
         }
 
-        synchronized (chunk.arena) {
+        head.lock.lock();
+        try {
             return elemSize;
+        } finally {
+            head.lock.unlock();
         }
     }
 
@@ -33,6 +33,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Acts a Thread cache for allocations. This implementation is moduled after
@@ -55,6 +57,9 @@ final class PoolThreadCache {
     private final MemoryRegionCache<byte[]>[] normalHeapCaches;
     private final MemoryRegionCache<ByteBuffer>[] normalDirectCaches;
 
+    // The shared number of bytes the caches may still grow by, or null if the caches have a fixed size.
+    private final AtomicLong cacheBudget;
+
     private final int freeSweepAllocationThreshold;
     private final AtomicBoolean freed = new AtomicBoolean();
 
@@ -65,19 +70,21 @@ final class PoolThreadCache {
 
     PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
                     int smallCacheSize, int normalCacheSize, int maxCachedBufferCapacity,
-                    int freeSweepAllocationThreshold) {
+                    int freeSweepAllocationThreshold, AtomicLong cacheBudget) {
         checkPositiveOrZero(maxCachedBufferCapacity, "maxCachedBufferCapacity");
         this.freeSweepAllocationThreshold = freeSweepAllocationThreshold;
         this.heapArena = heapArena;
         this.directArena = directArena;
+        this.cacheBudget = cacheBudget;
+        final boolean adaptive = cacheBudget != null;
         if (directArena != null) {
             smallSubPageDirectCaches = createSubPageCaches(
-                    smallCacheSize, directArena.numSmallSubpagePools);
+                    smallCacheSize, directArena, adaptive);
 
             normalDirectCaches = createNormalCaches(
-                    normalCacheSize, maxCachedBufferCapacity, directArena);
+                    normalCacheSize, maxCachedBufferCapacity, directArena, adaptive);
 
-            directArena.numThreadCaches.getAndIncrement();
+            directArena.addThreadCache(this);
         } else {
             // No directArea is configured so just null out all caches
             smallSubPageDirectCaches = null;
@@ -86,12 +93,12 @@ final class PoolThreadCache {
         if (heapArena != null) {
             // Create the caches for the heap allocations
             smallSubPageHeapCaches = createSubPageCaches(
-                    smallCacheSize, heapArena.numSmallSubpagePools);
+                    smallCacheSize, heapArena, adaptive);
 
             normalHeapCaches = createNormalCaches(
-                    normalCacheSize, maxCachedBufferCapacity, heapArena);
+                    normalCacheSize, maxCachedBufferCapacity, heapArena, adaptive);
 
-            heapArena.numThreadCaches.getAndIncrement();
+            heapArena.addThreadCache(this);
         } else {
             // No heapArea is configured so just null out all caches
             smallSubPageHeapCaches = null;
@@ -105,16 +112,22 @@ final class PoolThreadCache {
             throw new IllegalArgumentException("freeSweepAllocationThreshold: "
                     + freeSweepAllocationThreshold + " (expected: > 0)");
         }
+
+        publish(smallSubPageDirectCaches, directArena, 0);
+        publish(normalDirectCaches, directArena, numSmallSubpagePools(directArena));
+        publish(smallSubPageHeapCaches, heapArena, 0);
+        publish(normalHeapCaches, heapArena, numSmallSubpagePools(heapArena));
     }
 
     private static <T> MemoryRegionCache<T>[] createSubPageCaches(
-            int cacheSize, int numCaches) {
+            int cacheSize, PoolArena<T> area, boolean adaptive) {
+        int numCaches = area.numSmallSubpagePools;
         if (cacheSize > 0 && numCaches > 0) {
             @SuppressWarnings("unchecked")
             MemoryRegionCache<T>[] cache = new MemoryRegionCache[numCaches];
             for (int i = 0; i < cache.length; i++) {
                 // TODO: maybe use cacheSize / cache.length
-                cache[i] = new SubPageMemoryRegionCache<T>(cacheSize);
+                cache[i] = new SubPageMemoryRegionCache<T>(cacheSize, area.sizeIdx2size(i), adaptive);
             }
             return cache;
         } else {
@@ -124,14 +137,19 @@ final class PoolThreadCache {
 
     @SuppressWarnings("unchecked")
     private static <T> MemoryRegionCache<T>[] createNormalCaches(
-            int cacheSize, int maxCachedBufferCapacity, PoolArena<T> area) {
+            int cacheSize, int maxCachedBufferCapacity, PoolArena<T> area, boolean adaptive) {
         if (cacheSize > 0 && maxCachedBufferCapacity > 0) {
             int max = Math.min(area.chunkSize, maxCachedBufferCapacity);
+            // Adaptive caches also cover the sizes above maxCachedBufferCapacity. These start out empty and only grow
+            // if they turn out to be hot.
+            int adaptiveMax = adaptive ? area.chunkSize : max;
             // Create as many normal caches as we support based on how many sizeIdx we have and what the upper
             // bound is that we want to cache in general.
             List<MemoryRegionCache<T>> cache = new ArrayList<MemoryRegionCache<T>>() ;
-            for (int idx = area.numSmallSubpagePools; idx < area.nSizes && area.sizeIdx2size(idx) <= max ; idx++) {
-                cache.add(new NormalMemoryRegionCache<T>(cacheSize));
+            for (int idx = area.numSmallSubpagePools;
+                 idx < area.nSizes && area.sizeIdx2size(idx) <= adaptiveMax; idx++) {
+                int elemSize = area.sizeIdx2size(idx);
+                cache.add(new NormalMemoryRegionCache<T>(elemSize <= max ? cacheSize : 0, elemSize, adaptive));
             }
             return cache.toArray(new MemoryRegionCache[0]);
         } else {
@@ -139,6 +157,10 @@ final class PoolThreadCache {
         }
     }
 
+    private static int numSmallSubpagePools(PoolArena<?> area) {
+        return area == null ? 0 : area.numSmallSubpagePools;
+    }
+
     // val > 0
     static int log2(int val) {
         return INTEGER_SIZE_MINUS_ONE - Integer.numberOfLeadingZeros(val);
@@ -165,6 +187,9 @@ final class PoolThreadCache {
             return false;
         }
         boolean allocated = cache.allocate(buf, reqCapacity, this);
+        if (!allocated) {
+            cache.misses++;
+        }
         if (++ allocations >= freeSweepAllocationThreshold) {
             allocations = 0;
             trim();
@@ -181,7 +206,9 @@ final class PoolThreadCache {
                 long handle, int normCapacity, SizeClass sizeClass) {
         int sizeIdx = area.size2SizeIdx(normCapacity);
         MemoryRegionCache<?> cache = cache(area, sizeIdx, sizeClass);
-        if (cache == null) {
+        // The caches accept buffers released by other threads too. Once this cache was freed it is never drained
+        // again, so the buffer must go back to the arena instead.
+        if (cache == null || freed.get()) {
             return false;
         }
         return cache.add(chunk, nioBuffer, handle, normCapacity);
@@ -208,6 +235,13 @@ final class PoolThreadCache {
         }
     }
 
+    /**
+     * Returns {@code true} if {@link #free(boolean)} was called.
+     */
+    boolean isFreed() {
+        return freed.get();
+    }
+
     /**
      *  Should be called if the Thread that uses this cache is about to exist to release resources out of the cache
      */
@@ -220,17 +254,23 @@ final class PoolThreadCache {
                     free(smallSubPageHeapCaches, finalizer) +
                     free(normalHeapCaches, finalizer);
 
+            // Give back what the caches have grown by, and remove their capacity from the metrics of the arenas.
+            release(smallSubPageDirectCaches, directArena, 0);
+            release(normalDirectCaches, directArena, numSmallSubpagePools(directArena));
+            release(smallSubPageHeapCaches, heapArena, 0);
+            release(normalHeapCaches, heapArena, numSmallSubpagePools(heapArena));
+
             if (numFreed > 0 && logger.isDebugEnabled()) {
                 logger.debug("Freed {} thread-local buffer(s) from thread: {}", numFreed,
                         Thread.currentThread().getName());
             }
 
             if (directArena != null) {
-                directArena.numThreadCaches.getAndDecrement();
+                directArena.removeThreadCache(this);
             }
 
             if (heapArena != null) {
-                heapArena.numThreadCaches.getAndDecrement();
+                heapArena.removeThreadCache(this);
             }
         }
     }
@@ -254,27 +294,69 @@ final class PoolThreadCache {
         return cache.free(finalizer);
     }
 
+    /**
+     * Adds the number of buffers this cache holds for {@code area} to {@code counts}, which is indexed by size class.
+     * May be called from any thread.
+     */
+    void countCachedBuffers(PoolArena<?> area, int[] counts) {
+        if (area == directArena) {
+            countCachedBuffers(smallSubPageDirectCaches, counts, 0);
+            countCachedBuffers(normalDirectCaches, counts, numSmallSubpagePools(directArena));
+        }
+        if (area == heapArena) {
+            countCachedBuffers(smallSubPageHeapCaches, counts, 0);
+            countCachedBuffers(normalHeapCaches, counts, numSmallSubpagePools(heapArena));
+        }
+    }
+
+    private static void countCachedBuffers(MemoryRegionCache<?>[] caches, int[] counts, int sizeIdxOffset) {
+        if (caches == null) {
+            return;
+        }
+        for (int i = 0; i < caches.length; i++) {
+            counts[sizeIdxOffset + i] += caches[i].numCached();
+        }
+    }
+
     void trim() {
-        trim(smallSubPageDirectCaches);
-        trim(normalDirectCaches);
-        trim(smallSubPageHeapCaches);
-        trim(normalHeapCaches);
+        trim(smallSubPageDirectCaches, directArena, 0);
+        trim(normalDirectCaches, directArena, numSmallSubpagePools(directArena));
+        trim(smallSubPageHeapCaches, heapArena, 0);
+        trim(normalHeapCaches, heapArena, numSmallSubpagePools(heapArena));
     }
 
-    private static void trim(MemoryRegionCache<?>[] caches) {
+    private void trim(MemoryRegionCache<?>[] caches, PoolArena<?> area, int sizeIdxOffset) {
         if (caches == null) {
             return;
         }
-        for (MemoryRegionCache<?> c: caches) {
-            trim(c);
+        for (int i = 0; i < caches.length; i++) {
+            MemoryRegionCache<?> c = caches[i];
+            if (cacheBudget != null) {
+                c.adapt(cacheBudget);
+            }
+            c.publish(area, sizeIdxOffset + i);
+            c.trim();
         }
     }
 
-    private static void trim(MemoryRegionCache<?> cache) {
-        if (cache == null) {
+    private static void publish(MemoryRegionCache<?>[] caches, PoolArena<?> area, int sizeIdxOffset) {
+        if (caches == null) {
             return;
         }
-        cache.trim();
+        for (int i = 0; i < caches.length; i++) {
+            caches[i].publish(area, sizeIdxOffset + i);
+        }
+    }
+
+    private void release(MemoryRegionCache<?>[] caches, PoolArena<?> area, int sizeIdxOffset) {
+        if (caches == null) {
+            return;
+        }
+        for (int i = 0; i < caches.length; i++) {
+            MemoryRegionCache<?> c = caches[i];
+            c.release(cacheBudget);
+            c.publish(area, sizeIdxOffset + i);
+        }
     }
 
     private MemoryRegionCache<?> cacheForSmall(PoolArena<?> area, int sizeIdx) {
@@ -304,8 +386,8 @@ final class PoolThreadCache {
      * Cache used for buffers which are backed by TINY or SMALL size.
      */
     private static final class SubPageMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        SubPageMemoryRegionCache(int size) {
-            super(size, SizeClass.Small);
+        SubPageMemoryRegionCache(int size, int elemSize, boolean adaptive) {
+            super(size, SizeClass.Small, elemSize, adaptive);
         }
 
         @Override
@@ -320,8 +402,8 @@ final class PoolThreadCache {
      * Cache used for buffers which are backed by NORMAL size.
      */
     private static final class NormalMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        NormalMemoryRegionCache(int size) {
-            super(size, SizeClass.Normal);
+        NormalMemoryRegionCache(int size, int elemSize, boolean adaptive) {
+            super(size, SizeClass.Normal, elemSize, adaptive);
         }
 
         @Override
@@ -333,17 +415,50 @@ final class PoolThreadCache {
     }
 
     private abstract static class MemoryRegionCache<T> {
-        private final int size;
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<MemoryRegionCache> DROPS_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(MemoryRegionCache.class, "drops");
+        // An adaptive cache may grow to this multiple of its initial size.
+        private static final int MAX_GROWTH_FACTOR = 8;
+        // The least an adaptive cache may grow to, so that sizes which are not cached at first can become hot.
+        private static final int MIN_MAX_SIZE = 64;
+        private static final int MIN_GROWN_SIZE = 8;
+        // An adaptive cache grows if more than 1 / MISS_RATIO_DIVISOR of its allocations missed.
+        private static final int MISS_RATIO_DIVISOR = 10;
+
+        private final int initialSize;
+        private final int maxSize;
+        private final int elemSize;
+        private int size;
         private final Queue<Entry<T>> queue;
         private final SizeClass sizeClass;
         private int allocations;
-
-        MemoryRegionCache(int size, SizeClass sizeClass) {
-            this.size = MathUtil.safeFindNextPositivePowerOfTwo(size);
-            queue = PlatformDependent.newFixedMpscQueue(this.size);
+        // These are only touched by the owning thread and are reset whenever the cache is trimmed.
+        int misses;
+        private int publishedSize;
+        // Buffers are also added by other threads which release them, so this one is updated atomically.
+        private volatile int drops;
+
+        MemoryRegionCache(int size, SizeClass sizeClass, int elemSize, boolean adaptive) {
+            this.size = initialSize = size == 0 ? 0 : MathUtil.safeFindNextPositivePowerOfTwo(size);
+            this.elemSize = elemSize;
+            if (adaptive) {
+                maxSize = Math.max(initialSize * MAX_GROWTH_FACTOR, MIN_MAX_SIZE);
+                queue = PlatformDependent.newMpscQueue(Math.max(initialSize, MIN_GROWN_SIZE), maxSize);
+            } else {
+                maxSize = this.size;
+                queue = PlatformDependent.newFixedMpscQueue(this.size);
+            }
             this.sizeClass = sizeClass;
         }
 
+        /**
+         * Returns the number of buffers in this cache. May be called from any thread.
+         */
+        final int numCached() {
+            return queue.size();
+        }
+
         /**
          * Init the {@link PooledByteBuf} using the provided chunk and handle with the capacity restrictions.
          */
@@ -355,11 +470,17 @@ final class PoolThreadCache {
          */
         @SuppressWarnings("unchecked")
         public final boolean add(PoolChunk<T> chunk, ByteBuffer nioBuffer, long handle, int normCapacity) {
+            // Fixed size caches are bounded by their queue alone.
+            if (size != maxSize && queue.size() >= size) {
+                DROPS_UPDATER.incrementAndGet(this);
+                return false;
+            }
             Entry<T> entry = newEntry(chunk, nioBuffer, handle, normCapacity);
             boolean queued = queue.offer(entry);
             if (!queued) {
                 // If it was not possible to cache the chunk, immediately recycle the entry
                 entry.recycle();
+                DROPS_UPDATER.incrementAndGet(this);
             }
 
             return queued;
@@ -406,7 +527,8 @@ final class PoolThreadCache {
          * Free up cached {@link PoolChunk}s if not allocated frequently enough.
          */
         public final void trim() {
-            int free = size - allocations;
+            // If the cache was shrunk it may hold more than its size.
+            int free = Math.max(size - allocations, queue.size() - size);
             allocations = 0;
 
             // We not even allocated all the number that are
@@ -415,6 +537,58 @@ final class PoolThreadCache {
             }
         }
 
+        /**
+         * Grow the cache if many of its allocations missed while it had to drop buffers because it was full, or shrink
+         * it back towards its initial size if it was not used at all since the last call. Growing takes bytes from the
+         * shared budget and shrinking gives them back. Must be called before {@link #publish(PoolArena, int)} and
+         * {@link #trim()}.
+         */
+        final void adapt(AtomicLong budget) {
+            int total = allocations + misses;
+            int drops = DROPS_UPDATER.getAndSet(this, 0);
+            if (misses * MISS_RATIO_DIVISOR > total && drops > 0 && size < maxSize) {
+                int newSize = Math.min(Math.max(size << 1, MIN_GROWN_SIZE), maxSize);
+                if (reserve(budget, (long) (newSize - size) * elemSize)) {
+                    size = newSize;
+                }
+            } else if (total == 0 && size > initialSize) {
+                int newSize = Math.max(size >>> 1, initialSize);
+                budget.addAndGet((long) (size - newSize) * elemSize);
+                size = newSize;
+            }
+        }
+
+        private static boolean reserve(AtomicLong budget, long bytes) {
+            for (;;) {
+                long remaining = budget.get();
+                if (remaining < bytes) {
+                    return false;
+                }
+                if (budget.compareAndSet(remaining, remaining - bytes)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Give back what the cache has grown by, as the cache is not used anymore.
+         */
+        final void release(AtomicLong budget) {
+            if (budget != null && size > initialSize) {
+                budget.addAndGet((long) (size - initialSize) * elemSize);
+            }
+            size = 0;
+        }
+
+        /**
+         * Publish the hits and misses since the last call and the current size of this cache to the arena.
+         */
+        final void publish(PoolArena<?> area, int sizeIdx) {
+            area.updateThreadCacheMetrics(sizeIdx, allocations, misses, size - publishedSize);
+            misses = 0;
+            publishedSize = size;
+        }
+
         @SuppressWarnings({ "unchecked", "rawtypes" })
         private  void freeEntry(Entry entry, boolean finalizer) {
             // Capture entry state before we recycle the entry object.
@@ -16,6 +16,7 @@
 
 package io.netty.buffer;
 
+import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.ObjectPool.Handle;
 
 import java.io.IOException;
@@ -39,6 +40,7 @@ abstract class PooledByteBuf<T> extends AbstractReferenceCountedByteBuf {
     PoolThreadCache cache;
     ByteBuffer tmpNioBuf;
     private ByteBufAllocator allocator;
+    private LongCounter tagCounter;
 
     @SuppressWarnings("unchecked")
     protected PooledByteBuf(Handle<? extends PooledByteBuf<T>> recyclerHandle, int maxCapacity) {
@@ -74,6 +76,14 @@ abstract class PooledByteBuf<T> extends AbstractReferenceCountedByteBuf {
         this.maxLength = maxLength;
     }
 
+    /**
+     * Counts the memory of this buffer in {@code tagCounter} until it is released.
+     */
+    final void tag(LongCounter tagCounter) {
+        this.tagCounter = tagCounter;
+        tagCounter.add(maxLength);
+    }
+
     /**
      * Method must be called before reuse this {@link PooledByteBufAllocator}
      */
@@ -119,7 +129,14 @@ abstract class PooledByteBuf<T> extends AbstractReferenceCountedByteBuf {
 
         // Reallocation required.
         chunk.decrementPinnedMemory(maxLength);
+        final LongCounter tagCounter = this.tagCounter;
+        if (tagCounter != null) {
+            tagCounter.add(-maxLength);
+        }
         chunk.arena.reallocate(this, newCapacity, true);
+        if (tagCounter != null) {
+            tagCounter.add(maxLength);
+        }
         return this;
     }
 
@@ -173,6 +190,10 @@ abstract class PooledByteBuf<T> extends AbstractReferenceCountedByteBuf {
             this.handle = -1;
             memory = null;
             chunk.decrementPinnedMemory(maxLength);
+            if (tagCounter != null) {
+                tagCounter.add(-maxLength);
+                tagCounter = null;
+            }
             chunk.arena.free(chunk, tmpNioBuf, handle, maxLength, cache);
             tmpNioBuf = null;
             chunk = null;
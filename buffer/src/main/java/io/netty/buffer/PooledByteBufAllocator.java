@@ -18,10 +18,13 @@ package io.netty.buffer;
 
 import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 
+import io.netty.util.CharsetUtil;
 import io.netty.util.NettyRuntime;
 import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.FastThreadLocalThread;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.NumaTopology;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.SystemPropertyUtil;
@@ -29,11 +32,20 @@ import io.netty.util.internal.ThreadExecutorMap;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class PooledByteBufAllocator extends AbstractByteBufAllocator implements ByteBufAllocatorMetricProvider {
 
@@ -50,9 +62,17 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     private static final long DEFAULT_CACHE_TRIM_INTERVAL_MILLIS;
     private static final boolean DEFAULT_USE_CACHE_FOR_ALL_THREADS;
     private static final int DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT;
+    private static final int DEFAULT_DIRECT_HUGE_PAGE_SIZE;
     static final int DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK;
+    private static final long DEFAULT_ADAPTIVE_CACHE_BUDGET;
+    private static final long DEFAULT_MEMORY_TARGET;
+    private static final boolean DEFAULT_NUMA_AWARE;
 
     private static final int MIN_PAGE_SIZE = 4096;
+    private static final int THREAD_CACHE_HITS = 0;
+    private static final int THREAD_CACHE_MISSES = 1;
+    private static final int THREAD_CACHE_CAPACITY = 2;
+    private static final String THP_ENABLED_FILE = "/sys/kernel/mm/transparent_hugepage/enabled";
     private static final int MAX_CHUNK_SIZE = (int) (((long) Integer.MAX_VALUE + 1) / 2);
 
     private static final int CACHE_NOT_USED = 0;
@@ -89,6 +109,16 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         }
         DEFAULT_MAX_ORDER = defaultMaxOrder;
 
+        int defaultHugePageSize = SystemPropertyUtil.getInt("io.netty.allocator.directHugePageSize", 0);
+        Throwable hugePageSizeFallbackCause = null;
+        try {
+            validateHugePageSize(DEFAULT_PAGE_SIZE << DEFAULT_MAX_ORDER, defaultHugePageSize);
+        } catch (Throwable t) {
+            hugePageSizeFallbackCause = t;
+            defaultHugePageSize = 0;
+        }
+        DEFAULT_DIRECT_HUGE_PAGE_SIZE = defaultHugePageSize;
+
         // Determine reasonable default for nHeapArena and nDirectArena.
         // Assuming each arena has 3 chunks, the pool should not consume more than 50% of max memory.
         final Runtime runtime = Runtime.getRuntime();
@@ -153,6 +183,19 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK = SystemPropertyUtil.getInt(
                 "io.netty.allocator.maxCachedByteBuffersPerChunk", 1023);
 
+        // The number of bytes all thread caches together may grow by when they adapt to the sizes that are allocated.
+        // Use 0 to keep the cache sizes fixed.
+        DEFAULT_ADAPTIVE_CACHE_BUDGET = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.adaptiveCacheBudget", 0));
+
+        // The number of bytes of heap and of direct memory the pooled chunks should stay below. Once above, the
+        // arenas release empty chunks and steer allocations away from chunks with a low usage. Use 0 for no target.
+        DEFAULT_MEMORY_TARGET = Math.max(0, SystemPropertyUtil.getLong("io.netty.allocator.memoryTarget", 0));
+
+        // Whether a thread should use a direct arena of the NUMA node it runs on when its thread cache is created.
+        // Arena i belongs to node i % numNodes, so the number of direct arenas should be a multiple of the nodes.
+        DEFAULT_NUMA_AWARE = SystemPropertyUtil.getBoolean("io.netty.allocator.numaAware", false);
+
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.allocator.numHeapArenas: {}", DEFAULT_NUM_HEAP_ARENA);
             logger.debug("-Dio.netty.allocator.numDirectArenas: {}", DEFAULT_NUM_DIRECT_ARENA);
@@ -167,6 +210,12 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                 logger.debug("-Dio.netty.allocator.maxOrder: {}", DEFAULT_MAX_ORDER, maxOrderFallbackCause);
             }
             logger.debug("-Dio.netty.allocator.chunkSize: {}", DEFAULT_PAGE_SIZE << DEFAULT_MAX_ORDER);
+            if (hugePageSizeFallbackCause == null) {
+                logger.debug("-Dio.netty.allocator.directHugePageSize: {}", DEFAULT_DIRECT_HUGE_PAGE_SIZE);
+            } else {
+                logger.debug("-Dio.netty.allocator.directHugePageSize: {}", DEFAULT_DIRECT_HUGE_PAGE_SIZE,
+                        hugePageSizeFallbackCause);
+            }
             logger.debug("-Dio.netty.allocator.smallCacheSize: {}", DEFAULT_SMALL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.normalCacheSize: {}", DEFAULT_NORMAL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
@@ -175,6 +224,9 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             logger.debug("-Dio.netty.allocator.useCacheForAllThreads: {}", DEFAULT_USE_CACHE_FOR_ALL_THREADS);
             logger.debug("-Dio.netty.allocator.maxCachedByteBuffersPerChunk: {}",
                     DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK);
+            logger.debug("-Dio.netty.allocator.adaptiveCacheBudget: {}", DEFAULT_ADAPTIVE_CACHE_BUDGET);
+            logger.debug("-Dio.netty.allocator.memoryTarget: {}", DEFAULT_MEMORY_TARGET);
+            logger.debug("-Dio.netty.allocator.numaAware: {}", DEFAULT_NUMA_AWARE);
         }
     }
 
@@ -189,6 +241,15 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     private final List<PoolArenaMetric> directArenaMetrics;
     private final PoolThreadLocalCache threadCache;
     private final int chunkSize;
+    private final int directHugePageSize;
+    private final AtomicLong adaptiveCacheBudget;
+    private final long heapArenaMemoryTarget;
+    private final long directArenaMemoryTarget;
+    private final NumaTopology numaTopology;
+    private final ConcurrentMap<AllocationTag, LongCounter> heapTagCounters =
+            PlatformDependent.newConcurrentHashMap();
+    private final ConcurrentMap<AllocationTag, LongCounter> directTagCounters =
+            PlatformDependent.newConcurrentHashMap();
     private final PooledByteBufAllocatorMetric metric;
 
     public PooledByteBufAllocator() {
@@ -265,6 +326,67 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int smallCacheSize, int normalCacheSize,
                                   boolean useCacheForAllThreads, int directMemoryCacheAlignment) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+             smallCacheSize, normalCacheSize, useCacheForAllThreads, directMemoryCacheAlignment,
+             // Only apply the default huge page size if the chunks of this allocator can be backed by huge pages.
+             ((long) pageSize << maxOrder) % Math.max(1, DEFAULT_DIRECT_HUGE_PAGE_SIZE) == 0 ?
+                     DEFAULT_DIRECT_HUGE_PAGE_SIZE : 0);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param directHugePageSize the size of a huge page in bytes, or {@code 0} to not align the chunk size to huge
+     *                           pages. When set, the chunk size ({@code pageSize << maxOrder}) must be a multiple of
+     *                           it, so that the operating system can back all but the ends of each chunk with
+     *                           transparent huge pages. This reduces TLB misses when accessing large amounts of pooled
+     *                           direct memory.
+     *                           <p>
+     *                           This only aligns the chunk size. The memory of a chunk is allocated like without this
+     *                           setting, so it takes no extra memory, but a chunk does not necessarily start at a huge
+     *                           page boundary and the huge page at each of its ends may be shared with other memory.
+     *                           No {@code madvise(MADV_HUGEPAGE)} is done either, so this only has an effect if
+     *                           transparent huge pages are enabled {@code always}; a warning is logged otherwise.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment,
+                                  int directHugePageSize) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, smallCacheSize, normalCacheSize,
+             useCacheForAllThreads, directMemoryCacheAlignment, directHugePageSize, DEFAULT_ADAPTIVE_CACHE_BUDGET);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param adaptiveCacheBudget the number of bytes all thread caches together may grow by, or {@code 0} to keep the
+     *                            sizes of the thread caches fixed. When set, every thread cache tracks the hits and
+     *                            misses per size and grows the caches of the sizes that miss often, including sizes
+     *                            above the maximum cached buffer capacity, while caches that are not used shrink back
+     *                            to their initial size.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment,
+                                  int directHugePageSize, long adaptiveCacheBudget) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, smallCacheSize, normalCacheSize,
+             useCacheForAllThreads, directMemoryCacheAlignment, directHugePageSize, adaptiveCacheBudget,
+             DEFAULT_MEMORY_TARGET);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param memoryTarget the number of bytes of heap and of direct memory the pooled chunks should stay below, or
+     *                     {@code 0} for no target. The target is split evenly between the arenas. An arena that is
+     *                     above its target releases chunks as soon as they are empty, allocates from its fullest
+     *                     chunks first so that the others drain, and stops caching freed buffers in thread caches.
+     *                     Chunks that still hold buffers are never released, so the target may be exceeded.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment,
+                                  int directHugePageSize, long adaptiveCacheBudget, long memoryTarget) {
         super(preferDirect);
         threadCache = new PoolThreadLocalCache(useCacheForAllThreads);
         this.smallCacheSize = smallCacheSize;
@@ -297,6 +419,22 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
         int pageShifts = validateAndCalculatePageShifts(pageSize, directMemoryCacheAlignment);
 
+        validateHugePageSize(chunkSize, directHugePageSize);
+        this.directHugePageSize = directHugePageSize;
+        if (directHugePageSize > 0) {
+            String thpMode = transparentHugePagesMode();
+            if (thpMode != null && !thpMode.contains("[always]")) {
+                logger.warn("directHugePageSize is set, but transparent huge pages are not enabled always ({}), " +
+                        "so direct chunks are not backed by huge pages", thpMode);
+            }
+        }
+        checkPositiveOrZero(adaptiveCacheBudget, "adaptiveCacheBudget");
+        this.adaptiveCacheBudget = adaptiveCacheBudget > 0 ? new AtomicLong(adaptiveCacheBudget) : null;
+        checkPositiveOrZero(memoryTarget, "memoryTarget");
+        heapArenaMemoryTarget = nHeapArena > 0 ? memoryTarget / nHeapArena : 0;
+        directArenaMemoryTarget = nDirectArena > 0 ? memoryTarget / nDirectArena : 0;
+        numaTopology = numaTopology(nDirectArena);
+
         if (nHeapArena > 0) {
             heapArenas = newArenaArray(nHeapArena);
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(heapArenas.length);
@@ -352,6 +490,47 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(pageSize);
     }
 
+    /**
+     * Returns the content of {@code /sys/kernel/mm/transparent_hugepage/enabled}, like
+     * {@code always [madvise] never}, or {@code null} if it can not be read.
+     */
+    private static String transparentHugePagesMode() {
+        final File file = new File(THP_ENABLED_FILE);
+        if (!file.canRead()) {
+            return null;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CharsetUtil.US_ASCII));
+            return reader.readLine();
+        } catch (IOException e) {
+            logger.debug("Error while reading content of {}", file, e);
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    private static void validateHugePageSize(int chunkSize, int hugePageSize) {
+        checkPositiveOrZero(hugePageSize, "directHugePageSize");
+        if (hugePageSize == 0) {
+            return;
+        }
+        if ((hugePageSize & hugePageSize - 1) != 0) {
+            throw new IllegalArgumentException("directHugePageSize: " + hugePageSize + " (expected: power of 2)");
+        }
+        if (chunkSize % hugePageSize != 0) {
+            throw new IllegalArgumentException("chunkSize: " + chunkSize +
+                    " (expected: a multiple of directHugePageSize (" + hugePageSize + "))");
+        }
+    }
+
     private static int validateAndCalculateChunkSize(int pageSize, int maxOrder) {
         if (maxOrder > 14) {
             throw new IllegalArgumentException("maxOrder: " + maxOrder + " (expected: 0-14)");
@@ -369,14 +548,59 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return chunkSize;
     }
 
+    /**
+     * Returns the arena with the fewest thread caches among those that belong to {@code node}, which are the arenas
+     * at the indexes {@code node}, {@code node + numNodes}, ... If {@code node} is unknown ({@code -1}) or has no
+     * arena, all arenas are considered.
+     */
+    static <T> PoolArena<T> leastUsedArena(PoolArena<T>[] arenas, int node, int numNodes) {
+        if (arenas == null || arenas.length == 0) {
+            return null;
+        }
+        if (node < 0 || node >= arenas.length) {
+            node = 0;
+            numNodes = 1;
+        }
+
+        PoolArena<T> minArena = arenas[node];
+        //optimized
+        //If it is the first execution, directly return minarena and reduce the number of for loop comparisons below
+        if (minArena.numThreadCaches.get() == CACHE_NOT_USED) {
+            return minArena;
+        }
+        for (int i = node + numNodes; i < arenas.length; i += numNodes) {
+            PoolArena<T> arena = arenas[i];
+            if (arena.numThreadCaches.get() < minArena.numThreadCaches.get()) {
+                minArena = arena;
+            }
+        }
+
+        return minArena;
+    }
+
+    private static NumaTopology numaTopology(int nDirectArena) {
+        if (!DEFAULT_NUMA_AWARE || nDirectArena < 2) {
+            return null;
+        }
+        NumaTopology topology = NumaTopology.current();
+        return topology != null && topology.numNodes() > 1 ? topology : null;
+    }
+
     @Override
     protected ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
-        PoolThreadCache cache = threadCache.get();
+        return newHeapBuffer(initialCapacity, maxCapacity, threadCache.get());
+    }
+
+    ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity, PoolThreadCache cache) {
         PoolArena<byte[]> heapArena = cache.heapArena;
 
         final ByteBuf buf;
         if (heapArena != null) {
-            buf = heapArena.allocate(cache, initialCapacity, maxCapacity);
+            PooledByteBuf<byte[]> pooled = heapArena.allocate(cache, initialCapacity, maxCapacity);
+            if (AllocationTag.isEnabled()) {
+                tag(pooled, heapTagCounters);
+            }
+            buf = pooled;
         } else {
             buf = PlatformDependent.hasUnsafe() ?
                     new UnpooledUnsafeHeapByteBuf(this, initialCapacity, maxCapacity) :
@@ -388,12 +612,19 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
     @Override
     protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
-        PoolThreadCache cache = threadCache.get();
+        return newDirectBuffer(initialCapacity, maxCapacity, threadCache.get());
+    }
+
+    ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity, PoolThreadCache cache) {
         PoolArena<ByteBuffer> directArena = cache.directArena;
 
         final ByteBuf buf;
         if (directArena != null) {
-            buf = directArena.allocate(cache, initialCapacity, maxCapacity);
+            PooledByteBuf<ByteBuffer> pooled = directArena.allocate(cache, initialCapacity, maxCapacity);
+            if (AllocationTag.isEnabled()) {
+                tag(pooled, directTagCounters);
+            }
+            buf = pooled;
         } else {
             buf = PlatformDependent.hasUnsafe() ?
                     UnsafeByteBufUtil.newUnsafeDirectByteBuf(this, initialCapacity, maxCapacity) :
@@ -403,6 +634,22 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return toLeakAwareBuffer(buf);
     }
 
+    private static void tag(PooledByteBuf<?> buf, ConcurrentMap<AllocationTag, LongCounter> tagCounters) {
+        AllocationTag tag = AllocationTag.current();
+        if (tag == null) {
+            return;
+        }
+        LongCounter counter = tagCounters.get(tag);
+        if (counter == null) {
+            LongCounter newCounter = PlatformDependent.newLongCounter();
+            counter = tagCounters.putIfAbsent(tag, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        buf.tag(counter);
+    }
+
     /**
      * Default number of heap arenas - System Property: io.netty.allocator.numHeapArenas - default 2 * cores
      */
@@ -431,6 +678,15 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return DEFAULT_MAX_ORDER;
     }
 
+    /**
+     * Default huge page size the chunk size is aligned to - System Property: io.netty.allocator.directHugePageSize
+     * - default 0 (disabled), see {@link #PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean, int,
+     * int)}.
+     */
+    public static int defaultDirectHugePageSize() {
+        return DEFAULT_DIRECT_HUGE_PAGE_SIZE;
+    }
+
     /**
      * Default thread caching behavior - System Property: io.netty.allocator.useCacheForAllThreads - default false
      */
@@ -509,8 +765,9 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
         @Override
         protected synchronized PoolThreadCache initialValue() {
-            final PoolArena<byte[]> heapArena = leastUsedArena(heapArenas);
-            final PoolArena<ByteBuffer> directArena = leastUsedArena(directArenas);
+            final PoolArena<byte[]> heapArena = leastUsedArena(heapArenas, -1, 1);
+            final PoolArena<ByteBuffer> directArena = numaTopology == null ? leastUsedArena(directArenas, -1, 1) :
+                    leastUsedArena(directArenas, numaTopology.currentNode(), numaTopology.numNodes());
 
             final Thread current = Thread.currentThread();
             final EventExecutor executor = ThreadExecutorMap.currentExecutor();
@@ -523,7 +780,8 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                     executor != null) {
                 final PoolThreadCache cache = new PoolThreadCache(
                         heapArena, directArena, smallCacheSize, normalCacheSize,
-                        DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL);
+                        DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL,
+                        adaptiveCacheBudget);
 
                 if (DEFAULT_CACHE_TRIM_INTERVAL_MILLIS > 0) {
                     if (executor != null) {
@@ -534,34 +792,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                 return cache;
             }
             // No caching so just use 0 as sizes.
-            return new PoolThreadCache(heapArena, directArena, 0, 0, 0, 0);
+            return new PoolThreadCache(heapArena, directArena, 0, 0, 0, 0, null);
         }
 
         @Override
         protected void onRemoval(PoolThreadCache threadCache) {
             threadCache.free(false);
         }
-
-        private <T> PoolArena<T> leastUsedArena(PoolArena<T>[] arenas) {
-            if (arenas == null || arenas.length == 0) {
-                return null;
-            }
-
-            PoolArena<T> minArena = arenas[0];
-            //optimized
-            //If it is the first execution, directly return minarena and reduce the number of for loop comparisons below
-            if (minArena.numThreadCaches.get() == CACHE_NOT_USED) {
-                return minArena;
-            }
-            for (int i = 1; i < arenas.length; i++) {
-                PoolArena<T> arena = arenas[i];
-                if (arena.numThreadCaches.get() < minArena.numThreadCaches.get()) {
-                    minArena = arena;
-                }
-            }
-
-            return minArena;
-        }
     }
 
     @Override
@@ -669,6 +906,10 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return chunkSize;
     }
 
+    final int directHugePageSize() {
+        return directHugePageSize;
+    }
+
     final long usedHeapMemory() {
         return usedMemory(heapArenas);
     }
@@ -677,6 +918,22 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return usedMemory(directArenas);
     }
 
+    final Map<AllocationTag, Long> usedHeapMemoryByTag() {
+        return usedMemoryByTag(heapTagCounters);
+    }
+
+    final Map<AllocationTag, Long> usedDirectMemoryByTag() {
+        return usedMemoryByTag(directTagCounters);
+    }
+
+    private static Map<AllocationTag, Long> usedMemoryByTag(ConcurrentMap<AllocationTag, LongCounter> tagCounters) {
+        Map<AllocationTag, Long> used = new HashMap<AllocationTag, Long>(tagCounters.size());
+        for (Map.Entry<AllocationTag, LongCounter> entry : tagCounters.entrySet()) {
+            used.put(entry.getKey(), entry.getValue().value());
+        }
+        return used;
+    }
+
     private static long usedMemory(PoolArena<?>[] arenas) {
         if (arenas == null) {
             return -1;
@@ -691,6 +948,86 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return used;
     }
 
+    final long arenaMemoryTarget(boolean direct) {
+        return direct ? directArenaMemoryTarget : heapArenaMemoryTarget;
+    }
+
+    final long numReclaimableBytes() {
+        return chunkBytes(heapArenas, false) + chunkBytes(directArenas, false);
+    }
+
+    final long numReleasedBytes() {
+        return chunkBytes(heapArenas, true) + chunkBytes(directArenas, true);
+    }
+
+    private static long chunkBytes(PoolArena<?>[] arenas, boolean released) {
+        if (arenas == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (PoolArena<?> arena : arenas) {
+            bytes += released ? arena.numReleasedBytes() : arena.numReclaimableBytes();
+        }
+        return bytes;
+    }
+
+    final long numThreadCacheHits(int sizeIdx) {
+        return threadCacheMetric(heapArenas, THREAD_CACHE_HITS, sizeIdx) +
+                threadCacheMetric(directArenas, THREAD_CACHE_HITS, sizeIdx);
+    }
+
+    final long numThreadCacheMisses(int sizeIdx) {
+        return threadCacheMetric(heapArenas, THREAD_CACHE_MISSES, sizeIdx) +
+                threadCacheMetric(directArenas, THREAD_CACHE_MISSES, sizeIdx);
+    }
+
+    final long threadCacheCapacity(int sizeIdx) {
+        return threadCacheMetric(heapArenas, THREAD_CACHE_CAPACITY, sizeIdx) +
+                threadCacheMetric(directArenas, THREAD_CACHE_CAPACITY, sizeIdx);
+    }
+
+    private static long threadCacheMetric(PoolArena<?>[] arenas, int metric, int sizeIdx) {
+        if (arenas == null) {
+            return 0;
+        }
+        long count = 0;
+        for (PoolArena<?> arena : arenas) {
+            switch (metric) {
+                case THREAD_CACHE_HITS:
+                    count += arena.numThreadCacheHits(sizeIdx);
+                    break;
+                case THREAD_CACHE_MISSES:
+                    count += arena.numThreadCacheMisses(sizeIdx);
+                    break;
+                case THREAD_CACHE_CAPACITY:
+                    count += arena.threadCacheCapacity(sizeIdx);
+                    break;
+                default:
+                    throw new Error();
+            }
+        }
+        return count;
+    }
+
+    final long numLockContentions() {
+        return lockContentions(heapArenas, false) + lockContentions(directArenas, false);
+    }
+
+    final long numSubpageLockContentions() {
+        return lockContentions(heapArenas, true) + lockContentions(directArenas, true);
+    }
+
+    private static long lockContentions(PoolArena<?>[] arenas, boolean subpage) {
+        if (arenas == null) {
+            return 0;
+        }
+        long count = 0;
+        for (PoolArena<?> arena : arenas) {
+            count += subpage ? arena.numSubpageLockContentions() : arena.numLockContentions();
+        }
+        return count;
+    }
+
     /**
      * Returns the number of bytes of heap memory that is currently pinned to heap buffers allocated by a
      * {@link ByteBufAllocator}, or {@code -1} if unknown.
@@ -731,6 +1068,19 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return cache;
     }
 
+    /**
+     * Returns a {@link ByteBufAllocator} which allocates from this allocator with the thread local cache of the
+     * calling {@link Thread}. The cache is looked up once by this method, so allocations made by the calling
+     * {@link Thread} through the returned allocator do not need to look it up again. Allocations made by other
+     * threads, or after the cache was freed, fall back to this allocator.
+     * <p>
+     * This is meant for a {@link Thread} that allocates a lot and keeps the returned allocator for its whole
+     * lifetime, like an event loop.
+     */
+    public ByteBufAllocator threadBoundAllocator() {
+        return new ThreadBoundPooledByteBufAllocator(this, threadCache(), isDirectByDefault());
+    }
+
     /**
      * Trim thread local cache for the current {@link Thread}, which will give back any cached memory that was not
      * allocated frequently since the last trim operation.
@@ -746,6 +1096,26 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return false;
     }
 
+    /**
+     * Returns a snapshot of each heap arena followed by a snapshot of each direct arena. Each arena blocks its
+     * allocations only while its own snapshot is taken, so snapshots of different arenas may be taken at slightly
+     * different times.
+     */
+    public List<PoolArenaSnapshot> snapshot() {
+        List<PoolArenaSnapshot> snapshots = new ArrayList<PoolArenaSnapshot>();
+        snapshot(heapArenas, snapshots);
+        snapshot(directArenas, snapshots);
+        return snapshots;
+    }
+
+    private static void snapshot(PoolArena<?>[] arenas, List<PoolArenaSnapshot> snapshots) {
+        if (arenas != null) {
+            for (PoolArena<?> arena : arenas) {
+                snapshots.add(arena.snapshot());
+            }
+        }
+    }
+
     /**
      * Returns the status of the allocator (which contains all metrics) as string. Be aware this may be expensive
      * and so should not called too frequently.
@@ -18,6 +18,7 @@ package io.netty.buffer;
 import io.netty.util.internal.StringUtil;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Exposed metric for {@link PooledByteBufAllocator}.
@@ -97,6 +98,100 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
         return allocator.chunkSize();
     }
 
+    /**
+     * Return the huge page size the chunk size is aligned to, or {@code 0} if huge page alignment is not used.
+     */
+    public int directHugePageSize() {
+        return allocator.directHugePageSize();
+    }
+
+    /**
+     * Return the number of allocations of the given size index that were served by the thread caches. The thread
+     * caches publish their numbers whenever they are trimmed.
+     *
+     * @param sizeIdx the size index, see {@link PoolArenaMetric#size2SizeIdx(int)}
+     */
+    public long numThreadCacheHits(int sizeIdx) {
+        return allocator.numThreadCacheHits(sizeIdx);
+    }
+
+    /**
+     * Return the number of allocations of the given size index that could not be served by the thread caches. The
+     * thread caches publish their numbers whenever they are trimmed.
+     *
+     * @param sizeIdx the size index, see {@link PoolArenaMetric#size2SizeIdx(int)}
+     */
+    public long numThreadCacheMisses(int sizeIdx) {
+        return allocator.numThreadCacheMisses(sizeIdx);
+    }
+
+    /**
+     * Return the ratio of allocations of the given size index that were served by the thread caches, between
+     * {@code 0} and {@code 1}.
+     *
+     * @param sizeIdx the size index, see {@link PoolArenaMetric#size2SizeIdx(int)}
+     */
+    public double threadCacheHitRatio(int sizeIdx) {
+        long hits = numThreadCacheHits(sizeIdx);
+        long total = hits + numThreadCacheMisses(sizeIdx);
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Return the number of buffers of the given size index that all thread caches may hold together. This changes
+     * over time if the allocator adapts its thread caches.
+     *
+     * @param sizeIdx the size index, see {@link PoolArenaMetric#size2SizeIdx(int)}
+     */
+    public long threadCacheCapacity(int sizeIdx) {
+        return allocator.threadCacheCapacity(sizeIdx);
+    }
+
+    /**
+     * Return the number of times a thread had to wait for the lock that guards the chunks of one of the arenas.
+     */
+    public long numLockContentions() {
+        return allocator.numLockContentions();
+    }
+
+    /**
+     * Return the number of times a thread had to wait for the lock of one of the small sub-page pools of one of the
+     * arenas.
+     */
+    public long numSubpageLockContentions() {
+        return allocator.numSubpageLockContentions();
+    }
+
+    /**
+     * Return the number of bytes in pooled chunks that hold no buffers at all, and so could be released.
+     */
+    public long numReclaimableBytes() {
+        return allocator.numReclaimableBytes();
+    }
+
+    /**
+     * Return the number of bytes of pooled chunks that were released so far.
+     */
+    public long numReleasedBytes() {
+        return allocator.numReleasedBytes();
+    }
+
+    /**
+     * Return the number of bytes of heap memory held by buffers that were allocated with each
+     * {@link AllocationTag}. Buffers allocated without a tag are not included.
+     */
+    public Map<AllocationTag, Long> usedHeapMemoryByTag() {
+        return allocator.usedHeapMemoryByTag();
+    }
+
+    /**
+     * Return the number of bytes of direct memory held by buffers that were allocated with each
+     * {@link AllocationTag}. Buffers allocated without a tag are not included.
+     */
+    public Map<AllocationTag, Long> usedDirectMemoryByTag() {
+        return allocator.usedDirectMemoryByTag();
+    }
+
     @Override
     public long usedHeapMemory() {
         return allocator.usedHeapMemory();
@@ -118,6 +213,8 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
                 .append("; smallCacheSize: ").append(smallCacheSize())
                 .append("; normalCacheSize: ").append(normalCacheSize())
                 .append("; numThreadLocalCaches: ").append(numThreadLocalCaches())
+                .append("; numReclaimableBytes: ").append(numReclaimableBytes())
+                .append("; numReleasedBytes: ").append(numReleasedBytes())
                 .append("; chunkSize: ").append(chunkSize()).append(')');
         return sb.toString();
     }
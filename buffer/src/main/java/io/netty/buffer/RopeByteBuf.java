@@ -0,0 +1,1181 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.ByteProcessor;
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.RecyclableArrayList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.util.Collections;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A virtual buffer which shows multiple buffers as a single merged buffer, like {@link CompositeByteBuf}, but which
+ * is meant to be built up from many components at both of its ends, like a rope.
+ * <p>
+ * The components are kept in an array with free slots at both ends, and their offsets are stored relative to a
+ * moving origin. Adding a component at the front or at the end, and discarding the components which are read, take
+ * amortised constant time, while a {@link CompositeByteBuf} has to move and re-offset all of its other components.
+ * The component of an index is found by a binary search in {@code O(log n)}, and sequential accesses hit the
+ * component of the last access.
+ * <p>
+ * Components can only be added at the front or at the end. {@link ByteBuf#release()} ownership of added buffers is
+ * transferred to this {@link RopeByteBuf}. Empty buffers are released right away, as they add nothing.
+ */
+public class RopeByteBuf extends AbstractReferenceCountedByteBuf {
+
+    private static final ByteBuffer EMPTY_NIO_BUFFER = Unpooled.EMPTY_BUFFER.nioBuffer();
+    private static final int INITIAL_COMPONENTS = 16;
+
+    private final ByteBufAllocator alloc;
+    private final boolean direct;
+
+    // The components are at [head, tail), in order.
+    private Component[] components = new Component[INITIAL_COMPONENTS];
+    private int head = INITIAL_COMPONENTS >>> 1;
+    private int tail = head;
+    // The position of index 0. The components are positioned in a space which grows at both ends, so that adding
+    // or removing a component at one end does not move the others.
+    private long origin;
+
+    // weak cache - check it first when looking for component
+    private Component lastAccessed;
+
+    public RopeByteBuf(ByteBufAllocator alloc, boolean direct) {
+        super(AbstractByteBufAllocator.DEFAULT_MAX_CAPACITY);
+        this.alloc = checkNotNull(alloc, "alloc");
+        this.direct = direct;
+    }
+
+    /**
+     * Add the given {@link ByteBuf} in front of all the other components, so that its readable bytes start at index
+     * {@code 0}, and increase the {@code writerIndex} if {@code increaseWriterIndex} is {@code true}.
+     * <p>
+     * {@link ByteBuf#release()} ownership of {@code buffer} is transferred to this {@link RopeByteBuf}.
+     * @param buffer the {@link ByteBuf} to add. {@link ByteBuf#release()} ownership is transferred to this
+     * {@link RopeByteBuf}.
+     */
+    public RopeByteBuf addFirst(boolean increaseWriterIndex, ByteBuf buffer) {
+        checkNotNull(buffer, "buffer");
+        boolean wasAdded = false;
+        try {
+            final int length = checkComponent(buffer);
+            if (length > 0) {
+                if (head == 0) {
+                    growComps();
+                }
+                origin -= length;
+                components[--head] = newComponent(buffer, origin);
+                wasAdded = true;
+                if (increaseWriterIndex) {
+                    writerIndex += length;
+                }
+            }
+        } finally {
+            if (!wasAdded) {
+                buffer.release();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Add the given {@link ByteBuf} after all the other components, and increase the {@code writerIndex} if
+     * {@code increaseWriterIndex} is {@code true}.
+     * <p>
+     * {@link ByteBuf#release()} ownership of {@code buffer} is transferred to this {@link RopeByteBuf}.
+     * @param buffer the {@link ByteBuf} to add. {@link ByteBuf#release()} ownership is transferred to this
+     * {@link RopeByteBuf}.
+     */
+    public RopeByteBuf addLast(boolean increaseWriterIndex, ByteBuf buffer) {
+        checkNotNull(buffer, "buffer");
+        boolean wasAdded = false;
+        try {
+            final int length = checkComponent(buffer);
+            if (length > 0) {
+                if (tail == components.length) {
+                    growComps();
+                }
+                components[tail] = newComponent(buffer, head == tail ? origin : components[tail - 1].end);
+                tail++;
+                wasAdded = true;
+                if (increaseWriterIndex) {
+                    writerIndex += length;
+                }
+            }
+        } finally {
+            if (!wasAdded) {
+                buffer.release();
+            }
+        }
+        return this;
+    }
+
+    private int checkComponent(ByteBuf buffer) {
+        ensureAccessible();
+        if (checkAccessible && !buffer.isAccessible()) {
+            throw new IllegalReferenceCountException(0);
+        }
+        final int length = buffer.readableBytes();
+        final int capacity = capacity();
+        if (capacity + length < 0) {
+            throw new IllegalArgumentException("Can't increase by " + length + " as capacity(" + capacity + ")" +
+                    " would overflow " + Integer.MAX_VALUE);
+        }
+        return length;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Component newComponent(ByteBuf buffer, long start) {
+        return new Component(buffer, buffer.order(ByteOrder.BIG_ENDIAN), buffer.readerIndex(),
+                start, start + buffer.readableBytes());
+    }
+
+    /**
+     * Moves the components to the middle of a new array with room for as many components again.
+     */
+    private void growComps() {
+        final int size = tail - head;
+        final Component[] newComponents = new Component[Math.max(INITIAL_COMPONENTS, size << 1)];
+        final int newHead = newComponents.length - size >>> 1;
+        System.arraycopy(components, head, newComponents, newHead, size);
+        components = newComponents;
+        head = newHead;
+        tail = newHead + size;
+    }
+
+    /**
+     * Releases and removes the components which end at or before {@code offset}, and returns the number of bytes
+     * they had.
+     */
+    private int removeCompsBefore(int offset) {
+        final long oldOrigin = origin;
+        final long position = oldOrigin + offset;
+        while (head < tail && components[head].end <= position) {
+            components[head].free();
+            components[head++] = null;
+        }
+        if (head < tail) {
+            origin = components[head].start;
+        } else {
+            origin = position;
+        }
+        if (origin != oldOrigin) {
+            lastAccessed = null;
+        }
+        return (int) (origin - oldOrigin);
+    }
+
+    /**
+     * Return the current number of {@link ByteBuf}'s that are composed in this instance
+     */
+    public int numComponents() {
+        return tail - head;
+    }
+
+    /**
+     * Return the index of the component for the given offset
+     */
+    public int toComponentIndex(int offset) {
+        checkIndex(offset);
+        return toComponentIndex0(offset) - head;
+    }
+
+    /**
+     * Return the offset of the first byte of the component with the given index
+     */
+    public int toByteIndex(int cIndex) {
+        checkComponentIndex(cIndex);
+        return offset(components[head + cIndex]);
+    }
+
+    /**
+     * Return the internal {@link ByteBuf} on the specified index. Note that updating the indexes of the returned
+     * buffer will lead to an undefined behavior of this buffer.
+     *
+     * @param cIndex the index for which the {@link ByteBuf} should be returned
+     */
+    public ByteBuf internalComponent(int cIndex) {
+        checkComponentIndex(cIndex);
+        Component c = components[head + cIndex];
+        return c.srcBuf.slice(c.bufIndex, c.length());
+    }
+
+    private void checkComponentIndex(int cIndex) {
+        ensureAccessible();
+        if (cIndex < 0 || cIndex >= numComponents()) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "cIndex: %d (expected: >= 0 && < numComponents(%d))",
+                    cIndex, numComponents()));
+        }
+    }
+
+    /**
+     * Returns the index in {@link #components} of the component which holds {@code offset}.
+     */
+    private int toComponentIndex0(int offset) {
+        final long position = origin + offset;
+        for (int low = head, high = tail - 1; low <= high;) {
+            int mid = low + high >>> 1;
+            Component c = components[mid];
+            if (position >= c.end) {
+                low = mid + 1;
+            } else if (position < c.start) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        throw new Error("should not reach here");
+    }
+
+    private Component findComponent(int offset) {
+        Component la = lastAccessed;
+        if (la != null && contains(la, offset)) {
+            ensureAccessible();
+            return la;
+        }
+        checkIndex(offset);
+        return lastAccessed = components[toComponentIndex0(offset)];
+    }
+
+    private Component findComponent0(int offset) {
+        Component la = lastAccessed;
+        if (la != null && contains(la, offset)) {
+            return la;
+        }
+        return lastAccessed = components[toComponentIndex0(offset)];
+    }
+
+    private boolean contains(Component c, int offset) {
+        final long position = origin + offset;
+        return position >= c.start && position < c.end;
+    }
+
+    /**
+     * Returns the offset of the first byte of {@code c} within this buffer.
+     */
+    private int offset(Component c) {
+        return (int) (c.start - origin);
+    }
+
+    /**
+     * Returns the offset after the last byte of {@code c} within this buffer.
+     */
+    private int endOffset(Component c) {
+        return (int) (c.end - origin);
+    }
+
+    /**
+     * Returns the index in the buffer of {@code c} of the byte at {@code index} of this buffer.
+     */
+    private int idx(Component c, int index) {
+        return (int) (origin + index - c.start) + c.bufIndex;
+    }
+
+    @Override
+    public int indexOf(int fromIndex, int toIndex, byte value) {
+        if (fromIndex > toIndex) {
+            return super.indexOf(fromIndex, toIndex, value);
+        }
+        fromIndex = Math.max(fromIndex, 0);
+        if (fromIndex >= toIndex || capacity() == 0) {
+            return -1;
+        }
+        checkIndex(fromIndex, toIndex - fromIndex);
+        // search each component on its own, so that words are never assembled across components
+        for (int i = toComponentIndex0(fromIndex), length = toIndex - fromIndex; length > 0; i++) {
+            Component c = components[i];
+            int localStart = idx(c, fromIndex);
+            int localLength = Math.min(length, endOffset(c) - fromIndex);
+            int result = c.buf.indexOf(localStart, localStart + localLength, value);
+            if (result != -1) {
+                return result - idx(c, 0);
+            }
+            fromIndex += localLength;
+            length -= localLength;
+        }
+        return -1;
+    }
+
+    @Override
+    protected int forEachByteAsc0(int start, int end, ByteProcessor processor) throws Exception {
+        if (end <= start) {
+            return -1;
+        }
+        for (int i = toComponentIndex0(start), length = end - start; length > 0; i++) {
+            Component c = components[i];
+            ByteBuf s = c.buf;
+            int localStart = idx(c, start);
+            int localLength = Math.min(length, endOffset(c) - start);
+            // avoid additional checks in AbstractByteBuf case
+            int result = s instanceof AbstractByteBuf
+                ? ((AbstractByteBuf) s).forEachByteAsc0(localStart, localStart + localLength, processor)
+                : s.forEachByte(localStart, localLength, processor);
+            if (result != -1) {
+                return result - idx(c, 0);
+            }
+            start += localLength;
+            length -= localLength;
+        }
+        return -1;
+    }
+
+    @Override
+    protected int forEachByteDesc0(int rStart, int rEnd, ByteProcessor processor) throws Exception {
+        if (rEnd > rStart) { // rStart *and* rEnd are inclusive
+            return -1;
+        }
+        for (int i = toComponentIndex0(rStart);; i--) {
+            Component c = components[i];
+            ByteBuf s = c.buf;
+            int localEnd = Math.max(rEnd, offset(c));
+            // avoid additional checks in AbstractByteBuf case
+            int result = s instanceof AbstractByteBuf
+                ? ((AbstractByteBuf) s).forEachByteDesc0(idx(c, rStart), idx(c, localEnd), processor)
+                : s.forEachByteDesc(idx(c, localEnd), rStart - localEnd + 1, processor);
+            if (result != -1) {
+                return result - idx(c, 0);
+            }
+            if (localEnd == rEnd) {
+                return -1;
+            }
+            rStart = localEnd - 1;
+        }
+    }
+
+    @Override
+    public boolean isDirect() {
+        if (head == tail) {
+            return false;
+        }
+        for (int i = head; i < tail; i++) {
+            if (!components[i].buf.isDirect()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean hasArray() {
+        switch (numComponents()) {
+        case 0:
+            return true;
+        case 1:
+            return components[head].buf.hasArray();
+        default:
+            return false;
+        }
+    }
+
+    @Override
+    public byte[] array() {
+        ensureAccessible();
+        switch (numComponents()) {
+        case 0:
+            return EmptyArrays.EMPTY_BYTES;
+        case 1:
+            return components[head].buf.array();
+        default:
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Override
+    public int arrayOffset() {
+        switch (numComponents()) {
+        case 0:
+            return 0;
+        case 1:
+            Component c = components[head];
+            return idx(c, c.buf.arrayOffset());
+        default:
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Override
+    public boolean hasMemoryAddress() {
+        switch (numComponents()) {
+        case 0:
+            return Unpooled.EMPTY_BUFFER.hasMemoryAddress();
+        case 1:
+            return components[head].buf.hasMemoryAddress();
+        default:
+            return false;
+        }
+    }
+
+    @Override
+    public long memoryAddress() {
+        ensureAccessible();
+        switch (numComponents()) {
+        case 0:
+            return Unpooled.EMPTY_BUFFER.memoryAddress();
+        case 1:
+            Component c = components[head];
+            return c.buf.memoryAddress() + idx(c, 0);
+        default:
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return head == tail ? 0 : endOffset(components[tail - 1]);
+    }
+
+    @Override
+    public RopeByteBuf capacity(int newCapacity) {
+        checkNewCapacity(newCapacity);
+
+        final int oldCapacity = capacity();
+        if (newCapacity > oldCapacity) {
+            final int paddingLength = newCapacity - oldCapacity;
+            addLast(false, allocBuffer(paddingLength).setIndex(0, paddingLength));
+        } else if (newCapacity < oldCapacity) {
+            lastAccessed = null;
+            for (int bytesToTrim = oldCapacity - newCapacity; bytesToTrim > 0;) {
+                Component c = components[tail - 1];
+                final int cLength = c.length();
+                if (bytesToTrim < cLength) {
+                    // Trim the last component
+                    c.end -= bytesToTrim;
+                    break;
+                }
+                c.free();
+                components[--tail] = null;
+                bytesToTrim -= cLength;
+            }
+
+            if (readerIndex() > newCapacity) {
+                setIndex0(newCapacity, newCapacity);
+            } else if (writerIndex > newCapacity) {
+                writerIndex = newCapacity;
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBufAllocator alloc() {
+        return alloc;
+    }
+
+    @Override
+    public ByteOrder order() {
+        return ByteOrder.BIG_ENDIAN;
+    }
+
+    @Override
+    public ByteBuf unwrap() {
+        return null;
+    }
+
+    @Override
+    protected byte _getByte(int index) {
+        Component c = findComponent0(index);
+        return c.buf.getByte(idx(c, index));
+    }
+
+    @Override
+    protected short _getShort(int index) {
+        Component c = findComponent0(index);
+        if (origin + index + 2 <= c.end) {
+            return c.buf.getShort(idx(c, index));
+        }
+        return (short) ((_getByte(index) & 0xff) << 8 | _getByte(index + 1) & 0xff);
+    }
+
+    @Override
+    protected short _getShortLE(int index) {
+        Component c = findComponent0(index);
+        if (origin + index + 2 <= c.end) {
+            return c.buf.getShortLE(idx(c, index));
+        }
+        return (short) (_getByte(index) & 0xff | (_getByte(index + 1) & 0xff) << 8);
+    }
+
+    @Override
+    protected int _getUnsignedMedium(int index) {
+        Component c = findComponent0(index);
+        if (origin + index + 3 <= c.end) {
+            return c.buf.getUnsignedMedium(idx(c, index));
+        }
+        return (_getShort(index) & 0xffff) << 8 | _getByte(index + 2) & 0xff;
+    }
+
+    @Override
+    protected int _getUnsignedMediumLE(int index) {
+        Component c = findComponent0(index);
+        if (origin + index + 3 <= c.end) {
+            return c.buf.getUnsignedMediumLE(idx(c, index));
+        }
+        return _getShortLE(index) & 0xffff | (_getByte(index + 2) & 0xff) << 16;
+    }
+
+    @Override
+    protected int _getInt(int index) {
+        Component c = findComponent0(index);
+        if (origin + index + 4 <= c.end) {
+            return c.buf.getInt(idx(c, index));
+        }
+        return (_getShort(index) & 0xffff) << 16 | _getShort(index + 2) & 0xffff;
+    }
+
+    @Override
+    protected int _getIntLE(int index) {
+        Component c = findComponent0(index);
+        if (origin + index + 4 <= c.end) {
+            return c.buf.getIntLE(idx(c, index));
+        }
+        return _getShortLE(index) & 0xffff | (_getShortLE(index + 2) & 0xffff) << 16;
+    }
+
+    @Override
+    protected long _getLong(int index) {
+        Component c = findComponent0(index);
+        if (origin + index + 8 <= c.end) {
+            return c.buf.getLong(idx(c, index));
+        }
+        return (_getInt(index) & 0xffffffffL) << 32 | _getInt(index + 4) & 0xffffffffL;
+    }
+
+    @Override
+    protected long _getLongLE(int index) {
+        Component c = findComponent0(index);
+        if (origin + index + 8 <= c.end) {
+            return c.buf.getLongLE(idx(c, index));
+        }
+        return _getIntLE(index) & 0xffffffffL | (_getIntLE(index + 4) & 0xffffffffL) << 32;
+    }
+
+    @Override
+    public byte getByte(int index) {
+        Component c = findComponent(index);
+        return c.buf.getByte(idx(c, index));
+    }
+
+    @Override
+    public RopeByteBuf getBytes(int index, byte[] dst, int dstIndex, int length) {
+        checkDstIndex(index, length, dstIndex, dst.length);
+        if (length == 0) {
+            return this;
+        }
+
+        int i = toComponentIndex0(index);
+        while (length > 0) {
+            Component c = components[i];
+            int localLength = Math.min(length, endOffset(c) - index);
+            c.buf.getBytes(idx(c, index), dst, dstIndex, localLength);
+            index += localLength;
+            dstIndex += localLength;
+            length -= localLength;
+            i ++;
+        }
+        return this;
+    }
+
+    @Override
+    public RopeByteBuf getBytes(int index, ByteBuffer dst) {
+        int limit = dst.limit();
+        int length = dst.remaining();
+
+        checkIndex(index, length);
+        if (length == 0) {
+            return this;
+        }
+
+        int i = toComponentIndex0(index);
+        try {
+            while (length > 0) {
+                Component c = components[i];
+                int localLength = Math.min(length, endOffset(c) - index);
+                dst.limit(dst.position() + localLength);
+                c.buf.getBytes(idx(c, index), dst);
+                index += localLength;
+                length -= localLength;
+                i ++;
+            }
+        } finally {
+            dst.limit(limit);
+        }
+        return this;
+    }
+
+    @Override
+    public RopeByteBuf getBytes(int index, ByteBuf dst, int dstIndex, int length) {
+        checkDstIndex(index, length, dstIndex, dst.capacity());
+        if (length == 0) {
+            return this;
+        }
+
+        int i = toComponentIndex0(index);
+        while (length > 0) {
+            Component c = components[i];
+            int localLength = Math.min(length, endOffset(c) - index);
+            c.buf.getBytes(idx(c, index), dst, dstIndex, localLength);
+            index += localLength;
+            dstIndex += localLength;
+            length -= localLength;
+            i ++;
+        }
+        return this;
+    }
+
+    @Override
+    public int getBytes(int index, GatheringByteChannel out, int length)
+            throws IOException {
+        checkIndex(index, length);
+        int count = nioBufferCount();
+        if (count == 1) {
+            // Not the internal buffer, as duplicates and slices may call this from several threads.
+            return out.write(nioBuffer(index, length));
+        } else {
+            long writtenBytes = out.write(nioBuffers(index, length));
+            if (writtenBytes > Integer.MAX_VALUE) {
+                return Integer.MAX_VALUE;
+            } else {
+                return (int) writtenBytes;
+            }
+        }
+    }
+
+    @Override
+    public int getBytes(int index, FileChannel out, long position, int length)
+            throws IOException {
+        checkIndex(index, length);
+        int count = nioBufferCount();
+        if (count == 1) {
+            return out.write(nioBuffer(index, length), position);
+        } else {
+            long writtenBytes = 0;
+            for (ByteBuffer buf : nioBuffers(index, length)) {
+                writtenBytes += out.write(buf, position + writtenBytes);
+            }
+            if (writtenBytes > Integer.MAX_VALUE) {
+                return Integer.MAX_VALUE;
+            }
+            return (int) writtenBytes;
+        }
+    }
+
+    @Override
+    public RopeByteBuf getBytes(int index, OutputStream out, int length) throws IOException {
+        checkIndex(index, length);
+        if (length == 0) {
+            return this;
+        }
+
+        int i = toComponentIndex0(index);
+        while (length > 0) {
+            Component c = components[i];
+            int localLength = Math.min(length, endOffset(c) - index);
+            c.buf.getBytes(idx(c, index), out, localLength);
+            index += localLength;
+            length -= localLength;
+            i ++;
+        }
+        return this;
+    }
+
+    @Override
+    public RopeByteBuf setByte(int index, int value) {
+        Component c = findComponent(index);
+        c.buf.setByte(idx(c, index), value);
+        return this;
+    }
+
+    @Override
+    protected void _setByte(int index, int value) {
+        Component c = findComponent0(index);
+        c.buf.setByte(idx(c, index), value);
+    }
+
+    @Override
+    protected void _setShort(int index, int value) {
+        Component c = findComponent0(index);
+        if (origin + index + 2 <= c.end) {
+            c.buf.setShort(idx(c, index), value);
+        } else {
+            _setByte(index, (byte) (value >>> 8));
+            _setByte(index + 1, (byte) value);
+        }
+    }
+
+    @Override
+    protected void _setShortLE(int index, int value) {
+        Component c = findComponent0(index);
+        if (origin + index + 2 <= c.end) {
+            c.buf.setShortLE(idx(c, index), value);
+        } else {
+            _setByte(index, (byte) value);
+            _setByte(index + 1, (byte) (value >>> 8));
+        }
+    }
+
+    @Override
+    protected void _setMedium(int index, int value) {
+        Component c = findComponent0(index);
+        if (origin + index + 3 <= c.end) {
+            c.buf.setMedium(idx(c, index), value);
+        } else {
+            _setShort(index, (short) (value >> 8));
+            _setByte(index + 2, (byte) value);
+        }
+    }
+
+    @Override
+    protected void _setMediumLE(int index, int value) {
+        Component c = findComponent0(index);
+        if (origin + index + 3 <= c.end) {
+            c.buf.setMediumLE(idx(c, index), value);
+        } else {
+            _setShortLE(index, (short) value);
+            _setByte(index + 2, (byte) (value >>> 16));
+        }
+    }
+
+    @Override
+    protected void _setInt(int index, int value) {
+        Component c = findComponent0(index);
+        if (origin + index + 4 <= c.end) {
+            c.buf.setInt(idx(c, index), value);
+        } else {
+            _setShort(index, (short) (value >>> 16));
+            _setShort(index + 2, (short) value);
+        }
+    }
+
+    @Override
+    protected void _setIntLE(int index, int value) {
+        Component c = findComponent0(index);
+        if (origin + index + 4 <= c.end) {
+            c.buf.setIntLE(idx(c, index), value);
+        } else {
+            _setShortLE(index, (short) value);
+            _setShortLE(index + 2, (short) (value >>> 16));
+        }
+    }
+
+    @Override
+    protected void _setLong(int index, long value) {
+        Component c = findComponent0(index);
+        if (origin + index + 8 <= c.end) {
+            c.buf.setLong(idx(c, index), value);
+        } else {
+            _setInt(index, (int) (value >>> 32));
+            _setInt(index + 4, (int) value);
+        }
+    }
+
+    @Override
+    protected void _setLongLE(int index, long value) {
+        Component c = findComponent0(index);
+        if (origin + index + 8 <= c.end) {
+            c.buf.setLongLE(idx(c, index), value);
+        } else {
+            _setIntLE(index, (int) value);
+            _setIntLE(index + 4, (int) (value >>> 32));
+        }
+    }
+
+    @Override
+    public RopeByteBuf setBytes(int index, byte[] src, int srcIndex, int length) {
+        checkSrcIndex(index, length, srcIndex, src.length);
+        if (length == 0) {
+            return this;
+        }
+
+        int i = toComponentIndex0(index);
+        while (length > 0) {
+            Component c = components[i];
+            int localLength = Math.min(length, endOffset(c) - index);
+            c.buf.setBytes(idx(c, index), src, srcIndex, localLength);
+            index += localLength;
+            srcIndex += localLength;
+            length -= localLength;
+            i ++;
+        }
+        return this;
+    }
+
+    @Override
+    public RopeByteBuf setBytes(int index, ByteBuffer src) {
+        int limit = src.limit();
+        int length = src.remaining();
+
+        checkIndex(index, length);
+        if (length == 0) {
+            return this;
+        }
+
+        int i = toComponentIndex0(index);
+        try {
+            while (length > 0) {
+                Component c = components[i];
+                int localLength = Math.min(length, endOffset(c) - index);
+                src.limit(src.position() + localLength);
+                c.buf.setBytes(idx(c, index), src);
+                index += localLength;
+                length -= localLength;
+                i ++;
+            }
+        } finally {
+            src.limit(limit);
+        }
+        return this;
+    }
+
+    @Override
+    public RopeByteBuf setBytes(int index, ByteBuf src, int srcIndex, int length) {
+        checkSrcIndex(index, length, srcIndex, src.capacity());
+        if (length == 0) {
+            return this;
+        }
+
+        int i = toComponentIndex0(index);
+        while (length > 0) {
+            Component c = components[i];
+            int localLength = Math.min(length, endOffset(c) - index);
+            c.buf.setBytes(idx(c, index), src, srcIndex, localLength);
+            index += localLength;
+            srcIndex += localLength;
+            length -= localLength;
+            i ++;
+        }
+        return this;
+    }
+
+    @Override
+    public int setBytes(int index, InputStream in, int length) throws IOException {
+        checkIndex(index, length);
+        if (length == 0) {
+            return in.read(EmptyArrays.EMPTY_BYTES);
+        }
+
+        int i = toComponentIndex0(index);
+        int readBytes = 0;
+        do {
+            Component c = components[i];
+            int localLength = Math.min(length, endOffset(c) - index);
+            int localReadBytes = c.buf.setBytes(idx(c, index), in, localLength);
+            if (localReadBytes < 0) {
+                if (readBytes == 0) {
+                    return -1;
+                } else {
+                    break;
+                }
+            }
+
+            index += localReadBytes;
+            length -= localReadBytes;
+            readBytes += localReadBytes;
+            if (localReadBytes == localLength) {
+                i ++;
+            }
+        } while (length > 0);
+
+        return readBytes;
+    }
+
+    @Override
+    public int setBytes(int index, ScatteringByteChannel in, int length) throws IOException {
+        checkIndex(index, length);
+        if (length == 0) {
+            return in.read(EMPTY_NIO_BUFFER);
+        }
+
+        int i = toComponentIndex0(index);
+        int readBytes = 0;
+        do {
+            Component c = components[i];
+            int localLength = Math.min(length, endOffset(c) - index);
+            int localReadBytes = c.buf.setBytes(idx(c, index), in, localLength);
+
+            if (localReadBytes == 0) {
+                break;
+            }
+
+            if (localReadBytes < 0) {
+                if (readBytes == 0) {
+                    return -1;
+                } else {
+                    break;
+                }
+            }
+
+            index += localReadBytes;
+            length -= localReadBytes;
+            readBytes += localReadBytes;
+            if (localReadBytes == localLength) {
+                i ++;
+            }
+        } while (length > 0);
+
+        return readBytes;
+    }
+
+    @Override
+    public int setBytes(int index, FileChannel in, long position, int length) throws IOException {
+        checkIndex(index, length);
+        if (length == 0) {
+            return in.read(EMPTY_NIO_BUFFER, position);
+        }
+
+        int i = toComponentIndex0(index);
+        int readBytes = 0;
+        do {
+            Component c = components[i];
+            int localLength = Math.min(length, endOffset(c) - index);
+            int localReadBytes = c.buf.setBytes(idx(c, index), in, position + readBytes, localLength);
+
+            if (localReadBytes == 0) {
+                break;
+            }
+
+            if (localReadBytes < 0) {
+                if (readBytes == 0) {
+                    return -1;
+                } else {
+                    break;
+                }
+            }
+
+            index += localReadBytes;
+            length -= localReadBytes;
+            readBytes += localReadBytes;
+            if (localReadBytes == localLength) {
+                i ++;
+            }
+        } while (length > 0);
+
+        return readBytes;
+    }
+
+    @Override
+    public ByteBuf copy(int index, int length) {
+        checkIndex(index, length);
+        ByteBuf dst = allocBuffer(length);
+        if (length != 0) {
+            getBytes(index, dst, 0, length);
+            dst.writerIndex(length);
+        }
+        return dst;
+    }
+
+    @Override
+    public int nioBufferCount() {
+        switch (numComponents()) {
+        case 0:
+            return 1;
+        case 1:
+            return components[head].buf.nioBufferCount();
+        default:
+            int count = 0;
+            for (int i = head; i < tail; i++) {
+                count += components[i].buf.nioBufferCount();
+            }
+            return count;
+        }
+    }
+
+    @Override
+    public ByteBuffer internalNioBuffer(int index, int length) {
+        checkIndex(index, length);
+        switch (numComponents()) {
+        case 0:
+            return EMPTY_NIO_BUFFER;
+        case 1:
+            // Some buffers override this so we must use srcBuf
+            Component c = components[head];
+            return c.srcBuf.internalNioBuffer(idx(c, index), length);
+        default:
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Override
+    public ByteBuffer nioBuffer(int index, int length) {
+        checkIndex(index, length);
+        if (length == 0) {
+            return EMPTY_NIO_BUFFER;
+        }
+
+        // No need to merge if all the bytes are in one component.
+        Component c = findComponent0(index);
+        if (origin + index + length <= c.end && c.buf.nioBufferCount() == 1) {
+            return c.buf.nioBuffer(idx(c, index), length);
+        }
+
+        ByteBuffer[] buffers = nioBuffers(index, length);
+
+        if (buffers.length == 1) {
+            return buffers[0];
+        }
+
+        ByteBuffer merged = ByteBuffer.allocate(length).order(order());
+        for (ByteBuffer buf: buffers) {
+            merged.put(buf);
+        }
+
+        merged.flip();
+        return merged;
+    }
+
+    @Override
+    public ByteBuffer[] nioBuffers(int index, int length) {
+        checkIndex(index, length);
+        if (length == 0) {
+            return new ByteBuffer[] { EMPTY_NIO_BUFFER };
+        }
+
+        RecyclableArrayList buffers = RecyclableArrayList.newInstance(numComponents());
+        try {
+            int i = toComponentIndex0(index);
+            while (length > 0) {
+                Component c = components[i];
+                ByteBuf s = c.buf;
+                int localLength = Math.min(length, endOffset(c) - index);
+                switch (s.nioBufferCount()) {
+                case 0:
+                    throw new UnsupportedOperationException();
+                case 1:
+                    buffers.add(s.nioBuffer(idx(c, index), localLength));
+                    break;
+                default:
+                    Collections.addAll(buffers, s.nioBuffers(idx(c, index), localLength));
+                }
+
+                index += localLength;
+                length -= localLength;
+                i ++;
+            }
+
+            return buffers.toArray(new ByteBuffer[0]);
+        } finally {
+            buffers.recycle();
+        }
+    }
+
+    /**
+     * Discard all {@link ByteBuf}s which are read.
+     */
+    public RopeByteBuf discardReadComponents() {
+        ensureAccessible();
+        final int readerIndex = readerIndex();
+        if (readerIndex == 0) {
+            return this;
+        }
+
+        int offset = removeCompsBefore(readerIndex);
+        if (offset != 0) {
+            setIndex(readerIndex - offset, writerIndex() - offset);
+            adjustMarkers(offset);
+        }
+        return this;
+    }
+
+    @Override
+    public RopeByteBuf discardReadBytes() {
+        ensureAccessible();
+        final int readerIndex = readerIndex();
+        if (readerIndex == 0) {
+            return this;
+        }
+
+        final int writerIndex = writerIndex();
+        final int trimmedBytes = readerIndex - removeCompsBefore(readerIndex);
+        if (trimmedBytes > 0) {
+            // Trim the read bytes of the first readable component.
+            Component c = components[head];
+            c.start += trimmedBytes;
+            c.bufIndex += trimmedBytes;
+            origin = c.start;
+            lastAccessed = null;
+        }
+        setIndex(0, writerIndex - readerIndex);
+        adjustMarkers(readerIndex);
+        return this;
+    }
+
+    @Override
+    public RopeByteBuf discardSomeReadBytes() {
+        return discardReadComponents();
+    }
+
+    private ByteBuf allocBuffer(int capacity) {
+        return direct ? alloc().directBuffer(capacity) : alloc().heapBuffer(capacity);
+    }
+
+    @Override
+    protected void deallocate() {
+        for (int i = head; i < tail; i++) {
+            components[i].free();
+            components[i] = null;
+        }
+        head = tail;
+        lastAccessed = null;
+    }
+
+    @Override
+    public String toString() {
+        String result = super.toString();
+        result = result.substring(0, result.length() - 1);
+        return result + ", components=" + numComponents() + ')';
+    }
+
+    private static final class Component {
+        final ByteBuf srcBuf; // the originally added buffer
+        final ByteBuf buf; // srcBuf in big-endian order
+
+        int bufIndex; // index in buf of the first byte of this component
+
+        // positions of the first byte and of the end of this component, see RopeByteBuf.origin
+        long start;
+        long end;
+
+        Component(ByteBuf srcBuf, ByteBuf buf, int bufIndex, long start, long end) {
+            this.srcBuf = srcBuf;
+            this.buf = buf;
+            this.bufIndex = bufIndex;
+            this.start = start;
+            this.end = end;
+        }
+
+        int length() {
+            return (int) (end - start);
+        }
+
+        void free() {
+            // Release the original buffer since it may have a different
+            // refcount to the buf (e.g. if a SwappedByteBuf)
+            srcBuf.release();
+        }
+    }
+}
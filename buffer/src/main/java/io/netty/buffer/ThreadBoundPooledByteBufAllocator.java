@@ -0,0 +1,70 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.StringUtil;
+
+/**
+ * A {@link ByteBufAllocator} which allocates from a {@link PooledByteBufAllocator} with the {@link PoolThreadCache} of
+ * one {@link Thread}, without looking it up for every allocation.
+ *
+ * @see PooledByteBufAllocator#threadBoundAllocator()
+ */
+final class ThreadBoundPooledByteBufAllocator extends AbstractByteBufAllocator
+        implements ByteBufAllocatorMetricProvider {
+
+    private final PooledByteBufAllocator parent;
+    private final PoolThreadCache cache;
+    private final Thread thread;
+
+    ThreadBoundPooledByteBufAllocator(PooledByteBufAllocator parent, PoolThreadCache cache, boolean preferDirect) {
+        super(preferDirect);
+        this.parent = parent;
+        this.cache = cache;
+        thread = Thread.currentThread();
+    }
+
+    @Override
+    protected ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
+        if (Thread.currentThread() == thread && !cache.isFreed()) {
+            return parent.newHeapBuffer(initialCapacity, maxCapacity, cache);
+        }
+        return parent.newHeapBuffer(initialCapacity, maxCapacity);
+    }
+
+    @Override
+    protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+        if (Thread.currentThread() == thread && !cache.isFreed()) {
+            return parent.newDirectBuffer(initialCapacity, maxCapacity, cache);
+        }
+        return parent.newDirectBuffer(initialCapacity, maxCapacity);
+    }
+
+    @Override
+    public boolean isDirectBufferPooled() {
+        return parent.isDirectBufferPooled();
+    }
+
+    @Override
+    public ByteBufAllocatorMetric metric() {
+        return parent.metric();
+    }
+
+    @Override
+    public String toString() {
+        return StringUtil.simpleClassName(this) + '(' + parent + ", thread: " + thread.getName() + ')';
+    }
+}
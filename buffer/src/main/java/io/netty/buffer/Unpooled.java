@@ -20,9 +20,13 @@ import io.netty.util.internal.ObjectUtil;
 import io.netty.util.CharsetUtil;
 import io.netty.util.internal.PlatformDependent;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 
@@ -340,6 +344,52 @@ public final class Unpooled {
         return wrappedBuffer(maxNumComponents, CompositeByteBuf.BYTE_BUFFER_WRAPPER, buffers);
     }
 
+    /**
+     * Creates a new read-only big-endian buffer whose content is the content of the specified {@code file}. The file
+     * is mapped into memory in windows when the buffer is read, and closed when the buffer is released.
+     */
+    public static ByteBuf mappedBuffer(File file) throws IOException {
+        FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+        boolean success = false;
+        try {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("file too large: " + file + " (" + length + " bytes)");
+            }
+            ByteBuf buffer = new MappedFileByteBuf(ALLOC, channel, 0, (int) length,
+                    MappedFileByteBuf.DEFAULT_WINDOW_SIZE, MappedFileByteBuf.DEFAULT_MAX_WINDOWS, true);
+            success = true;
+            return buffer;
+        } finally {
+            if (!success) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Creates a new read-only big-endian buffer whose content is the specified region of the file of
+     * {@code channel}. The region is mapped into memory in windows when the buffer is read. The channel is not closed
+     * when the buffer is released.
+     */
+    public static ByteBuf mappedBuffer(FileChannel channel, long position, int length) {
+        return mappedBuffer(channel, position, length,
+                MappedFileByteBuf.DEFAULT_WINDOW_SIZE, MappedFileByteBuf.DEFAULT_MAX_WINDOWS);
+    }
+
+    /**
+     * Creates a new read-only big-endian buffer whose content is the specified region of the file of
+     * {@code channel}. The region is mapped into memory in windows of {@code windowSize} bytes when the buffer is
+     * read, of which at most {@code maxWindows} are kept mapped. The channel is not closed when the buffer is
+     * released.
+     *
+     * @param windowSize the size of a window, which must be a power of two
+     */
+    public static ByteBuf mappedBuffer(FileChannel channel, long position, int length, int windowSize,
+                                       int maxWindows) {
+        return new MappedFileByteBuf(ALLOC, channel, position, length, windowSize, maxWindows, false);
+    }
+
     /**
      * Returns a new big-endian composite buffer with no components.
      */
@@ -354,6 +404,14 @@ public final class Unpooled {
         return new CompositeByteBuf(ALLOC, false, maxNumComponents);
     }
 
+    /**
+     * Returns a new big-endian {@link RopeByteBuf} with no components, to which components can be added at the
+     * front and at the end in amortised constant time.
+     */
+    public static RopeByteBuf ropeBuffer() {
+        return new RopeByteBuf(ALLOC, false);
+    }
+
     /**
      * Creates a new big-endian buffer whose content is a copy of the
      * specified {@code array}.  The new buffer's {@code readerIndex} and
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.netty.buffer.search;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.MathUtil;
+
+import static io.netty.util.internal.ObjectUtil.checkNonEmpty;
+
+/**
+ * Base class for {@link BulkSearcher}s, which search in contiguous arrays of bytes.
+ * <br>
+ * A {@link ByteBuf} that is backed by an array is searched in place. Any other {@link ByteBuf} is copied into an
+ * array in chunks of a few kilobytes, which overlap by {@code needle.length - 1} bytes so that occurrences spanning
+ * two chunks are found. The copies are bulk memory copies, so this is much cheaper than a call per byte.
+ * <br>
+ * Different searchers implement different search algorithms. Like for {@link AbstractSearchProcessorFactory}, it is
+ * advisable to benchmark a concrete use case before choosing one of them.
+ */
+public abstract class AbstractBulkSearcher implements BulkSearcher {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * Creates a {@link BulkSearcher} based on the
+     * <a href="https://en.wikipedia.org/wiki/Boyer%E2%80%93Moore%E2%80%93Horspool_algorithm">Boyer-Moore-Horspool</a>
+     * string search algorithm. It skips up to {@code needle.length} bytes per step, so it is the fastest choice for
+     * long needles in haystacks with a varied content, like text.
+     * <br>
+     * Precomputation (this method) time is linear in the size of the input ({@code O(|needle|)}).
+     * <br>
+     * The searcher allocates and retains an int[256] array and a copy of the {@code needle}.
+     * <br>
+     * Search time is sublinear in the size of the haystack on average, and {@code O(|haystack| * |needle|)} in the
+     * worst case.
+     *
+     * @param needle an array of bytes to search for
+     * @return a new instance of {@link BoyerMooreHorspoolSearcher} precomputed for the given {@code needle}
+     */
+    public static BoyerMooreHorspoolSearcher newBoyerMooreHorspoolSearcher(byte[] needle) {
+        return new BoyerMooreHorspoolSearcher(needle);
+    }
+
+    /**
+     * Creates a {@link BulkSearcher} based on the shift-or (Bitap) string search algorithm, which skips eight bytes
+     * at a time while they do not contain the first byte of the {@code needle}. It is a good choice for short
+     * needles, for which Boyer-Moore-Horspool cannot skip much. The limitation is that the {@code needle} can be no
+     * more than 64 bytes long.
+     * <br>
+     * Precomputation (this method) time is linear in the size of the input ({@code O(|needle|)}).
+     * <br>
+     * The searcher allocates and retains a long[256] array.
+     * <br>
+     * Search time is linear in the size of the haystack ({@code O(|haystack|)}).
+     *
+     * @param needle an array <b>of no more than 64 bytes</b> to search for
+     * @return a new instance of {@link ShiftOrSearcher} precomputed for the given {@code needle}
+     */
+    public static ShiftOrSearcher newShiftOrSearcher(byte[] needle) {
+        return new ShiftOrSearcher(needle);
+    }
+
+    private final int needleLength;
+
+    AbstractBulkSearcher(byte[] needle) {
+        needleLength = checkNonEmpty(needle, "needle").length;
+    }
+
+    @Override
+    public final int indexOf(ByteBuf haystack) {
+        return indexOf(haystack, haystack.readerIndex(), haystack.writerIndex());
+    }
+
+    @Override
+    public final int indexOf(ByteBuf haystack, int fromIndex, int toIndex) {
+        checkIndexes(fromIndex, toIndex, haystack.capacity());
+        if (toIndex - fromIndex < needleLength) {
+            return -1;
+        }
+        if (haystack.hasArray()) {
+            final int offset = haystack.arrayOffset();
+            final int index = search(haystack.array(), offset + fromIndex, offset + toIndex);
+            return index == -1 ? -1 : index - offset;
+        }
+
+        final byte[] chunk = new byte[Math.min(toIndex - fromIndex, Math.max(CHUNK_SIZE, needleLength * 2))];
+        final int overlap = needleLength - 1;
+        for (int start = fromIndex;;) {
+            final int length = Math.min(chunk.length, toIndex - start);
+            haystack.getBytes(start, chunk, 0, length);
+            final int index = search(chunk, 0, length);
+            if (index != -1) {
+                return start + index;
+            }
+            if (start + length == toIndex) {
+                return -1;
+            }
+            start += length - overlap;
+        }
+    }
+
+    @Override
+    public final int indexOf(byte[] haystack, int fromIndex, int toIndex) {
+        checkIndexes(fromIndex, toIndex, haystack.length);
+        if (toIndex - fromIndex < needleLength) {
+            return -1;
+        }
+        return search(haystack, fromIndex, toIndex);
+    }
+
+    /**
+     * Returns the index of the first occurrence of the {@code needle} in {@code haystack} between {@code fromIndex}
+     * and {@code toIndex}, which are valid indexes at least {@code needle.length} bytes apart.
+     */
+    abstract int search(byte[] haystack, int fromIndex, int toIndex);
+
+    private static void checkIndexes(int fromIndex, int toIndex, int capacity) {
+        if (MathUtil.isOutOfBounds(fromIndex, toIndex - fromIndex, capacity)) {
+            throw new IndexOutOfBoundsException("expected: 0 <= fromIndex(" + fromIndex + ") <= toIndex("
+                    + toIndex + ") <= capacity(" + capacity + ')');
+        }
+    }
+
+}
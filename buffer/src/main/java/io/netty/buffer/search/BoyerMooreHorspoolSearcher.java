@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.netty.buffer.search;
+
+import java.util.Arrays;
+
+/**
+ * Implements the
+ * <a href="https://en.wikipedia.org/wiki/Boyer%E2%80%93Moore%E2%80%93Horspool_algorithm">Boyer-Moore-Horspool</a>
+ * string search algorithm.
+ * Use static {@link AbstractBulkSearcher#newBoyerMooreHorspoolSearcher} to create an instance of this searcher.
+ * @see AbstractBulkSearcher
+ */
+public class BoyerMooreHorspoolSearcher extends AbstractBulkSearcher {
+
+    private final byte[] needle;
+    // How far the needle can be moved when a byte is aligned with its last byte.
+    private final int[] shifts = new int[256];
+
+    BoyerMooreHorspoolSearcher(byte[] needle) {
+        super(needle);
+        this.needle = needle.clone();
+
+        final int last = needle.length - 1;
+        Arrays.fill(shifts, needle.length);
+        for (int i = 0; i < last; i++) {
+            shifts[needle[i] & 0xff] = last - i;
+        }
+    }
+
+    @Override
+    int search(byte[] haystack, int fromIndex, int toIndex) {
+        final byte[] needle = this.needle;
+        final int[] shifts = this.shifts;
+        final int last = needle.length - 1;
+        final byte lastByte = needle[last];
+
+        // i is the index in the haystack of the byte that is aligned with the last byte of the needle
+        for (int i = fromIndex + last; i < toIndex;) {
+            final byte value = haystack[i];
+            if (value == lastByte) {
+                int j = last - 1;
+                int k = i - 1;
+                while (j >= 0 && haystack[k] == needle[j]) {
+                    j--;
+                    k--;
+                }
+                if (j < 0) {
+                    return i - last;
+                }
+            }
+            i += shifts[value & 0xff];
+        }
+        return -1;
+    }
+
+}
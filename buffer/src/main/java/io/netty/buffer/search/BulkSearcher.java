@@ -0,0 +1,50 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.netty.buffer.search;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Interface for searchers that are given whole regions of the {@code haystack} at once, instead of one byte after
+ * another like a {@link SearchProcessor}. This lets them skip bytes that cannot be part of an occurrence of the
+ * {@code needle}, and look at several bytes per step.
+ * <br>
+ * Unlike a {@link SearchProcessor}, a {@link BulkSearcher} has no state, so one instance can be used for any number
+ * of searches, from any number of threads. It returns the index of the <b>first</b> byte of the found occurrence,
+ * like {@link io.netty.buffer.ByteBufUtil#indexOf(ByteBuf, ByteBuf)}. To find all occurrences, continue the search
+ * from the returned index plus one.
+ * @see AbstractBulkSearcher
+ */
+public interface BulkSearcher {
+
+    /**
+     * Returns the index of the first occurrence of the {@code needle} in the readable bytes of {@code haystack}, or
+     * {@code -1} if there is none.
+     */
+    int indexOf(ByteBuf haystack);
+
+    /**
+     * Returns the index of the first occurrence of the {@code needle} in {@code haystack} that starts at or after
+     * {@code fromIndex} and ends before {@code toIndex}, or {@code -1} if there is none.
+     */
+    int indexOf(ByteBuf haystack, int fromIndex, int toIndex);
+
+    /**
+     * Returns the index of the first occurrence of the {@code needle} in {@code haystack} that starts at or after
+     * {@code fromIndex} and ends before {@code toIndex}, or {@code -1} if there is none.
+     */
+    int indexOf(byte[] haystack, int fromIndex, int toIndex);
+
+}
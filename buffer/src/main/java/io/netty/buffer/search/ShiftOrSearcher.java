@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.netty.buffer.search;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Implements the shift-or variant of the <a href="https://en.wikipedia.org/wiki/Bitap_algorithm">Bitap</a> string
+ * search algorithm. While no prefix of the {@code needle} is matched, the haystack is read eight bytes at a time, and
+ * words that do not contain the first byte of the {@code needle} are skipped with a SWAR (SIMD Within A Register)
+ * test.
+ * Use static {@link AbstractBulkSearcher#newShiftOrSearcher} to create an instance of this searcher.
+ * @see AbstractBulkSearcher
+ */
+public class ShiftOrSearcher extends AbstractBulkSearcher {
+
+    private static final boolean SWAR = PlatformDependent.hasUnsafe() && PlatformDependent.isUnaligned();
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    // A bit is cleared in the mask of a byte for every position of the needle that has this byte.
+    private final long[] bitMasks = new long[256];
+    private final long successBit;
+    private final long firstBytePattern;
+    private final int lastIndex;
+
+    ShiftOrSearcher(byte[] needle) {
+        super(needle);
+        if (needle.length > 64) {
+            throw new IllegalArgumentException("Maximum supported search pattern length is 64, got " + needle.length);
+        }
+
+        Arrays.fill(bitMasks, -1L);
+        long bit = 1L;
+        for (byte c: needle) {
+            bitMasks[c & 0xff] &= ~bit;
+            bit <<= 1;
+        }
+
+        successBit = 1L << (needle.length - 1);
+        firstBytePattern = (needle[0] & 0xffL) * 0x101010101010101L;
+        lastIndex = needle.length - 1;
+    }
+
+    @Override
+    int search(byte[] haystack, int fromIndex, int toIndex) {
+        final long[] bitMasks = this.bitMasks;
+        // The bits past the length of the needle are always set, so the state is -1 while no prefix is matched.
+        long state = -1L;
+        for (int i = fromIndex; i < toIndex; i++) {
+            if (SWAR && state == -1L && i <= toIndex - Long.BYTES) {
+                final int skip = firstBytePosition(PlatformDependent.getLong(haystack, i));
+                if (skip == Long.BYTES) {
+                    i += Long.BYTES - 1;
+                    continue;
+                }
+                i += skip;
+            }
+            state = state << 1 | bitMasks[haystack[i] & 0xff];
+            if ((state & successBit) == 0) {
+                return i - lastIndex;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the position of the first byte of {@code word} that is the first byte of the needle, or
+     * {@link Long#BYTES} if there is none.
+     */
+    private int firstBytePosition(long word) {
+        final long input = word ^ firstBytePattern;
+        long tmp = (input & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
+        tmp = ~(tmp | input | 0x7F7F7F7F7F7F7F7FL);
+        final int binaryPosition = LITTLE_ENDIAN ? Long.numberOfTrailingZeros(tmp) : Long.numberOfLeadingZeros(tmp);
+        return binaryPosition >>> 3;
+    }
+
+}
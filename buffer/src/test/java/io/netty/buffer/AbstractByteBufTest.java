@@ -2506,6 +2506,33 @@ public abstract class AbstractByteBufTest {
         }), is(stop));
     }
 
+    @Test
+    public void testForEachByteSearchConstants() {
+        ByteProcessor[] processors = {
+                ByteProcessor.FIND_NUL, ByteProcessor.FIND_CR, ByteProcessor.FIND_LF, ByteProcessor.FIND_CRLF,
+                ByteProcessor.FIND_CRLF, ByteProcessor.FIND_SEMI_COLON, ByteProcessor.FIND_COMMA,
+                ByteProcessor.FIND_ASCII_SPACE, ByteProcessor.FIND_LINEAR_WHITESPACE,
+                ByteProcessor.FIND_LINEAR_WHITESPACE
+        };
+        byte[] values = { 0, '\r', '\n', '\r', '\n', ';', ',', ' ', ' ', '\t' };
+        int[] indexes = { 0, 1, 7, 8, 9, 15, 16, CAPACITY / 2 + 3, CAPACITY - 8, CAPACITY - 2, CAPACITY - 1 };
+        byte[] filler = new byte[CAPACITY];
+        Arrays.fill(filler, (byte) 'x');
+
+        for (int i = 0; i < processors.length; i++) {
+            for (int index : indexes) {
+                buffer.clear();
+                buffer.writeBytes(filler);
+                buffer.setByte(index, values[i]);
+
+                assertEquals(index, buffer.forEachByte(processors[i]));
+                assertEquals(index, buffer.forEachByte(index, CAPACITY - index, processors[i]));
+                assertEquals(-1, buffer.forEachByte(0, index, processors[i]));
+                assertEquals(-1, buffer.forEachByte(index + 1, CAPACITY - index - 1, processors[i]));
+            }
+        }
+    }
+
     @Test
     public void testForEachByteDesc() {
         buffer.clear();
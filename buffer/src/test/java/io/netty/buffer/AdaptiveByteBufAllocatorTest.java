@@ -0,0 +1,182 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveByteBufAllocatorTest extends AbstractByteBufAllocatorTest<AdaptiveByteBufAllocator> {
+    private static final int MIN_CHUNK_SIZE = 128 * 1024;
+
+    @Override
+    protected AdaptiveByteBufAllocator newAllocator(boolean preferDirect) {
+        return new AdaptiveByteBufAllocator(preferDirect);
+    }
+
+    @Override
+    protected AdaptiveByteBufAllocator newUnpooledAllocator() {
+        return newAllocator(false);
+    }
+
+    @Override
+    protected long expectedUsedMemory(AdaptiveByteBufAllocator allocator, int capacity) {
+        return MIN_CHUNK_SIZE;
+    }
+
+    @Override
+    protected long expectedUsedMemoryAfterRelease(AdaptiveByteBufAllocator allocator, int capacity) {
+        // The chunk is still the current chunk of the magazine, and so is retained.
+        return MIN_CHUNK_SIZE;
+    }
+
+    @Override
+    @Test
+    public void testUnsafeHeapBufferAndUnsafeDirectBuffer() {
+        AdaptiveByteBufAllocator allocator = newUnpooledAllocator();
+        ByteBuf directBuffer = allocator.directBuffer();
+        assertInstanceOf(directBuffer, AdaptivePoolingAllocator.AdaptiveByteBuf.class);
+        directBuffer.release();
+
+        ByteBuf heapBuffer = allocator.heapBuffer();
+        assertInstanceOf(heapBuffer, AdaptivePoolingAllocator.AdaptiveByteBuf.class);
+        heapBuffer.release();
+    }
+
+    @Test
+    public void testLargeAllocationIsFreedOnRelease() {
+        AdaptiveByteBufAllocator allocator = newAllocator(true);
+        int capacity = 4 * 1024 * 1024;
+        ByteBuf buffer = allocator.directBuffer(capacity);
+        assertEquals(capacity, allocator.metric().usedDirectMemory());
+        buffer.release();
+        assertEquals(0, allocator.metric().usedDirectMemory());
+    }
+
+    @Test
+    public void testBuffersDoNotOverlap() {
+        AdaptiveByteBufAllocator allocator = newAllocator(true);
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+        for (int i = 0; i < 1024; i++) {
+            ByteBuf buffer = allocator.directBuffer(ThreadLocalRandom.current().nextInt(1, 2048));
+            buffer.writerIndex(buffer.capacity());
+            for (int j = 0; j < buffer.capacity(); j++) {
+                buffer.setByte(j, i);
+            }
+            buffers.add(buffer);
+        }
+        for (int i = 0; i < buffers.size(); i++) {
+            ByteBuf buffer = buffers.get(i);
+            for (int j = 0; j < buffer.capacity(); j++) {
+                assertEquals((byte) i, buffer.getByte(j));
+            }
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testCapacityIncreasePreservesContent() {
+        AdaptiveByteBufAllocator allocator = newAllocator(false);
+        ByteBuf buffer = allocator.heapBuffer(8);
+        buffer.writeLong(0x0102030405060708L);
+        buffer.readByte();
+        buffer.writeBytes(new byte[1024]);
+        assertEquals(1, buffer.readerIndex());
+        assertEquals(8 + 1024, buffer.writerIndex());
+        assertEquals(0x02030405060708L, buffer.getLong(0) & 0xFFFFFFFFFFFFFFL);
+        buffer.release();
+    }
+
+    @Test
+    public void testInternalNioBufferCoversCapacity() {
+        AdaptiveByteBufAllocator allocator = newAllocator(true);
+        ByteBuf buffer = allocator.directBuffer(1024);
+        buffer.setByte(buffer.capacity() - 1, 42);
+        assertEquals(1, buffer.internalNioBuffer(0, 1).remaining());
+        ByteBuffer nioBuffer = buffer.internalNioBuffer(0, buffer.capacity());
+        assertEquals(buffer.capacity(), nioBuffer.remaining());
+        assertEquals(42, nioBuffer.get(nioBuffer.position() + buffer.capacity() - 1));
+
+        buffer.capacity(512);
+        assertEquals(512, buffer.internalNioBuffer(0, buffer.capacity()).remaining());
+        buffer.release();
+    }
+
+    @Test
+    public void testChunksAreReused() {
+        AdaptiveByteBufAllocator allocator = newAllocator(true);
+        for (int i = 0; i < 1000; i++) {
+            allocator.directBuffer(16 * 1024).release();
+        }
+        // Retired chunks are recycled through the central queue rather than piling up.
+        assertTrue(allocator.metric().usedDirectMemory() <= 2L * MIN_CHUNK_SIZE,
+                String.valueOf(allocator.metric().usedDirectMemory()));
+    }
+
+    @Test
+    public void testSizeBucket() {
+        assertEquals(0, AdaptivePoolingAllocator.sizeBucket(0));
+        assertEquals(0, AdaptivePoolingAllocator.sizeBucket(64));
+        assertEquals(1, AdaptivePoolingAllocator.sizeBucket(65));
+        assertEquals(1, AdaptivePoolingAllocator.sizeBucket(128));
+        assertEquals(14, AdaptivePoolingAllocator.sizeBucket(Integer.MAX_VALUE));
+    }
+
+    @Test
+    @Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testConcurrentAllocationsAndReleases() throws Exception {
+        final AdaptiveByteBufAllocator allocator = newAllocator(true);
+        final int threads = 8;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        for (int i = 0; i < threads; i++) {
+            final byte marker = (byte) i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 10000; j++) {
+                            ByteBuf buf = allocator.directBuffer(ThreadLocalRandom.current().nextInt(1, 4096));
+                            buf.setByte(0, marker);
+                            buf.setByte(buf.capacity() - 1, marker);
+                            if (buf.getByte(0) != marker || buf.getByte(buf.capacity() - 1) != marker) {
+                                throw new AssertionError("buffers overlap");
+                            }
+                            buf.release();
+                        }
+                    } catch (Throwable cause) {
+                        error.compareAndSet(null, cause);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+        latch.await();
+        assertNull(error.get());
+    }
+}
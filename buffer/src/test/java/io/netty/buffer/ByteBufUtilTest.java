@@ -385,6 +385,29 @@ public class ByteBufUtilTest {
         buf2.release();
     }
 
+    @ParameterizedTest(name = PARAMETERIZED_NAME)
+    @MethodSource("noUnsafe")
+    public void testWriteUtf8AsciiRuns(BufferType bufferType) {
+        // ASCII runs of different lengths, so that they end at any position of a word.
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < i; j++) {
+                sb.append((char) ('a' + j % 26));
+            }
+            sb.append(i % 3 == 0 ? "ä" : i % 3 == 1 ? "∏" : "\uD800\uDC00");
+        }
+        String text = sb.toString();
+        ByteBuf buf = buffer(bufferType, 16);
+        buf.writeBytes(text.getBytes(CharsetUtil.UTF_8));
+        ByteBuf buf2 = buffer(bufferType, 16);
+        ByteBufUtil.writeUtf8(buf2, text);
+
+        assertEquals(buf, buf2);
+
+        buf.release();
+        buf2.release();
+    }
+
     @ParameterizedTest(name = PARAMETERIZED_NAME)
     @MethodSource("noUnsafe")
     public void testWriteUtf8Composite(BufferType bufferType) {
@@ -742,6 +765,36 @@ public class ByteBufUtilTest {
         testDecodeString("Some UTF-8 like äÄ∏ŒŒ", CharsetUtil.UTF_8);
     }
 
+    @Test
+    public void testDecodeUtf8AsciiRuns() {
+        testDecodeString("Only ASCII in this text, which is longer than a word", CharsetUtil.UTF_8);
+        testDecodeString("Some ASCII before UTF-8 like äÄ∏ŒŒ", CharsetUtil.UTF_8);
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_NAME)
+    @MethodSource("noUnsafe")
+    public void testIsTextAsciiRuns(BufferType bufferType) {
+        for (int i = 0; i < 40; i++) {
+            byte[] bytes = new byte[40];
+            Arrays.fill(bytes, (byte) 'a');
+            assertIsText(bufferType, bytes, true, CharsetUtil.US_ASCII);
+            assertIsText(bufferType, bytes, true, CharsetUtil.UTF_8);
+
+            // A byte which is not ASCII at any position of a word.
+            bytes[i] = (byte) 0x80;
+            assertIsText(bufferType, bytes, false, CharsetUtil.US_ASCII);
+            assertIsText(bufferType, bytes, false, CharsetUtil.UTF_8);
+            if (i < bytes.length - 1) {
+                // A valid two byte sequence.
+                bytes[i] = (byte) 0xC2;
+                assertIsText(bufferType, bytes, false, CharsetUtil.US_ASCII);
+                assertIsText(bufferType, bytes, false, CharsetUtil.UTF_8);
+                bytes[i + 1] = (byte) 0x80;
+                assertIsText(bufferType, bytes, true, CharsetUtil.UTF_8);
+            }
+        }
+    }
+
     private static void testDecodeString(String text, Charset charset) {
         ByteBuf buffer = Unpooled.copiedBuffer(text, charset);
         assertEquals(text, ByteBufUtil.decodeString(buffer, 0, buffer.readableBytes(), charset));
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.ByteProcessor;
+import io.netty.util.internal.PlatformDependent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class MappedFileByteBufTest {
+
+    private static final int WINDOW_SIZE = 4096;
+    private static final int MAX_WINDOWS = 2;
+
+    private File file;
+    private byte[] bytes;
+    private FileChannel channel;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        bytes = new byte[WINDOW_SIZE * 5 + 123];
+        PlatformDependent.threadLocalRandom().nextBytes(bytes);
+        file = PlatformDependent.createTempFile("netty-test", "tmp", null);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+        channel = new RandomAccessFile(file, "r").getChannel();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        channel.close();
+        assertTrue(file.delete());
+    }
+
+    private ByteBuf newBuffer(int position, int length) {
+        return Unpooled.mappedBuffer(channel, position, length, WINDOW_SIZE, MAX_WINDOWS);
+    }
+
+    @Test
+    public void testGetAcrossWindows() {
+        ByteBuf buf = newBuffer(0, bytes.length);
+        try {
+            assertEquals(bytes.length, buf.readableBytes());
+            for (int i = 0; i < bytes.length; i++) {
+                assertEquals(bytes[i], buf.getByte(i));
+            }
+            ByteBuf expected = Unpooled.wrappedBuffer(bytes);
+            for (int i = WINDOW_SIZE - 8; i < WINDOW_SIZE + 8; i++) {
+                assertEquals(expected.getShort(i), buf.getShort(i));
+                assertEquals(expected.getUnsignedMedium(i), buf.getUnsignedMedium(i));
+                assertEquals(expected.getUnsignedMediumLE(i), buf.getUnsignedMediumLE(i));
+                assertEquals(expected.getInt(i), buf.getInt(i));
+                assertEquals(expected.getIntLE(i), buf.getIntLE(i));
+                assertEquals(expected.getLong(i), buf.getLong(i));
+                assertEquals(expected.getLongLE(i), buf.getLongLE(i));
+            }
+            assertEquals(expected.getLong(bytes.length - 8), buf.getLong(bytes.length - 8));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testGetBytes() throws Exception {
+        ByteBuf buf = newBuffer(0, bytes.length);
+        try {
+            byte[] array = new byte[bytes.length];
+            buf.getBytes(0, array);
+            assertArrayEquals(bytes, array);
+
+            ByteBuffer nioBuffer = ByteBuffer.allocateDirect(bytes.length - 100);
+            buf.getBytes(50, nioBuffer);
+            nioBuffer.flip();
+            assertEquals(ByteBuffer.wrap(bytes, 50, bytes.length - 100), nioBuffer);
+
+            ByteBuf copy = buf.copy(10, WINDOW_SIZE * 3);
+            assertEquals(Unpooled.wrappedBuffer(bytes, 10, WINDOW_SIZE * 3), copy);
+            copy.release();
+
+            assertEquals(ByteBuffer.wrap(bytes, WINDOW_SIZE - 1, 2), buf.nioBuffer(WINDOW_SIZE - 1, 2));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testRegion() {
+        ByteBuf buf = newBuffer(100, WINDOW_SIZE * 2);
+        try {
+            assertEquals(WINDOW_SIZE * 2, buf.capacity());
+            assertEquals(Unpooled.wrappedBuffer(bytes, 100, WINDOW_SIZE * 2), buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testSliceAndDuplicate() {
+        ByteBuf buf = newBuffer(0, bytes.length);
+        try {
+            ByteBuf slice = buf.retainedSlice(WINDOW_SIZE - 10, 20);
+            assertEquals(Unpooled.wrappedBuffer(bytes, WINDOW_SIZE - 10, 20), slice);
+            assertEquals(bytes[WINDOW_SIZE], slice.getByte(10));
+            slice.release();
+
+            ByteBuf duplicate = buf.duplicate();
+            duplicate.readerIndex(WINDOW_SIZE * 3);
+            assertEquals(Unpooled.wrappedBuffer(bytes, WINDOW_SIZE * 3, bytes.length - WINDOW_SIZE * 3), duplicate);
+            assertEquals(0, buf.readerIndex());
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testForEachByte() {
+        ByteBuf buf = newBuffer(0, bytes.length);
+        try {
+            final int target = WINDOW_SIZE * 3 + 5;
+            ByteProcessor stopAtTarget = new ByteProcessor() {
+                private int index;
+
+                @Override
+                public boolean process(byte value) {
+                    return index++ != target;
+                }
+            };
+            assertEquals(target, buf.forEachByte(stopAtTarget));
+
+            final int[] count = new int[1];
+            assertEquals(-1, buf.forEachByteDesc(1, bytes.length - 1, new ByteProcessor() {
+                private int index = bytes.length - 1;
+
+                @Override
+                public boolean process(byte value) {
+                    assertEquals(bytes[index--], value);
+                    count[0]++;
+                    return true;
+                }
+            }));
+            assertEquals(bytes.length - 1, count[0]);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testEviction() {
+        MappedFileByteBuf buf = (MappedFileByteBuf) newBuffer(0, bytes.length);
+        try {
+            assertEquals(0, buf.numMappedWindows());
+            for (int i = 0; i < bytes.length; i += WINDOW_SIZE) {
+                assertEquals(bytes[i], buf.getByte(i));
+                assertTrue(buf.numMappedWindows() <= MAX_WINDOWS);
+            }
+            assertEquals(MAX_WINDOWS, buf.numMappedWindows());
+            assertEquals(bytes[0], buf.getByte(0));
+        } finally {
+            buf.release();
+        }
+        assertEquals(0, buf.numMappedWindows());
+    }
+
+    @Test
+    public void testEvictedWindowsAreUnmapped() throws Exception {
+        assumeTrue(new File("/proc/self/maps").canRead());
+        ByteBuf buf = newBuffer(0, bytes.length);
+        try {
+            ByteBuffer exposed = buf.nioBuffer(0, 100);
+            long windowBytes = mappedBytes();
+            assertTrue(windowBytes > 0);
+
+            for (int i = WINDOW_SIZE; i < bytes.length; i += WINDOW_SIZE) {
+                assertEquals(bytes[i], buf.getByte(i));
+            }
+            // The cached windows, and the evicted one that a slice was handed out of.
+            assertTrue(mappedBytes() <= (MAX_WINDOWS + 1) * windowBytes);
+            assertEquals(ByteBuffer.wrap(bytes, 0, 100), exposed);
+        } finally {
+            buf.release();
+        }
+        assertEquals(0, mappedBytes());
+    }
+
+    @Test
+    public void testForEachByteWhileEvicting() {
+        final ByteBuf buf = newBuffer(0, bytes.length);
+        try {
+            final int[] index = { 0 };
+            assertEquals(-1, buf.forEachByte(0, WINDOW_SIZE, new ByteProcessor() {
+                @Override
+                public boolean process(byte value) {
+                    // Evicts the window that is processed.
+                    buf.getByte(WINDOW_SIZE * 2);
+                    buf.getByte(WINDOW_SIZE * 3);
+                    buf.getByte(WINDOW_SIZE * 4);
+                    return value == bytes[index[0]++];
+                }
+            }));
+            assertEquals(WINDOW_SIZE, index[0]);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the test file that are mapped into this process.
+     */
+    private long mappedBytes() throws IOException {
+        String path = file.getCanonicalPath();
+        long bytes = 0;
+        BufferedReader reader = new BufferedReader(new FileReader("/proc/self/maps"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.endsWith(' ' + path)) {
+                    String[] range = line.substring(0, line.indexOf(' ')).split("-");
+                    bytes += Long.parseLong(range[1], 16) - Long.parseLong(range[0], 16);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testNioBufferIsNotACopy() {
+        ByteBuf buf = newBuffer(0, bytes.length);
+        try {
+            // Within a window, and across windows.
+            ByteBuffer inWindow = buf.nioBuffer(WINDOW_SIZE + 10, 100);
+            ByteBuffer acrossWindows = buf.nioBuffer(WINDOW_SIZE - 10, WINDOW_SIZE * 2);
+            assertTrue(inWindow.isDirect());
+            assertTrue(inWindow.isReadOnly());
+            assertTrue(acrossWindows.isDirect());
+            assertTrue(acrossWindows.isReadOnly());
+            assertEquals(ByteBuffer.wrap(bytes, WINDOW_SIZE + 10, 100), inWindow);
+            assertEquals(ByteBuffer.wrap(bytes, WINDOW_SIZE - 10, WINDOW_SIZE * 2), acrossWindows);
+            assertEquals(0, buf.nioBuffer(0, 0).remaining());
+
+            // The window is evicted, but the buffer stays readable.
+            for (int i = WINDOW_SIZE * 2; i < bytes.length; i += WINDOW_SIZE) {
+                buf.getByte(i);
+            }
+            assertEquals(ByteBuffer.wrap(bytes, WINDOW_SIZE + 10, 100), inWindow);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testReadOnly() {
+        final ByteBuf buf = newBuffer(0, bytes.length);
+        try {
+            assertTrue(buf.isReadOnly());
+            assertFalse(buf.isWritable());
+            assertTrue(buf.isDirect());
+            assertThrows(ReadOnlyBufferException.class, new Executable() {
+                @Override
+                public void execute() {
+                    buf.setByte(0, 1);
+                }
+            });
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testReleaseClosesOwnedFile() throws Exception {
+        MappedFileByteBuf buf = (MappedFileByteBuf) Unpooled.mappedBuffer(file);
+        assertEquals(Unpooled.wrappedBuffer(bytes), buf);
+        buf.release();
+        assertEquals(0, buf.numMappedWindows());
+
+        // A channel that was passed in stays open.
+        newBuffer(0, bytes.length).release();
+        assertTrue(channel.isOpen());
+    }
+}
@@ -22,6 +22,7 @@ import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -44,6 +45,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<PooledByteBufAllocator> {
@@ -190,6 +194,37 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         assertEquals(expectedDealloc, dealloc);
     }
 
+    @Test
+    public void testHugePageSizeDoesNotOverAllocateDirectChunks() {
+        int hugePageSize = 2 * 1024 * 1024;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 9, 0, 0, false, 0, hugePageSize);
+        assertEquals(hugePageSize, allocator.metric().directHugePageSize());
+
+        ByteBuf buffer = allocator.directBuffer(8192);
+        PooledByteBuf<?> pooled = (PooledByteBuf<?>) (buffer instanceof PooledByteBuf ? buffer : buffer.unwrap());
+        assertEquals(allocator.metric().chunkSize(), ((ByteBuffer) pooled.chunk.base).capacity());
+        assertEquals(allocator.metric().chunkSize(), allocator.metric().usedDirectMemory());
+        buffer.release();
+    }
+
+    @Test
+    public void testHugePageSizeMustDivideChunkSize() {
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                // 8192 << 7 = 1 MiB chunks can't be made of 2 MiB pages.
+                new PooledByteBufAllocator(true, 0, 1, 8192, 7, 0, 0, false, 0, 2 * 1024 * 1024);
+            }
+        });
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                new PooledByteBufAllocator(true, 0, 1, 8192, 9, 0, 0, false, 0, 3 * 1024 * 1024);
+            }
+        });
+    }
+
     @Test
     public void testPoolChunkListMetric() {
         for (PoolArenaMetric arenaMetric: PooledByteBufAllocator.DEFAULT.metric().heapArenas()) {
@@ -225,6 +260,440 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         }
     }
 
+    @Test
+    @Timeout(value = 10000, unit = MILLISECONDS)
+    public void testLockContentionMetrics() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 9, 0, 0, false, 0);
+        final PoolArena<?> arena = (PoolArena<?>) allocator.metric().directArenas().get(0);
+        assertEquals(0, arena.numLockContentions());
+        assertEquals(0, arena.numSubpageLockContentions());
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                allocator.directBuffer(16 * 1024).release();
+            }
+        });
+        arena.lock();
+        try {
+            thread.start();
+            while (arena.numLockContentions() == 0) {
+                Thread.sleep(10);
+            }
+        } finally {
+            arena.unlock();
+        }
+        thread.join();
+        assertEquals(1, arena.numLockContentions());
+
+        @SuppressWarnings("unchecked")
+        PoolArena<ByteBuffer> directArena = (PoolArena<ByteBuffer>) arena;
+        PoolSubpage<ByteBuffer> head = directArena.findSubpagePoolHead(directArena.size2SizeIdx(16));
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                allocator.directBuffer(16).release();
+            }
+        });
+        directArena.lockSubpagePool(head);
+        try {
+            thread.start();
+            while (arena.numSubpageLockContentions() == 0) {
+                Thread.sleep(10);
+            }
+        } finally {
+            head.lock.unlock();
+        }
+        thread.join();
+        assertEquals(1, arena.numSubpageLockContentions());
+        assertEquals(1, allocator.metric().numLockContentions());
+        assertEquals(1, allocator.metric().numSubpageLockContentions());
+    }
+
+    @Test
+    @Timeout(value = 10000, unit = MILLISECONDS)
+    public void testSmallDeallocationDoesNotNeedArenaLock() throws Exception {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 9, 0, 0, false, 0);
+        PoolArena<?> arena = (PoolArena<?>) allocator.metric().directArenas().get(0);
+        // Both buffers are carved out of the same subpage, which stays in use after the first one is released.
+        final ByteBuf first = allocator.directBuffer(16);
+        ByteBuf second = allocator.directBuffer(16);
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                first.release();
+            }
+        });
+        arena.lock();
+        try {
+            thread.start();
+            thread.join();
+            assertEquals(1, arena.numSmallDeallocations());
+        } finally {
+            arena.unlock();
+        }
+        assertEquals(0, arena.numLockContentions());
+        second.release();
+        assertEquals(0, arena.numActiveAllocations());
+    }
+
+    @Test
+    @Timeout(value = 10000, unit = MILLISECONDS)
+    public void testRemoteFreeIsCachedForAllocatingThread() throws Exception {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 9, 64, 64, true);
+        final ByteBuf buffer = allocator.directBuffer(64);
+        PooledByteBuf<ByteBuffer> unwrapped = unwrapIfNeeded(buffer);
+        PoolChunk<ByteBuffer> chunk = unwrapped.chunk;
+        long handle = unwrapped.handle;
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                buffer.release();
+            }
+        });
+        thread.start();
+        thread.join();
+
+        // The buffer went into the cache of this thread, so the next allocation reuses the memory.
+        ByteBuf reused = allocator.directBuffer(64);
+        PooledByteBuf<ByteBuffer> unwrappedReused = unwrapIfNeeded(reused);
+        assertTrue(chunk == unwrappedReused.chunk);
+        assertEquals(handle, unwrappedReused.handle);
+        assertEquals(0, allocator.metric().directArenas().get(0).numSmallDeallocations());
+        reused.release();
+    }
+
+    @Test
+    @Timeout(value = 10000, unit = MILLISECONDS)
+    public void testRemoteFreeAfterCacheFreedGoesToArena() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 9, 64, 64, true);
+        final AtomicReference<ByteBuf> buffer = new AtomicReference<ByteBuf>();
+        Thread thread = new FastThreadLocalThread(new Runnable() {
+            @Override
+            public void run() {
+                buffer.set(allocator.directBuffer(64));
+            }
+        });
+        thread.start();
+        thread.join();
+
+        buffer.get().release();
+        PoolArenaMetric metric = allocator.metric().directArenas().get(0);
+        assertEquals(1, metric.numSmallDeallocations());
+        assertEquals(0, metric.numActiveAllocations());
+    }
+
+    @Test
+    public void testThreadCacheHitMetrics() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 9, 64, 64, true);
+        PoolArenaMetric metric = allocator.metric().directArenas().get(0);
+        int sizeIdx = metric.size2SizeIdx(64);
+
+        allocator.directBuffer(64).release();
+        allocator.directBuffer(64).release();
+        assertTrue(allocator.trimCurrentThreadCache());
+
+        assertEquals(1, allocator.metric().numThreadCacheHits(sizeIdx));
+        assertEquals(1, allocator.metric().numThreadCacheMisses(sizeIdx));
+        assertEquals(0.5, allocator.metric().threadCacheHitRatio(sizeIdx), 0.0);
+        assertEquals(64, allocator.metric().threadCacheCapacity(sizeIdx));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    @Timeout(value = 10000, unit = MILLISECONDS)
+    public void testThreadBoundAllocator() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 9, 64, 64, true);
+        final ByteBufAllocator bound = allocator.threadBoundAllocator();
+        PoolArenaMetric metric = allocator.metric().directArenas().get(0);
+        int sizeIdx = metric.size2SizeIdx(64);
+        assertTrue(bound.isDirectBufferPooled());
+        assertSame(allocator.metric(), ((ByteBufAllocatorMetricProvider) bound).metric());
+
+        // The bound allocator and the allocator share the cache of this thread.
+        ByteBuf buffer = bound.directBuffer(64);
+        assertSame(allocator, buffer.alloc());
+        buffer.release();
+        bound.directBuffer(64).release();
+        allocator.directBuffer(64).release();
+        assertTrue(allocator.trimCurrentThreadCache());
+        assertEquals(2, allocator.metric().numThreadCacheHits(sizeIdx));
+        assertEquals(1, allocator.metric().numThreadCacheMisses(sizeIdx));
+
+        // Other threads fall back to their own cache.
+        final AtomicReference<ByteBuf> otherBuffer = new AtomicReference<ByteBuf>();
+        Thread thread = new FastThreadLocalThread(new Runnable() {
+            @Override
+            public void run() {
+                otherBuffer.set(bound.directBuffer(64));
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals(64, otherBuffer.get().capacity());
+        otherBuffer.get().release();
+
+        // Once the cache of this thread was freed, a new one is looked up.
+        allocator.freeThreadLocalCache();
+        assertFalse(allocator.trimCurrentThreadCache());
+        bound.directBuffer(64).release();
+        assertTrue(allocator.trimCurrentThreadCache());
+    }
+
+    @Test
+    public void testAdaptiveThreadCacheGrowsHotSizes() {
+        // 64 KiB buffers are above the default maximum cached buffer capacity and so not cached at first.
+        int size = 64 * 1024;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 64, 64, true, 0, 0, 64L * 1024 * 1024);
+        PoolArenaMetric metric = allocator.metric().directArenas().get(0);
+        int sizeIdx = metric.size2SizeIdx(size);
+        assertEquals(0, allocator.metric().threadCacheCapacity(sizeIdx));
+
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                allocateAndRelease(allocator, size, 8);
+            }
+            assertTrue(allocator.trimCurrentThreadCache());
+        }
+        assertThat(allocator.metric().threadCacheCapacity(sizeIdx)).isGreaterThanOrEqualTo(8);
+        assertThat(allocator.metric().numThreadCacheHits(sizeIdx)).isPositive();
+
+        // Once the size is not used anymore, the cache shrinks back.
+        for (int i = 0; i < 16; i++) {
+            assertTrue(allocator.trimCurrentThreadCache());
+        }
+        assertEquals(0, allocator.metric().threadCacheCapacity(sizeIdx));
+    }
+
+    @Test
+    public void testAdaptiveThreadCacheRespectsBudget() {
+        int size = 64 * 1024;
+        // Not even enough for the first growth step of 8 buffers.
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 64, 64, true, 0, 0, 8L * size - 1);
+        PoolArenaMetric metric = allocator.metric().directArenas().get(0);
+        int sizeIdx = metric.size2SizeIdx(size);
+
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                allocateAndRelease(allocator, size, 8);
+            }
+            assertTrue(allocator.trimCurrentThreadCache());
+        }
+        assertEquals(0, allocator.metric().threadCacheCapacity(sizeIdx));
+        assertEquals(0, allocator.metric().numThreadCacheHits(sizeIdx));
+    }
+
+    private static void allocateAndRelease(ByteBufAllocator allocator, int size, int count) {
+        ByteBuf[] buffers = new ByteBuf[count];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = allocator.directBuffer(size);
+        }
+        for (ByteBuf buffer : buffers) {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testEmptyChunkIsRetainedWithoutMemoryTarget() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 9, 0, 0, false, 0, 0, 0, 0);
+        int chunkSize = allocator.metric().chunkSize();
+        allocator.directBuffer(64 * 1024).release();
+
+        assertEquals(chunkSize, allocator.metric().usedDirectMemory());
+        assertEquals(chunkSize, allocator.metric().numReclaimableBytes());
+        assertEquals(0, allocator.metric().numReleasedBytes());
+    }
+
+    @Test
+    public void testEmptyChunksAreReleasedAboveMemoryTarget() {
+        // A target below a single chunk, so the arena is always above it.
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 9, 64, 64, true, 0, 0, 0, 1024);
+        int chunkSize = allocator.metric().chunkSize();
+
+        ByteBuf normal = allocator.directBuffer(64 * 1024);
+        ByteBuf small = allocator.directBuffer(64);
+        assertTrue(unwrapIfNeeded(normal).chunk == unwrapIfNeeded(small).chunk);
+        normal.release();
+        assertEquals(chunkSize, allocator.metric().usedDirectMemory());
+
+        // Neither the thread cache nor the last subpage of the size keep the chunk alive.
+        small.release();
+        assertEquals(0, allocator.metric().usedDirectMemory());
+        assertEquals(0, allocator.metric().numReclaimableBytes());
+        assertEquals(chunkSize, allocator.metric().numReleasedBytes());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLeastUsedArenaOfNumaNode() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 4, 8192, 9, 0, 0, false, 0);
+        PoolArena<ByteBuffer>[] arenas = allocator.metric().directArenas().toArray(new PoolArena[0]);
+        arenas[0].numThreadCaches.set(2);
+        arenas[1].numThreadCaches.set(1);
+        arenas[2].numThreadCaches.set(1);
+        arenas[3].numThreadCaches.set(3);
+
+        // Node 0 owns arenas 0 and 2, node 1 owns arenas 1 and 3.
+        assertTrue(PooledByteBufAllocator.leastUsedArena(arenas, 0, 2) == arenas[2]);
+        assertTrue(PooledByteBufAllocator.leastUsedArena(arenas, 1, 2) == arenas[1]);
+
+        // Without a known node all arenas are considered.
+        assertTrue(PooledByteBufAllocator.leastUsedArena(arenas, -1, 2) == arenas[1]);
+        assertTrue(PooledByteBufAllocator.leastUsedArena(arenas, 4, 8) == arenas[1]);
+
+        arenas[3].numThreadCaches.set(0);
+        assertTrue(PooledByteBufAllocator.leastUsedArena(arenas, 1, 2) == arenas[3]);
+    }
+
+    @Test
+    public void testUsedMemoryByTag() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 9, 0, 0, false, 0);
+        AllocationTag tag = AllocationTag.valueOf("testUsedMemoryByTag");
+        boolean enabled = AllocationTag.isEnabled();
+        AllocationTag.setEnabled(true);
+        try {
+            ByteBuf untagged = allocator.directBuffer(1024);
+            ByteBuf direct;
+            ByteBuf heap;
+            AllocationTag previous = AllocationTag.enter(tag);
+            try {
+                direct = allocator.directBuffer(1024);
+                heap = allocator.heapBuffer(64 * 1024);
+            } finally {
+                AllocationTag.exit(previous);
+            }
+            assertNull(AllocationTag.current());
+            assertEquals(1024L, allocator.metric().usedDirectMemoryByTag().get(tag));
+            assertEquals(64 * 1024L, allocator.metric().usedHeapMemoryByTag().get(tag));
+
+            // Growing the buffer moves it to a larger size class, which is still counted for the tag.
+            direct.capacity(4096);
+            assertEquals(4096L, allocator.metric().usedDirectMemoryByTag().get(tag));
+
+            untagged.release();
+            direct.release();
+            heap.release();
+            assertEquals(0L, allocator.metric().usedDirectMemoryByTag().get(tag));
+            assertEquals(0L, allocator.metric().usedHeapMemoryByTag().get(tag));
+        } finally {
+            AllocationTag.setEnabled(enabled);
+        }
+    }
+
+    @Test
+    public void testTagIsRestoredWhenDisabledInBetween() {
+        boolean enabled = AllocationTag.isEnabled();
+        AllocationTag outer = AllocationTag.valueOf("testTagIsRestoredWhenDisabledInBetween-outer");
+        AllocationTag inner = AllocationTag.valueOf("testTagIsRestoredWhenDisabledInBetween-inner");
+        AllocationTag.setEnabled(true);
+        try {
+            AllocationTag previous = AllocationTag.enter(outer);
+            AllocationTag.setEnabled(false);
+            AllocationTag.exit(previous);
+            AllocationTag.setEnabled(true);
+            assertNull(AllocationTag.current());
+
+            // Entered while disabled, so exiting must not clear the tag that was entered before.
+            previous = AllocationTag.enter(outer);
+            AllocationTag.setEnabled(false);
+            AllocationTag innerPrevious = AllocationTag.enter(inner);
+            AllocationTag.setEnabled(true);
+            AllocationTag.exit(innerPrevious);
+            assertSame(outer, AllocationTag.current());
+            AllocationTag.exit(previous);
+            assertNull(AllocationTag.current());
+        } finally {
+            AllocationTag.setEnabled(enabled);
+        }
+    }
+
+    @Test
+    public void testNoTagWhenDisabled() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 9, 0, 0, false, 0);
+        boolean enabled = AllocationTag.isEnabled();
+        AllocationTag.setEnabled(false);
+        try {
+            AllocationTag previous = AllocationTag.enter(AllocationTag.valueOf("testNoTagWhenDisabled"));
+            try {
+                assertNull(AllocationTag.current());
+                allocator.directBuffer(1024).release();
+            } finally {
+                AllocationTag.exit(previous);
+            }
+            assertTrue(allocator.metric().usedDirectMemoryByTag().isEmpty());
+        } finally {
+            AllocationTag.setEnabled(enabled);
+        }
+    }
+
+    @Test
+    public void testSnapshotFreeRunsAndSubpages() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 9, 0, 0, false, 0);
+        // Each buffer takes a run of 8 pages.
+        ByteBuf a = allocator.directBuffer(64 * 1024);
+        ByteBuf b = allocator.directBuffer(64 * 1024);
+        ByteBuf c = allocator.directBuffer(64 * 1024);
+        b.release();
+
+        List<PoolArenaSnapshot> snapshots = allocator.snapshot();
+        assertEquals(1, snapshots.size());
+        PoolArenaSnapshot arena = snapshots.get(0);
+        assertTrue(arena.isDirect());
+        assertEquals(1, arena.chunks().size());
+        PoolChunkSnapshot chunk = arena.chunks().get(0);
+        assertEquals(2, chunk.numFreeRuns());
+        assertEquals(8, chunk.freeRunOffset(0));
+        assertEquals(8, chunk.freeRunPages(0));
+        assertEquals(24, chunk.freeRunOffset(1));
+        assertEquals(488, chunk.freeRunPages(1));
+        assertEquals(488, chunk.largestFreeRunPages());
+        assertEquals(chunk.chunkSize() - 2 * 64 * 1024, chunk.freeBytes());
+
+        ByteBuf small = allocator.directBuffer(64);
+        arena = allocator.snapshot().get(0);
+        int sizeIdx = sizeIdx(arena, 64);
+        assertEquals(1, arena.numSubpages(sizeIdx));
+        assertEquals(1, arena.numUsedSubpageElements(sizeIdx));
+        assertEquals(8192 / 64, arena.numSubpageElements(sizeIdx));
+
+        a.release();
+        c.release();
+        small.release();
+    }
+
+    @Test
+    public void testSnapshotThreadCaches() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 9, 64, 64, true, 0);
+        allocator.directBuffer(64).release();
+        allocator.directBuffer(64).release();
+
+        PoolArenaSnapshot arena = allocator.snapshot().get(0);
+        assertEquals(1, arena.numThreadCaches());
+        assertEquals(1, arena.numCachedBuffers(sizeIdx(arena, 64)));
+        assertEquals(64, arena.cachedBytes());
+        assertEquals(1, arena.numUsedSubpageElements(sizeIdx(arena, 64)));
+
+        allocator.freeThreadLocalCache();
+        arena = allocator.snapshot().get(0);
+        assertEquals(0, arena.numThreadCaches());
+        assertEquals(0, arena.cachedBytes());
+    }
+
+    private static int sizeIdx(PoolArenaSnapshot arena, int size) {
+        for (int i = 0; i < arena.numSizeClasses(); i++) {
+            if (arena.sizeClass(i) == size) {
+                return i;
+            }
+        }
+        throw new AssertionError(size);
+    }
+
     @Test
     public void testAllocNotNull() {
         PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 9, 0, 0, 0);
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static io.netty.buffer.Unpooled.EMPTY_BUFFER;
+import static io.netty.buffer.Unpooled.ropeBuffer;
+import static io.netty.buffer.Unpooled.wrappedBuffer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class RopeByteBufTest extends AbstractByteBufTest {
+
+    @Override
+    protected ByteBuf newBuffer(int length, int maxCapacity) {
+        Assumptions.assumeTrue(maxCapacity == Integer.MAX_VALUE);
+
+        // Prepend half of the components, so that both ends are used.
+        RopeByteBuf buffer = ropeBuffer();
+        for (int i = 0; i < length + 45; i += 45) {
+            for (int j = 1; j <= 9; j++) {
+                if ((i / 45 & 1) == 0) {
+                    buffer.addLast(true, wrappedBuffer(new byte[j]));
+                } else {
+                    buffer.addFirst(true, wrappedBuffer(new byte[j]));
+                }
+                buffer.addLast(true, EMPTY_BUFFER);
+            }
+        }
+
+        // Truncate to the requested capacity.
+        buffer.capacity(length);
+
+        assertEquals(length, buffer.capacity());
+        assertEquals(length, buffer.readableBytes());
+        assertFalse(buffer.isWritable());
+        buffer.writerIndex(0);
+        return buffer;
+    }
+
+    // Like a composite buffer, a rope buffer does not move the writable bytes on discardReadBytes.
+    @Override
+    protected boolean discardReadBytesDoesNotMoveWritableBytes() {
+        return false;
+    }
+
+    @Override
+    @Test
+    public void testInternalNioBuffer() {
+        RopeByteBuf buf = ropeBuffer();
+        assertEquals(0, buf.internalNioBuffer(0, 0).remaining());
+
+        // With one component, its internal buffer is returned
+        ByteBuf component = Unpooled.directBuffer().writeByte(1);
+        buf.addLast(true, component);
+        assertSame(component.internalNioBuffer(0, 1), buf.internalNioBuffer(0, 1));
+        buf.release();
+    }
+
+    @Test
+    public void testAddFirstAndLast() {
+        RopeByteBuf buf = ropeBuffer();
+        buf.addLast(true, copiedBuffer("cd"));
+        buf.addFirst(true, copiedBuffer("ab"));
+        buf.addLast(true, copiedBuffer("ef"));
+        buf.addFirst(true, copiedBuffer(""));
+        buf.addFirst(true, copiedBuffer("_"));
+
+        assertEquals(4, buf.numComponents());
+        assertEquals("_abcdef", buf.toString(CharsetUtil.US_ASCII));
+        assertEquals(0, buf.toComponentIndex(0));
+        assertEquals(1, buf.toComponentIndex(2));
+        assertEquals(3, buf.toComponentIndex(6));
+        assertEquals(3, buf.toByteIndex(2));
+        assertEquals("cd", buf.internalComponent(2).toString(CharsetUtil.US_ASCII));
+        assertEquals(0x5f616263, buf.getInt(0));
+        buf.release();
+    }
+
+    @Test
+    public void testDiscardReadComponents() {
+        RopeByteBuf buf = ropeBuffer();
+        buf.addLast(true, copiedBuffer("ab"));
+        buf.addLast(true, copiedBuffer("cd"));
+        buf.addLast(true, copiedBuffer("ef"));
+        buf.skipBytes(3);
+        assertEquals('d', buf.getByte(3));
+
+        buf.discardReadComponents();
+        assertEquals(2, buf.numComponents());
+        assertEquals(1, buf.readerIndex());
+        assertEquals(4, buf.writerIndex());
+        assertEquals("def", buf.toString(CharsetUtil.US_ASCII));
+
+        // The bytes which were discarded must not be found again after prepending.
+        buf.addFirst(true, copiedBuffer("xy"));
+        assertEquals("xycdef", buf.toString(0, buf.capacity(), CharsetUtil.US_ASCII));
+
+        buf.discardReadBytes();
+        assertEquals(3, buf.numComponents());
+        assertEquals("ycdef", buf.toString(CharsetUtil.US_ASCII));
+        assertEquals('y', buf.getByte(0));
+        buf.release();
+    }
+
+    @Test
+    public void testManyComponents() {
+        RopeByteBuf buf = ropeBuffer();
+        for (int i = 0; i < 10000; i++) {
+            buf.addFirst(true, wrappedBuffer(new byte[] { (byte) (-1 - i) }));
+            buf.addLast(true, wrappedBuffer(new byte[] { (byte) i }));
+        }
+        assertEquals(20000, buf.numComponents());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals((byte) (-10000 + i), buf.getByte(i));
+            assertEquals((byte) i, buf.getByte(10000 + i));
+            assertEquals(i, buf.toComponentIndex(i));
+        }
+
+        ByteBuffer[] nioBuffers = buf.nioBuffers();
+        assertEquals(20000, nioBuffers.length);
+        assertEquals((byte) -10000, nioBuffers[0].get(0));
+
+        // Read and discard from the front while appending at the end.
+        for (int i = 0; i < 15000; i++) {
+            buf.readByte();
+            buf.discardReadComponents();
+            buf.addLast(true, wrappedBuffer(new byte[] { 42 }));
+        }
+        assertEquals(20000, buf.numComponents());
+        assertEquals(0, buf.readerIndex());
+        assertEquals((byte) 5000, buf.getByte(0));
+        assertEquals(42, buf.getByte(19999));
+        buf.release();
+    }
+
+    @Test
+    public void testCapacityShrinkThenAppend() {
+        RopeByteBuf buf = ropeBuffer();
+        buf.addLast(true, copiedBuffer("abc"));
+        buf.addLast(true, copiedBuffer("def"));
+        assertEquals('e', buf.getByte(4));
+
+        buf.capacity(2);
+        assertEquals(1, buf.numComponents());
+        buf.addLast(true, copiedBuffer("xyz"));
+        assertEquals('y', buf.getByte(3));
+        assertEquals("abxyz", buf.toString(0, buf.capacity(), CharsetUtil.US_ASCII));
+        buf.release();
+    }
+
+    private static ByteBuf copiedBuffer(String s) {
+        return Unpooled.copiedBuffer(s, CharsetUtil.US_ASCII);
+    }
+}
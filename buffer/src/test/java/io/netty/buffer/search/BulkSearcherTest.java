@@ -0,0 +1,196 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.netty.buffer.search;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BulkSearcherTest {
+
+    private enum Algorithm {
+        BOYER_MOORE_HORSPOOL {
+            @Override
+            BulkSearcher newSearcher(byte[] needle) {
+                return AbstractBulkSearcher.newBoyerMooreHorspoolSearcher(needle);
+            }
+        },
+        SHIFT_OR {
+            @Override
+            BulkSearcher newSearcher(byte[] needle) {
+                return AbstractBulkSearcher.newShiftOrSearcher(needle);
+            }
+        };
+        abstract BulkSearcher newSearcher(byte[] needle);
+    }
+
+    private enum BufferType {
+        HEAP {
+            @Override
+            ByteBuf newBuffer(byte[] bytes) {
+                // use an offset so that the array offset must be applied
+                byte[] array = new byte[bytes.length + 3];
+                System.arraycopy(bytes, 0, array, 3, bytes.length);
+                return Unpooled.wrappedBuffer(array).slice(3, bytes.length);
+            }
+        },
+        DIRECT {
+            @Override
+            ByteBuf newBuffer(byte[] bytes) {
+                return Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+            }
+        },
+        COMPOSITE {
+            @Override
+            ByteBuf newBuffer(byte[] bytes) {
+                CompositeByteBuf buf = Unpooled.compositeBuffer();
+                int half = bytes.length / 2;
+                buf.addComponent(true, Unpooled.copiedBuffer(bytes, 0, half));
+                buf.addComponent(true, Unpooled.directBuffer(bytes.length - half)
+                        .writeBytes(bytes, half, bytes.length - half));
+                return buf;
+            }
+        };
+        abstract ByteBuf newBuffer(byte[] bytes);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Algorithm.class)
+    public void testSearch(Algorithm algorithm) {
+        for (BufferType type : BufferType.values()) {
+            final ByteBuf haystack = type.newBuffer("abc☺".getBytes(CharsetUtil.UTF_8));
+
+            assertEquals(0, searcher(algorithm, "a").indexOf(haystack));
+            assertEquals(0, searcher(algorithm, "ab").indexOf(haystack));
+            assertEquals(0, searcher(algorithm, "abc☺").indexOf(haystack));
+            assertEquals(-1, searcher(algorithm, "abc☺☺").indexOf(haystack));
+            assertEquals(-1, searcher(algorithm, "abc☺x").indexOf(haystack));
+
+            assertEquals(1, searcher(algorithm, "b").indexOf(haystack));
+            assertEquals(1, searcher(algorithm, "bc☺").indexOf(haystack));
+            assertEquals(2, searcher(algorithm, "c☺").indexOf(haystack));
+            assertEquals(3, searcher(algorithm, "☺").indexOf(haystack));
+            assertEquals(-1, searcher(algorithm, "☺x").indexOf(haystack));
+
+            assertEquals(-1, searcher(algorithm, "z").indexOf(haystack));
+            assertEquals(-1, searcher(algorithm, "aa").indexOf(haystack));
+            assertEquals(-1, searcher(algorithm, "ba").indexOf(haystack));
+            assertEquals(-1, searcher(algorithm, "abcd").indexOf(haystack));
+
+            haystack.release();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Algorithm.class)
+    public void testOverlapping(Algorithm algorithm) {
+        final ByteBuf haystack = Unpooled.copiedBuffer("ababab", CharsetUtil.UTF_8);
+        final BulkSearcher searcher = searcher(algorithm, "bab");
+
+        assertEquals(1, searcher.indexOf(haystack));
+        assertEquals(3, searcher.indexOf(haystack, 2, 6));
+        assertEquals(-1, searcher.indexOf(haystack, 4, 6));
+        assertEquals(-1, searcher.indexOf(haystack, 0, 3));
+
+        haystack.release();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Algorithm.class)
+    public void testMatchesIndexOf(Algorithm algorithm) {
+        final Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            // a small alphabet, so that there are many partial matches
+            final byte[] haystackBytes = randomBytes(random, 1 + random.nextInt(20000), 'a', 'c');
+            final byte[] needleBytes = randomBytes(random, 1 + random.nextInt(10), 'a', 'c');
+            final BulkSearcher searcher = algorithm.newSearcher(needleBytes);
+            final ByteBuf needle = Unpooled.wrappedBuffer(needleBytes);
+
+            for (BufferType type : BufferType.values()) {
+                final ByteBuf haystack = type.newBuffer(haystackBytes);
+                final int fromIndex = random.nextInt(haystackBytes.length);
+                haystack.readerIndex(fromIndex);
+                assertEquals(ByteBufUtil.indexOf(needle, haystack), searcher.indexOf(haystack));
+                haystack.release();
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Algorithm.class)
+    public void testOccurrenceAcrossChunks(Algorithm algorithm) {
+        final byte[] needle = "0123456789".getBytes(CharsetUtil.US_ASCII);
+        final BulkSearcher searcher = algorithm.newSearcher(needle);
+        for (int index = 8192 - needle.length; index <= 8192; index++) {
+            final byte[] bytes = new byte[20000];
+            Arrays.fill(bytes, (byte) 'x');
+            System.arraycopy(needle, 0, bytes, index, needle.length);
+            for (BufferType type : BufferType.values()) {
+                final ByteBuf haystack = type.newBuffer(bytes);
+                assertEquals(index, searcher.indexOf(haystack));
+                assertEquals(index, searcher.indexOf(bytes, 0, bytes.length));
+                haystack.release();
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        final BulkSearcher searcher = AbstractBulkSearcher.newBoyerMooreHorspoolSearcher(new byte[] { 1 });
+        assertThrows(IndexOutOfBoundsException.class, new Executable() {
+            @Override
+            public void execute() {
+                searcher.indexOf(new byte[4], 2, 5);
+            }
+        });
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                AbstractBulkSearcher.newShiftOrSearcher(new byte[0]);
+            }
+        });
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                AbstractBulkSearcher.newShiftOrSearcher(new byte[65]);
+            }
+        });
+    }
+
+    private static BulkSearcher searcher(Algorithm algorithm, String needle) {
+        return algorithm.newSearcher(needle.getBytes(CharsetUtil.UTF_8));
+    }
+
+    private static byte[] randomBytes(Random random, int size, int from, int to) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (from + random.nextInt(to - from + 1));
+        }
+        return bytes;
+    }
+
+}
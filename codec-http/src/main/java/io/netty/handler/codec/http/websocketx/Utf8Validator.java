@@ -36,7 +36,9 @@
 package io.netty.handler.codec.http.websocketx;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.util.ByteProcessor;
+import io.netty.util.CharsetUtil;
 
 /**
  * Checks UTF8 bytes for validity
@@ -69,12 +71,17 @@ final class Utf8Validator implements ByteProcessor {
     private boolean checking;
 
     public void check(ByteBuf buffer) {
-        checking = true;
-        buffer.forEachByte(this);
+        check(buffer, buffer.readerIndex(), buffer.readableBytes());
     }
 
     void check(ByteBuf buffer, int index, int length) {
         checking = true;
+        // Between code points the bytes can be validated as a whole, which looks at 8 bytes per step while they
+        // are ASCII. Only if this fails, because the bytes are invalid or a code point continues in the next
+        // fragment, the state machine has to run.
+        if (state == UTF8_ACCEPT && ByteBufUtil.isText(buffer, index, length, CharsetUtil.UTF_8)) {
+            return;
+        }
         buffer.forEachByte(index, length, this);
     }
 
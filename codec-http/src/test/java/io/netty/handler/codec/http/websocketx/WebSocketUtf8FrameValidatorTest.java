@@ -17,6 +17,7 @@ package io.netty.handler.codec.http.websocketx;
 
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 
@@ -38,6 +39,25 @@ public class WebSocketUtf8FrameValidatorTest {
         assertCorruptedFrameExceptionHandling(new byte[]{-8, -120, -128, -128, -128});
     }
 
+    @Test
+    public void testCorruptedFrameExceptionAfterAscii() {
+        byte[] data = "Some ASCII text before an invalid byte".getBytes(CharsetUtil.US_ASCII);
+        data[data.length - 5] = -1;
+        assertCorruptedFrameExceptionHandling(data);
+    }
+
+    @Test
+    public void testCodePointSplitAcrossFragments() {
+        EmbeddedChannel channel = new EmbeddedChannel(new Utf8FrameValidator());
+        byte[] data = "Some ASCII text before a ☺".getBytes(CharsetUtil.UTF_8);
+        int split = data.length - 2;
+        assertTrue(channel.writeInbound(new TextWebSocketFrame(false, 0,
+                Unpooled.wrappedBuffer(data, 0, split))));
+        assertTrue(channel.writeInbound(new ContinuationWebSocketFrame(true, 0,
+                Unpooled.wrappedBuffer(data, split, data.length - split))));
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
     @Test
     void testNotCloseOnProtocolViolation() {
         final EmbeddedChannel channel = new EmbeddedChannel(new Utf8FrameValidator(false));
@@ -29,6 +29,7 @@ import static io.netty.handler.codec.http2.Http2CodecUtil.PRIORITY_ENTRY_LENGTH;
 import static io.netty.handler.codec.http2.Http2CodecUtil.SETTINGS_INITIAL_WINDOW_SIZE;
 import static io.netty.handler.codec.http2.Http2CodecUtil.SETTING_ENTRY_LENGTH;
 import static io.netty.handler.codec.http2.Http2CodecUtil.headerListSizeExceeded;
+import static io.netty.handler.codec.http2.Http2CodecUtil.http2Buffer;
 import static io.netty.handler.codec.http2.Http2CodecUtil.isMaxFrameSizeValid;
 import static io.netty.handler.codec.http2.Http2CodecUtil.readUnsignedInt;
 import static io.netty.handler.codec.http2.Http2Error.FLOW_CONTROL_ERROR;
@@ -704,7 +705,7 @@ public class DefaultHttp2FrameReader implements Http2FrameReader, Http2FrameSize
                     // to retain since we release when the header block is built.
                     headerBlock = fragment.readRetainedSlice(len);
                 } else {
-                    headerBlock = alloc.buffer(len).writeBytes(fragment, len);
+                    headerBlock = http2Buffer(alloc, len).writeBytes(fragment, len);
                 }
                 return;
             }
@@ -717,7 +718,7 @@ public class DefaultHttp2FrameReader implements Http2FrameReader, Http2FrameSize
                 headerBlock.writeBytes(fragment, len);
             } else {
                 // Allocate a new buffer that is big enough to hold the entire header block so far.
-                ByteBuf buf = alloc.buffer(headerBlock.readableBytes() + len);
+                ByteBuf buf = http2Buffer(alloc, headerBlock.readableBytes() + len);
                 buf.writeBytes(headerBlock).writeBytes(fragment, len);
                 headerBlock.release();
                 headerBlock = buf;
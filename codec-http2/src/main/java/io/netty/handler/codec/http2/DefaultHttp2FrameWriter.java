@@ -45,6 +45,7 @@ import static io.netty.handler.codec.http2.Http2CodecUtil.PUSH_PROMISE_FRAME_HEA
 import static io.netty.handler.codec.http2.Http2CodecUtil.RST_STREAM_FRAME_LENGTH;
 import static io.netty.handler.codec.http2.Http2CodecUtil.SETTING_ENTRY_LENGTH;
 import static io.netty.handler.codec.http2.Http2CodecUtil.WINDOW_UPDATE_FRAME_LENGTH;
+import static io.netty.handler.codec.http2.Http2CodecUtil.http2Buffer;
 import static io.netty.handler.codec.http2.Http2CodecUtil.isMaxFrameSizeValid;
 import static io.netty.handler.codec.http2.Http2CodecUtil.verifyPadding;
 import static io.netty.handler.codec.http2.Http2CodecUtil.writeFrameHeaderInternal;
@@ -148,7 +149,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
             flags.paddingPresent(false);
             // Fast path to write frames of payload size maxFrameSize first.
             if (remainingData > maxFrameSize) {
-                frameHeader = ctx.alloc().buffer(FRAME_HEADER_LENGTH);
+                frameHeader = http2Buffer(ctx.alloc(), FRAME_HEADER_LENGTH);
                 writeFrameHeaderInternal(frameHeader, maxFrameSize, DATA, flags, streamId);
                 do {
                     // Write the header.
@@ -168,7 +169,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
                     frameHeader.release();
                     frameHeader = null;
                 }
-                ByteBuf frameHeader2 = ctx.alloc().buffer(FRAME_HEADER_LENGTH);
+                ByteBuf frameHeader2 = http2Buffer(ctx.alloc(), FRAME_HEADER_LENGTH);
                 flags.endOfStream(endStream);
                 writeFrameHeaderInternal(frameHeader2, remainingData, DATA, flags, streamId);
                 ctx.write(frameHeader2, promiseAggregator.newPromise());
@@ -188,7 +189,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
                     // Write the header.
                     ByteBuf lastFrame;
                     if (frameHeader == null) {
-                        lastFrame = ctx.alloc().buffer(FRAME_HEADER_LENGTH);
+                        lastFrame = http2Buffer(ctx.alloc(), FRAME_HEADER_LENGTH);
                         writeFrameHeaderInternal(lastFrame, maxFrameSize, DATA, flags, streamId);
                     } else {
                         lastFrame = frameHeader.slice();
@@ -211,7 +212,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
                     remainingData -= frameDataBytes;
 
                     // Write the header.
-                    ByteBuf frameHeader2 = ctx.alloc().buffer(DATA_FRAME_HEADER_LENGTH);
+                    ByteBuf frameHeader2 = http2Buffer(ctx.alloc(), DATA_FRAME_HEADER_LENGTH);
                     flags.endOfStream(endStream && remainingData == 0 && padding == 0);
                     flags.paddingPresent(framePaddingBytes > 0);
                     writeFrameHeaderInternal(frameHeader2, framePaddingBytes + frameDataBytes, DATA, flags, streamId);
@@ -277,7 +278,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
             verifyStreamOrConnectionId(streamDependency, STREAM_DEPENDENCY);
             verifyWeight(weight);
 
-            ByteBuf buf = ctx.alloc().buffer(PRIORITY_FRAME_LENGTH);
+            ByteBuf buf = http2Buffer(ctx.alloc(), PRIORITY_FRAME_LENGTH);
             writeFrameHeaderInternal(buf, PRIORITY_ENTRY_LENGTH, PRIORITY, new Http2Flags(), streamId);
             buf.writeInt(exclusive ? (int) (0x80000000L | streamDependency) : streamDependency);
             // Adjust the weight so that it fits into a single byte on the wire.
@@ -295,7 +296,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
             verifyStreamId(streamId, STREAM_ID);
             verifyErrorCode(errorCode);
 
-            ByteBuf buf = ctx.alloc().buffer(RST_STREAM_FRAME_LENGTH);
+            ByteBuf buf = http2Buffer(ctx.alloc(), RST_STREAM_FRAME_LENGTH);
             writeFrameHeaderInternal(buf, INT_FIELD_LENGTH, RST_STREAM, new Http2Flags(), streamId);
             buf.writeInt((int) errorCode);
             return ctx.write(buf, promise);
@@ -310,7 +311,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
         try {
             checkNotNull(settings, "settings");
             int payloadLength = SETTING_ENTRY_LENGTH * settings.size();
-            ByteBuf buf = ctx.alloc().buffer(FRAME_HEADER_LENGTH + payloadLength);
+            ByteBuf buf = http2Buffer(ctx.alloc(), FRAME_HEADER_LENGTH + payloadLength);
             writeFrameHeaderInternal(buf, payloadLength, SETTINGS, new Http2Flags(), 0);
             for (Http2Settings.PrimitiveEntry<Long> entry : settings.entries()) {
                 buf.writeChar(entry.key());
@@ -325,7 +326,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
     @Override
     public ChannelFuture writeSettingsAck(ChannelHandlerContext ctx, ChannelPromise promise) {
         try {
-            ByteBuf buf = ctx.alloc().buffer(FRAME_HEADER_LENGTH);
+            ByteBuf buf = http2Buffer(ctx.alloc(), FRAME_HEADER_LENGTH);
             writeFrameHeaderInternal(buf, 0, SETTINGS, new Http2Flags().ack(true), 0);
             return ctx.write(buf, promise);
         } catch (Throwable t) {
@@ -336,7 +337,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
     @Override
     public ChannelFuture writePing(ChannelHandlerContext ctx, boolean ack, long data, ChannelPromise promise) {
         Http2Flags flags = ack ? new Http2Flags().ack(true) : new Http2Flags();
-        ByteBuf buf = ctx.alloc().buffer(FRAME_HEADER_LENGTH + PING_FRAME_PAYLOAD_LENGTH);
+        ByteBuf buf = http2Buffer(ctx.alloc(), FRAME_HEADER_LENGTH + PING_FRAME_PAYLOAD_LENGTH);
         // Assume nothing below will throw until buf is written. That way we don't have to take care of ownership
         // in the catch block.
         writeFrameHeaderInternal(buf, PING_FRAME_PAYLOAD_LENGTH, PING, flags, 0);
@@ -356,7 +357,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
             verifyPadding(padding);
 
             // Encode the entire header block into an intermediate buffer.
-            headerBlock = ctx.alloc().buffer();
+            headerBlock = http2Buffer(ctx.alloc());
             headersEncoder.encodeHeaders(streamId, headers, headerBlock);
 
             // Read the first fragment (possibly everything).
@@ -369,7 +370,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
             flags.endOfHeaders(!headerBlock.isReadable());
 
             int payloadLength = fragment.readableBytes() + nonFragmentLength;
-            ByteBuf buf = ctx.alloc().buffer(PUSH_PROMISE_FRAME_HEADER_LENGTH);
+            ByteBuf buf = http2Buffer(ctx.alloc(), PUSH_PROMISE_FRAME_HEADER_LENGTH);
             writeFrameHeaderInternal(buf, payloadLength, PUSH_PROMISE, flags, streamId);
             writePaddingLength(buf, padding);
 
@@ -412,7 +413,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
             verifyErrorCode(errorCode);
 
             int payloadLength = 8 + debugData.readableBytes();
-            ByteBuf buf = ctx.alloc().buffer(GO_AWAY_FRAME_HEADER_LENGTH);
+            ByteBuf buf = http2Buffer(ctx.alloc(), GO_AWAY_FRAME_HEADER_LENGTH);
             // Assume nothing below will throw until buf is written. That way we don't have to take care of ownership
             // in the catch block.
             writeFrameHeaderInternal(buf, payloadLength, GO_AWAY, new Http2Flags(), 0);
@@ -444,7 +445,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
             verifyStreamOrConnectionId(streamId, STREAM_ID);
             verifyWindowSizeIncrement(windowSizeIncrement);
 
-            ByteBuf buf = ctx.alloc().buffer(WINDOW_UPDATE_FRAME_LENGTH);
+            ByteBuf buf = http2Buffer(ctx.alloc(), WINDOW_UPDATE_FRAME_LENGTH);
             writeFrameHeaderInternal(buf, INT_FIELD_LENGTH, WINDOW_UPDATE, new Http2Flags(), streamId);
             buf.writeInt(windowSizeIncrement);
             return ctx.write(buf, promise);
@@ -460,7 +461,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
                 new SimpleChannelPromiseAggregator(promise, ctx.channel(), ctx.executor());
         try {
             verifyStreamOrConnectionId(streamId, STREAM_ID);
-            ByteBuf buf = ctx.alloc().buffer(FRAME_HEADER_LENGTH);
+            ByteBuf buf = http2Buffer(ctx.alloc(), FRAME_HEADER_LENGTH);
             // Assume nothing below will throw until buf is written. That way we don't have to take care of ownership
             // in the catch block.
             writeFrameHeaderInternal(buf, payload.readableBytes(), frameType, flags, streamId);
@@ -497,7 +498,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
             }
 
             // Encode the entire header block.
-            headerBlock = ctx.alloc().buffer();
+            headerBlock = http2Buffer(ctx.alloc());
             headersEncoder.encodeHeaders(streamId, headers, headerBlock);
 
             Http2Flags flags =
@@ -512,7 +513,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
             flags.endOfHeaders(!headerBlock.isReadable());
 
             int payloadLength = fragment.readableBytes() + nonFragmentBytes;
-            ByteBuf buf = ctx.alloc().buffer(HEADERS_FRAME_HEADER_LENGTH);
+            ByteBuf buf = http2Buffer(ctx.alloc(), HEADERS_FRAME_HEADER_LENGTH);
             writeFrameHeaderInternal(buf, payloadLength, HEADERS, flags, streamId);
             writePaddingLength(buf, padding);
 
@@ -559,7 +560,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
         if (headerBlock.isReadable()) {
             // The frame header (and padding) only changes on the last frame, so allocate it once and re-use
             int fragmentReadableBytes = min(headerBlock.readableBytes(), maxFrameSize);
-            ByteBuf buf = ctx.alloc().buffer(CONTINUATION_FRAME_HEADER_LENGTH);
+            ByteBuf buf = http2Buffer(ctx.alloc(), CONTINUATION_FRAME_HEADER_LENGTH);
             writeFrameHeaderInternal(buf, fragmentReadableBytes, CONTINUATION, flags, streamId);
 
             do {
@@ -572,7 +573,7 @@ public class DefaultHttp2FrameWriter implements Http2FrameWriter, Http2FrameSize
                     // The frame header is different for the last frame, so re-allocate and release the old buffer
                     flags = flags.endOfHeaders(true);
                     buf.release();
-                    buf = ctx.alloc().buffer(CONTINUATION_FRAME_HEADER_LENGTH);
+                    buf = http2Buffer(ctx.alloc(), CONTINUATION_FRAME_HEADER_LENGTH);
                     writeFrameHeaderInternal(buf, fragmentReadableBytes, CONTINUATION, flags, streamId);
                     ctx.write(buf, promiseAggregator.newPromise());
                 }
@@ -15,7 +15,9 @@
 
 package io.netty.handler.codec.http2;
 
+import io.netty.buffer.AllocationTag;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
@@ -117,6 +119,7 @@ public final class Http2CodecUtil {
     public static final int SMALLEST_MAX_CONCURRENT_STREAMS = 100;
     static final int DEFAULT_MAX_RESERVED_STREAMS = SMALLEST_MAX_CONCURRENT_STREAMS;
     static final int DEFAULT_MIN_ALLOCATION_CHUNK = 1024;
+    static final AllocationTag ALLOCATION_TAG = AllocationTag.valueOf("http2");
 
     /**
      * Calculate the threshold in bytes which should trigger a {@code GO_AWAY} if a set of headers exceeds this amount.
@@ -246,6 +249,31 @@ public final class Http2CodecUtil {
                 "allowed size (%d)", maxHeaderListSize);
     }
 
+    /**
+     * Allocates a buffer whose memory is counted for {@link #ALLOCATION_TAG} by the allocator.
+     */
+    static ByteBuf http2Buffer(ByteBufAllocator alloc) {
+        AllocationTag previousTag = AllocationTag.enter(ALLOCATION_TAG);
+        try {
+            return alloc.buffer();
+        } finally {
+            AllocationTag.exit(previousTag);
+        }
+    }
+
+    /**
+     * Allocates a buffer of {@code initialCapacity} whose memory is counted for {@link #ALLOCATION_TAG} by the
+     * allocator.
+     */
+    static ByteBuf http2Buffer(ByteBufAllocator alloc, int initialCapacity) {
+        AllocationTag previousTag = AllocationTag.enter(ALLOCATION_TAG);
+        try {
+            return alloc.buffer(initialCapacity);
+        } finally {
+            AllocationTag.exit(previousTag);
+        }
+    }
+
     static void writeFrameHeaderInternal(ByteBuf out, int payloadLength, byte type,
             Http2Flags flags, int streamId) {
         out.writeMedium(payloadLength);
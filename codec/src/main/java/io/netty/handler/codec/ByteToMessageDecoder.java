@@ -15,6 +15,7 @@
  */
 package io.netty.handler.codec;
 
+import io.netty.buffer.AllocationTag;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.CompositeByteBuf;
@@ -74,6 +75,8 @@ import static java.lang.Integer.MAX_VALUE;
  */
 public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter {
 
+    private static final AllocationTag CUMULATION_TAG = AllocationTag.valueOf("cumulation");
+
     /**
      * Cumulate {@link ByteBuf}s by merge them into one {@link ByteBuf}'s, using memory copies.
      */
@@ -274,8 +277,13 @@ public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter
             CodecOutputList out = CodecOutputList.newInstance();
             try {
                 first = cumulation == null;
-                cumulation = cumulator.cumulate(ctx.alloc(),
-                        first ? Unpooled.EMPTY_BUFFER : cumulation, (ByteBuf) msg);
+                AllocationTag previousTag = AllocationTag.enter(CUMULATION_TAG);
+                try {
+                    cumulation = cumulator.cumulate(ctx.alloc(),
+                            first ? Unpooled.EMPTY_BUFFER : cumulation, (ByteBuf) msg);
+                } finally {
+                    AllocationTag.exit(previousTag);
+                }
                 callDecode(ctx, cumulation, out);
             } catch (DecoderException e) {
                 throw e;
@@ -18,6 +18,7 @@ package io.netty.handler.codec;
 import static io.netty.util.internal.ObjectUtil.checkPositive;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.internal.ObjectUtil;
 
@@ -311,27 +312,20 @@ public class DelimiterBasedFrameDecoder extends ByteToMessageDecoder {
      * found in the haystack.
      */
     private static int indexOf(ByteBuf haystack, ByteBuf needle) {
-        for (int i = haystack.readerIndex(); i < haystack.writerIndex(); i ++) {
-            int haystackIndex = i;
-            int needleIndex;
-            for (needleIndex = 0; needleIndex < needle.capacity(); needleIndex ++) {
-                if (haystack.getByte(haystackIndex) != needle.getByte(needleIndex)) {
-                    break;
-                } else {
-                    haystackIndex ++;
-                    if (haystackIndex == haystack.writerIndex() &&
-                        needleIndex != needle.capacity() - 1) {
-                        return -1;
-                    }
-                }
+        int needleLength = needle.capacity();
+        byte first = needle.getByte(0);
+        int end = haystack.writerIndex();
+        for (int i = haystack.readerIndex(); ; i++) {
+            // skip to the next occurrence of the first byte of the needle, which uses a word-at-a-time search
+            i = haystack.indexOf(i, end, first);
+            if (i == -1 || end - i < needleLength) {
+                return -1;
             }
-
-            if (needleIndex == needle.capacity()) {
+            if (ByteBufUtil.equals(haystack, i, needle, 0, needleLength)) {
                 // Found the needle from the haystack!
                 return i - haystack.readerIndex();
             }
         }
-        return -1;
     }
 
     private static void validateDelimiter(ByteBuf delimiter) {
@@ -23,8 +23,13 @@ import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.jctools.queues.MessagePassingQueue;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Queue;
+import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import static io.netty.util.internal.PlatformDependent.newMpscQueue;
@@ -33,6 +38,11 @@ import static java.lang.Math.min;
 
 /**
  * Light-weight object pool based on a thread-local stack.
+ * <p>
+ * Objects recycled by the thread that created them go straight back onto its stack. Objects recycled by other
+ * threads are collected in per-thread magazines of {@code chunkSize} handles, which the owning thread only picks
+ * up once its stack runs empty. A pool which keeps more objects than it needs drops half of the surplus every
+ * {@code maxCapacityPerThread} claims, so it shrinks back after a burst.
  *
  * @param <T> the type of the pooled object
  */
@@ -54,6 +64,17 @@ public abstract class Recycler<T> {
     private static final int RATIO;
     private static final int DEFAULT_QUEUE_CHUNK_SIZE_PER_THREAD;
     private static final boolean BLOCKING_POOL;
+    private static final int INITIAL_CAPACITY = 256;
+    // The magazines this thread fills for the pools of other threads. The handles in a magazine reference their
+    // pool, so the magazines are only weakly referenced here. The pool keeps its magazines alive until it drained
+    // them, so once the pool itself is gone the entry is cleared.
+    private static final FastThreadLocal<Map<LocalPool<?>, WeakReference<Magazine<?>>>> MAGAZINES =
+            new FastThreadLocal<Map<LocalPool<?>, WeakReference<Magazine<?>>>>() {
+        @Override
+        protected Map<LocalPool<?>, WeakReference<Magazine<?>>> initialValue() {
+            return new WeakHashMap<LocalPool<?>, WeakReference<Magazine<?>>>();
+        }
+    };
 
     static {
         // In the future, we might have different maxCapacity for different object types.
@@ -102,9 +123,7 @@ public abstract class Recycler<T> {
         @Override
         protected void onRemoval(LocalPool<T> value) throws Exception {
             super.onRemoval(value);
-            MessagePassingQueue<DefaultHandle<T>> handles = value.pooledHandles;
-            value.pooledHandles = null;
-            handles.clear();
+            value.clear();
         }
     };
 
@@ -196,7 +215,7 @@ public abstract class Recycler<T> {
     }
 
     final int threadLocalSize() {
-        return threadLocal.get().pooledHandles.size();
+        return threadLocal.get().size();
     }
 
     protected abstract T newObject(Handle<T> handle);
@@ -239,11 +258,9 @@ public abstract class Recycler<T> {
             this.value = value;
         }
 
-        boolean availableToClaim() {
-            if (state != STATE_AVAILABLE) {
-                return false;
-            }
-            return STATE_UPDATER.compareAndSet(this, STATE_AVAILABLE, STATE_CLAIMED);
+        void toClaimed() {
+            assert state == STATE_AVAILABLE;
+            STATE_UPDATER.lazySet(this, STATE_CLAIMED);
         }
 
         void toAvailable() {
@@ -255,38 +272,76 @@ public abstract class Recycler<T> {
     }
 
     private static final class LocalPool<T> {
+        private static final AtomicIntegerFieldUpdater<LocalPool<?>> MAGAZINE_CAPACITY_UPDATER;
+        static {
+            AtomicIntegerFieldUpdater<?> updater =
+                    AtomicIntegerFieldUpdater.newUpdater(LocalPool.class, "availableMagazineCapacity");
+            //noinspection unchecked
+            MAGAZINE_CAPACITY_UPDATER = (AtomicIntegerFieldUpdater<LocalPool<?>>) updater;
+        }
+
+        private final WeakReference<Thread> owner;
+        private final int maxCapacity;
+        private final int chunkSize;
         private final int ratioInterval;
-        private volatile MessagePassingQueue<DefaultHandle<T>> pooledHandles;
+        // Magazines published by other threads, which were not picked up by the owner yet.
+        private volatile MessagePassingQueue<Magazine<T>> magazines;
+        // The number of handles which other threads may still hand over in new magazines.
+        @SuppressWarnings("unused") // Updated by MAGAZINE_CAPACITY_UPDATER.
+        private volatile int availableMagazineCapacity;
+
+        // Only accessed by the owner thread.
+        private final ArrayDeque<Magazine<T>> drainingMagazines = new ArrayDeque<Magazine<T>>();
+        private DefaultHandle<T>[] stack;
+        private int size;
+        private int lowWaterMark;
+        private int claimsSinceTrim;
         private int ratioCounter;
 
         @SuppressWarnings("unchecked")
         LocalPool(int maxCapacity, int ratioInterval, int chunkSize) {
+            owner = new WeakReference<Thread>(Thread.currentThread());
+            this.maxCapacity = maxCapacity;
+            this.chunkSize = chunkSize;
             this.ratioInterval = ratioInterval;
             if (BLOCKING_POOL) {
-                pooledHandles = new BlockingMessageQueue<DefaultHandle<T>>(maxCapacity);
+                magazines = new BlockingMessageQueue<Magazine<T>>(maxCapacity);
             } else {
-                pooledHandles = (MessagePassingQueue<DefaultHandle<T>>) newMpscQueue(chunkSize, maxCapacity);
+                magazines = (MessagePassingQueue<Magazine<T>>) newMpscQueue(chunkSize, maxCapacity);
             }
+            availableMagazineCapacity = maxCapacity;
+            stack = new DefaultHandle[min(INITIAL_CAPACITY, maxCapacity)];
             ratioCounter = ratioInterval; // Start at interval so the first one will be recycled.
         }
 
         DefaultHandle<T> claim() {
-            MessagePassingQueue<DefaultHandle<T>> handles = pooledHandles;
-            if (handles == null) {
-                return null;
+            int size = this.size;
+            if (size == 0) {
+                if (!scavenge()) {
+                    return null;
+                }
+                size = this.size;
+            }
+            DefaultHandle<T>[] stack = this.stack;
+            DefaultHandle<T> handle = stack[--size];
+            stack[size] = null;
+            this.size = size;
+            if (size < lowWaterMark) {
+                lowWaterMark = size;
+            }
+            if (++claimsSinceTrim == maxCapacity) {
+                trim();
             }
-            DefaultHandle<T> handle;
-            do {
-                handle = handles.relaxedPoll();
-            } while (handle != null && !handle.availableToClaim());
+            handle.toClaimed();
             return handle;
         }
 
         void release(DefaultHandle<T> handle) {
-            MessagePassingQueue<DefaultHandle<T>> handles = pooledHandles;
             handle.toAvailable();
-            if (handles != null) {
-                handles.relaxedOffer(handle);
+            if (owner.get() == Thread.currentThread()) {
+                push(handle);
+            } else {
+                releaseFromOtherThread(handle);
             }
         }
 
@@ -297,6 +352,220 @@ public abstract class Recycler<T> {
             }
             return null;
         }
+
+        /**
+         * Returns the number of handles which can be claimed without creating new objects.
+         * Must only be called by the owner thread.
+         */
+        int size() {
+            adoptMagazines();
+            int size = this.size;
+            for (Magazine<T> magazine : drainingMagazines) {
+                size += magazine.pending();
+            }
+            return size;
+        }
+
+        void clear() {
+            magazines = null;
+            drainingMagazines.clear();
+            stack = null;
+            size = 0;
+        }
+
+        private void push(DefaultHandle<T> handle) {
+            DefaultHandle<T>[] stack = this.stack;
+            if (stack == null) {
+                // The pool was removed from its thread already.
+                return;
+            }
+            int size = this.size;
+            if (size == stack.length) {
+                if (size == maxCapacity) {
+                    // Drop the handle, the pool is full.
+                    return;
+                }
+                this.stack = stack = Arrays.copyOf(stack, min(size << 1, maxCapacity));
+            }
+            stack[size] = handle;
+            this.size = size + 1;
+        }
+
+        private void releaseFromOtherThread(DefaultHandle<T> handle) {
+            Map<LocalPool<?>, WeakReference<Magazine<?>>> threadMagazines = MAGAZINES.get();
+            MessagePassingQueue<Magazine<T>> magazines = this.magazines;
+            if (magazines == null || owner.get() == null) {
+                // Drop the handle and forget the magazine, the owner is gone.
+                threadMagazines.remove(this);
+                return;
+            }
+            WeakReference<Magazine<?>> magazineRef = threadMagazines.get(this);
+            @SuppressWarnings("unchecked")
+            Magazine<T> magazine = magazineRef == null ? null : (Magazine<T>) magazineRef.get();
+            if (magazine == null || !magazine.offer(handle)) {
+                magazine = newMagazine(magazines);
+                if (magazine == null) {
+                    // Drop the handle, the owner has enough handles in flight already.
+                    threadMagazines.remove(this);
+                    return;
+                }
+                threadMagazines.put(this, new WeakReference<Magazine<?>>(magazine));
+                magazine.offer(handle);
+            }
+        }
+
+        private Magazine<T> newMagazine(MessagePassingQueue<Magazine<T>> magazines) {
+            for (;;) {
+                int available = availableMagazineCapacity;
+                if (available < chunkSize) {
+                    return null;
+                }
+                if (MAGAZINE_CAPACITY_UPDATER.compareAndSet(this, available, available - chunkSize)) {
+                    break;
+                }
+            }
+            Magazine<T> magazine = new Magazine<T>(chunkSize);
+            if (!magazines.relaxedOffer(magazine)) {
+                MAGAZINE_CAPACITY_UPDATER.getAndAdd(this, chunkSize);
+                return null;
+            }
+            return magazine;
+        }
+
+        private void adoptMagazines() {
+            MessagePassingQueue<Magazine<T>> magazines = this.magazines;
+            if (magazines != null) {
+                Magazine<T> magazine;
+                while ((magazine = magazines.relaxedPoll()) != null) {
+                    drainingMagazines.add(magazine);
+                }
+            }
+        }
+
+        /**
+         * Moves the handles which other threads returned onto the stack, one magazine at a time.
+         * <p>
+         * A partially filled magazine which got no new handles since the last scavenge is sealed and dropped once
+         * no capacity for new magazines is left, so that threads which stopped recycling do not keep other threads
+         * from returning handles.
+         */
+        private boolean scavenge() {
+            adoptMagazines();
+            for (Iterator<Magazine<T>> i = drainingMagazines.iterator(); i.hasNext();) {
+                Magazine<T> magazine = i.next();
+                if (magazine.transferTo(this) == 0 && availableMagazineCapacity < chunkSize) {
+                    magazine.seal();
+                    // Pick up the handles which were added before the writer saw the seal.
+                    magazine.transferTo(this);
+                    i.remove();
+                    MAGAZINE_CAPACITY_UPDATER.getAndAdd(this, chunkSize);
+                } else if (magazine.isDrained()) {
+                    i.remove();
+                    MAGAZINE_CAPACITY_UPDATER.getAndAdd(this, chunkSize);
+                }
+                if (size != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Drops half of the handles which were not needed since the last trim, so that the pool shrinks back
+         * after a burst.
+         */
+        private void trim() {
+            DefaultHandle<T>[] stack = this.stack;
+            int size = this.size;
+            int unused = (lowWaterMark + 1) >>> 1;
+            if (unused != 0) {
+                Arrays.fill(stack, size - unused, size, null);
+                size -= unused;
+                this.size = size;
+            }
+            int length = stack.length;
+            while (length > INITIAL_CAPACITY && size <= length >>> 2) {
+                length >>>= 1;
+            }
+            if (length != stack.length) {
+                this.stack = Arrays.copyOf(stack, length);
+            }
+            lowWaterMark = size;
+            claimsSinceTrim = 0;
+        }
+    }
+
+    /**
+     * A fixed-size batch of handles which a thread returns to the {@link LocalPool} of another thread. Only the
+     * thread that created the magazine adds to it, and only the owner of the pool takes from it, so neither side
+     * needs more than an ordered store or a volatile read per handle. The owner may seal a magazine to take back
+     * its capacity. A handle which the writer adds while the magazine is sealed may be lost, which is fine as it
+     * is then just not reused.
+     */
+    private static final class Magazine<T> {
+        private static final AtomicIntegerFieldUpdater<Magazine<?>> WRITE_INDEX_UPDATER;
+        static {
+            AtomicIntegerFieldUpdater<?> updater = AtomicIntegerFieldUpdater.newUpdater(Magazine.class, "writeIndex");
+            //noinspection unchecked
+            WRITE_INDEX_UPDATER = (AtomicIntegerFieldUpdater<Magazine<?>>) updater;
+        }
+
+        private final DefaultHandle<T>[] handles;
+        private final WeakReference<Thread> writer;
+        @SuppressWarnings("unused") // Updated by WRITE_INDEX_UPDATER.
+        private volatile int writeIndex;
+        private volatile boolean sealed;
+        private int readIndex;
+
+        @SuppressWarnings("unchecked")
+        Magazine(int capacity) {
+            handles = new DefaultHandle[capacity];
+            writer = new WeakReference<Thread>(Thread.currentThread());
+        }
+
+        boolean offer(DefaultHandle<T> handle) {
+            int index = writeIndex;
+            if (index == handles.length || sealed) {
+                return false;
+            }
+            handles[index] = handle;
+            WRITE_INDEX_UPDATER.lazySet(this, index + 1);
+            return true;
+        }
+
+        int pending() {
+            return writeIndex - readIndex;
+        }
+
+        /**
+         * Moves the handles added since the last call onto the stack of the pool, and returns their number.
+         */
+        int transferTo(LocalPool<T> pool) {
+            DefaultHandle<T>[] handles = this.handles;
+            int start = readIndex;
+            int end = writeIndex;
+            for (int i = start; i < end; i++) {
+                pool.push(handles[i]);
+                handles[i] = null;
+            }
+            readIndex = end;
+            return end - start;
+        }
+
+        void seal() {
+            sealed = true;
+        }
+
+        /**
+         * Returns {@code true} if no more handles will be added to this magazine, and all were taken already.
+         */
+        boolean isDrained() {
+            if (readIndex == handles.length) {
+                return true;
+            }
+            Thread writer = this.writer.get();
+            return (writer == null || !writer.isAlive()) && readIndex == writeIndex;
+        }
     }
 
     /**
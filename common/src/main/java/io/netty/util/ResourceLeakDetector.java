@@ -17,6 +17,7 @@
 package io.netty.util;
 
 import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
@@ -29,8 +30,10 @@ import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -55,6 +58,9 @@ public class ResourceLeakDetector<T> {
     private static final int TARGET_RECORDS;
     static final int SAMPLING_INTERVAL;
 
+    // The number of allocation sites that are counted for Level.SITE before the counts start over.
+    private static final int MAX_LEAKED_SITES = 256;
+
     /**
      * Represents the level of resource leak detection.
      */
@@ -77,12 +83,21 @@ public class ResourceLeakDetector<T> {
          * Enables paranoid resource leak detection which reports where the leaked object was accessed recently,
          * at the cost of the highest possible overhead (for testing purposes only).
          */
-        PARANOID;
+        PARANOID,
+        /**
+         * Enables sampling resource leak detection which counts the leaks per allocation site. Like {@link #SIMPLE},
+         * it only remembers where a sampled object was created, unless objects created at the same site have leaked
+         * before. Only then are the accesses recorded, like {@link #ADVANCED} does. The site of a sampled object is
+         * only looked up when it is first accessed after some site leaked, so the overhead is as small as with
+         * {@link #SIMPLE} as long as nothing leaks, and the reports still show where the leaked objects were
+         * accessed.
+         */
+        SITE;
 
         /**
          * Returns level based on string value. Accepts also string that represents ordinal number of enum.
          *
-         * @param levelStr - level string : DISABLED, SIMPLE, ADVANCED, PARANOID. Ignores case.
+         * @param levelStr - level string : DISABLED, SIMPLE, ADVANCED, PARANOID, SITE. Ignores case.
          * @return corresponding level or SIMPLE level in case of no match.
          */
         static Level parseLevel(String levelStr) {
@@ -167,6 +182,8 @@ public class ResourceLeakDetector<T> {
     private final ReferenceQueue<Object> refQueue = new ReferenceQueue<Object>();
     private final Set<String> reportedLeaks =
             Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /** the number of leaks per hash of the allocation site, for {@link Level#SITE} */
+    private final ConcurrentMap<Integer, LongCounter> leakedSites = PlatformDependent.newConcurrentHashMap();
 
     private final String resourceType;
     private final int samplingInterval;
@@ -252,6 +269,14 @@ public class ResourceLeakDetector<T> {
             return null;
         }
 
+        if (level == Level.SITE) {
+            if ((PlatformDependent.threadLocalRandom().nextInt(samplingInterval)) == 0) {
+                reportLeak();
+                return new DefaultResourceLeak(obj, refQueue, allLeaks, getInitialHint(resourceType), leakedSites);
+            }
+            return null;
+        }
+
         if (level.ordinal() < Level.PARANOID.ordinal()) {
             if ((PlatformDependent.threadLocalRandom().nextInt(samplingInterval)) == 0) {
                 reportLeak();
@@ -300,6 +325,11 @@ public class ResourceLeakDetector<T> {
                 continue;
             }
 
+            if (ref.siteHash() != 0) {
+                reportSiteLeak(ref);
+                continue;
+            }
+
             String records = ref.getReportAndClearRecords();
             if (reportedLeaks.add(records)) {
                 if (records.isEmpty()) {
@@ -311,6 +341,34 @@ public class ResourceLeakDetector<T> {
         }
     }
 
+    /**
+     * Counts a leak found at {@link Level#SITE}, and reports it when the count of its allocation site is a power of
+     * two, so that a site which leaks all the time does not flood the log. At most {@link #MAX_LEAKED_SITES} sites
+     * are counted, after that the counts start over and the sites are reported again.
+     */
+    private void reportSiteLeak(DefaultResourceLeak ref) {
+        final Integer site = ref.siteHash();
+        LongCounter count = leakedSites.get(site);
+        if (count == null) {
+            if (leakedSites.size() >= MAX_LEAKED_SITES) {
+                leakedSites.clear();
+            }
+            LongCounter newCount = PlatformDependent.newLongCounter();
+            count = leakedSites.putIfAbsent(site, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.increment();
+
+        final String records = ref.getReportAndClearRecords();
+        final long leaks = count.value();
+        if ((leaks & leaks - 1) == 0) {
+            reportTracedLeak(resourceType, records + NEWLINE + ": " + leaks +
+                    " leaks were found for this allocation site so far.");
+        }
+    }
+
     /**
      * This method is called when a traced leak is detected. It can be overridden for tracking how many times leaks
      * have been detected.
@@ -365,6 +423,10 @@ public class ResourceLeakDetector<T> {
                 (AtomicIntegerFieldUpdater)
                         AtomicIntegerFieldUpdater.newUpdater(DefaultResourceLeak.class, "droppedRecords");
 
+        private static final int ACCESSES_UNDECIDED = 0;
+        private static final int ACCESSES_RECORDED = 1;
+        private static final int ACCESSES_IGNORED = 2;
+
         @SuppressWarnings("unused")
         private volatile TraceRecord head;
         @SuppressWarnings("unused")
@@ -372,12 +434,27 @@ public class ResourceLeakDetector<T> {
 
         private final Set<DefaultResourceLeak<?>> allLeaks;
         private final int trackedHash;
+        // only set for Level.SITE
+        private final TraceRecord creationRecord;
+        private final Map<Integer, ?> leakedSites;
+        // Whether accesses are recorded. For Level.SITE this is decided at the first access after some site leaked,
+        // racing threads come to the same decision.
+        private int recordAccesses;
 
         DefaultResourceLeak(
                 Object referent,
                 ReferenceQueue<Object> refQueue,
                 Set<DefaultResourceLeak<?>> allLeaks,
                 Object initialHint) {
+            this(referent, refQueue, allLeaks, initialHint, null);
+        }
+
+        DefaultResourceLeak(
+                Object referent,
+                ReferenceQueue<Object> refQueue,
+                Set<DefaultResourceLeak<?>> allLeaks,
+                Object initialHint,
+                Map<Integer, ?> leakedSites) {
             super(referent, refQueue);
 
             assert referent != null;
@@ -388,9 +465,42 @@ public class ResourceLeakDetector<T> {
             trackedHash = System.identityHashCode(referent);
             allLeaks.add(this);
             // Create a new Record so we always have the creation stacktrace included.
-            headUpdater.set(this, initialHint == null ?
-                    new TraceRecord(TraceRecord.BOTTOM) : new TraceRecord(TraceRecord.BOTTOM, initialHint));
+            TraceRecord creationRecord = initialHint == null ?
+                    new TraceRecord(TraceRecord.BOTTOM) : new TraceRecord(TraceRecord.BOTTOM, initialHint);
+            headUpdater.set(this, creationRecord);
             this.allLeaks = allLeaks;
+            if (leakedSites != null) {
+                this.creationRecord = creationRecord;
+                this.leakedSites = leakedSites;
+                recordAccesses = ACCESSES_UNDECIDED;
+            } else {
+                this.creationRecord = null;
+                this.leakedSites = null;
+                recordAccesses = ACCESSES_RECORDED;
+            }
+        }
+
+        private boolean recordAccesses() {
+            int recordAccesses = this.recordAccesses;
+            if (recordAccesses == ACCESSES_UNDECIDED) {
+                if (leakedSites.isEmpty()) {
+                    return false;
+                }
+                // Getting the stack trace is expensive, so it is only done once, and only for objects which are
+                // accessed at all.
+                recordAccesses = leakedSites.containsKey(creationRecord.siteHash()) ?
+                        ACCESSES_RECORDED : ACCESSES_IGNORED;
+                this.recordAccesses = recordAccesses;
+            }
+            return recordAccesses == ACCESSES_RECORDED;
+        }
+
+        /**
+         * Returns the hash of the allocation site of the tracked object, or {@code 0} if it is not tracked at
+         * {@link Level#SITE}.
+         */
+        int siteHash() {
+            return creationRecord == null ? 0 : creationRecord.siteHash();
         }
 
         @Override
@@ -431,7 +541,7 @@ public class ResourceLeakDetector<T> {
          */
         private void record0(Object hint) {
             // Check TARGET_RECORDS > 0 here to avoid similar check before remove from and add to lastRecords
-            if (TARGET_RECORDS > 0) {
+            if (TARGET_RECORDS > 0 && recordAccesses()) {
                 TraceRecord oldHead;
                 TraceRecord prevHead;
                 TraceRecord newHead;
@@ -625,6 +735,7 @@ public class ResourceLeakDetector<T> {
         private final String hintString;
         private final TraceRecord next;
         private final int pos;
+        private int siteHash; // cached, 0 if not computed yet
 
         TraceRecord(TraceRecord next, Object hint) {
             // This needs to be generated even if toString() is never called as it may change later on.
@@ -656,17 +767,11 @@ public class ResourceLeakDetector<T> {
             // Append the stack trace.
             StackTraceElement[] array = getStackTrace();
             // Skip the first three elements.
-            out: for (int i = 3; i < array.length; i++) {
+            for (int i = 3; i < array.length; i++) {
                 StackTraceElement element = array[i];
                 // Strip the noisy stack trace elements.
-                String[] exclusions = excludedMethods.get();
-                for (int k = 0; k < exclusions.length; k += 2) {
-                    // Suppress a warning about out of bounds access
-                    // since the length of excludedMethods is always even, see addExclusions()
-                    if (exclusions[k].equals(element.getClassName())
-                            && exclusions[k + 1].equals(element.getMethodName())) { // lgtm[java/index-out-of-bounds]
-                        continue out;
-                    }
+                if (isExcluded(element)) {
+                    continue;
                 }
 
                 buf.append('\t');
@@ -675,5 +780,41 @@ public class ResourceLeakDetector<T> {
             }
             return buf.toString();
         }
+
+        /**
+         * Returns a hash of the stack trace without the frames which {@link #toString()} leaves out, which is never
+         * {@code 0}.
+         */
+        int siteHash() {
+            int hash = siteHash;
+            if (hash == 0) {
+                hash = 1;
+                StackTraceElement[] array = getStackTrace();
+                for (int i = 3; i < array.length; i++) {
+                    StackTraceElement element = array[i];
+                    if (!isExcluded(element)) {
+                        hash = 31 * hash + element.hashCode();
+                    }
+                }
+                if (hash == 0) {
+                    hash = 1;
+                }
+                siteHash = hash;
+            }
+            return hash;
+        }
+
+        private static boolean isExcluded(StackTraceElement element) {
+            String[] exclusions = excludedMethods.get();
+            for (int k = 0; k < exclusions.length; k += 2) {
+                // Suppress a warning about out of bounds access
+                // since the length of excludedMethods is always even, see addExclusions()
+                if (exclusions[k].equals(element.getClassName())
+                        && exclusions[k + 1].equals(element.getMethodName())) { // lgtm[java/index-out-of-bounds]
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
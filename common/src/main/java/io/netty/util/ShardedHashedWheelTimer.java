@@ -0,0 +1,719 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.ThreadExecutorMap;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.netty.util.internal.ObjectUtil.checkInRange;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static io.netty.util.internal.StringUtil.simpleClassName;
+
+/**
+ * A {@link Timer} which spreads its timeouts over several hashed wheels, each with its own worker thread.
+ * <p>
+ * A {@link HashedWheelTimer} has a single worker thread, and every new and every cancelled timeout is handed to it
+ * through a queue which all threads share. That queue becomes the bottleneck when many threads schedule hundreds of
+ * thousands of timeouts per second. This timer assigns each thread that schedules timeouts to one of its shards, so
+ * that the threads spread over the queues of the shards. A thread also collects the timeouts it cancels and hands them
+ * over in batches of up to 64, or with its next call to {@link #newTimeout(TimerTask, long, TimeUnit)} or
+ * {@link Timeout#cancel()} once the wheel has ticked. A cancelled timeout leaves the wheel when its batch arrives, or
+ * when the wheel reaches it, whichever comes first.
+ * <p>
+ * By default the {@link TimerTask}s are run by the worker threads, like with {@link HashedWheelTimer}. With
+ * {@code executeOnSchedulingExecutor} set, a timeout which was scheduled from an {@link EventExecutor} thread is run
+ * by that {@link EventExecutor} instead, so a slow task does not delay the other timeouts of its shard, and the task
+ * does not need to hand its work over to the event loop itself.
+ * <p>
+ * The tick duration and the wheel size work as described for {@link HashedWheelTimer}. This timer starts one thread
+ * per shard, so it is even more important to create only one instance and share it across your application.
+ */
+public class ShardedHashedWheelTimer implements Timer {
+
+    static final InternalLogger logger = InternalLoggerFactory.getInstance(ShardedHashedWheelTimer.class);
+
+    private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger();
+    private static final AtomicBoolean WARNED_TOO_MANY_INSTANCES = new AtomicBoolean();
+    private static final int INSTANCE_COUNT_LIMIT = 64;
+    private static final int CANCEL_BATCH_SIZE = 64;
+    private static final long MILLISECOND_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final int WORKER_STATE_INIT = 0;
+    private static final int WORKER_STATE_STARTED = 1;
+    private static final int WORKER_STATE_SHUTDOWN = 2;
+
+    private final Shard[] shards;
+    private final long tickDuration;
+    private final boolean executeOnSchedulingExecutor;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final AtomicBoolean shutdown = new AtomicBoolean();
+    private final FastThreadLocal<ThreadState> threadState = new FastThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return new ThreadState((nextShard.getAndIncrement() & Integer.MAX_VALUE) % shards.length);
+        }
+
+        @Override
+        protected void onRemoval(ThreadState value) {
+            value.flushCancelled();
+        }
+    };
+
+    /**
+     * Creates a new timer with the default thread factory ({@link Executors#defaultThreadFactory()}), one shard per
+     * available processor, the default tick duration and the default number of ticks per wheel.
+     */
+    public ShardedHashedWheelTimer() {
+        this(NettyRuntime.availableProcessors());
+    }
+
+    /**
+     * Creates a new timer with the default thread factory ({@link Executors#defaultThreadFactory()}), the default
+     * tick duration and the default number of ticks per wheel.
+     *
+     * @param shards the number of wheels and worker threads
+     * @throws IllegalArgumentException if {@code shards} is &lt;= 0
+     */
+    public ShardedHashedWheelTimer(int shards) {
+        this(Executors.defaultThreadFactory(), shards, 100, TimeUnit.MILLISECONDS, 512, false);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory               a {@link ThreadFactory} that creates the background {@link Thread} of each
+     *                                    shard
+     * @param shards                      the number of wheels and worker threads
+     * @param tickDuration                the duration between tick
+     * @param unit                        the time unit of the {@code tickDuration}
+     * @param ticksPerWheel               the size of each wheel
+     * @param executeOnSchedulingExecutor {@code true} if a {@link TimerTask} which was scheduled from an
+     *                                    {@link EventExecutor} thread should be run by that {@link EventExecutor}
+     *                                    instead of the worker thread
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code shards}, {@code tickDuration} and {@code ticksPerWheel} is
+     *                                  &lt;= 0
+     */
+    public ShardedHashedWheelTimer(
+            ThreadFactory threadFactory, int shards, long tickDuration, TimeUnit unit, int ticksPerWheel,
+            boolean executeOnSchedulingExecutor) {
+        checkNotNull(threadFactory, "threadFactory");
+        checkNotNull(unit, "unit");
+        checkPositive(shards, "shards");
+        checkPositive(tickDuration, "tickDuration");
+        checkInRange(ticksPerWheel, 1, 1073741824, "ticksPerWheel");
+        this.executeOnSchedulingExecutor = executeOnSchedulingExecutor;
+
+        int wheelSize = MathUtil.findNextPositivePowerOfTwo(ticksPerWheel);
+        long duration = unit.toNanos(tickDuration);
+        // Prevent overflow.
+        if (duration >= Long.MAX_VALUE / wheelSize) {
+            throw new IllegalArgumentException(String.format(
+                    "tickDuration: %d (expected: 0 < tickDuration in nanos < %d",
+                    tickDuration, Long.MAX_VALUE / wheelSize));
+        }
+        if (duration < MILLISECOND_NANOS) {
+            logger.warn("Configured tickDuration {} smaller than {}, using 1ms.", tickDuration, MILLISECOND_NANOS);
+            this.tickDuration = MILLISECOND_NANOS;
+        } else {
+            this.tickDuration = duration;
+        }
+
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i, threadFactory, wheelSize);
+        }
+
+        if (INSTANCE_COUNTER.incrementAndGet() > INSTANCE_COUNT_LIMIT &&
+            WARNED_TOO_MANY_INSTANCES.compareAndSet(false, true)) {
+            reportTooManyInstances();
+        }
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        try {
+            super.finalize();
+        } finally {
+            // This object is going to be GCed and it is assumed the ship has sailed to do a proper shutdown. If
+            // we have not yet shutdown then we want to make sure we decrement the active instance count.
+            if (shutdown.compareAndSet(false, true)) {
+                INSTANCE_COUNTER.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        checkNotNull(task, "task");
+        checkNotNull(unit, "unit");
+
+        ThreadState state = threadState.get();
+        state.flushStaleCancelled();
+        Shard shard = shards[state.shard];
+        EventExecutor executor = executeOnSchedulingExecutor ? ThreadExecutorMap.currentExecutor() : null;
+        return shard.newTimeout(task, unit.toNanos(delay), executor);
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        Thread currentThread = Thread.currentThread();
+        for (Shard shard : shards) {
+            if (currentThread == shard.workerThread) {
+                throw new IllegalStateException(
+                        ShardedHashedWheelTimer.class.getSimpleName() +
+                                ".stop() cannot be called from " +
+                                TimerTask.class.getSimpleName());
+            }
+        }
+
+        if (shutdown.compareAndSet(false, true)) {
+            INSTANCE_COUNTER.decrementAndGet();
+        }
+        Set<Timeout> unprocessedTimeouts = new HashSet<Timeout>();
+        for (Shard shard : shards) {
+            unprocessedTimeouts.addAll(shard.stop());
+        }
+        return Collections.unmodifiableSet(unprocessedTimeouts);
+    }
+
+    /**
+     * Returns the number of pending timeouts of this {@link Timer}.
+     */
+    public long pendingTimeouts() {
+        long pendingTimeouts = 0;
+        for (Shard shard : shards) {
+            pendingTimeouts += shard.pendingTimeouts.get();
+        }
+        return pendingTimeouts;
+    }
+
+    private static void reportTooManyInstances() {
+        if (logger.isErrorEnabled()) {
+            String resourceType = simpleClassName(ShardedHashedWheelTimer.class);
+            logger.error("You are creating too many " + resourceType + " instances. " +
+                    resourceType + " is a shared resource that must be reused across the JVM, " +
+                    "so that only a few instances are created.");
+        }
+    }
+
+    /**
+     * The shard of a thread, and the timeouts it cancelled but did not hand over yet.
+     */
+    private final class ThreadState {
+        final int shard;
+        private final ShardedTimeout[][] cancelled = new ShardedTimeout[shards.length][];
+        private final int[] cancelledCount = new int[shards.length];
+        // The tick of the shard when its batch was started.
+        private final long[] cancelledTick = new long[shards.length];
+        // The number of batches which are not empty.
+        private int pendingBatches;
+
+        ThreadState(int shard) {
+            this.shard = shard;
+        }
+
+        void cancelled(ShardedTimeout timeout) {
+            Shard shard = timeout.shard;
+            int index = shard.index;
+            ShardedTimeout[] batch = cancelled[index];
+            if (batch == null) {
+                batch = cancelled[index] = new ShardedTimeout[CANCEL_BATCH_SIZE];
+            }
+            int count = cancelledCount[index];
+            if (count == 0) {
+                cancelledTick[index] = shard.tick;
+                pendingBatches++;
+            }
+            batch[count++] = timeout;
+            cancelledCount[index] = count;
+            // Do not keep a partial batch, and so its timeouts and their tasks, for longer than a tick.
+            if (count == batch.length || cancelledTick[index] != shard.tick) {
+                flush(index);
+            }
+        }
+
+        /**
+         * Hands over the batches which were started before the last tick of their shard.
+         */
+        void flushStaleCancelled() {
+            if (pendingBatches == 0) {
+                return;
+            }
+            for (int i = 0; i < cancelled.length; i++) {
+                if (cancelledCount[i] != 0 && cancelledTick[i] != shards[i].tick) {
+                    flush(i);
+                }
+            }
+        }
+
+        void flushCancelled() {
+            for (int i = 0; i < cancelled.length; i++) {
+                if (cancelledCount[i] != 0) {
+                    flush(i);
+                }
+            }
+        }
+
+        private void flush(int index) {
+            shards[index].cancelledTimeouts.add(cancelled[index]);
+            cancelled[index] = null;
+            cancelledCount[index] = 0;
+            pendingBatches--;
+        }
+    }
+
+    private final class Shard implements Runnable {
+        private final AtomicInteger workerState = new AtomicInteger(WORKER_STATE_INIT);
+        private final int index;
+        private final Thread workerThread;
+        private final Bucket[] wheel;
+        private final int mask;
+        private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+        private final Queue<ShardedTimeout> timeouts = PlatformDependent.newMpscQueue();
+        private final Queue<ShardedTimeout[]> cancelledTimeouts = PlatformDependent.newMpscQueue();
+        private final AtomicLong pendingTimeouts = new AtomicLong();
+        private final Set<Timeout> unprocessedTimeouts = new HashSet<Timeout>();
+
+        private volatile long startTime;
+        // Written by the worker thread only, and read by the threads which cancel timeouts.
+        private volatile long tick;
+
+        Shard(int index, ThreadFactory threadFactory, int wheelSize) {
+            this.index = index;
+            wheel = new Bucket[wheelSize];
+            for (int i = 0; i < wheel.length; i ++) {
+                wheel[i] = new Bucket();
+            }
+            mask = wheel.length - 1;
+            workerThread = threadFactory.newThread(this);
+        }
+
+        ShardedHashedWheelTimer timer() {
+            return ShardedHashedWheelTimer.this;
+        }
+
+        Timeout newTimeout(TimerTask task, long delayNanos, EventExecutor executor) {
+            start();
+            pendingTimeouts.incrementAndGet();
+
+            long deadline = System.nanoTime() + delayNanos - startTime;
+            // Guard against overflow.
+            if (delayNanos > 0 && deadline < 0) {
+                deadline = Long.MAX_VALUE;
+            }
+            ShardedTimeout timeout = new ShardedTimeout(this, task, deadline, executor);
+            timeouts.add(timeout);
+            return timeout;
+        }
+
+        void cancelled(ShardedTimeout timeout) {
+            pendingTimeouts.decrementAndGet();
+            threadState.get().cancelled(timeout);
+        }
+
+        private void start() {
+            switch (workerState.get()) {
+                case WORKER_STATE_INIT:
+                    if (workerState.compareAndSet(WORKER_STATE_INIT, WORKER_STATE_STARTED)) {
+                        workerThread.start();
+                    }
+                    break;
+                case WORKER_STATE_STARTED:
+                    break;
+                case WORKER_STATE_SHUTDOWN:
+                    throw new IllegalStateException("cannot be started once stopped");
+                default:
+                    throw new Error("Invalid WorkerState");
+            }
+
+            // Wait until the startTime is initialized by the worker.
+            while (startTime == 0) {
+                try {
+                    startTimeInitialized.await();
+                } catch (InterruptedException ignore) {
+                    // Ignore - it will be ready very soon.
+                }
+            }
+        }
+
+        Set<Timeout> stop() {
+            if (!workerState.compareAndSet(WORKER_STATE_STARTED, WORKER_STATE_SHUTDOWN)) {
+                workerState.set(WORKER_STATE_SHUTDOWN);
+                return Collections.emptySet();
+            }
+
+            boolean interrupted = false;
+            while (workerThread.isAlive()) {
+                workerThread.interrupt();
+                try {
+                    workerThread.join(100);
+                } catch (InterruptedException ignored) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return unprocessedTimeouts;
+        }
+
+        @Override
+        public void run() {
+            // Initialize the startTime.
+            long startTime = System.nanoTime();
+            // We use 0 as an indicator for the uninitialized value here, so make sure it's not 0 when initialized.
+            this.startTime = startTime == 0 ? 1 : startTime;
+
+            // Notify the other threads waiting for the initialization at start().
+            startTimeInitialized.countDown();
+
+            do {
+                final long deadline = waitForNextTick();
+                if (deadline > 0) {
+                    processCancelledTimeouts();
+                    transferTimeoutsToBuckets();
+                    wheel[(int) (tick & mask)].expireTimeouts(deadline);
+                    tick++;
+                }
+            } while (workerState.get() == WORKER_STATE_STARTED);
+
+            // Fill the unprocessedTimeouts so we can return them from stop() method.
+            for (Bucket bucket: wheel) {
+                bucket.clearTimeouts(unprocessedTimeouts);
+            }
+            for (;;) {
+                ShardedTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state() == ShardedTimeout.ST_INIT) {
+                    unprocessedTimeouts.add(timeout);
+                }
+            }
+            cancelledTimeouts.clear();
+        }
+
+        private void transferTimeoutsToBuckets() {
+            // transfer only max. 100000 timeouts per tick to prevent a thread to stale the workerThread when it just
+            // adds new timeouts in a loop.
+            for (int i = 0; i < 100000; i++) {
+                ShardedTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    // all processed
+                    break;
+                }
+                if (timeout.state() == ShardedTimeout.ST_CANCELLED) {
+                    // Was cancelled in the meantime.
+                    continue;
+                }
+
+                long calculated = timeout.deadline / tickDuration;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+
+                final long ticks = Math.max(calculated, tick); // Ensure we don't schedule for past.
+                wheel[(int) (ticks & mask)].addTimeout(timeout);
+            }
+        }
+
+        private void processCancelledTimeouts() {
+            for (;;) {
+                ShardedTimeout[] batch = cancelledTimeouts.poll();
+                if (batch == null) {
+                    // all processed
+                    break;
+                }
+                for (ShardedTimeout timeout : batch) {
+                    if (timeout == null) {
+                        break;
+                    }
+                    // The timeout may not be in a bucket yet, or may have been removed when its bucket expired.
+                    Bucket bucket = timeout.bucket;
+                    if (bucket != null) {
+                        bucket.remove(timeout);
+                    }
+                }
+            }
+        }
+
+        /**
+         * calculate goal nanoTime from startTime and current tick number,
+         * then wait until that goal has been reached.
+         * @return Long.MIN_VALUE if received a shutdown request,
+         * current time otherwise (with Long.MIN_VALUE changed by +1)
+         */
+        private long waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+
+            for (;;) {
+                final long currentTime = System.nanoTime() - startTime;
+                long sleepTimeMs = (deadline - currentTime + 999999) / 1000000;
+
+                if (sleepTimeMs <= 0) {
+                    if (currentTime == Long.MIN_VALUE) {
+                        return -Long.MAX_VALUE;
+                    } else {
+                        return currentTime;
+                    }
+                }
+
+                // See HashedWheelTimer.waitForNextTick() for the Windows workaround.
+                if (PlatformDependent.isWindows()) {
+                    sleepTimeMs = sleepTimeMs / 10 * 10;
+                    if (sleepTimeMs == 0) {
+                        sleepTimeMs = 1;
+                    }
+                }
+
+                try {
+                    Thread.sleep(sleepTimeMs);
+                } catch (InterruptedException ignored) {
+                    if (workerState.get() == WORKER_STATE_SHUTDOWN) {
+                        return Long.MIN_VALUE;
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class ShardedTimeout implements Timeout, Runnable {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<ShardedTimeout> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(ShardedTimeout.class, "state");
+
+        private final Shard shard;
+        private final TimerTask task;
+        private final long deadline;
+        // The EventExecutor to run the task on, or null to run it on the worker thread.
+        private final EventExecutor executor;
+
+        @SuppressWarnings({"unused", "FieldMayBeFinal", "RedundantFieldInitialization" })
+        private volatile int state = ST_INIT;
+
+        // Only accessed by the worker thread, see HashedWheelTimer.HashedWheelTimeout.
+        long remainingRounds;
+        ShardedTimeout next;
+        ShardedTimeout prev;
+        Bucket bucket;
+
+        ShardedTimeout(Shard shard, TimerTask task, long deadline, EventExecutor executor) {
+            this.shard = shard;
+            this.task = task;
+            this.deadline = deadline;
+            this.executor = executor;
+        }
+
+        @Override
+        public Timer timer() {
+            return shard.timer();
+        }
+
+        @Override
+        public TimerTask task() {
+            return task;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            // The worker skips the timeout from now on, so removing it from its bucket can wait for a whole batch.
+            shard.cancelled(this);
+            return true;
+        }
+
+        int state() {
+            return state;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state() == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state() == ST_EXPIRED;
+        }
+
+        void expire() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            shard.pendingTimeouts.decrementAndGet();
+
+            if (executor == null) {
+                run();
+                return;
+            }
+            try {
+                executor.execute(this);
+            } catch (Throwable t) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("An exception was thrown while submit " + TimerTask.class.getSimpleName()
+                            + " for execution.", t);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run(this);
+            } catch (Throwable t) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("An exception was thrown by " + TimerTask.class.getSimpleName() + '.', t);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            long remaining = deadline - System.nanoTime() + shard.startTime;
+
+            StringBuilder buf = new StringBuilder(192)
+               .append(simpleClassName(this))
+               .append('(')
+               .append("deadline: ");
+            if (remaining > 0) {
+                buf.append(remaining)
+                   .append(" ns later");
+            } else if (remaining < 0) {
+                buf.append(-remaining)
+                   .append(" ns ago");
+            } else {
+                buf.append("now");
+            }
+
+            if (isCancelled()) {
+                buf.append(", cancelled");
+            }
+
+            return buf.append(", task: ")
+                      .append(task())
+                      .append(')')
+                      .toString();
+        }
+    }
+
+    /**
+     * Bucket that stores ShardedTimeouts in a doubly linked list, like in {@link HashedWheelTimer}.
+     */
+    private static final class Bucket {
+        private ShardedTimeout head;
+        private ShardedTimeout tail;
+
+        void addTimeout(ShardedTimeout timeout) {
+            assert timeout.bucket == null;
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        /**
+         * Expire all {@link ShardedTimeout}s for the given {@code deadline}, and drop the cancelled ones.
+         */
+        void expireTimeouts(long deadline) {
+            ShardedTimeout timeout = head;
+
+            // process all timeouts
+            while (timeout != null) {
+                ShardedTimeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    next = remove(timeout);
+                    if (timeout.deadline <= deadline) {
+                        timeout.expire();
+                    } else {
+                        // The timeout was placed into a wrong slot. This should never happen.
+                        throw new IllegalStateException(String.format(
+                                "timeout.deadline (%d) > deadline (%d)", timeout.deadline, deadline));
+                    }
+                } else if (timeout.isCancelled()) {
+                    next = remove(timeout);
+                } else {
+                    timeout.remainingRounds --;
+                }
+                timeout = next;
+            }
+        }
+
+        ShardedTimeout remove(ShardedTimeout timeout) {
+            ShardedTimeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            // null out prev, next and bucket to allow for GC.
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+
+        /**
+         * Clear this bucket and return all not expired / cancelled {@link Timeout}s.
+         */
+        void clearTimeouts(Set<Timeout> set) {
+            for (ShardedTimeout timeout = head; timeout != null;) {
+                ShardedTimeout next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                timeout.bucket = null;
+                if (timeout.state() == ShardedTimeout.ST_INIT) {
+                    set.add(timeout);
+                }
+                timeout = next;
+            }
+            head = tail = null;
+        }
+    }
+}
@@ -18,6 +18,9 @@ package io.netty.util.concurrent;
 import io.netty.util.internal.DefaultPriorityQueue;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PriorityQueue;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.util.Comparator;
 import java.util.Queue;
@@ -26,9 +29,16 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Abstract base class for {@link EventExecutor}s that want to support scheduling.
+ * <p>
+ * The scheduled tasks are kept in a binary heap by default. When
+ * {@code -Dio.netty.eventexecutor.scheduledTaskWheelTickNanos} is set to a positive tick resolution, they are kept in
+ * a hierarchical timing wheel instead, which schedules and cancels in constant time.
  */
 public abstract class AbstractScheduledEventExecutor extends AbstractEventExecutor {
-    private static final Comparator<ScheduledFutureTask<?>> SCHEDULED_FUTURE_TASK_COMPARATOR =
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(AbstractScheduledEventExecutor.class);
+
+    static final Comparator<ScheduledFutureTask<?>> SCHEDULED_FUTURE_TASK_COMPARATOR =
             new Comparator<ScheduledFutureTask<?>>() {
                 @Override
                 public int compare(ScheduledFutureTask<?> o1, ScheduledFutureTask<?> o2) {
@@ -38,6 +48,16 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
 
     private static final long START_TIME = System.nanoTime();
 
+    // The tick of the timing wheel for scheduled tasks, or 0 to keep them in a binary heap.
+    private static final long SCHEDULED_TASK_WHEEL_TICK_NANOS = Math.max(0,
+            SystemPropertyUtil.getLong("io.netty.eventexecutor.scheduledTaskWheelTickNanos", 0));
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventexecutor.scheduledTaskWheelTickNanos: {}", SCHEDULED_TASK_WHEEL_TICK_NANOS);
+        }
+    }
+
     static final Runnable WAKEUP_TASK = new Runnable() {
        @Override
        public void run() { } // Do nothing
@@ -106,10 +126,16 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
 
     PriorityQueue<ScheduledFutureTask<?>> scheduledTaskQueue() {
         if (scheduledTaskQueue == null) {
-            scheduledTaskQueue = new DefaultPriorityQueue<ScheduledFutureTask<?>>(
-                    SCHEDULED_FUTURE_TASK_COMPARATOR,
-                    // Use same initial capacity as java.util.PriorityQueue
-                    11);
+            if (SCHEDULED_TASK_WHEEL_TICK_NANOS > 0) {
+                // Constant time schedule and cancel, which pays off with many pending tasks like per-connection
+                // timeouts.
+                scheduledTaskQueue = new ScheduledTaskWheel(this, SCHEDULED_TASK_WHEEL_TICK_NANOS);
+            } else {
+                scheduledTaskQueue = new DefaultPriorityQueue<ScheduledFutureTask<?>>(
+                        SCHEDULED_FUTURE_TASK_COMPARATOR,
+                        // Use same initial capacity as java.util.PriorityQueue
+                        11);
+            }
         }
         return scheduledTaskQueue;
     }
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * A snapshot of the utilization of a {@link SingleThreadEventExecutor} since its metrics were enabled, as returned by
+ * {@link SingleThreadEventExecutor#metrics()}.
+ * <p>
+ * The time of the executor is split into the time it waited for work ({@link #idleNanos()}), the time it ran tasks
+ * ({@link #taskNanos()}) and the rest ({@link #ioNanos()}), which for an {@code EventLoop} is mostly the time it spent
+ * processing I/O. All values are best effort, for example a task which is still running is not counted as task time
+ * until it completes.
+ */
+@UnstableApi
+public final class EventExecutorMetrics {
+
+    private final long uptimeNanos;
+    private final long idleNanos;
+    private final long taskNanos;
+    private final long tasksRun;
+    private final int pendingTasks;
+    private final long wakeups;
+    private final long[] taskLatencyHistogram;
+
+    EventExecutorMetrics(long uptimeNanos, long idleNanos, long taskNanos, long tasksRun, int pendingTasks,
+                         long wakeups, long[] taskLatencyHistogram) {
+        this.uptimeNanos = uptimeNanos;
+        this.idleNanos = idleNanos;
+        this.taskNanos = taskNanos;
+        this.tasksRun = tasksRun;
+        this.pendingTasks = pendingTasks;
+        this.wakeups = wakeups;
+        this.taskLatencyHistogram = taskLatencyHistogram;
+    }
+
+    /**
+     * Returns the time in nanoseconds since the metrics were enabled.
+     */
+    public long uptimeNanos() {
+        return uptimeNanos;
+    }
+
+    /**
+     * Returns the time in nanoseconds the executor waited for tasks or I/O.
+     */
+    public long idleNanos() {
+        return idleNanos;
+    }
+
+    /**
+     * Returns the time in nanoseconds the executor did not wait for tasks or I/O.
+     */
+    public long busyNanos() {
+        return uptimeNanos - idleNanos;
+    }
+
+    /**
+     * Returns the share of the {@linkplain #uptimeNanos() uptime} the executor was {@linkplain #busyNanos() busy},
+     * between {@code 0} and {@code 1}.
+     */
+    public double busyRatio() {
+        return uptimeNanos == 0 ? 0 : (double) busyNanos() / uptimeNanos;
+    }
+
+    /**
+     * Returns the time in nanoseconds the executor spent running tasks, including scheduled tasks.
+     */
+    public long taskNanos() {
+        return taskNanos;
+    }
+
+    /**
+     * Returns the time in nanoseconds the executor was {@linkplain #busyNanos() busy} but not running tasks, which
+     * for an {@code EventLoop} is mostly the time it spent processing I/O.
+     */
+    public long ioNanos() {
+        return Math.max(0, busyNanos() - taskNanos);
+    }
+
+    /**
+     * Returns the number of tasks the executor ran.
+     */
+    public long tasksRun() {
+        return tasksRun;
+    }
+
+    /**
+     * Returns the number of tasks which were waiting to be run when the snapshot was taken.
+     */
+    public int pendingTasks() {
+        return pendingTasks;
+    }
+
+    /**
+     * Returns how often the executor stopped waiting for tasks or I/O.
+     */
+    public long wakeups() {
+        return wakeups;
+    }
+
+    /**
+     * Returns the histogram of the time tasks waited between being submitted, or being due for scheduled tasks, and
+     * being run. The element at index {@code i} is the number of tasks which waited at least {@code 2^i} and less than
+     * {@code 2^(i+1)} nanoseconds, the element at index {@code 0} also counts the tasks which did not wait at all.
+     */
+    public long[] taskLatencyHistogram() {
+        return taskLatencyHistogram.clone();
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the time tasks waited to be run, or {@code 0} if no task was
+     * run yet. As the {@linkplain #taskLatencyHistogram() histogram} only knows powers of two, the returned value is
+     * up to twice as large as the actual one.
+     *
+     * @param percentile the percentile, between {@code 0} and {@code 100}.
+     */
+    public long taskLatencyPercentileNanos(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("percentile: " + percentile + " (expected: 0-100)");
+        }
+        long count = 0;
+        for (long bucket : taskLatencyHistogram) {
+            count += bucket;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        // The rank of the wanted value, at least the first one.
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        for (int i = 0; i < taskLatencyHistogram.length; i++) {
+            rank -= taskLatencyHistogram[i];
+            if (rank <= 0) {
+                return i == taskLatencyHistogram.length - 1 ? Long.MAX_VALUE : (1L << i + 1) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return "EventExecutorMetrics(uptimeNanos: " + uptimeNanos +
+                ", busyNanos: " + busyNanos() +
+                ", idleNanos: " + idleNanos +
+                ", taskNanos: " + taskNanos +
+                ", ioNanos: " + ioNanos() +
+                ", tasksRun: " + tasksRun +
+                ", pendingTasks: " + pendingTasks +
+                ", wakeups: " + wakeups +
+                ", p50LatencyNanos: " + taskLatencyPercentileNanos(50) +
+                ", p99LatencyNanos: " + taskLatencyPercentileNanos(99) + ')';
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Receives the {@link EventExecutorMetrics} of a {@link SingleThreadEventExecutor} periodically, see
+ * {@link SingleThreadEventExecutor#addMetricsListener}.
+ */
+@UnstableApi
+public interface EventExecutorMetricsListener {
+
+    /**
+     * Invoked by the thread of the {@code executor} with a new snapshot of its metrics. Implementations should return
+     * quickly, as the executor can not do anything else in the meantime.
+     */
+    void metricsReported(SingleThreadEventExecutor executor, EventExecutorMetrics metrics);
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Collects the values of {@link EventExecutorMetrics} for a {@link SingleThreadEventExecutor}.
+ * <p>
+ * All values are only written by the thread of the executor, so they are updated with lazy sets instead of atomic
+ * operations. Other threads may see them slightly late, but never torn.
+ */
+final class EventExecutorMetricsRecorder {
+
+    static final int LATENCY_BUCKETS = 64;
+
+    private static final AtomicLongFieldUpdater<EventExecutorMetricsRecorder> TASK_NANOS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(EventExecutorMetricsRecorder.class, "taskNanos");
+    private static final AtomicLongFieldUpdater<EventExecutorMetricsRecorder> TASKS_RUN_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(EventExecutorMetricsRecorder.class, "tasksRun");
+    private static final AtomicLongFieldUpdater<EventExecutorMetricsRecorder> WAKEUPS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(EventExecutorMetricsRecorder.class, "wakeups");
+
+    private final SingleThreadEventExecutor executor;
+    private final long startNanos;
+    private final long startIdleNanos;
+    // Bucket i counts the latencies in [2^i, 2^(i+1)) nanoseconds, bucket 0 also the ones below 1 nanosecond.
+    private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS);
+
+    @SuppressWarnings("unused")
+    private volatile long taskNanos;
+    @SuppressWarnings("unused")
+    private volatile long tasksRun;
+    @SuppressWarnings("unused")
+    private volatile long wakeups;
+
+    EventExecutorMetricsRecorder(SingleThreadEventExecutor executor) {
+        this.executor = executor;
+        startNanos = System.nanoTime();
+        startIdleNanos = executor.idleTimeNanos();
+    }
+
+    /**
+     * Returns a {@link Runnable} which runs the given task and records it as enqueued now.
+     */
+    Runnable timed(Runnable task) {
+        return new TimedTask(task, System.nanoTime());
+    }
+
+    /**
+     * Returns a {@link Runnable} which runs the given task and records it as enqueued at the given
+     * {@link System#nanoTime()}.
+     */
+    Runnable timed(Runnable task, long enqueueNanos) {
+        return new TimedTask(task, enqueueNanos);
+    }
+
+    /**
+     * Returns the task which the given {@link Runnable} runs if it was returned by {@link #timed(Runnable)}, or the
+     * given {@link Runnable} itself otherwise.
+     */
+    static Runnable unwrap(Runnable task) {
+        return task instanceof TimedTask ? ((TimedTask) task).task : task;
+    }
+
+    /**
+     * Records a task which was enqueued at {@code enqueueNanos}, started at {@code startNanos} and completed at
+     * {@code endNanos}, all as returned by {@link System#nanoTime()}.
+     */
+    void taskRun(long enqueueNanos, long startNanos, long endNanos) {
+        int bucket = bucket(startNanos - enqueueNanos);
+        latencyHistogram.lazySet(bucket, latencyHistogram.get(bucket) + 1);
+        TASK_NANOS_UPDATER.lazySet(this, taskNanos + endNanos - startNanos);
+        TASKS_RUN_UPDATER.lazySet(this, tasksRun + 1);
+    }
+
+    void wakeup() {
+        WAKEUPS_UPDATER.lazySet(this, wakeups + 1);
+    }
+
+    EventExecutorMetrics snapshot() {
+        long uptimeNanos = System.nanoTime() - startNanos;
+        long idleNanos = Math.min(uptimeNanos, Math.max(0, executor.idleTimeNanos() - startIdleNanos));
+        long[] histogram = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = latencyHistogram.get(i);
+        }
+        return new EventExecutorMetrics(uptimeNanos, idleNanos, taskNanos, tasksRun, executor.pendingTasks(),
+                wakeups, histogram);
+    }
+
+    static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    private final class TimedTask implements Runnable {
+        private final Runnable task;
+        private final long enqueueNanos;
+
+        TimedTask(Runnable task, long enqueueNanos) {
+            this.task = task;
+            this.enqueueNanos = enqueueNanos;
+        }
+
+        @Override
+        public void run() {
+            long startNanos = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                taskRun(enqueueNanos, startNanos, System.nanoTime());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches {@link SingleThreadEventExecutor}s from a thread of its own, and reports those which are stalled: which
+ * did not wait for work and did not start another iteration of their loop for longer than a threshold, for example
+ * because a task or a handler blocks on DNS or disk I/O.
+ * <p>
+ * For every stall, the stack of the thread of the executor is captured once, or repeatedly every
+ * {@code stackSampleInterval} while the stall lasts, and passed to the {@link EventExecutorStallListener}s. If there
+ * are no listeners, stalls are logged. The executors themselves only pay for one lazy write per iteration of their
+ * loop, which they do whether they are watched or not.
+ * <p>
+ * The detector checks the executors four times per threshold, so stalls are detected up to a quarter of the
+ * threshold late, and the reported durations are accordingly approximate.
+ */
+@UnstableApi
+public final class EventExecutorStallDetector {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EventExecutorStallDetector.class);
+
+    private static final int WORKER_STATE_INIT = 0;
+    private static final int WORKER_STATE_STARTED = 1;
+    private static final int WORKER_STATE_SHUTDOWN = 2;
+
+    private static final long MIN_CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ConcurrentMap<SingleThreadEventExecutor, WatchedExecutor> executors =
+            new ConcurrentHashMap<SingleThreadEventExecutor, WatchedExecutor>();
+    private final List<EventExecutorStallListener> listeners = new CopyOnWriteArrayList<EventExecutorStallListener>();
+    private final AtomicInteger workerState = new AtomicInteger();
+    private final AtomicLong stalls = new AtomicLong();
+    private final AtomicLong stackSamples = new AtomicLong();
+    private final long thresholdNanos;
+    private final long stackSampleIntervalNanos;
+    private final long checkIntervalNanos;
+    private final Thread workerThread;
+
+    /**
+     * Creates a new detector which captures the stack of an executor once per stall.
+     *
+     * @param threshold how long an executor must not make progress to be reported as stalled.
+     * @param unit      the unit of {@code threshold}.
+     */
+    public EventExecutorStallDetector(long threshold, TimeUnit unit) {
+        this(threshold, 0, unit);
+    }
+
+    /**
+     * Creates a new detector.
+     *
+     * @param threshold             how long an executor must not make progress to be reported as stalled.
+     * @param stackSampleInterval   how often the stack of a stalled executor is captured again while the stall lasts,
+     *                              or {@code 0} to capture it only once per stall.
+     * @param unit                  the unit of {@code threshold} and {@code stackSampleInterval}.
+     */
+    public EventExecutorStallDetector(long threshold, long stackSampleInterval, TimeUnit unit) {
+        this(new DefaultThreadFactory(EventExecutorStallDetector.class, true), threshold, stackSampleInterval, unit);
+    }
+
+    /**
+     * Creates a new detector.
+     *
+     * @param threadFactory         the {@link ThreadFactory} which creates the thread of the detector.
+     * @param threshold             how long an executor must not make progress to be reported as stalled.
+     * @param stackSampleInterval   how often the stack of a stalled executor is captured again while the stall lasts,
+     *                              or {@code 0} to capture it only once per stall.
+     * @param unit                  the unit of {@code threshold} and {@code stackSampleInterval}.
+     */
+    public EventExecutorStallDetector(ThreadFactory threadFactory, long threshold, long stackSampleInterval,
+                                      TimeUnit unit) {
+        ObjectUtil.checkNotNull(threadFactory, "threadFactory");
+        ObjectUtil.checkNotNull(unit, "unit");
+        thresholdNanos = unit.toNanos(ObjectUtil.checkPositive(threshold, "threshold"));
+        stackSampleIntervalNanos = unit.toNanos(ObjectUtil.checkPositiveOrZero(stackSampleInterval,
+                "stackSampleInterval"));
+        checkIntervalNanos = Math.max(MIN_CHECK_INTERVAL_NANOS, thresholdNanos / 4);
+        workerThread = threadFactory.newThread(new Worker());
+    }
+
+    /**
+     * Starts to watch the given executor, until it is terminated or {@link #unmonitor(SingleThreadEventExecutor)} is
+     * called. The thread of the detector is started when the first executor is added.
+     */
+    public void monitor(final SingleThreadEventExecutor executor) {
+        ObjectUtil.checkNotNull(executor, "executor");
+        start();
+        if (executors.putIfAbsent(executor, new WatchedExecutor(executor)) == null) {
+            executor.terminationFuture().addListener(new FutureListener<Object>() {
+                @Override
+                public void operationComplete(Future<Object> future) {
+                    unmonitor(executor);
+                }
+            });
+        }
+    }
+
+    /**
+     * Starts to watch all {@link SingleThreadEventExecutor}s of the given group, see
+     * {@link #monitor(SingleThreadEventExecutor)}. Other {@link EventExecutor}s are ignored.
+     */
+    public void monitor(EventExecutorGroup group) {
+        ObjectUtil.checkNotNull(group, "group");
+        for (EventExecutor executor : group) {
+            if (executor instanceof SingleThreadEventExecutor) {
+                monitor((SingleThreadEventExecutor) executor);
+            }
+        }
+    }
+
+    /**
+     * Stops to watch the given executor.
+     */
+    public void unmonitor(SingleThreadEventExecutor executor) {
+        executors.remove(executor);
+    }
+
+    public void addListener(EventExecutorStallListener listener) {
+        listeners.add(ObjectUtil.checkNotNull(listener, "listener"));
+    }
+
+    public void removeListener(EventExecutorStallListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the number of stalls detected so far.
+     */
+    public long stalls() {
+        return stalls.get();
+    }
+
+    /**
+     * Returns the number of stacks captured from stalled executors so far.
+     */
+    public long stackSamples() {
+        return stackSamples.get();
+    }
+
+    /**
+     * Stops the thread of the detector. It can not be started again.
+     */
+    public void stop() {
+        if (workerState.getAndSet(WORKER_STATE_SHUTDOWN) == WORKER_STATE_STARTED) {
+            workerThread.interrupt();
+        }
+        executors.clear();
+    }
+
+    private void start() {
+        switch (workerState.get()) {
+            case WORKER_STATE_INIT:
+                if (workerState.compareAndSet(WORKER_STATE_INIT, WORKER_STATE_STARTED)) {
+                    workerThread.start();
+                }
+                break;
+            case WORKER_STATE_STARTED:
+                break;
+            case WORKER_STATE_SHUTDOWN:
+                throw new IllegalStateException("cannot be started once stopped");
+            default:
+                throw new Error("Invalid WorkerState");
+        }
+    }
+
+    private void stallDetected(SingleThreadEventExecutor executor, long stalledNanos) {
+        Thread thread = executor.thread();
+        StackTraceElement[] stackTrace = thread == null ? EmptyArrays.EMPTY_STACK_TRACE : thread.getStackTrace();
+        stackSamples.incrementAndGet();
+        if (listeners.isEmpty()) {
+            StringBuilder buf = new StringBuilder();
+            for (StackTraceElement element : stackTrace) {
+                buf.append(StringUtil.NEWLINE).append("\tat ").append(element);
+            }
+            logger.warn("{} is stalled for {} ms:{}", executor, TimeUnit.NANOSECONDS.toMillis(stalledNanos), buf);
+            return;
+        }
+        for (EventExecutorStallListener listener : listeners) {
+            try {
+                listener.stallDetected(executor, stalledNanos, stackTrace);
+            } catch (Throwable t) {
+                logger.warn("An exception was thrown by {}.stallDetected()", listener.getClass().getName(), t);
+            }
+        }
+    }
+
+    private void stallEnded(SingleThreadEventExecutor executor, long stalledNanos) {
+        if (listeners.isEmpty()) {
+            logger.warn("{} is not stalled anymore after {} ms", executor, TimeUnit.NANOSECONDS.toMillis(stalledNanos));
+            return;
+        }
+        for (EventExecutorStallListener listener : listeners) {
+            try {
+                listener.stallEnded(executor, stalledNanos);
+            } catch (Throwable t) {
+                logger.warn("An exception was thrown by {}.stallEnded()", listener.getClass().getName(), t);
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+        @Override
+        public void run() {
+            while (workerState.get() == WORKER_STATE_STARTED) {
+                long now = System.nanoTime();
+                for (WatchedExecutor executor : executors.values()) {
+                    executor.check(now);
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(checkIntervalNanos);
+                } catch (InterruptedException ignore) {
+                    // Check if stopped.
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of an executor as last seen by the thread of the detector, which is the only one to access it.
+     */
+    private final class WatchedExecutor {
+        private final SingleThreadEventExecutor executor;
+        private long iterations;
+        private long idleTimeNanos;
+        private long progressNanos;
+        private long lastStackSampleNanos;
+        private boolean stalled;
+
+        WatchedExecutor(SingleThreadEventExecutor executor) {
+            this.executor = executor;
+            iterations = executor.iterations();
+            idleTimeNanos = executor.idleTimeNanos();
+            progressNanos = System.nanoTime();
+        }
+
+        void check(long now) {
+            long iterations = executor.iterations();
+            long idleTimeNanos = executor.idleTimeNanos();
+            // The idle time grows while the executor waits, so it only stays the same if it is busy all the time.
+            if (iterations != this.iterations || idleTimeNanos != this.idleTimeNanos) {
+                this.iterations = iterations;
+                this.idleTimeNanos = idleTimeNanos;
+                if (stalled) {
+                    stalled = false;
+                    stallEnded(executor, now - progressNanos);
+                }
+                progressNanos = now;
+                return;
+            }
+
+            long stalledNanos = now - progressNanos;
+            if (!stalled) {
+                if (stalledNanos >= thresholdNanos && !executor.isTerminated()) {
+                    stalled = true;
+                    stalls.incrementAndGet();
+                    lastStackSampleNanos = now;
+                    stallDetected(executor, stalledNanos);
+                }
+            } else if (stackSampleIntervalNanos > 0 && now - lastStackSampleNanos >= stackSampleIntervalNanos) {
+                lastStackSampleNanos = now;
+                stallDetected(executor, stalledNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Is notified by an {@link EventExecutorStallDetector} about stalled {@link SingleThreadEventExecutor}s. All methods
+ * are invoked by the thread of the detector.
+ */
+@UnstableApi
+public interface EventExecutorStallListener {
+
+    /**
+     * Invoked when the {@code executor} was found stalled, and then again for every further stack sample while it
+     * stays stalled.
+     *
+     * @param executor      the stalled executor.
+     * @param stalledNanos  how long the executor is stalled so far.
+     * @param stackTrace    the stack of the thread of the executor, or an empty array if it is not available.
+     */
+    void stallDetected(SingleThreadEventExecutor executor, long stalledNanos, StackTraceElement[] stackTrace);
+
+    /**
+     * Invoked when a stalled {@code executor} makes progress again.
+     *
+     * @param executor      the executor.
+     * @param stalledNanos  how long the executor was stalled in total.
+     */
+    void stallEnded(SingleThreadEventExecutor executor, long stalledNanos);
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.DefaultPriorityQueue;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PriorityQueue;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static io.netty.util.internal.PriorityQueueNode.INDEX_NOT_IN_QUEUE;
+
+/**
+ * A {@link PriorityQueue} of {@link ScheduledFutureTask}s backed by a hierarchical timing wheel, so that adding and
+ * cancelling a task takes constant time no matter how many tasks are pending.
+ * <p>
+ * Time is divided into ticks of a power of two nanoseconds. Each level of the wheel has {@value #SLOTS} buckets, and a
+ * task goes into the level of the highest tick digit in which its deadline differs from the current tick of the wheel.
+ * The current tick follows the clock of the executor: when the due tasks run out, {@link #peek()} moves it to the tick
+ * of {@link AbstractScheduledEventExecutor#getCurrentTimeNanos()} and cascades every bucket that it passes into lower
+ * levels. Only tasks that are due in the current tick or earlier are kept in a binary heap, so that sub-tick deadlines
+ * stay exact. A task is cascaded at most once per level.
+ * <p>
+ * Each bucket is a doubly linked list that stays sorted as long as tasks are added in the order of their deadlines,
+ * which is the common case for timeouts. If nothing is due, {@link #peek()} returns the head of the earliest bucket,
+ * and sorts that bucket first if a task was added out of order. Tasks are therefore returned in exactly the same order
+ * as by a {@link DefaultPriorityQueue}, and removing the earliest task is a constant time unlink.
+ */
+final class ScheduledTaskWheel extends AbstractQueue<ScheduledFutureTask<?>>
+        implements PriorityQueue<ScheduledFutureTask<?>> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    // Enough levels to hold any tick.
+    private static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+
+    private final AbstractScheduledEventExecutor executor;
+    private final int tickShift;
+    private final DefaultPriorityQueue<ScheduledFutureTask<?>> dueTasks;
+    // The heads and tails of the doubly linked task lists, indexed by level * SLOTS + slot.
+    private final ScheduledFutureTask<?>[] buckets = new ScheduledFutureTask<?>[LEVELS * SLOTS];
+    private final ScheduledFutureTask<?>[] tails = new ScheduledFutureTask<?>[LEVELS * SLOTS];
+    // One bit per non-empty bucket, one long per level.
+    private final long[] occupied = new long[LEVELS];
+    // One bit per non-empty bucket whose list is in deadline order, one long per level.
+    private final long[] sorted = new long[LEVELS];
+    private long currentTick;
+    private int wheelSize;
+
+    /**
+     * Creates a new wheel.
+     *
+     * @param executor the executor whose clock the wheel follows.
+     * @param tickNanos the tick resolution, which is rounded up to the next power of two.
+     */
+    ScheduledTaskWheel(AbstractScheduledEventExecutor executor, long tickNanos) {
+        this.executor = ObjectUtil.checkNotNull(executor, "executor");
+        ObjectUtil.checkPositive(tickNanos, "tickNanos");
+        tickShift = Long.SIZE - Long.numberOfLeadingZeros(tickNanos - 1);
+        // Use same initial capacity as java.util.PriorityQueue
+        dueTasks = new DefaultPriorityQueue<ScheduledFutureTask<?>>(
+                AbstractScheduledEventExecutor.SCHEDULED_FUTURE_TASK_COMPARATOR, 11);
+        currentTick = nowTick();
+    }
+
+    @Override
+    public boolean offer(ScheduledFutureTask<?> task) {
+        if (task.priorityQueueIndex(dueTasks) != INDEX_NOT_IN_QUEUE) {
+            throw new IllegalArgumentException("task.priorityQueueIndex(): " + task.priorityQueueIndex(dueTasks) +
+                    " (expected: " + INDEX_NOT_IN_QUEUE + ") + task: " + task);
+        }
+        long tick = tick(task);
+        if (tick <= currentTick) {
+            return dueTasks.offer(task);
+        }
+        link(task, bucketIndex(tick));
+        wheelSize++;
+        return true;
+    }
+
+    @Override
+    public ScheduledFutureTask<?> peek() {
+        ScheduledFutureTask<?> task = dueTasks.peek();
+        if (task != null) {
+            // Every task in the wheel is due after the current tick, so after every task in the heap.
+            return task;
+        }
+        advance(nowTick());
+        task = dueTasks.peek();
+        if (task == null && wheelSize != 0) {
+            // Nothing is due yet, the earliest task is the head of the earliest bucket.
+            int bucket = firstBucket();
+            if ((sorted[bucket >>> SLOT_BITS] & 1L << (bucket & SLOT_MASK)) == 0) {
+                sort(bucket);
+            }
+            task = buckets[bucket];
+        }
+        return task;
+    }
+
+    @Override
+    public ScheduledFutureTask<?> poll() {
+        ScheduledFutureTask<?> task = peek();
+        if (task != null) {
+            removeTyped(task);
+        }
+        return task;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof ScheduledFutureTask && removeTyped((ScheduledFutureTask<?>) o);
+    }
+
+    @Override
+    public boolean removeTyped(ScheduledFutureTask<?> task) {
+        int index = task.priorityQueueIndex(dueTasks);
+        if (index >= 0) {
+            return dueTasks.removeTyped(task);
+        }
+        if (index == INDEX_NOT_IN_QUEUE) {
+            return false;
+        }
+        unlink(task, toBucket(index));
+        wheelSize--;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof ScheduledFutureTask && containsTyped((ScheduledFutureTask<?>) o);
+    }
+
+    @Override
+    public boolean containsTyped(ScheduledFutureTask<?> task) {
+        int index = task.priorityQueueIndex(dueTasks);
+        return index >= 0 ? dueTasks.containsTyped(task) : index != INDEX_NOT_IN_QUEUE;
+    }
+
+    @Override
+    public void priorityChanged(ScheduledFutureTask<?> task) {
+        int index = task.priorityQueueIndex(dueTasks);
+        if (index >= 0) {
+            dueTasks.priorityChanged(task);
+        } else if (index != INDEX_NOT_IN_QUEUE) {
+            removeTyped(task);
+            offer(task);
+        }
+    }
+
+    @Override
+    public int size() {
+        return dueTasks.size() + wheelSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return wheelSize == 0 && dueTasks.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        dueTasks.clear();
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            ScheduledFutureTask<?> task = buckets[bucket];
+            while (task != null) {
+                ScheduledFutureTask<?> next = task.wheelNext;
+                task.wheelPrev = task.wheelNext = null;
+                task.priorityQueueIndex(dueTasks, INDEX_NOT_IN_QUEUE);
+                task = next;
+            }
+        }
+        clearIgnoringIndexes0();
+    }
+
+    @Override
+    public void clearIgnoringIndexes() {
+        dueTasks.clearIgnoringIndexes();
+        clearIgnoringIndexes0();
+    }
+
+    private void clearIgnoringIndexes0() {
+        Arrays.fill(buckets, null);
+        Arrays.fill(tails, null);
+        Arrays.fill(occupied, 0);
+        Arrays.fill(sorted, 0);
+        wheelSize = 0;
+    }
+
+    @Override
+    public Iterator<ScheduledFutureTask<?>> iterator() {
+        return new WheelIterator();
+    }
+
+    private long tick(ScheduledFutureTask<?> task) {
+        return task.deadlineNanos() >> tickShift;
+    }
+
+    private long nowTick() {
+        // Negative ticks would not be ordered by their digits, deadlines before 0 are simply due.
+        return Math.max(executor.getCurrentTimeNanos(), 0) >> tickShift;
+    }
+
+    private static int toBucket(int queueIndex) {
+        // Tasks in the wheel use the queue indexes below INDEX_NOT_IN_QUEUE, so they can not be confused with tasks
+        // in the heap.
+        return INDEX_NOT_IN_QUEUE - 1 - queueIndex;
+    }
+
+    /**
+     * Returns the bucket for a tick after the current tick.
+     */
+    private int bucketIndex(long tick) {
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(tick ^ currentTick)) / SLOT_BITS;
+        return level << SLOT_BITS | (int) (tick >>> level * SLOT_BITS) & SLOT_MASK;
+    }
+
+    private void link(ScheduledFutureTask<?> task, int bucket) {
+        int level = bucket >>> SLOT_BITS;
+        long bit = 1L << (bucket & SLOT_MASK);
+        ScheduledFutureTask<?> head = buckets[bucket];
+        if (head == null) {
+            buckets[bucket] = tails[bucket] = task;
+            occupied[level] |= bit;
+            sorted[level] |= bit;
+        } else if (task.compareTo(head) < 0) {
+            task.wheelNext = head;
+            head.wheelPrev = task;
+            buckets[bucket] = task;
+        } else {
+            ScheduledFutureTask<?> tail = tails[bucket];
+            if (task.compareTo(tail) < 0) {
+                // Out of order, sort the bucket once it holds the earliest task.
+                sorted[level] &= ~bit;
+            }
+            task.wheelPrev = tail;
+            tail.wheelNext = task;
+            tails[bucket] = task;
+        }
+        task.priorityQueueIndex(dueTasks, toBucket(bucket));
+    }
+
+    private void unlink(ScheduledFutureTask<?> task, int bucket) {
+        ScheduledFutureTask<?> prev = task.wheelPrev;
+        ScheduledFutureTask<?> next = task.wheelNext;
+        if (prev == null) {
+            buckets[bucket] = next;
+        } else {
+            prev.wheelNext = next;
+        }
+        if (next == null) {
+            tails[bucket] = prev;
+            if (prev == null) {
+                occupied[bucket >>> SLOT_BITS] &= ~(1L << (bucket & SLOT_MASK));
+            }
+        } else {
+            next.wheelPrev = prev;
+        }
+        task.wheelPrev = task.wheelNext = null;
+        task.priorityQueueIndex(dueTasks, INDEX_NOT_IN_QUEUE);
+    }
+
+    /**
+     * Puts the tasks of a bucket in deadline order.
+     */
+    private void sort(int bucket) {
+        int count = 0;
+        for (ScheduledFutureTask<?> task = buckets[bucket]; task != null; task = task.wheelNext) {
+            count++;
+        }
+        ScheduledFutureTask<?>[] tasks = new ScheduledFutureTask<?>[count];
+        ScheduledFutureTask<?> task = buckets[bucket];
+        for (int i = 0; i < count; i++) {
+            tasks[i] = task;
+            task = task.wheelNext;
+        }
+        Arrays.sort(tasks, AbstractScheduledEventExecutor.SCHEDULED_FUTURE_TASK_COMPARATOR);
+
+        ScheduledFutureTask<?> prev = null;
+        for (ScheduledFutureTask<?> t : tasks) {
+            t.wheelPrev = prev;
+            if (prev != null) {
+                prev.wheelNext = t;
+            }
+            prev = t;
+        }
+        prev.wheelNext = null;
+        buckets[bucket] = tasks[0];
+        tails[bucket] = prev;
+        sorted[bucket >>> SLOT_BITS] |= 1L << (bucket & SLOT_MASK);
+    }
+
+    /**
+     * Returns the earliest non-empty bucket, or {@code -1} if the wheel is empty. Every task in a lower level is due
+     * before every task in a higher level, and within a level the buckets are in the order of their slots.
+     */
+    private int firstBucket() {
+        for (int level = 0; level < LEVELS; level++) {
+            long bits = occupied[level];
+            if (bits != 0) {
+                return level << SLOT_BITS | Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the current tick forward to {@code nowTick}, and cascades every bucket that starts at or before it. The
+     * tasks of a cascaded bucket are either due and go into the heap, or go into a lower level.
+     */
+    private void advance(long nowTick) {
+        while (wheelSize != 0) {
+            int bucket = firstBucket();
+            int level = bucket >>> SLOT_BITS;
+            int shift = level * SLOT_BITS;
+            long higherDigits = level == LEVELS - 1 ? 0 : currentTick & -1L << shift + SLOT_BITS;
+            long bucketTick = higherDigits | (long) (bucket & SLOT_MASK) << shift;
+            if (bucketTick > nowTick) {
+                // The buckets that are left stay valid for the new current tick, as it has the same higher digits.
+                break;
+            }
+
+            currentTick = bucketTick;
+            ScheduledFutureTask<?> task = buckets[bucket];
+            buckets[bucket] = tails[bucket] = null;
+            occupied[level] &= ~(1L << (bucket & SLOT_MASK));
+            while (task != null) {
+                ScheduledFutureTask<?> next = task.wheelNext;
+                task.wheelPrev = task.wheelNext = null;
+                task.priorityQueueIndex(dueTasks, INDEX_NOT_IN_QUEUE);
+                long tick = tick(task);
+                if (tick <= currentTick) {
+                    wheelSize--;
+                    dueTasks.offer(task);
+                } else {
+                    link(task, bucketIndex(tick));
+                }
+                task = next;
+            }
+        }
+        if (nowTick > currentTick) {
+            currentTick = nowTick;
+        }
+    }
+
+    private final class WheelIterator implements Iterator<ScheduledFutureTask<?>> {
+        private final Iterator<ScheduledFutureTask<?>> dueIterator = dueTasks.iterator();
+        private int bucket = -1;
+        private ScheduledFutureTask<?> next;
+
+        @Override
+        public boolean hasNext() {
+            if (dueIterator.hasNext()) {
+                return true;
+            }
+            while (next == null && bucket < buckets.length - 1) {
+                next = buckets[++bucket];
+            }
+            return next != null;
+        }
+
+        @Override
+        public ScheduledFutureTask<?> next() {
+            if (dueIterator.hasNext()) {
+                return dueIterator.next();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ScheduledFutureTask<?> task = next;
+            next = task.wheelNext;
+            return task;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+    }
+}
@@ -42,6 +42,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
@@ -53,6 +54,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     static final int DEFAULT_MAX_PENDING_EXECUTOR_TASKS = Math.max(16,
             SystemPropertyUtil.getInt("io.netty.eventexecutor.maxPendingTasks", Integer.MAX_VALUE));
 
+    private static final boolean METRICS_ENABLED =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.metrics", false);
+
     private static final InternalLogger logger =
             InternalLoggerFactory.getInstance(SingleThreadEventExecutor.class);
 
@@ -74,6 +78,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     private static final AtomicReferenceFieldUpdater<SingleThreadEventExecutor, ThreadProperties> PROPERTIES_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(
                     SingleThreadEventExecutor.class, ThreadProperties.class, "threadProperties");
+    private static final AtomicReferenceFieldUpdater<SingleThreadEventExecutor, EventExecutorMetricsRecorder>
+            METRICS_RECORDER_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+                    SingleThreadEventExecutor.class, EventExecutorMetricsRecorder.class, "metricsRecorder");
+    private static final AtomicLongFieldUpdater<SingleThreadEventExecutor> ITERATIONS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SingleThreadEventExecutor.class, "iterations");
 
     private final Queue<Runnable> taskQueue;
 
@@ -91,6 +100,19 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
     private long lastExecutionTime;
 
+    // The time the thread spent waiting for work, without the current wait. Only written by the thread.
+    private volatile long idleNanos;
+    // The System.nanoTime() at which the thread started to wait for work, or 0 while it is busy. The executor counts
+    // as idle until its thread is started.
+    private volatile long idleStartNanos = idleTimestamp();
+    // The number of loop iterations, so an EventExecutorStallDetector can tell the thread makes progress. Only
+    // written by the thread.
+    @SuppressWarnings("unused")
+    private volatile long iterations;
+
+    // null until the metrics are enabled.
+    private volatile EventExecutorMetricsRecorder metricsRecorder;
+
     @SuppressWarnings({ "FieldMayBeFinal", "unused" })
     private volatile int state = ST_NOT_STARTED;
 
@@ -160,6 +182,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         this.executor = ThreadExecutorMap.apply(executor, this);
         taskQueue = newTaskQueue(this.maxPendingTasks);
         rejectedExecutionHandler = ObjectUtil.checkNotNull(rejectedHandler, "rejectedHandler");
+        if (METRICS_ENABLED) {
+            enableMetrics();
+        }
     }
 
     protected SingleThreadEventExecutor(EventExecutorGroup parent, Executor executor,
@@ -171,6 +196,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         this.executor = ThreadExecutorMap.apply(executor, this);
         this.taskQueue = ObjectUtil.checkNotNull(taskQueue, "taskQueue");
         this.rejectedExecutionHandler = ObjectUtil.checkNotNull(rejectedHandler, "rejectedHandler");
+        if (METRICS_ENABLED) {
+            enableMetrics();
+        }
     }
 
     /**
@@ -236,28 +264,38 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
 
         BlockingQueue<Runnable> taskQueue = (BlockingQueue<Runnable>) this.taskQueue;
+        iterationStarted();
         for (;;) {
             ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
             if (scheduledTask == null) {
-                Runnable task = null;
-                try {
-                    task = taskQueue.take();
-                    if (task == WAKEUP_TASK) {
-                        task = null;
+                // Only count as idle if there is nothing to do right away.
+                Runnable task = taskQueue.poll();
+                if (task == null) {
+                    idleStarted();
+                    try {
+                        task = taskQueue.take();
+                    } catch (InterruptedException e) {
+                        // Ignore
+                    } finally {
+                        idleEnded();
                     }
-                } catch (InterruptedException e) {
-                    // Ignore
+                }
+                if (task == WAKEUP_TASK) {
+                    task = null;
                 }
                 return task;
             } else {
                 long delayNanos = scheduledTask.delayNanos();
                 Runnable task = null;
-                if (delayNanos > 0) {
+                if (delayNanos > 0 && (task = taskQueue.poll()) == null) {
+                    idleStarted();
                     try {
                         task = taskQueue.poll(delayNanos, TimeUnit.NANOSECONDS);
                     } catch (InterruptedException e) {
                         // Waken up.
                         return null;
+                    } finally {
+                        idleEnded();
                     }
                 }
                 if (task == null) {
@@ -281,12 +319,19 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             return true;
         }
         long nanoTime = getCurrentTimeNanos();
+        EventExecutorMetricsRecorder metricsRecorder = this.metricsRecorder;
         for (;;) {
             Runnable scheduledTask = pollScheduledTask(nanoTime);
             if (scheduledTask == null) {
                 return true;
             }
-            if (!taskQueue.offer(scheduledTask)) {
+            Runnable task = scheduledTask;
+            if (metricsRecorder != null) {
+                // A scheduled task waits from its deadline on.
+                long lateNanos = nanoTime - ((ScheduledFutureTask<?>) scheduledTask).deadlineNanos();
+                task = metricsRecorder.timed(scheduledTask, System.nanoTime() - lateNanos);
+            }
+            if (!taskQueue.offer(task)) {
                 // No space left in the task queue add it back to the scheduledTaskQueue so we pick it up again.
                 scheduledTaskQueue.add((ScheduledFutureTask<?>) scheduledTask);
                 return false;
@@ -306,8 +351,16 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         if (scheduledTask == null) {
             return false;
         }
+        EventExecutorMetricsRecorder metricsRecorder = this.metricsRecorder;
         do {
-            safeExecute(scheduledTask);
+            if (metricsRecorder == null) {
+                safeExecute(scheduledTask);
+            } else {
+                long startNanos = System.nanoTime();
+                long lateNanos = nanoTime - ((ScheduledFutureTask<?>) scheduledTask).deadlineNanos();
+                safeExecute(scheduledTask);
+                metricsRecorder.taskRun(startNanos - lateNanos, startNanos, System.nanoTime());
+            }
         } while ((scheduledTask = pollScheduledTask(nanoTime)) != null);
         return true;
     }
@@ -335,6 +388,128 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         return taskQueue.size();
     }
 
+    /**
+     * Returns the total time in nanoseconds this executor spent waiting for work, including the time before its
+     * thread was started. The value is a best effort, and may be slightly off while the thread starts or stops
+     * waiting.
+     * <p>
+     * Only the time between {@link #idleStarted()} and {@link #idleEnded()} counts as waiting, so an implementation
+     * which blocks somewhere else than in {@link #takeTask()} never seems to be idle unless it calls these methods.
+     */
+    @UnstableApi
+    public long idleTimeNanos() {
+        long idleNanos = this.idleNanos;
+        long idleStartNanos = this.idleStartNanos;
+        return idleStartNanos == 0 ? idleNanos : idleNanos + Math.max(0, System.nanoTime() - idleStartNanos);
+    }
+
+    /**
+     * Must be called by the thread of this executor right before it blocks waiting for tasks or I/O, and followed by
+     * {@link #idleEnded()} once it returns. See {@link #idleTimeNanos()}.
+     */
+    @UnstableApi
+    protected final void idleStarted() {
+        idleStartNanos = idleTimestamp();
+    }
+
+    /**
+     * Must be called by the thread of this executor after it returns from a wait started with {@link #idleStarted()}.
+     */
+    @UnstableApi
+    protected final void idleEnded() {
+        long idleStartNanos = this.idleStartNanos;
+        if (idleStartNanos != 0) {
+            idleNanos += System.nanoTime() - idleStartNanos;
+            this.idleStartNanos = 0;
+            EventExecutorMetricsRecorder metricsRecorder = this.metricsRecorder;
+            if (metricsRecorder != null) {
+                metricsRecorder.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Starts to collect the {@link EventExecutorMetrics} of this executor, if it does not already. This is done for
+     * all executors if the {@code io.netty.eventexecutor.metrics} system property is {@code true}.
+     * <p>
+     * While the metrics are enabled, every task is wrapped to record how long it waited and ran, which costs an
+     * allocation and a few {@link System#nanoTime()} calls per task. Tasks which were submitted before are not
+     * recorded.
+     */
+    @UnstableApi
+    public final void enableMetrics() {
+        if (metricsRecorder == null) {
+            METRICS_RECORDER_UPDATER.compareAndSet(this, null, new EventExecutorMetricsRecorder(this));
+        }
+    }
+
+    /**
+     * Returns {@code true} if {@link #enableMetrics()} was called, or the metrics are enabled for all executors.
+     */
+    @UnstableApi
+    public final boolean isMetricsEnabled() {
+        return metricsRecorder != null;
+    }
+
+    /**
+     * Returns a snapshot of the {@link EventExecutorMetrics} of this executor since they were enabled, or
+     * {@code null} if they are not {@linkplain #enableMetrics() enabled}. This can be called from any thread.
+     */
+    @UnstableApi
+    public final EventExecutorMetrics metrics() {
+        EventExecutorMetricsRecorder metricsRecorder = this.metricsRecorder;
+        return metricsRecorder == null ? null : metricsRecorder.snapshot();
+    }
+
+    /**
+     * {@linkplain #enableMetrics() Enables} the metrics of this executor, and reports a snapshot of them to the given
+     * listener every {@code period}. The listener is invoked by the thread of this executor, until the returned
+     * {@link ScheduledFuture} is cancelled or the executor is shut down.
+     */
+    @UnstableApi
+    public final ScheduledFuture<?> addMetricsListener(
+            final EventExecutorMetricsListener listener, long period, TimeUnit unit) {
+        ObjectUtil.checkNotNull(listener, "listener");
+        ObjectUtil.checkPositive(period, "period");
+        enableMetrics();
+        return scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    listener.metricsReported(SingleThreadEventExecutor.this, metrics());
+                } catch (Throwable t) {
+                    logger.warn("An exception was thrown by {}.metricsReported()",
+                            listener.getClass().getName(), t);
+                }
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Must be called by the thread of this executor at the start of every iteration of its loop, so an
+     * {@link EventExecutorStallDetector} can tell it makes progress. Implementations which take their tasks with
+     * {@link #takeTask()} do not need to call it, as {@link #takeTask()} already does.
+     */
+    @UnstableApi
+    protected final void iterationStarted() {
+        // A lazy set is enough, as only this thread writes it and the detector only needs to see it eventually.
+        ITERATIONS_UPDATER.lazySet(this, iterations + 1);
+    }
+
+    long iterations() {
+        return iterations;
+    }
+
+    Thread thread() {
+        return thread;
+    }
+
+    private static long idleTimestamp() {
+        long nanoTime = System.nanoTime();
+        // 0 means busy.
+        return nanoTime == 0 ? 1 : nanoTime;
+    }
+
     /**
      * Add a task to the task queue, or throws a {@link RejectedExecutionException} if this instance was shutdown
      * before.
@@ -833,6 +1008,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
     private void execute(Runnable task, boolean immediate) {
         boolean inEventLoop = inEventLoop();
+        EventExecutorMetricsRecorder metricsRecorder = this.metricsRecorder;
+        // A ScheduledFutureTask only adds or removes itself here, it is recorded once it is due.
+        if (metricsRecorder != null && task != WAKEUP_TASK && !(task instanceof ScheduledFutureTask)) {
+            task = metricsRecorder.timed(task);
+        }
         addTask(task);
         if (!inEventLoop) {
             startThread();
@@ -940,7 +1120,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * @param task to reject.
      */
     protected final void reject(Runnable task) {
-        rejectedExecutionHandler.rejected(task, this);
+        rejectedExecutionHandler.rejected(EventExecutorMetricsRecorder.unwrap(task), this);
     }
 
     // ScheduledExecutorService implementation
@@ -993,6 +1173,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
                 boolean success = false;
                 updateLastExecutionTime();
+                idleEnded();
                 try {
                     SingleThreadEventExecutor.this.run();
                     success = true;
@@ -0,0 +1,490 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.util.concurrent.AbstractScheduledEventExecutor.deadlineNanos;
+import static io.netty.util.concurrent.AbstractScheduledEventExecutor.defaultCurrentTimeNanos;
+
+/**
+ * {@link EventExecutorGroup} for handlers which block, for example on JDBC or LDAP calls, that runs their work on
+ * virtual threads when running on Java 21 or later, instead of on a large pool of platform threads like a
+ * {@link DefaultEventExecutorGroup} would need.
+ * <p>
+ * Every call to {@link #next()} returns a new {@link OrderedEventExecutor}, so a {@code ChannelPipeline} gets one for
+ * every {@code Channel} it adds handlers to with this group. Its tasks run one after another in the order they were
+ * submitted, just like on a {@link DefaultEventExecutorGroup} or a {@link NonStickyEventExecutorGroup}, but whenever it
+ * has tasks it drains them on a thread of its own, so a blocked handler of one {@code Channel} does not hold up those
+ * of other {@code Channel}s. Virtual threads are detected reflectively; on older Java versions the tasks run on a
+ * cached pool of platform threads instead, see {@link #isVirtualThreadAvailable()}.
+ * <p>
+ * The executors are created on demand and not tracked, so {@link #iterator()} returns no executors. A scheduled task
+ * waits on a timer of the {@link GlobalEventExecutor}, which hands it to its executor once it is due, so it still runs
+ * in order with the other tasks of that executor. {@link #shutdownGracefully()} makes the group reject new tasks right
+ * away, without a quiet period; the group is terminated once the tasks which were accepted before ran. Scheduled tasks
+ * which become due after that fail with a {@link RejectedExecutionException}.
+ */
+@UnstableApi
+public final class VirtualThreadEventExecutorGroup extends AbstractEventExecutorGroup {
+
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(VirtualThreadEventExecutorGroup.class);
+
+    private static final AtomicInteger poolId = new AtomicInteger();
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        // Thread.ofVirtual() is a preview API before Java 21.
+        if (PlatformDependent.javaVersion() >= 21) {
+            try {
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                builderName = builderClass.getMethod("name", String.class, long.class);
+                builderFactory = builderClass.getMethod("factory");
+                newVirtualThreadFactory(ofVirtual, builderName, builderFactory, "probe-");
+            } catch (Throwable cause) {
+                logger.debug("Virtual threads are not available", cause);
+                ofVirtual = null;
+                builderName = null;
+                builderFactory = null;
+            }
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        logger.debug("Virtual threads: {}", OF_VIRTUAL != null ? "available" : "unavailable");
+    }
+
+    private final Executor executor;
+    private final boolean virtual;
+    private final ExecutorService ownedExecutor;
+    private final AtomicInteger activeExecutors = new AtomicInteger();
+    private final Promise<?> terminationFuture = new DefaultPromise<Void>(GlobalEventExecutor.INSTANCE);
+    private volatile boolean shuttingDown;
+
+    /**
+     * Creates a new group which runs its tasks on virtual threads if they are
+     * {@linkplain #isVirtualThreadAvailable() available}, or on a cached pool of platform threads otherwise.
+     */
+    public VirtualThreadEventExecutorGroup() {
+        if (OF_VIRTUAL != null) {
+            String prefix = DefaultThreadFactory.toPoolName(VirtualThreadEventExecutorGroup.class) + '-' +
+                    poolId.incrementAndGet() + '-';
+            executor = new ThreadPerTaskExecutor(newVirtualThreadFactory(OF_VIRTUAL, BUILDER_NAME, BUILDER_FACTORY,
+                    prefix));
+            virtual = true;
+            ownedExecutor = null;
+        } else {
+            ownedExecutor = Executors.newCachedThreadPool(
+                    new DefaultThreadFactory(VirtualThreadEventExecutorGroup.class));
+            executor = ownedExecutor;
+            virtual = false;
+        }
+    }
+
+    /**
+     * Creates a new group which runs its tasks on the given {@link Executor}, which must run every task on a thread
+     * that is not shared with other tasks while it runs, for example
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}. The {@link Executor} is not shut down with the group.
+     */
+    public VirtualThreadEventExecutorGroup(Executor executor) {
+        this.executor = ObjectUtil.checkNotNull(executor, "executor");
+        virtual = false;
+        ownedExecutor = null;
+    }
+
+    /**
+     * Returns {@code true} if virtual threads are available, which is the case on Java 21 or later.
+     */
+    public static boolean isVirtualThreadAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Returns {@code true} if this group runs its tasks on virtual threads which it creates itself.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Returns a new {@link OrderedEventExecutor} which runs its tasks on the threads of this group.
+     */
+    @Override
+    public EventExecutor next() {
+        return new VirtualThreadOrderedEventExecutor(this);
+    }
+
+    /**
+     * Returns no executors, as they are created on demand by {@link #next()} and not tracked.
+     */
+    @Override
+    public Iterator<EventExecutor> iterator() {
+        return Collections.<EventExecutor>emptyList().iterator();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        next().execute(command);
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return shuttingDown;
+    }
+
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        shuttingDown = true;
+        tryTerminate();
+        return terminationFuture();
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return terminationFuture;
+    }
+
+    @Override
+    @Deprecated
+    public void shutdown() {
+        shutdownGracefully();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shuttingDown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminationFuture.isDone();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminationFuture.await(timeout, unit);
+    }
+
+    /**
+     * Starts a thread which drains the tasks of the given executor.
+     */
+    void submit(VirtualThreadOrderedEventExecutor drain) {
+        // Count the drain before looking at the state, so either shutdownGracefully() sees it and waits for it to
+        // end, or it is rejected here.
+        activeExecutors.incrementAndGet();
+        if (shuttingDown) {
+            drainEnded();
+            throw new RejectedExecutionException("event executor group shut down");
+        }
+        try {
+            executor.execute(drain);
+        } catch (Throwable cause) {
+            drainEnded();
+            if (cause instanceof RejectedExecutionException) {
+                throw (RejectedExecutionException) cause;
+            }
+            throw new RejectedExecutionException(cause);
+        }
+    }
+
+    void drainEnded() {
+        if (activeExecutors.decrementAndGet() == 0) {
+            tryTerminate();
+        }
+    }
+
+    private void tryTerminate() {
+        if (shuttingDown && activeExecutors.get() == 0 && terminationFuture.trySuccess(null)
+                && ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private static ThreadFactory newVirtualThreadFactory(Method ofVirtual, Method builderName, Method builderFactory,
+                                                         String prefix) {
+        try {
+            Object builder = builderName.invoke(ofVirtual.invoke(null), prefix, 0L);
+            return (ThreadFactory) builderFactory.invoke(builder);
+        } catch (Exception e) {
+            throw new IllegalStateException("failed to create a virtual thread factory", e);
+        }
+    }
+
+    private static final class VirtualThreadOrderedEventExecutor extends AbstractEventExecutor
+            implements Runnable, OrderedEventExecutor {
+        private static final int NONE = 0;
+        private static final int SUBMITTED = 1;
+        private static final int RUNNING = 2;
+
+        private final VirtualThreadEventExecutorGroup group;
+        private final Queue<Runnable> tasks = PlatformDependent.newMpscQueue();
+        private final AtomicInteger state = new AtomicInteger();
+        private volatile Thread thread;
+
+        VirtualThreadOrderedEventExecutor(VirtualThreadEventExecutorGroup group) {
+            super(group);
+            this.group = group;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!state.compareAndSet(SUBMITTED, RUNNING)) {
+                    return;
+                }
+                thread = Thread.currentThread();
+                for (;;) {
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        safeExecute(task);
+                    }
+                    thread = null;
+                    state.set(NONE);
+                    // Same as in NonStickyEventExecutorGroup: a producer which enqueued a task in between the poll()
+                    // and the set(NONE) either submits this executor again itself, or it did not see the state change,
+                    // in which case the compareAndSet(NONE, RUNNING) succeeds and this thread keeps on draining.
+                    if (tasks.isEmpty() || !state.compareAndSet(NONE, RUNNING)) {
+                        return;
+                    }
+                    thread = Thread.currentThread();
+                }
+            } finally {
+                group.drainEnded();
+            }
+        }
+
+        @Override
+        public boolean inEventLoop(Thread thread) {
+            return thread == this.thread;
+        }
+
+        @Override
+        public boolean isShuttingDown() {
+            return group.isShuttingDown();
+        }
+
+        @Override
+        public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+            return group.shutdownGracefully(quietPeriod, timeout, unit);
+        }
+
+        @Override
+        public Future<?> terminationFuture() {
+            return group.terminationFuture();
+        }
+
+        @Override
+        @Deprecated
+        public void shutdown() {
+            group.shutdown();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return group.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return group.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return group.awaitTermination(timeout, unit);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            ObjectUtil.checkNotNull(command, "command");
+            if (group.isShuttingDown()) {
+                throw new RejectedExecutionException("event executor group shut down");
+            }
+            if (!tasks.offer(command)) {
+                throw new RejectedExecutionException();
+            }
+            if (state.compareAndSet(NONE, SUBMITTED)) {
+                try {
+                    group.submit(this);
+                } catch (RejectedExecutionException e) {
+                    state.set(NONE);
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            ObjectUtil.checkNotNull(command, "command");
+            ObjectUtil.checkNotNull(unit, "unit");
+            return schedule(new VirtualScheduledTask<Void>(this, command, deadline(delay, unit), 0));
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            ObjectUtil.checkNotNull(callable, "callable");
+            ObjectUtil.checkNotNull(unit, "unit");
+            return schedule(new VirtualScheduledTask<V>(this, callable, deadline(delay, unit)));
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period,
+                                                      TimeUnit unit) {
+            ObjectUtil.checkNotNull(command, "command");
+            ObjectUtil.checkNotNull(unit, "unit");
+            ObjectUtil.checkPositiveOrZero(initialDelay, "initialDelay");
+            ObjectUtil.checkPositive(period, "period");
+            return schedule(new VirtualScheduledTask<Void>(
+                    this, command, deadline(initialDelay, unit), unit.toNanos(period)));
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                         TimeUnit unit) {
+            ObjectUtil.checkNotNull(command, "command");
+            ObjectUtil.checkNotNull(unit, "unit");
+            ObjectUtil.checkPositiveOrZero(initialDelay, "initialDelay");
+            ObjectUtil.checkPositive(delay, "delay");
+            return schedule(new VirtualScheduledTask<Void>(
+                    this, command, deadline(initialDelay, unit), -unit.toNanos(delay)));
+        }
+
+        private <V> ScheduledFuture<V> schedule(VirtualScheduledTask<V> task) {
+            if (group.isShuttingDown()) {
+                throw new RejectedExecutionException("event executor group shut down");
+            }
+            task.arm();
+            return task;
+        }
+
+        private static long deadline(long delay, TimeUnit unit) {
+            return deadlineNanos(defaultCurrentTimeNanos(), unit.toNanos(Math.max(0, delay)));
+        }
+    }
+
+    /**
+     * A task scheduled on a {@link VirtualThreadOrderedEventExecutor}. It waits on a timer of the
+     * {@link GlobalEventExecutor}, which executes it on its executor once it is due.
+     */
+    private static final class VirtualScheduledTask<V> extends PromiseTask<V> implements ScheduledFuture<V> {
+        // 0 for a one-shot task, > 0 for a fixed rate and < 0 for a fixed delay, like in ScheduledFutureTask.
+        private final long periodNanos;
+        private final Runnable timerTask = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor().execute(VirtualScheduledTask.this);
+                } catch (RejectedExecutionException e) {
+                    tryFailureInternal(e);
+                }
+            }
+        };
+        private volatile long deadlineNanos;
+        private volatile Future<?> timer;
+
+        VirtualScheduledTask(EventExecutor executor, Runnable runnable, long deadlineNanos, long periodNanos) {
+            super(executor, runnable);
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+        }
+
+        VirtualScheduledTask(EventExecutor executor, Callable<V> callable, long deadlineNanos) {
+            super(executor, callable);
+            this.deadlineNanos = deadlineNanos;
+            periodNanos = 0;
+        }
+
+        void arm() {
+            if (!isCancelled()) {
+                timer = GlobalEventExecutor.INSTANCE.schedule(
+                        timerTask, deadlineNanos - defaultCurrentTimeNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (periodNanos == 0) {
+                super.run();
+                return;
+            }
+            try {
+                if (!isCancelled()) {
+                    runTask();
+                    if (periodNanos > 0) {
+                        deadlineNanos += periodNanos;
+                    } else {
+                        deadlineNanos = defaultCurrentTimeNanos() - periodNanos;
+                    }
+                    arm();
+                }
+            } catch (Throwable cause) {
+                tryFailureInternal(cause);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                Future<?> timer = this.timer;
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+            }
+            return cancelled;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(0, deadlineNanos - defaultCurrentTimeNanos()), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            if (this == o) {
+                return 0;
+            }
+            long d = getDelay(TimeUnit.NANOSECONDS) - o.getDelay(TimeUnit.NANOSECONDS);
+            return d < 0 ? -1 : d > 0 ? 1 : 0;
+        }
+    }
+}
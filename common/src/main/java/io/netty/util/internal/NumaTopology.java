@@ -0,0 +1,254 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+import io.netty.util.CharsetUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The NUMA nodes of the machine and the CPUs that belong to them, as reported by Linux in {@code /sys}.
+ */
+public final class NumaTopology {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(NumaTopology.class);
+
+    private static final String NODE_DIR = "/sys/devices/system/node";
+    private static final String THREAD_STAT = "/proc/thread-self/stat";
+    // The index of the CPU the thread last ran on in /proc/[pid]/task/[tid]/stat, counting from the field after the
+    // command name. See proc(5).
+    private static final int STAT_PROCESSOR_INDEX = 36;
+    // CPU_SETSIZE of glibc. Bounding the CPU ids keeps a bogus range from looping or allocating for a long time.
+    private static final int MAX_CPUS = 1024;
+
+    private static final NumaTopology CURRENT = discover();
+
+    private final int numNodes;
+    private final int[] cpuToNode;
+
+    private NumaTopology(int numNodes, int[] cpuToNode) {
+        this.numNodes = numNodes;
+        this.cpuToNode = cpuToNode;
+    }
+
+    /**
+     * Returns the topology of this machine, or {@code null} if it is unknown.
+     */
+    public static NumaTopology current() {
+        return CURRENT;
+    }
+
+    /**
+     * Create a topology from the CPU lists of the nodes, in the format of
+     * {@code /sys/devices/system/node/nodeN/cpulist} (for example {@code 0-3,8-11}). The index in the array is the node
+     * id, {@code null} marks a missing node. All CPUs must be below {@code 1024}.
+     */
+    public static NumaTopology of(String... cpuLists) {
+        List<int[]> nodes = new ArrayList<int[]>(cpuLists.length);
+        int maxCpu = -1;
+        for (String cpuList : cpuLists) {
+            int[] cpus = cpuList == null ? EmptyArrays.EMPTY_INTS : parseCpuList(cpuList);
+            for (int cpu : cpus) {
+                maxCpu = Math.max(maxCpu, cpu);
+            }
+            nodes.add(cpus);
+        }
+        int[] cpuToNode = new int[maxCpu + 1];
+        Arrays.fill(cpuToNode, -1);
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int cpu : nodes.get(node)) {
+                cpuToNode[cpu] = node;
+            }
+        }
+        return new NumaTopology(cpuLists.length, cpuToNode);
+    }
+
+    /**
+     * Returns the number of nodes, including missing ones so that every node id is lower than this.
+     */
+    public int numNodes() {
+        return numNodes;
+    }
+
+    /**
+     * Returns the node of the given CPU, or {@code -1} if it is unknown.
+     */
+    public int nodeOf(int cpu) {
+        return cpu >= 0 && cpu < cpuToNode.length ? cpuToNode[cpu] : -1;
+    }
+
+    /**
+     * Returns the node of the CPU the calling thread currently runs on, or {@code -1} if it is unknown.
+     */
+    public int currentNode() {
+        return nodeOf(currentCpu());
+    }
+
+    /**
+     * Returns the CPU the calling thread currently runs on, or {@code -1} if it is unknown. This reads
+     * {@code /proc/thread-self/stat} and so should not be called on a hot path.
+     */
+    public static int currentCpu() {
+        String stat = readFirstLine(new File(THREAD_STAT));
+        if (stat == null) {
+            return -1;
+        }
+        // The command name may contain spaces, so start after its closing parenthesis.
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 1).trim().split(" ");
+        if (fields.length <= STAT_PROCESSOR_INDEX) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(fields[STAT_PROCESSOR_INDEX]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses a CPU list like {@code 0-3,8,10-11}, as used by the kernel and {@code taskset}, into the CPUs it contains
+     * in ascending order. All CPUs must be below {@code 1024}.
+     *
+     * @throws IllegalArgumentException if the list is malformed or contains a CPU that is out of range.
+     */
+    public static int[] parseCpuList(String cpuList) {
+        boolean[] contained = new boolean[MAX_CPUS];
+        int count = 0;
+        for (String range : cpuList.trim().split(",")) {
+            range = range.trim();
+            if (range.isEmpty()) {
+                continue;
+            }
+            int dash = range.indexOf('-');
+            int first;
+            int last;
+            try {
+                if (dash < 0) {
+                    first = last = checkCpu(Integer.parseInt(range));
+                } else {
+                    first = checkCpu(Integer.parseInt(range.substring(0, dash).trim()));
+                    last = checkCpu(Integer.parseInt(range.substring(dash + 1).trim()));
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid CPU list: " + cpuList, e);
+            }
+            if (first > last) {
+                throw new IllegalArgumentException("invalid CPU range: " + range);
+            }
+            for (int cpu = first; cpu <= last; cpu++) {
+                if (!contained[cpu]) {
+                    contained[cpu] = true;
+                    count++;
+                }
+            }
+        }
+        int[] result = new int[count];
+        for (int cpu = 0, i = 0; i < count; cpu++) {
+            if (contained[cpu]) {
+                result[i++] = cpu;
+            }
+        }
+        return result;
+    }
+
+    private static int checkCpu(int cpu) {
+        if (cpu < 0 || cpu >= MAX_CPUS) {
+            throw new IllegalArgumentException("cpu: " + cpu + " (expected: 0-" + (MAX_CPUS - 1) + ')');
+        }
+        return cpu;
+    }
+
+    private static NumaTopology discover() {
+        if (!"linux".equals(PlatformDependent.normalizedOs())) {
+            return null;
+        }
+        String[] nodeNames = AccessController.doPrivileged(new PrivilegedAction<String[]>() {
+            @Override
+            public String[] run() {
+                try {
+                    return new File(NODE_DIR).list();
+                } catch (SecurityException e) {
+                    logger.debug("Unable to list {}", NODE_DIR, e);
+                    return null;
+                }
+            }
+        });
+        if (nodeNames == null) {
+            return null;
+        }
+        List<String> cpuLists = new ArrayList<String>();
+        for (String name : nodeNames) {
+            if (!name.matches("node[0-9]+")) {
+                continue;
+            }
+            int node = Integer.parseInt(name.substring(4));
+            String cpuList = readFirstLine(new File(NODE_DIR + '/' + name + "/cpulist"));
+            while (cpuLists.size() <= node) {
+                cpuLists.add(null);
+            }
+            cpuLists.set(node, cpuList);
+        }
+        if (cpuLists.isEmpty()) {
+            return null;
+        }
+        try {
+            NumaTopology topology = of(cpuLists.toArray(new String[0]));
+            logger.debug("NUMA nodes: {}", topology.numNodes());
+            return topology;
+        } catch (IllegalArgumentException e) {
+            logger.debug("Unable to parse the CPU lists of the NUMA nodes", e);
+            return null;
+        }
+    }
+
+    private static String readFirstLine(final File file) {
+        return AccessController.doPrivileged(new PrivilegedAction<String>() {
+            @Override
+            public String run() {
+                BufferedReader reader = null;
+                try {
+                    reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CharsetUtil.UTF_8));
+                    return reader.readLine();
+                } catch (SecurityException e) {
+                    logger.debug("Unable to read {}", file, e);
+                    return null;
+                } catch (IOException e) {
+                    logger.debug("Error while reading content of {}", file, e);
+                    return null;
+                } finally {
+                    if (reader != null) {
+                        try {
+                            reader.close();
+                        } catch (IOException ignored) {
+                            // Ignore
+                        }
+                    }
+                }
+            }
+        });
+    }
+}
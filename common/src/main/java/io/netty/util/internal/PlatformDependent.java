@@ -719,6 +719,10 @@ public final class PlatformDependent {
         PlatformDependent0.putByte(data, offset, value);
     }
 
+    public static void putLong(Object data, long offset, long value) {
+        PlatformDependent0.putLong(data, offset, value);
+    }
+
     public static void putShort(byte[] data, int index, short value) {
         PlatformDependent0.putShort(data, index, value);
     }
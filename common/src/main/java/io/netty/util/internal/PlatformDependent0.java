@@ -703,6 +703,10 @@ final class PlatformDependent0 {
         UNSAFE.putByte(data, offset, value);
     }
 
+    static void putLong(Object data, long offset, long value) {
+        UNSAFE.putLong(data, offset, value);
+    }
+
     static void putShort(byte[] data, int index, short value) {
         UNSAFE.putShort(data, BYTE_ARRAY_BASE_OFFSET + index, value);
     }
@@ -15,6 +15,23 @@ void convertSources(String templateDir, String outputDir) {
     keyPrimitives.eachWithIndex { keyPrimitive, i ->
         convertTemplates templateDir, outputDir, keyPrimitive, keyObjects[i], keyNumberMethod[i]
     }
+
+    // The primitive to primitive maps are only generated for int and long keys and values.
+    String[] pairPrimitives = ["int", "long"]
+    String[] pairObjects = ["Integer", "Long"]
+    String[] pairNumberMethod = ["intValue", "longValue"]
+
+    pairPrimitives.eachWithIndex { keyPrimitive, i ->
+        pairPrimitives.eachWithIndex { valuePrimitive, j ->
+            convertPairTemplates templateDir, outputDir,
+                    keyPrimitive, pairObjects[i], pairNumberMethod[i],
+                    valuePrimitive, pairObjects[j], pairNumberMethod[j]
+        }
+    }
+}
+
+String hashCodeFn(String primitive, String name) {
+    return primitive.equals("long") ? "(int) (" + name + " ^ (" + name + " >>> 32))" : "(int) " + name
 }
 
 void convertTemplates(String templateDir,
@@ -25,18 +42,50 @@ void convertTemplates(String templateDir,
     def keyName = keyPrimitive.capitalize()
     def replaceFrom = "(^.*)K([^.]+)\\.template\$"
     def replaceTo = "\\1" + keyName + "\\2.java"
-    def hashCodeFn = keyPrimitive.equals("long") ? "(int) (key ^ (key >>> 32))" : "(int) key"
     ant.copy(todir: outputDir) {
         fileset(dir: templateDir) {
             include(name: "**/*.template")
+            exclude(name: "**/KV*.template")
         }
         filterset() {
             filter(token: "K", value: keyName)
             filter(token: "k", value: keyPrimitive)
             filter(token: "O", value: keyObject)
             filter(token: "KEY_NUMBER_METHOD", value: keyNumberMethod)
-            filter(token: "HASH_CODE", value: hashCodeFn)
+            filter(token: "HASH_CODE", value: hashCodeFn(keyPrimitive, "key"))
         }
         regexpmapper(from: replaceFrom, to: replaceTo)
     }
-}
\ No newline at end of file
+}
+
+void convertPairTemplates(String templateDir,
+                          String outputDir,
+                          String keyPrimitive,
+                          String keyObject,
+                          String keyNumberMethod,
+                          String valuePrimitive,
+                          String valueObject,
+                          String valueNumberMethod) {
+    def keyName = keyPrimitive.capitalize()
+    def valueName = valuePrimitive.capitalize()
+    def replaceFrom = "(^.*)KV([^.]+)\\.template\$"
+    def replaceTo = "\\1" + keyName + valueName + "\\2.java"
+    ant.copy(todir: outputDir) {
+        fileset(dir: templateDir) {
+            include(name: "**/KV*.template")
+        }
+        filterset() {
+            filter(token: "K", value: keyName)
+            filter(token: "k", value: keyPrimitive)
+            filter(token: "O", value: keyObject)
+            filter(token: "KEY_NUMBER_METHOD", value: keyNumberMethod)
+            filter(token: "HASH_CODE", value: hashCodeFn(keyPrimitive, "key"))
+            filter(token: "V", value: valueName)
+            filter(token: "v", value: valuePrimitive)
+            filter(token: "VO", value: valueObject)
+            filter(token: "VALUE_NUMBER_METHOD", value: valueNumberMethod)
+            filter(token: "VALUE_HASH_CODE", value: hashCodeFn(valuePrimitive, "value"))
+        }
+        regexpmapper(from: replaceFrom, to: replaceTo)
+    }
+}
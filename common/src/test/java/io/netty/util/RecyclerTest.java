@@ -19,7 +19,11 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.function.Executable;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -327,6 +331,113 @@ public class RecyclerTest {
         assertNotSame(recycler.get(), o2);
     }
 
+    @Test
+    public void testRecycleBatchAtDifferentThread() throws Exception {
+        final Recycler<HandledObject> recycler = newRecycler(256, 0, 16);
+        final HandledObject[] array = new HandledObject[100];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = recycler.get();
+        }
+
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                for (HandledObject object : array) {
+                    object.recycle();
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+
+        // The full magazines and the partially filled last one are all visible to the owner.
+        assertEquals(array.length, recycler.threadLocalSize());
+        Set<HandledObject> objects = Collections.newSetFromMap(new IdentityHashMap<HandledObject, Boolean>());
+        objects.addAll(Arrays.asList(array));
+        for (int i = 0; i < array.length; i++) {
+            assertTrue(objects.remove(recycler.get()));
+        }
+        assertEquals(0, recycler.threadLocalSize());
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testIdleMagazinesDoNotStarveOtherThreads() throws Exception {
+        // There is room for two magazines of 8 handles each.
+        final Recycler<HandledObject> recycler = newRecycler(16, 0, 8);
+        HandledObject first = recycler.get();
+        HandledObject second = recycler.get();
+        HandledObject third = recycler.get();
+
+        // Two threads each recycle one object and then stay alive, holding on to a partially filled magazine.
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread firstThread = recycleAndWait(first, done);
+        Thread secondThread = recycleAndWait(second, done);
+        try {
+            assertSame(first, recycler.get());
+            // Scavenging again finds the first magazine idle, so its capacity is given back.
+            assertSame(second, recycler.get());
+            assertNotSame(third, recycler.get());
+
+            Thread thirdThread = recycleAndWait(third, done);
+            try {
+                assertSame(third, recycler.get());
+            } finally {
+                done.countDown();
+                thirdThread.join();
+            }
+        } finally {
+            done.countDown();
+            firstThread.join();
+            secondThread.join();
+        }
+    }
+
+    private static Thread recycleAndWait(final HandledObject object, final CountDownLatch done)
+            throws InterruptedException {
+        final CountDownLatch recycled = new CountDownLatch(1);
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                object.recycle();
+                recycled.countDown();
+                try {
+                    done.await();
+                } catch (InterruptedException ignore) {
+                    // Just exit.
+                }
+            }
+        };
+        thread.start();
+        recycled.await();
+        return thread;
+    }
+
+    @Test
+    public void testShrinkAfterBurst() {
+        final int maxCapacity = 1024;
+        Recycler<HandledObject> recycler = newRecycler(maxCapacity, 0, 16);
+        HandledObject[] burst = new HandledObject[maxCapacity];
+        for (int i = 0; i < burst.length; i++) {
+            burst[i] = recycler.get();
+        }
+        for (HandledObject object : burst) {
+            object.recycle();
+        }
+        assertEquals(maxCapacity, recycler.threadLocalSize());
+
+        // Only one object is in use at a time, so the rest of the pool should be dropped over time.
+        for (int i = 0; i < maxCapacity * 16; i++) {
+            recycler.get().recycle();
+        }
+        assertThat(recycler.threadLocalSize()).isBetween(1, 2);
+
+        // The objects which are left are still reused.
+        HandledObject object = recycler.get();
+        object.recycle();
+        assertSame(object, recycler.get());
+    }
+
     @Test
     public void testRecycleAtTwoThreadsMulti() throws Exception {
         final Recycler<HandledObject> recycler = newRecycler(256);
@@ -19,6 +19,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.CyclicBarrier;
@@ -132,6 +135,51 @@ public class ResourceLeakDetectorTest {
         DefaultResource.detectorWithSetupHint.track(resource);
     }
 
+    @Timeout(20)
+    @Test
+    public void testSiteLevelCountsLeaksAndRecordsAccessesAfterFirstLeak() {
+        ResourceLeakDetector.Level level = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.SITE);
+        try {
+            SiteLeakDetector<Resource> detector = new SiteLeakDetector<Resource>(Resource.class);
+            for (int i = 0; i < 2; i++) {
+                // Always leak from the same line, so that both leaks have the same allocation site.
+                leakTouchedResource(detector);
+
+                do {
+                    // Trigger GC.
+                    System.gc();
+                    // Track another resource to trigger refqueue visiting.
+                    Resource resource2 = new DefaultResource();
+                    detector.track(resource2).close(resource2);
+                    // Give the GC something to work on.
+                    for (int j = 0; j < 1000; j++) {
+                        sink = System.identityHashCode(new byte[10000]);
+                    }
+                } while (detector.reports.size() <= i && !Thread.interrupted());
+            }
+
+            assertThat(detector.reports).hasSize(2);
+            // The site had not leaked yet, so only the creation is recorded.
+            assertThat(detector.reports.get(0))
+                    .contains("Created at:")
+                    .doesNotContain("touched-by-test")
+                    .contains("1 leaks were found for this allocation site");
+            assertThat(detector.reports.get(1))
+                    .contains("Created at:")
+                    .contains("touched-by-test")
+                    .contains("2 leaks were found for this allocation site");
+        } finally {
+            ResourceLeakDetector.setLevel(level);
+        }
+    }
+
+    private static void leakTouchedResource(ResourceLeakDetector<Resource> detector) {
+        Resource resource = new DefaultResource();
+        // We'll never close this ResourceLeakTracker.
+        detector.track(resource).record("touched-by-test");
+    }
+
     // Mimic the way how we implement our classes that should help with leak detection
     private static final  class LeakAwareResource implements Resource {
         private final Resource resource;
@@ -209,6 +257,29 @@ public class ResourceLeakDetectorTest {
         }
     }
 
+    private static final class SiteLeakDetector<T> extends ResourceLeakDetector<T> {
+        final List<String> reports = Collections.synchronizedList(new ArrayList<String>());
+
+        SiteLeakDetector(Class<?> resourceType) {
+            super(resourceType, 1);
+        }
+
+        @Override
+        protected boolean needReport() {
+            return true;
+        }
+
+        @Override
+        protected void reportTracedLeak(String resourceType, String records) {
+            reports.add(records);
+        }
+
+        @Override
+        protected void reportUntracedLeak(String resourceType) {
+            reports.add("untraced");
+        }
+    }
+
     private static final class CreationRecordLeakDetector<T> extends ResourceLeakDetector<T> {
         private String canaryString;
 
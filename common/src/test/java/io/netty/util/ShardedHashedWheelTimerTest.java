@@ -0,0 +1,245 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class ShardedHashedWheelTimerTest {
+
+    private static ShardedHashedWheelTimer newTimer(int shards, boolean executeOnSchedulingExecutor) {
+        return new ShardedHashedWheelTimer(Executors.defaultThreadFactory(), shards, 10, TimeUnit.MILLISECONDS, 64,
+                executeOnSchedulingExecutor);
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testTimeoutsFromManyThreadsExpire() throws InterruptedException {
+        final ShardedHashedWheelTimer timer = newTimer(3, false);
+        final int threads = 8;
+        final int timeoutsPerThread = 1000;
+        final CountDownLatch latch = new CountDownLatch(threads * timeoutsPerThread);
+        final TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                latch.countDown();
+            }
+        };
+        List<Thread> schedulers = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < timeoutsPerThread; j++) {
+                        timer.newTimeout(task, j % 50, TimeUnit.MILLISECONDS);
+                    }
+                }
+            });
+            schedulers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : schedulers) {
+            thread.join();
+        }
+
+        latch.await();
+        assertEquals(0, timer.pendingTimeouts());
+        assertTrue(timer.stop().isEmpty());
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testCancelledTimeoutsDoNotRun() throws InterruptedException {
+        ShardedHashedWheelTimer timer = newTimer(2, false);
+        final AtomicBoolean cancelledRun = new AtomicBoolean();
+        TimerTask cancelledTask = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                cancelledRun.set(true);
+            }
+        };
+        // More than a batch, so some are removed before their deadline and the rest when the wheel reaches them.
+        List<Timeout> cancelled = new ArrayList<Timeout>();
+        for (int i = 0; i < 100; i++) {
+            cancelled.add(timer.newTimeout(cancelledTask, 50, TimeUnit.MILLISECONDS));
+        }
+        final CountDownLatch latch = new CountDownLatch(1);
+        Timeout expired = timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                latch.countDown();
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+        assertEquals(101, timer.pendingTimeouts());
+
+        for (Timeout timeout : cancelled) {
+            assertTrue(timeout.cancel());
+            assertFalse(timeout.cancel());
+            assertTrue(timeout.isCancelled());
+        }
+        assertEquals(1, timer.pendingTimeouts());
+
+        latch.await();
+        assertTrue(expired.isExpired());
+        assertFalse(expired.cancel());
+        assertFalse(cancelledRun.get());
+        assertEquals(0, timer.pendingTimeouts());
+        timer.stop();
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testPartialCancelBatchIsHandedOverAfterTick() throws InterruptedException {
+        ShardedHashedWheelTimer timer = newTimer(1, false);
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                fail();
+            }
+        };
+        WeakReference<TimerTask> taskRef = new WeakReference<TimerTask>(task);
+        // Far behind the first wheel round, so only the cancelled batch can take it out of the wheel in time.
+        assertTrue(timer.newTimeout(task, 1, TimeUnit.HOURS).cancel());
+        task = null;
+
+        TimerTask noop = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                // NOOP
+            }
+        };
+        while (taskRef.get() != null) {
+            Thread.sleep(10);
+            // Hands the batch of a single timeout over once the wheel has ticked.
+            timer.newTimeout(noop, 0, TimeUnit.MILLISECONDS);
+            System.gc();
+        }
+        timer.stop();
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testStopReturnsUnprocessedTimeouts() {
+        final ShardedHashedWheelTimer timer = newTimer(2, false);
+        final TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                fail("This should not have run");
+            }
+        };
+        Timeout first = timer.newTimeout(task, 10, TimeUnit.SECONDS);
+        Timeout second = timer.newTimeout(task, 20, TimeUnit.SECONDS);
+        Timeout cancelled = timer.newTimeout(task, 30, TimeUnit.SECONDS);
+        assertTrue(cancelled.cancel());
+
+        Set<Timeout> unprocessed = timer.stop();
+        assertEquals(2, unprocessed.size());
+        assertTrue(unprocessed.contains(first));
+        assertTrue(unprocessed.contains(second));
+        assertTrue(timer.stop().isEmpty());
+        assertThrows(IllegalStateException.class, new Executable() {
+            @Override
+            public void execute() {
+                timer.newTimeout(task, 1, TimeUnit.SECONDS);
+            }
+        });
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testStopFromTimerTask() throws InterruptedException {
+        final ShardedHashedWheelTimer timer = newTimer(1, false);
+        final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                try {
+                    timer.stop();
+                } catch (Throwable t) {
+                    cause.set(t);
+                }
+                latch.countDown();
+            }
+        }, 1, TimeUnit.MILLISECONDS);
+        latch.await();
+        assertTrue(cause.get() instanceof IllegalStateException);
+        timer.stop();
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testExecuteOnSchedulingExecutor() throws Exception {
+        final ShardedHashedWheelTimer timer = newTimer(2, true);
+        final EventExecutor executor = new DefaultEventExecutor();
+        try {
+            final CountDownLatch latch = new CountDownLatch(2);
+            final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+            final TimerTask task = new TimerTask() {
+                @Override
+                public void run(Timeout timeout) {
+                    if (!executor.inEventLoop()) {
+                        cause.set(new AssertionError("not run by the scheduling executor"));
+                    }
+                    latch.countDown();
+                }
+            };
+            executor.submit(new Callable<Timeout>() {
+                @Override
+                public Timeout call() {
+                    return timer.newTimeout(task, 10, TimeUnit.MILLISECONDS);
+                }
+            }).sync();
+
+            // Scheduled from outside of an executor, so the worker runs it.
+            final AtomicBoolean ranOnExecutor = new AtomicBoolean(true);
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) {
+                    ranOnExecutor.set(executor.inEventLoop());
+                    latch.countDown();
+                }
+            }, 10, TimeUnit.MILLISECONDS);
+
+            latch.await();
+            assertNull(cause.get());
+            assertFalse(ranOnExecutor.get());
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+            timer.stop();
+        }
+    }
+}
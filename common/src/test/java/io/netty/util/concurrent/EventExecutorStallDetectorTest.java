@@ -0,0 +1,168 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EventExecutorStallDetectorTest {
+
+    private EventExecutorStallDetector detector;
+    private DefaultEventExecutor executor;
+    private RecordingListener listener;
+
+    @BeforeEach
+    public void setUp() {
+        detector = new EventExecutorStallDetector(100, 50, TimeUnit.MILLISECONDS);
+        listener = new RecordingListener();
+        detector.addListener(listener);
+        executor = new DefaultEventExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        detector.stop();
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testBlockingTask() throws Exception {
+        detector.monitor(executor);
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                blockingCall();
+            }
+        }).sync();
+        listener.ended.await();
+
+        assertEquals(1, detector.stalls());
+        // Sampled once at the threshold, and then every 50ms while the task sleeps for 500ms.
+        assertThat(detector.stackSamples(), greaterThanOrEqualTo(3L));
+        assertEquals(detector.stackSamples(), listener.stackTraces.size());
+        for (StackTraceElement[] stackTrace : listener.stackTraces) {
+            assertTrue(contains(stackTrace, "blockingCall"));
+        }
+        assertSame(executor, listener.executor);
+        assertThat(listener.stalledNanos, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100)));
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testIdleAndShortTasksAreNotStalls() throws Exception {
+        detector.monitor(executor);
+        // Idle before its thread is started, and after it ran a task.
+        Thread.sleep(200);
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).sync();
+        Thread.sleep(200);
+
+        // Busy for a longer time than the threshold, but every task is shorter.
+        for (int i = 0; i < 30; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).sync();
+
+        assertEquals(0, detector.stalls());
+        assertTrue(listener.stackTraces.isEmpty());
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testMonitorGroup() throws Exception {
+        DefaultEventExecutorGroup group = new DefaultEventExecutorGroup(2);
+        try {
+            detector.monitor(group);
+            group.next().submit(new Runnable() {
+                @Override
+                public void run() {
+                    blockingCall();
+                }
+            }).sync();
+            listener.ended.await();
+            assertEquals(1, detector.stalls());
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void blockingCall() {
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean contains(StackTraceElement[] stackTrace, String methodName) {
+        for (StackTraceElement element : stackTrace) {
+            if (methodName.equals(element.getMethodName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class RecordingListener implements EventExecutorStallListener {
+        final List<StackTraceElement[]> stackTraces = new CopyOnWriteArrayList<StackTraceElement[]>();
+        final CountDownLatch ended = new CountDownLatch(1);
+        volatile SingleThreadEventExecutor executor;
+        volatile long stalledNanos;
+
+        @Override
+        public void stallDetected(SingleThreadEventExecutor executor, long stalledNanos,
+                                  StackTraceElement[] stackTrace) {
+            stackTraces.add(stackTrace);
+        }
+
+        @Override
+        public void stallEnded(SingleThreadEventExecutor executor, long stalledNanos) {
+            this.executor = executor;
+            this.stalledNanos = stalledNanos;
+            ended.countDown();
+        }
+    }
+}
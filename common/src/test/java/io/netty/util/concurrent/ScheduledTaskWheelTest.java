@@ -0,0 +1,271 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.DefaultPriorityQueue;
+import io.netty.util.internal.PriorityQueueNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScheduledTaskWheelTest {
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @Test
+    public void testSameOrderAsBinaryHeap() {
+        TestScheduledEventExecutor executor = new TestScheduledEventExecutor();
+        Random random = new Random(42);
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(executor, 1000);
+        DefaultPriorityQueue<ScheduledFutureTask<?>> heap = new DefaultPriorityQueue<ScheduledFutureTask<?>>(
+                AbstractScheduledEventExecutor.SCHEDULED_FUTURE_TASK_COMPARATOR, 11);
+        // The same tasks twice, as a task can only be in one queue at a time.
+        List<ScheduledFutureTask<?>> wheelTasks = new ArrayList<ScheduledFutureTask<?>>();
+        List<ScheduledFutureTask<?>> heapTasks = new ArrayList<ScheduledFutureTask<?>>();
+        Map<ScheduledFutureTask<?>, Integer> twins = new IdentityHashMap<ScheduledFutureTask<?>, Integer>();
+
+        long now = 0;
+        for (int id = 1; id < 200000; id++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    // Delays from sub-tick up to hours, and some equal deadlines.
+                    long deadline = now + (random.nextLong() & Long.MAX_VALUE) % (1L << random.nextInt(44));
+                    ScheduledFutureTask<?> wheelTask = newTask(executor, deadline, id);
+                    ScheduledFutureTask<?> heapTask = newTask(executor, deadline, id);
+                    assertTrue(wheel.offer(wheelTask));
+                    assertTrue(heap.offer(heapTask));
+                    twins.put(wheelTask, id);
+                    twins.put(heapTask, id);
+                    wheelTasks.add(wheelTask);
+                    heapTasks.add(heapTask);
+                    break;
+                case 2:
+                    if (!wheelTasks.isEmpty()) {
+                        int index = random.nextInt(wheelTasks.size());
+                        assertEquals(heap.removeTyped(heapTasks.get(index)),
+                                wheel.removeTyped(wheelTasks.get(index)));
+                        assertFalse(wheel.containsTyped(wheelTasks.get(index)));
+                    }
+                    break;
+                default:
+                    ScheduledFutureTask<?> expected = heap.poll();
+                    ScheduledFutureTask<?> actual = wheel.poll();
+                    if (expected == null) {
+                        assertNull(actual);
+                    } else {
+                        assertEquals(expected.deadlineNanos(), actual.deadlineNanos());
+                        assertEquals(twins.get(expected), twins.get(actual));
+                        now = Math.max(now, actual.deadlineNanos());
+                        executor.nanoTime = now;
+                    }
+                    break;
+            }
+            assertEquals(heap.size(), wheel.size());
+        }
+
+        for (ScheduledFutureTask<?> expected; (expected = heap.poll()) != null;) {
+            ScheduledFutureTask<?> actual = wheel.poll();
+            assertEquals(twins.get(expected), twins.get(actual));
+        }
+        assertTrue(wheel.isEmpty());
+        assertNull(wheel.peek());
+    }
+
+    @Test
+    public void testScheduleAndCancel() {
+        TestScheduledEventExecutor executor = new TestScheduledEventExecutor();
+        executor.scheduledTaskQueue = new ScheduledTaskWheel(executor, TimeUnit.MILLISECONDS.toNanos(1));
+
+        ScheduledFuture<?> later = executor.schedule(NOOP, 10, TimeUnit.SECONDS);
+        ScheduledFuture<?> cancelled = executor.schedule(NOOP, 1, TimeUnit.SECONDS);
+        ScheduledFuture<?> first = executor.schedule(NOOP, 1, TimeUnit.SECONDS);
+        // Shorter than the tick, but still run in order.
+        ScheduledFuture<?> subTick = executor.schedule(NOOP, 100, TimeUnit.MICROSECONDS);
+        assertEquals(4, executor.scheduledTaskQueue.size());
+        assertTrue(cancelled.cancel(false));
+        assertEquals(3, executor.scheduledTaskQueue.size());
+
+        assertNull(executor.pollScheduledTask());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(100), executor.nextScheduledTaskNano());
+        executor.nanoTime += TimeUnit.MICROSECONDS.toNanos(100);
+        assertSame(subTick, executor.pollScheduledTask());
+        assertNull(executor.pollScheduledTask());
+        assertEquals(TimeUnit.SECONDS.toNanos(1), executor.nextScheduledTaskDeadlineNanos());
+
+        executor.nanoTime = TimeUnit.SECONDS.toNanos(5);
+        assertSame(first, executor.pollScheduledTask());
+        assertNull(executor.pollScheduledTask());
+        assertEquals(TimeUnit.SECONDS.toNanos(10), executor.nextScheduledTaskDeadlineNanos());
+
+        executor.cancelScheduledTasks();
+        assertTrue(later.isCancelled());
+        assertTrue(executor.scheduledTaskQueue.isEmpty());
+    }
+
+    @Test
+    public void testRemoveEarliestRepeatedly() {
+        TestScheduledEventExecutor executor = new TestScheduledEventExecutor();
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(executor, 1000);
+        // All deadlines are far away from tick 0, in the same bucket of a high level when the wheel starts.
+        long start = TimeUnit.HOURS.toNanos(1);
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>();
+        for (int id = 1; id <= 100000; id++) {
+            ScheduledFutureTask<?> task = newTask(executor, start + id * 1000L, id);
+            assertTrue(wheel.offer(task));
+            tasks.add(task);
+        }
+
+        for (int i = 0; i < tasks.size(); i++) {
+            assertSame(tasks.get(i), wheel.peek());
+            assertTrue(wheel.removeTyped(tasks.get(i)));
+            assertEquals(tasks.size() - i - 1, wheel.size());
+        }
+        assertNull(wheel.peek());
+
+        // New tasks before the earliest pending task still come out first.
+        ScheduledFutureTask<?> later = newTask(executor, start + 200000 * 1000L, 200000);
+        ScheduledFutureTask<?> earlier = newTask(executor, start, 200001);
+        assertTrue(wheel.offer(later));
+        assertSame(later, wheel.peek());
+        assertTrue(wheel.offer(earlier));
+        assertSame(earlier, wheel.poll());
+        assertSame(later, wheel.poll());
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testNearTasksStayInWheelWhileFarTaskIsEarliest() {
+        TestScheduledEventExecutor executor = new TestScheduledEventExecutor();
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(executor, TimeUnit.MILLISECONDS.toNanos(1));
+        ScheduledFutureTask<?> far = newTask(executor, TimeUnit.HOURS.toNanos(1), 0);
+        assertTrue(wheel.offer(far));
+        assertSame(far, wheel.peek());
+
+        // Nothing is due, so none of the near tasks may go into the heap, even after peeking.
+        long start = TimeUnit.SECONDS.toNanos(30);
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>();
+        for (int id = 1; id <= 100000; id++) {
+            ScheduledFutureTask<?> task = newTask(executor, start + id * 1000L, id);
+            assertTrue(wheel.offer(task));
+            tasks.add(task);
+        }
+        assertSame(tasks.get(0), wheel.peek());
+        for (ScheduledFutureTask<?> task : tasks) {
+            assertTrue(isInWheel(task));
+        }
+
+        // Cancelling the earliest task repeatedly does not need the heap either.
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(wheel.removeTyped(tasks.get(i)));
+            assertSame(tasks.get(i + 1), wheel.peek());
+        }
+
+        // Once the clock gets there, the due tasks come out in order and the far task stays in the wheel.
+        executor.nanoTime = start + 50000 * 1000L;
+        for (int i = 1000; i < 50000; i++) {
+            assertSame(tasks.get(i), wheel.poll());
+        }
+        assertSame(tasks.get(50000), wheel.peek());
+        assertTrue(isInWheel(tasks.get(60000)));
+        assertTrue(isInWheel(far));
+
+        executor.nanoTime = TimeUnit.HOURS.toNanos(1);
+        for (int i = 50000; i < tasks.size(); i++) {
+            assertSame(tasks.get(i), wheel.poll());
+        }
+        assertSame(far, wheel.poll());
+        assertTrue(wheel.isEmpty());
+    }
+
+    private static boolean isInWheel(ScheduledFutureTask<?> task) {
+        // Tasks in the buckets use the indexes below INDEX_NOT_IN_QUEUE, tasks in the heap the ones from 0.
+        return task.priorityQueueIndex(null) < PriorityQueueNode.INDEX_NOT_IN_QUEUE;
+    }
+
+    private static ScheduledFutureTask<?> newTask(AbstractScheduledEventExecutor executor, long deadline, long id) {
+        return new ScheduledFutureTask<Void>(executor, NOOP, deadline).setId(id);
+    }
+
+    private static final class TestScheduledEventExecutor extends AbstractScheduledEventExecutor {
+        long nanoTime;
+
+        @Override
+        protected long getCurrentTimeNanos() {
+            return nanoTime;
+        }
+
+        @Override
+        public boolean isShuttingDown() {
+            return false;
+        }
+
+        @Override
+        public boolean inEventLoop(Thread thread) {
+            return true;
+        }
+
+        @Override
+        @Deprecated
+        public void shutdown() {
+            shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+            return terminationFuture();
+        }
+
+        @Override
+        public Future<?> terminationFuture() {
+            return ImmediateEventExecutor.INSTANCE.newSucceededFuture(null);
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
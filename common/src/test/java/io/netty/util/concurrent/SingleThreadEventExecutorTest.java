@@ -37,8 +37,12 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -411,6 +415,219 @@ public class SingleThreadEventExecutorTest {
         assertThat(t.ran.get(), is(true));
     }
 
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testIdleTime() throws Exception {
+        final DefaultEventExecutor executor = new DefaultEventExecutor();
+        try {
+            // Idle before the thread is started.
+            long idle = executor.idleTimeNanos();
+            Thread.sleep(50);
+            assertThat(executor.idleTimeNanos() - idle, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50)));
+
+            // Not idle while running a task.
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch latch = new CountDownLatch(1);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            started.await();
+            idle = executor.idleTimeNanos();
+            Thread.sleep(50);
+            assertEquals(idle, executor.idleTimeNanos());
+            latch.countDown();
+
+            // Idle again while waiting in takeTask().
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).sync();
+            idle = executor.idleTimeNanos();
+            Thread.sleep(50);
+            assertThat(executor.idleTimeNanos() - idle, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(40)));
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testMetrics() throws Exception {
+        final DefaultEventExecutor executor = new DefaultEventExecutor();
+        try {
+            assertEquals(executor.isMetricsEnabled(), executor.metrics() != null);
+            executor.enableMetrics();
+            assertTrue(executor.isMetricsEnabled());
+
+            // One task keeps the executor busy for 50ms, while three others wait behind it.
+            final CountDownLatch started = new CountDownLatch(1);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            started.await();
+            for (int i = 0; i < 3; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                });
+            }
+            assertEquals(3, executor.metrics().pendingTasks());
+            // Scheduled from the executor, so it goes to the scheduled tasks right away.
+            executor.submit(new Callable<ScheduledFuture<?>>() {
+                @Override
+                public ScheduledFuture<?> call() {
+                    return executor.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                        }
+                    }, 10, TimeUnit.MILLISECONDS);
+                }
+            }).get().sync();
+
+            // Taken by the executor, so all previous tasks are fully recorded.
+            EventExecutorMetrics metrics = executor.submit(new Callable<EventExecutorMetrics>() {
+                @Override
+                public EventExecutorMetrics call() {
+                    return executor.metrics();
+                }
+            }).get();
+            // The task which scheduled the other one counts too.
+            assertEquals(6, metrics.tasksRun());
+            assertThat(metrics.taskNanos(), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50)));
+            assertThat(metrics.busyNanos(), greaterThanOrEqualTo(metrics.taskNanos()));
+            assertEquals(metrics.uptimeNanos(), metrics.busyNanos() + metrics.idleNanos());
+            assertThat(metrics.wakeups(), greaterThanOrEqualTo(1L));
+
+            long[] histogram = metrics.taskLatencyHistogram();
+            long count = 0;
+            for (long bucket : histogram) {
+                count += bucket;
+            }
+            assertEquals(6, count);
+            // The three tasks waited for the 50ms one.
+            assertThat(metrics.taskLatencyPercentileNanos(100),
+                    greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(40)));
+            assertThat(metrics.taskLatencyPercentileNanos(0),
+                    lessThanOrEqualTo(metrics.taskLatencyPercentileNanos(50)));
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testMetricsCountTasksScheduledFromOtherThreadOnce() throws Exception {
+        final DefaultEventExecutor executor = new DefaultEventExecutor();
+        try {
+            executor.enableMetrics();
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                }
+            };
+            // Both go through execute() to add or remove themselves, which must not count as running a task.
+            executor.schedule(task, 10, TimeUnit.MILLISECONDS).sync();
+            assertTrue(executor.schedule(task, 1, TimeUnit.HOURS).cancel(false));
+
+            EventExecutorMetrics metrics = executor.submit(new Callable<EventExecutorMetrics>() {
+                @Override
+                public EventExecutorMetrics call() {
+                    return executor.metrics();
+                }
+            }).get();
+            assertEquals(1, metrics.tasksRun());
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testMetricsRejectedTaskIsNotWrapped() throws Exception {
+        final AtomicReference<Runnable> rejected = new AtomicReference<Runnable>();
+        final DefaultEventExecutor executor = new DefaultEventExecutor(null, Executors.defaultThreadFactory(), 16,
+                new RejectedExecutionHandler() {
+                    @Override
+                    public void rejected(Runnable task, SingleThreadEventExecutor executor) {
+                        rejected.set(task);
+                    }
+                });
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.enableMetrics();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            started.await();
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                }
+            };
+            for (int i = 0; i < 16; i++) {
+                executor.execute(task);
+            }
+            assertNull(rejected.get());
+            executor.execute(task);
+            assertSame(task, rejected.get());
+        } finally {
+            release.countDown();
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testMetricsListener() throws Exception {
+        final DefaultEventExecutor executor = new DefaultEventExecutor();
+        try {
+            final CountDownLatch reported = new CountDownLatch(3);
+            final AtomicReference<EventExecutorMetrics> last = new AtomicReference<EventExecutorMetrics>();
+            ScheduledFuture<?> future = executor.addMetricsListener(new EventExecutorMetricsListener() {
+                @Override
+                public void metricsReported(SingleThreadEventExecutor e, EventExecutorMetrics metrics) {
+                    assertSame(executor, e);
+                    assertTrue(e.inEventLoop());
+                    last.set(metrics);
+                    reported.countDown();
+                }
+            }, 10, TimeUnit.MILLISECONDS);
+            assertTrue(executor.isMetricsEnabled());
+            reported.await();
+            future.cancel(false);
+            assertThat(last.get().tasksRun(), greaterThanOrEqualTo(2L));
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+
     private static final class TestRunnable implements Runnable {
         final AtomicBoolean ran = new AtomicBoolean();
 
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.PlatformDependent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VirtualThreadEventExecutorGroupTest {
+
+    private VirtualThreadEventExecutorGroup group;
+
+    @BeforeEach
+    public void setUp() {
+        group = new VirtualThreadEventExecutorGroup();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        group.shutdownGracefully();
+    }
+
+    @Test
+    public void testVirtualThreadDetection() {
+        assertEquals(PlatformDependent.javaVersion() >= 21, VirtualThreadEventExecutorGroup.isVirtualThreadAvailable());
+        assertEquals(VirtualThreadEventExecutorGroup.isVirtualThreadAvailable(), group.isVirtual());
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testOrdering() throws Exception {
+        final EventExecutor executor = group.next();
+        assertTrue(executor instanceof OrderedEventExecutor);
+        assertNotSame(executor, group.next());
+
+        final List<Integer> order = new ArrayList<Integer>();
+        int tasks = 10000;
+        for (int i = 0; i < tasks; i++) {
+            final int id = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (id % 1000 == 0) {
+                        // Block from time to time, so the producer runs ahead and the executor has to be drained
+                        // again.
+                        sleep(1);
+                    }
+                    order.add(id);
+                }
+            });
+        }
+        List<Integer> result = executor.submit(new Callable<List<Integer>>() {
+            @Override
+            public List<Integer> call() {
+                return new ArrayList<Integer>(order);
+            }
+        }).get();
+        assertEquals(tasks, result.size());
+        for (int i = 0; i < tasks; i++) {
+            assertEquals(i, (int) result.get(i));
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testBlockingExecutorsDoNotHoldUpOthers() throws Exception {
+        int executors = 64;
+        final CountDownLatch allBlocked = new CountDownLatch(executors);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < executors; i++) {
+            futures.add(group.next().submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    // Only returns once all executors block at the same time.
+                    allBlocked.countDown();
+                    allBlocked.await();
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.sync();
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testInEventLoop() throws Exception {
+        final EventExecutor executor = group.next();
+        assertFalse(executor.inEventLoop());
+        assertTrue(executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return executor.inEventLoop();
+            }
+        }).get());
+        assertFalse(executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return group.next().inEventLoop();
+            }
+        }).get());
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testShutdownRunsAcceptedTasks() throws Exception {
+        final EventExecutor executor = group.next();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Future<?> blocking = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                started.countDown();
+                release.await();
+                return null;
+            }
+        });
+        Future<?> queued = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        started.await();
+
+        Future<?> termination = group.shutdownGracefully();
+        assertTrue(group.isShuttingDown());
+        assertTrue(executor.isShuttingDown());
+        assertThrows(RejectedExecutionException.class, new Executable() {
+            @Override
+            public void execute() {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                });
+            }
+        });
+        assertFalse(termination.await(100, TimeUnit.MILLISECONDS));
+        assertFalse(group.isTerminated());
+
+        release.countDown();
+        termination.sync();
+        assertTrue(blocking.isSuccess());
+        assertTrue(queued.isSuccess());
+        assertTrue(group.isTerminated());
+        assertTrue(executor.isTerminated());
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testShutdownIdleGroup() throws Exception {
+        group.next().submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).sync();
+        group.shutdownGracefully().sync();
+        assertTrue(group.isTerminated());
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testSchedule() throws Exception {
+        final EventExecutor executor = group.next();
+        final List<Integer> order = new ArrayList<Integer>();
+        ScheduledFuture<Boolean> scheduled = executor.schedule(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                order.add(2);
+                return executor.inEventLoop();
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> cancelled = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                order.add(-1);
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                order.add(1);
+            }
+        });
+        assertTrue(cancelled.cancel(false));
+
+        assertTrue(scheduled.get());
+        assertThat(scheduled.getDelay(TimeUnit.NANOSECONDS)).isZero();
+        assertTrue(cancelled.isCancelled());
+        List<Integer> result = executor.submit(new Callable<List<Integer>>() {
+            @Override
+            public List<Integer> call() {
+                return new ArrayList<Integer>(order);
+            }
+        }).get();
+        assertEquals(Arrays.asList(1, 2), result);
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testScheduleAtFixedRate() throws Exception {
+        final CountDownLatch runs = new CountDownLatch(3);
+        ScheduledFuture<?> future = group.next().scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                runs.countDown();
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        runs.await();
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testScheduledTaskDueAfterShutdownFails() throws Exception {
+        ScheduledFuture<?> future = group.next().schedule(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+        group.shutdownGracefully().sync();
+        assertTrue(future.await().cause() instanceof RejectedExecutionException);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NumaTopologyTest {
+
+    @Test
+    public void testParseCpuList() {
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 8, 10, 11 }, NumaTopology.parseCpuList("0-3,8,10-11\n"));
+        assertArrayEquals(new int[0], NumaTopology.parseCpuList(""));
+        assertArrayEquals(new int[] { 1022, 1023 }, NumaTopology.parseCpuList("1022-1023"));
+    }
+
+    @Test
+    public void testParseCpuListRejectsInvalidRanges() {
+        for (final String cpuList : new String[] { "3-1", "1024", "0-2147483647", "-1", "1-x" }) {
+            assertThrows(IllegalArgumentException.class, new Executable() {
+                @Override
+                public void execute() {
+                    NumaTopology.parseCpuList(cpuList);
+                }
+            }, cpuList);
+        }
+    }
+
+    @Test
+    public void testNodeOf() {
+        NumaTopology topology = NumaTopology.of("0-1,4-5", "2-3,6-7");
+        assertEquals(2, topology.numNodes());
+        assertEquals(0, topology.nodeOf(0));
+        assertEquals(1, topology.nodeOf(3));
+        assertEquals(0, topology.nodeOf(5));
+        assertEquals(1, topology.nodeOf(7));
+        assertEquals(-1, topology.nodeOf(8));
+        assertEquals(-1, topology.nodeOf(-1));
+    }
+
+    @Test
+    public void testMissingNode() {
+        NumaTopology topology = NumaTopology.of("0-1", null, "2-3");
+        assertEquals(3, topology.numNodes());
+        assertEquals(2, topology.nodeOf(2));
+    }
+
+    @Test
+    public void testCurrentNodeIsKnownOnLinux() {
+        NumaTopology topology = NumaTopology.current();
+        if (topology != null && NumaTopology.currentCpu() >= 0) {
+            assertTrue(topology.currentNode() >= 0);
+            assertTrue(topology.currentNode() < topology.numNodes());
+        }
+    }
+}
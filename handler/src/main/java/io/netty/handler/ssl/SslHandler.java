@@ -15,6 +15,7 @@
  */
 package io.netty.handler.ssl;
 
+import io.netty.buffer.AllocationTag;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufUtil;
@@ -173,6 +174,7 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
             "^.*(?:Socket|Datagram|Sctp|Udt)Channel.*$");
     private static final Pattern IGNORABLE_ERROR_MESSAGE = Pattern.compile(
             "^.*(?:connection.*(?:reset|closed|abort|broken)|broken.*pipe).*$", Pattern.CASE_INSENSITIVE);
+    private static final AllocationTag ALLOCATION_TAG = AllocationTag.valueOf("ssl");
     private static final int STATE_SENT_FIRST_MESSAGE = 1;
     private static final int STATE_FLUSHED_BEFORE_HANDSHAKE = 1 << 1;
     private static final int STATE_READ_DURING_HANDSHAKE = 1 << 2;
@@ -2251,10 +2253,15 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
      */
     private ByteBuf allocate(ChannelHandlerContext ctx, int capacity) {
         ByteBufAllocator alloc = ctx.alloc();
-        if (engineType.wantsDirectBuffer) {
-            return alloc.directBuffer(capacity);
-        } else {
-            return alloc.buffer(capacity);
+        AllocationTag previousTag = AllocationTag.enter(ALLOCATION_TAG);
+        try {
+            if (engineType.wantsDirectBuffer) {
+                return alloc.directBuffer(capacity);
+            } else {
+                return alloc.buffer(capacity);
+            }
+        } finally {
+            AllocationTag.exit(previousTag);
         }
     }
 
@@ -2263,7 +2270,12 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
      * the specified amount of pending bytes.
      */
     private ByteBuf allocateOutNetBuf(ChannelHandlerContext ctx, int pendingBytes, int numComponents) {
-        return engineType.allocateWrapBuffer(this, ctx.alloc(), pendingBytes, numComponents);
+        AllocationTag previousTag = AllocationTag.enter(ALLOCATION_TAG);
+        try {
+            return engineType.allocateWrapBuffer(this, ctx.alloc(), pendingBytes, numComponents);
+        } finally {
+            AllocationTag.exit(previousTag);
+        }
     }
 
     private boolean isStateSet(int bit) {
@@ -16,6 +16,7 @@
 package io.netty.buffer;
 
 import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Param;
@@ -24,7 +25,6 @@ import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 
 import java.nio.charset.Charset;
-import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 @Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
@@ -72,6 +72,25 @@ public class ByteBufUtilDecodeStringBenchmark extends AbstractMicrobenchmark {
         abstract ByteBuf newBuffer(byte[] bytes, int length);
     }
 
+    public enum Content {
+        ASCII("a"),
+        // Mostly ASCII, like most text, with a two byte character now and then.
+        MIXED("abcdefghijklmnop\u00e4"),
+        CJK("\u4e2d");
+
+        private final byte[] pattern;
+
+        Content(String pattern) {
+            this.pattern = pattern.getBytes(CharsetUtil.UTF_8);
+        }
+
+        void fill(byte[] bytes) {
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = pattern[i % pattern.length];
+            }
+        }
+    }
+
     @Param({ "8", "64", "1024", "10240", "1073741824" })
     public int size;
 
@@ -81,6 +100,9 @@ public class ByteBufUtilDecodeStringBenchmark extends AbstractMicrobenchmark {
     @Param
     public ByteBufType bufferType;
 
+    @Param
+    public Content content;
+
     private ByteBuf buffer;
     private Charset charset;
 
@@ -93,7 +115,7 @@ public class ByteBufUtilDecodeStringBenchmark extends AbstractMicrobenchmark {
     @Setup
     public void setup() {
         byte[] bytes = new byte[size + 2];
-        Arrays.fill(bytes, (byte) 'a');
+        content.fill(bytes);
 
         // Use an offset to not allow any optimizations because we use the exact passed in byte[] for heap buffers.
         buffer = bufferType.newBuffer(bytes, size);
@@ -39,17 +39,24 @@ public class CompositeByteBufRandomAccessBenchmark extends AbstractMicrobenchmar
     public enum ByteBufType {
         SMALL_CHUNKS {
             @Override
-            ByteBuf newBuffer(int length) {
-                return newBufferSmallChunks(length);
+            ByteBuf newBuffer(int length, boolean rope) {
+                return newBufferSmallChunks(length, rope);
             }
         },
         LARGE_CHUNKS {
             @Override
-            ByteBuf newBuffer(int length) {
-                return newBufferLargeChunks(length);
+            ByteBuf newBuffer(int length, boolean rope) {
+                return newBufferLargeChunks(length, rope);
+            }
+        },
+        // A component per byte, for many components
+        TINY_CHUNKS {
+            @Override
+            ByteBuf newBuffer(int length, boolean rope) {
+                return newBufferTinyChunks(length, rope);
             }
         };
-        abstract ByteBuf newBuffer(int length);
+        abstract ByteBuf newBuffer(int length, boolean rope);
     }
 
     @Param({ "64", "10240", "1024000" }) // ({ "64", "1024", "10240", "102400", "1024000" })
@@ -58,12 +65,15 @@ public class CompositeByteBufRandomAccessBenchmark extends AbstractMicrobenchmar
     @Param
     public ByteBufType bufferType;
 
+    @Param({ "false", "true" })
+    public boolean rope;
+
     private ByteBuf buffer;
     private Random random;
 
     @Setup
     public void setup() {
-        buffer = bufferType.newBuffer(size);
+        buffer = bufferType.newBuffer(size, rope);
         random = new Random(0L);
     }
 
@@ -84,7 +94,7 @@ public class CompositeByteBufRandomAccessBenchmark extends AbstractMicrobenchmar
         return buffer.setLong(i, 1);
     }
 
-    private static ByteBuf newBufferSmallChunks(int length) {
+    private static ByteBuf newBufferSmallChunks(int length, boolean rope) {
 
         List<ByteBuf> buffers = new ArrayList<ByteBuf>(((length + 1) / 45) * 19);
         for (int i = 0; i < length + 45; i += 45) {
@@ -95,13 +105,10 @@ public class CompositeByteBufRandomAccessBenchmark extends AbstractMicrobenchmar
             buffers.add(EMPTY_BUFFER);
         }
 
-        ByteBuf buffer = wrappedBuffer(Integer.MAX_VALUE, buffers.toArray(new ByteBuf[0]));
-
-        // Truncate to the requested capacity.
-        return buffer.capacity(length).writerIndex(0);
+        return newBuffer(buffers, length, rope);
     }
 
-    private static ByteBuf newBufferLargeChunks(int length) {
+    private static ByteBuf newBufferLargeChunks(int length, boolean rope) {
 
         List<ByteBuf> buffers = new ArrayList<ByteBuf>((length + 1) / 512);
         for (int i = 0; i < length + 1536; i += 1536) {
@@ -110,7 +117,30 @@ public class CompositeByteBufRandomAccessBenchmark extends AbstractMicrobenchmar
             buffers.add(wrappedBuffer(new byte[1024]));
         }
 
-        ByteBuf buffer = wrappedBuffer(Integer.MAX_VALUE, buffers.toArray(new ByteBuf[0]));
+        return newBuffer(buffers, length, rope);
+    }
+
+    private static ByteBuf newBufferTinyChunks(int length, boolean rope) {
+
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>(length + 1);
+        for (int i = 0; i < length + 1; i++) {
+            buffers.add(wrappedBuffer(new byte[1]));
+        }
+
+        return newBuffer(buffers, length, rope);
+    }
+
+    private static ByteBuf newBuffer(List<ByteBuf> buffers, int length, boolean rope) {
+        ByteBuf buffer;
+        if (rope) {
+            RopeByteBuf ropeBuffer = Unpooled.ropeBuffer();
+            for (ByteBuf b : buffers) {
+                ropeBuffer.addLast(true, b);
+            }
+            buffer = ropeBuffer;
+        } else {
+            buffer = wrappedBuffer(Integer.MAX_VALUE, buffers.toArray(new ByteBuf[0]));
+        }
 
         // Truncate to the requested capacity.
         return buffer.capacity(length).writerIndex(0);
@@ -39,17 +39,24 @@ public class CompositeByteBufSequentialBenchmark extends AbstractMicrobenchmark
     public enum ByteBufType {
         SMALL_CHUNKS {
             @Override
-            ByteBuf newBuffer(int length) {
-                return newBufferSmallChunks(length);
+            ByteBuf newBuffer(int length, boolean rope) {
+                return newBufferSmallChunks(length, rope);
             }
         },
         LARGE_CHUNKS {
             @Override
-            ByteBuf newBuffer(int length) {
-                return newBufferLargeChunks(length);
+            ByteBuf newBuffer(int length, boolean rope) {
+                return newBufferLargeChunks(length, rope);
+            }
+        },
+        // A component per byte, for many components
+        TINY_CHUNKS {
+            @Override
+            ByteBuf newBuffer(int length, boolean rope) {
+                return newBufferTinyChunks(length, rope);
             }
         };
-        abstract ByteBuf newBuffer(int length);
+        abstract ByteBuf newBuffer(int length, boolean rope);
     }
 
     @Param({ "8", "64", "1024", "10240", "102400", "1024000" })
@@ -58,11 +65,14 @@ public class CompositeByteBufSequentialBenchmark extends AbstractMicrobenchmark
     @Param
     public ByteBufType bufferType;
 
+    @Param({ "false", "true" })
+    public boolean rope;
+
     private ByteBuf buffer;
 
     @Setup
     public void setup() {
-        buffer = bufferType.newBuffer(size);
+        buffer = bufferType.newBuffer(size, rope);
     }
 
     @TearDown
@@ -98,7 +108,51 @@ public class CompositeByteBufSequentialBenchmark extends AbstractMicrobenchmark
         return 1;
     }
 
-    private static ByteBuf newBufferSmallChunks(int length) {
+    @Benchmark
+    public long queueOfMessages() {
+        // Messages of 64 bytes are added at the end, and a header is added in front of the first one, while the
+        // messages are read and discarded from the front, as many components as the size allows.
+        ByteBuf queue = rope ? Unpooled.ropeBuffer() : Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        for (int i = 0, messages = Math.max(1, size >>> 6); i < messages; i++) {
+            addLast(queue, wrappedBuffer(MESSAGE));
+        }
+        addFirst(queue, wrappedBuffer(MESSAGE, 0, 8));
+        long sum = 0;
+        while (queue.isReadable()) {
+            sum += queue.readLong();
+            discardReadComponents(queue);
+        }
+        queue.release();
+        return sum;
+    }
+
+    private static final byte[] MESSAGE = new byte[64];
+
+    private static void addFirst(ByteBuf queue, ByteBuf buffer) {
+        if (queue instanceof RopeByteBuf) {
+            ((RopeByteBuf) queue).addFirst(true, buffer);
+        } else {
+            ((CompositeByteBuf) queue).addComponent(true, 0, buffer);
+        }
+    }
+
+    private static void addLast(ByteBuf queue, ByteBuf buffer) {
+        if (queue instanceof RopeByteBuf) {
+            ((RopeByteBuf) queue).addLast(true, buffer);
+        } else {
+            ((CompositeByteBuf) queue).addComponent(true, buffer);
+        }
+    }
+
+    private static void discardReadComponents(ByteBuf queue) {
+        if (queue instanceof RopeByteBuf) {
+            ((RopeByteBuf) queue).discardReadComponents();
+        } else {
+            ((CompositeByteBuf) queue).discardReadComponents();
+        }
+    }
+
+    private static ByteBuf newBufferSmallChunks(int length, boolean rope) {
 
         List<ByteBuf> buffers = new ArrayList<ByteBuf>(((length + 1) / 45) * 19);
         for (int i = 0; i < length + 45; i += 45) {
@@ -109,13 +163,10 @@ public class CompositeByteBufSequentialBenchmark extends AbstractMicrobenchmark
             buffers.add(EMPTY_BUFFER);
         }
 
-        ByteBuf buffer = wrappedBuffer(Integer.MAX_VALUE, buffers.toArray(new ByteBuf[0]));
-
-        // Truncate to the requested capacity.
-        return buffer.capacity(length).writerIndex(0);
+        return newBuffer(buffers, length, rope);
     }
 
-    private static ByteBuf newBufferLargeChunks(int length) {
+    private static ByteBuf newBufferLargeChunks(int length, boolean rope) {
 
         List<ByteBuf> buffers = new ArrayList<ByteBuf>((length + 1) / 512);
         for (int i = 0; i < length + 1536; i += 1536) {
@@ -124,7 +175,30 @@ public class CompositeByteBufSequentialBenchmark extends AbstractMicrobenchmark
             buffers.add(wrappedBuffer(new byte[1024]));
         }
 
-        ByteBuf buffer = wrappedBuffer(Integer.MAX_VALUE, buffers.toArray(new ByteBuf[0]));
+        return newBuffer(buffers, length, rope);
+    }
+
+    private static ByteBuf newBufferTinyChunks(int length, boolean rope) {
+
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>(length + 1);
+        for (int i = 0; i < length + 1; i++) {
+            buffers.add(wrappedBuffer(new byte[1]));
+        }
+
+        return newBuffer(buffers, length, rope);
+    }
+
+    private static ByteBuf newBuffer(List<ByteBuf> buffers, int length, boolean rope) {
+        ByteBuf buffer;
+        if (rope) {
+            RopeByteBuf ropeBuffer = Unpooled.ropeBuffer();
+            for (ByteBuf b : buffers) {
+                ropeBuffer.addLast(true, b);
+            }
+            buffer = ropeBuffer;
+        } else {
+            buffer = wrappedBuffer(Integer.MAX_VALUE, buffers.toArray(new ByteBuf[0]));
+        }
 
         // Truncate to the requested capacity.
         return buffer.capacity(length).writerIndex(0);
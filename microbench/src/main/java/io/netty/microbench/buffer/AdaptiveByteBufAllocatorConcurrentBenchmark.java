@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.AdaptiveByteBufAllocator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compares {@link AdaptiveByteBufAllocator} with {@link PooledByteBufAllocator}, both when the allocating threads
+ * are long-lived and when every batch of allocations is done by a new thread, which defeats the thread-local caches
+ * of the pooled allocator.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(8)
+public class AdaptiveByteBufAllocatorConcurrentBenchmark extends AbstractMicrobenchmark {
+
+    private static final int BATCH_SIZE = 64;
+
+    @Param({ "pooled", "adaptive" })
+    public String allocatorType;
+
+    @Param({ "00064", "00256", "01024", "04096", "16384" })
+    public int size;
+
+    private ByteBufAllocator allocator;
+
+    @Setup
+    public void setup() {
+        if ("pooled".equals(allocatorType)) {
+            allocator = new PooledByteBufAllocator(true);
+        } else {
+            allocator = new AdaptiveByteBufAllocator(true);
+        }
+    }
+
+    @Benchmark
+    public boolean allocateRelease() {
+        return allocator.directBuffer(size).release();
+    }
+
+    @Benchmark
+    public int allocateReleaseBatch() {
+        return allocateAndReleaseBatch(allocator, size);
+    }
+
+    @Benchmark
+    public int allocateReleaseBatchOnNewThread() throws InterruptedException {
+        final int[] result = new int[1];
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result[0] = allocateAndReleaseBatch(allocator, size);
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        thread.start();
+        done.await();
+        return result[0];
+    }
+
+    private static int allocateAndReleaseBatch(ByteBufAllocator allocator, int size) {
+        ByteBuf[] buffers = new ByteBuf[BATCH_SIZE];
+        int capacity = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = allocator.directBuffer(size);
+            capacity += buffers[i].capacity();
+        }
+        for (ByteBuf buffer : buffers) {
+            buffer.release();
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.AllocationTag;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of {@link AllocationTag} on pooled allocations. With tagging disabled, {@code untagged} and
+ * {@code tagged} should be as fast as allocating from an allocator that does not know about tags.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class AllocationTagBenchmark extends AbstractMicrobenchmark {
+
+    private static final AllocationTag TAG = AllocationTag.valueOf("AllocationTagBenchmark");
+
+    @Param({ "false", "true" })
+    public boolean tagsEnabled;
+
+    @Param({ "00256", "08192" })
+    public int size;
+
+    private final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true);
+    private boolean wasEnabled;
+
+    @Setup
+    public void setup() {
+        wasEnabled = AllocationTag.isEnabled();
+        AllocationTag.setEnabled(tagsEnabled);
+    }
+
+    @TearDown
+    public void teardown() {
+        AllocationTag.setEnabled(wasEnabled);
+    }
+
+    @Benchmark
+    public boolean untagged() {
+        ByteBuf buf = allocator.directBuffer(size);
+        return buf.release();
+    }
+
+    @Benchmark
+    public boolean tagged() {
+        ByteBuf buf;
+        AllocationTag previous = AllocationTag.enter(TAG);
+        try {
+            buf = allocator.directBuffer(size);
+        } finally {
+            AllocationTag.exit(previous);
+        }
+        return buf.release();
+    }
+}
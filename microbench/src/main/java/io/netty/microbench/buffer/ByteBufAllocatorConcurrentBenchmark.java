@@ -15,30 +15,89 @@
  */
 package io.netty.microbench.buffer;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures allocations from many threads. The {@code pooledNoCache} allocator shares a single arena and has no
+ * thread-local caches, so every allocation and release goes through the locks of the arena. See
+ * {@link PooledByteBufAllocatorContentionBenchmark} for how the contention scales with the number of threads.
+ */
 @State(Scope.Benchmark)
 @Warmup(iterations = 5)
 @Measurement(iterations = 10)
 @Threads(8)
 public class ByteBufAllocatorConcurrentBenchmark  extends AbstractMicrobenchmark {
 
-    private static final ByteBufAllocator unpooledAllocator = new UnpooledByteBufAllocator(true, true);
+    private static final int[] MIXED_SIZES = { 64, 256, 1024, 4096, 16384, 65536 };
+    private static final int BATCH_SIZE = 16;
+
+    @Param({ "unpooled", "pooled", "pooledNoCache" })
+    public String allocatorType;
 
     @Param({ "00064", "00256", "01024", "04096" })
     public int size;
 
+    private ByteBufAllocator allocator;
+    private final AtomicInteger threadIndex = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class ThreadSize {
+        int size;
+
+        @Setup
+        public void setup(ByteBufAllocatorConcurrentBenchmark benchmark) {
+            // Every thread allocates its own size, so the threads hit different size classes of the arena.
+            size = MIXED_SIZES[benchmark.threadIndex.getAndIncrement() % MIXED_SIZES.length];
+        }
+    }
+
+    @Setup
+    public void setup() {
+        if ("unpooled".equals(allocatorType)) {
+            allocator = new UnpooledByteBufAllocator(true, true);
+        } else if ("pooled".equals(allocatorType)) {
+            allocator = new PooledByteBufAllocator(true);
+        } else {
+            allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 9, 0, 0, false, 0);
+        }
+    }
+
     @Benchmark
     public boolean allocateRelease() {
-        return unpooledAllocator.directBuffer(size).release();
+        return allocator.directBuffer(size).release();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean allocateReleaseSingleThread() {
+        return allocator.directBuffer(size).release();
+    }
+
+    @Benchmark
+    public int allocateReleaseBatchMixedSizes(ThreadSize threadSize) {
+        ByteBuf[] buffers = new ByteBuf[BATCH_SIZE];
+        int capacity = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = allocator.directBuffer(threadSize.size);
+            capacity += buffers[i].capacity();
+        }
+        for (ByteBuf buffer : buffers) {
+            buffer.release();
+        }
+        return capacity;
     }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Allocates, fills and reads pooled direct buffers from many threads, with and without picking the direct arena of
+ * the NUMA node a thread runs on. Run on a multi-socket host, otherwise both variants behave the same.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(16)
+public class ByteBufAllocatorNumaBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "01024", "16384", "65536" })
+    public int size;
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-Dio.netty.allocator.numaAware=false")
+    public long numaUnaware() {
+        return writeAndRead(size);
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-Dio.netty.allocator.numaAware=true")
+    public long numaAware() {
+        return writeAndRead(size);
+    }
+
+    private static long writeAndRead(int size) {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(size);
+        try {
+            for (int i = 0; i < size; i += 8) {
+                buf.writeLong(i);
+            }
+            long sum = 0;
+            for (int i = 0; i < size; i += 8) {
+                sum += buf.getLong(i);
+            }
+            return sum;
+        } finally {
+            buf.release();
+        }
+    }
+}
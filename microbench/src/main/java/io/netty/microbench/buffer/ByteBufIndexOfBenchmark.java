@@ -20,6 +20,7 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ByteProcessor;
 import io.netty.util.internal.SuppressJava6Requirement;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
@@ -68,6 +69,12 @@ public class ByteBufIndexOfBenchmark extends AbstractMicrobenchmark {
     @Param({ "false", "true" })
     private boolean pooled;
 
+    @Param({ "false", "true" })
+    private boolean composite;
+
+    private ByteProcessor findNeedle;
+    private ByteProcessor findNeedleSlow;
+
     @Setup(Level.Trial)
     @SuppressJava6Requirement(reason = "using SplittableRandom to reliably produce data")
     public void init() {
@@ -76,6 +83,9 @@ public class ByteBufIndexOfBenchmark extends AbstractMicrobenchmark {
         permutations = 1 << logPermutations;
         this.data = new ByteBuf[permutations];
         final ByteBufAllocator allocator = pooled? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT;
+        // FIND_NUL is searched for a word at a time, any other processor a byte at a time
+        findNeedle = needleByte == 0? ByteProcessor.FIND_NUL : new ByteProcessor.IndexOfProcessor(needleByte);
+        findNeedleSlow = new ByteProcessor.IndexOfProcessor(needleByte);
         for (int i = 0; i < permutations; ++i) {
             data[i] = direct? allocator.directBuffer(size, size) : allocator.heapBuffer(size, size);
             for (int j = 0; j < size; j++) {
@@ -92,6 +102,15 @@ public class ByteBufIndexOfBenchmark extends AbstractMicrobenchmark {
             }
             final int foundIndex = random.nextInt(Math.max(0, size - 8), size);
             data[i].setByte(foundIndex, needleByte);
+            if (composite) {
+                // split the data in two components, so that the searched words may span both
+                final int half = size / 2;
+                final ByteBuf buffer = data[i];
+                data[i] = allocator.compositeBuffer(2)
+                        .addComponent(true, buffer.retainedSlice(0, half))
+                        .addComponent(true, buffer.retainedSlice(half, size - half));
+                buffer.release();
+            }
         }
     }
 
@@ -104,6 +123,16 @@ public class ByteBufIndexOfBenchmark extends AbstractMicrobenchmark {
         return getData().indexOf(0, size, needleByte);
     }
 
+    @Benchmark
+    public int forEachByte() {
+        return getData().forEachByte(0, size, findNeedle);
+    }
+
+    @Benchmark
+    public int forEachByteSlow() {
+        return getData().forEachByte(0, size, findNeedleSlow);
+    }
+
     @TearDown
     public void releaseBuffers() {
         for (ByteBuf buffer : data) {
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.stream.ChunkedNioFile;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.internal.PlatformDependent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * Compares reading a file through {@link ChunkedNioFile}, which copies every chunk into a buffer, with reading it
+ * through {@link Unpooled#mappedBuffer(FileChannel, long, int)}. The {@code bytes} benchmarks compare single byte reads
+ * of the mapped buffer with those of a direct buffer that holds the same content.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class MappedFileByteBufBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "1048576", "67108864" })
+    public int fileSize;
+
+    @Param({ "8192" })
+    public int chunkSize;
+
+    private File file;
+    private FileChannel channel;
+    private ByteBuf mapped;
+    private ByteBuf direct;
+
+    @Setup
+    public void setup() throws Exception {
+        file = PlatformDependent.createTempFile("netty-microbench", "tmp", null);
+        byte[] chunk = new byte[chunkSize];
+        PlatformDependent.threadLocalRandom().nextBytes(chunk);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            for (int i = 0; i < fileSize; i += chunkSize) {
+                out.write(chunk, 0, Math.min(chunkSize, fileSize - i));
+            }
+        } finally {
+            out.close();
+        }
+        channel = new RandomAccessFile(file, "r").getChannel();
+        mapped = Unpooled.mappedBuffer(channel, 0, fileSize);
+        direct = Unpooled.directBuffer(fileSize).writeBytes(mapped, 0, fileSize);
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        mapped.release();
+        direct.release();
+        channel.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public long chunkedNioFile() throws Exception {
+        ChunkedNioFile chunkedFile = new ChunkedNioFile(channel, 0, fileSize, chunkSize);
+        long sum = 0;
+        ByteBuf chunk;
+        while ((chunk = chunkedFile.readChunk(PooledByteBufAllocator.DEFAULT)) != null) {
+            for (int i = chunk.readerIndex(); i < chunk.writerIndex(); i += 8) {
+                sum += chunk.getLong(i);
+            }
+            chunk.release();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long mappedChunks() {
+        ByteBuf buf = mapped.duplicate();
+        long sum = 0;
+        while (buf.isReadable()) {
+            ByteBuf chunk = buf.readSlice(Math.min(chunkSize, buf.readableBytes()));
+            for (int i = chunk.readerIndex(); i < chunk.writerIndex(); i += 8) {
+                sum += chunk.getLong(i);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long mapped() {
+        ByteBuf buf = mapped;
+        long sum = 0;
+        for (int i = 0, end = buf.writerIndex(); i < end; i += 8) {
+            sum += buf.getLong(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long mappedBytes() {
+        return sumBytes(mapped);
+    }
+
+    @Benchmark
+    public long directBytes() {
+        return sumBytes(direct);
+    }
+
+    private static long sumBytes(ByteBuf buf) {
+        long sum = 0;
+        for (int i = 0, end = buf.writerIndex(); i < end; i++) {
+            sum += buf.getByte(i);
+        }
+        return sum;
+    }
+}
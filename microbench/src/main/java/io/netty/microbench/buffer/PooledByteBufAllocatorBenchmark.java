@@ -22,18 +22,31 @@ import io.netty.microbench.util.AbstractMicrobenchmark;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.infra.Blackhole;
 
 public class PooledByteBufAllocatorBenchmark extends
         AbstractMicrobenchmark {
-    private ByteBufAllocator allocator;
+    private PooledByteBufAllocator allocator;
 
     @Setup
     public void setup() {
         allocator = new PooledByteBufAllocator(true);
     }
 
+    @State(Scope.Thread)
+    public static class ThreadBoundAllocator {
+        ByteBufAllocator allocator;
+
+        @Setup
+        public void setup(PooledByteBufAllocatorBenchmark benchmark) {
+            // Setup methods of thread scoped states run on the benchmark thread.
+            allocator = benchmark.allocator.threadBoundAllocator();
+        }
+    }
+
     @Benchmark
     @BenchmarkMode(Mode.Throughput)
     public void allocateAndFree(Blackhole blackhole) {
@@ -41,4 +54,12 @@ public class PooledByteBufAllocatorBenchmark extends
         buf.release();
         blackhole.consume(buf);
     }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void threadBoundAllocateAndFree(ThreadBoundAllocator bound, Blackhole blackhole) {
+        ByteBuf buf = bound.allocator.directBuffer(32768);
+        buf.release();
+        blackhole.consume(buf);
+    }
 }
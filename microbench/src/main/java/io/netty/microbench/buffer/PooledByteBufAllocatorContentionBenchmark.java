@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how allocations from a single arena scale with the number of threads. Every invocation lets each of
+ * {@code threads} threads allocate and release {@value #ALLOCATIONS_PER_THREAD} buffers, so without contention the
+ * time per invocation stays the same as threads are added. The {@code lockContentions} and
+ * {@code subpageLockContentions} counters report how often the threads had to wait for the locks of the arena.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(1)
+public class PooledByteBufAllocatorContentionBenchmark extends AbstractMicrobenchmark {
+
+    static final int ALLOCATIONS_PER_THREAD = 1024;
+
+    @Param({ "1", "2", "4", "8", "16" })
+    public int threads;
+
+    @Param({ "pooled", "pooledNoCache" })
+    public String allocatorType;
+
+    @Param({ "00064", "01024", "16384" })
+    public int size;
+
+    private PooledByteBufAllocator allocator;
+    private ExecutorService executor;
+
+    /**
+     * The number of times the threads had to wait for a lock, per invocation.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Contentions {
+        public long lockContentions;
+        public long subpageLockContentions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            lockContentions = 0;
+            subpageLockContentions = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // A single arena, so all threads share its locks.
+        allocator = "pooled".equals(allocatorType) ?
+                new PooledByteBufAllocator(true, 0, 1, 8192, 9, 256, 64, true, 0) :
+                new PooledByteBufAllocator(true, 0, 1, 8192, 9, 0, 0, false, 0);
+        executor = Executors.newFixedThreadPool(threads, new DefaultThreadFactory("contention"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void allocateRelease(Contentions contentions) throws InterruptedException {
+        long lockContentions = allocator.metric().numLockContentions();
+        long subpageLockContentions = allocator.metric().numSubpageLockContentions();
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < ALLOCATIONS_PER_THREAD; j++) {
+                        allocator.directBuffer(size).release();
+                    }
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        contentions.lockContentions += allocator.metric().numLockContentions() - lockContentions;
+        contentions.subpageLockContentions += allocator.metric().numSubpageLockContentions() - subpageLockContentions;
+    }
+}
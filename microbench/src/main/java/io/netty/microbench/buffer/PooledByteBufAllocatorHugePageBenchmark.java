@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * Measures copy and random read throughput on a large amount of pooled direct memory, with chunk sizes that are a
+ * multiple of the 2 MiB huge page size. Run with transparent huge pages enabled ({@code always}) to see how much of the
+ * chunks end up backed by huge pages, as chunks are not aligned to huge page boundaries.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class PooledByteBufAllocatorHugePageBenchmark extends AbstractMicrobenchmark {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int RANDOM_READS = 1024;
+
+    // 8192 << 9 = 4 MiB and 8192 << 11 = 16 MiB chunks.
+    @Param({ "9", "11" })
+    public int maxOrder;
+
+    @Param({ "256" })
+    public int buffers;
+
+    private PooledByteBufAllocator allocator;
+    private ByteBuf[] pooled;
+    private int[] readOffsets;
+    private int next;
+
+    @Setup
+    public void setup() {
+        allocator = new PooledByteBufAllocator(true, 0, 1, 8192, maxOrder, 0, 0, false, 0, 2 * 1024 * 1024);
+        pooled = new ByteBuf[buffers];
+        for (int i = 0; i < pooled.length; i++) {
+            pooled[i] = allocator.directBuffer(BUFFER_SIZE, BUFFER_SIZE);
+            pooled[i].writerIndex(BUFFER_SIZE);
+        }
+        Random random = new Random(42);
+        readOffsets = new int[RANDOM_READS];
+        for (int i = 0; i < readOffsets.length; i++) {
+            readOffsets[i] = random.nextInt(BUFFER_SIZE - 8);
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        for (ByteBuf buf : pooled) {
+            buf.release();
+        }
+    }
+
+    @Benchmark
+    public ByteBuf copy() {
+        ByteBuf src = pooled[next];
+        next = (next + 1) % pooled.length;
+        ByteBuf dst = pooled[next];
+        return dst.setBytes(0, src, 0, BUFFER_SIZE);
+    }
+
+    @Benchmark
+    public long randomRead() {
+        long sum = 0;
+        ByteBuf[] pooled = this.pooled;
+        int[] readOffsets = this.readOffsets;
+        for (int i = 0; i < readOffsets.length; i++) {
+            sum += pooled[i % pooled.length].getLong(readOffsets[i]);
+        }
+        return sum;
+    }
+}
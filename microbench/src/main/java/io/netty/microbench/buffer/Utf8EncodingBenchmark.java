@@ -67,6 +67,40 @@ public class Utf8EncodingBenchmark extends AbstractMicrobenchmark {
         }
     }
 
+    public enum Input {
+        SAMPLES,
+        // Replaces every char which is not ASCII, as most text on the wire is ASCII.
+        ASCII {
+            @Override
+            String transform(String line) {
+                char[] chars = line.toCharArray();
+                for (int i = 0; i < chars.length; i++) {
+                    if (chars[i] >= 0x80) {
+                        chars[i] = '?';
+                    }
+                }
+                return new String(chars);
+            }
+        },
+        // Replaces every ASCII letter by a CJK char, which takes three bytes in UTF-8.
+        CJK {
+            @Override
+            String transform(String line) {
+                char[] chars = line.toCharArray();
+                for (int i = 0; i < chars.length; i++) {
+                    if (Character.isLetter(chars[i]) && chars[i] < 0x80) {
+                        chars[i] = (char) (0x4e00 + chars[i]);
+                    }
+                }
+                return new String(chars);
+            }
+        };
+
+        String transform(String line) {
+            return line;
+        }
+    }
+
     // experiment test input
     private String[] strings;
     private StringBuilder[] stringBuilders;
@@ -77,6 +111,8 @@ public class Utf8EncodingBenchmark extends AbstractMicrobenchmark {
     private ByteBuf buffer;
     @Param({ "false", "true" })
     private boolean noUnsafe;
+    @Param({ "SAMPLES", "ASCII", "CJK" })
+    private Input input;
     private int dataSetLength;
 
     @Setup
@@ -96,6 +132,7 @@ public class Utf8EncodingBenchmark extends AbstractMicrobenchmark {
             buffReader = new BufferedReader(inStreamReader);
             String line;
             while ((line = buffReader.readLine()) != null) {
+                line = input.transform(line);
                 strings.add(line);
                 stringBuilders.add(new StringBuilder(line));
                 anotherCharSequenceList.add(new AnotherCharSequence(line));
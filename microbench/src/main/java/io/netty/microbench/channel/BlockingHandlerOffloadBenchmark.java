@@ -0,0 +1,107 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.VirtualThreadEventExecutorGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a {@link DefaultEventExecutorGroup} of platform threads with a {@link VirtualThreadEventExecutorGroup} as
+ * the group of a handler which blocks for every message, like one that calls JDBC or LDAP code. Every invocation reads
+ * one message on each of the channels and waits until all handlers are done with them. Run on Java 21 or later to
+ * measure virtual threads; on older versions the {@link VirtualThreadEventExecutorGroup} uses platform threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BlockingHandlerOffloadBenchmark extends AbstractMicrobenchmark {
+    private static final Object MSG = new Object();
+
+    public enum GroupType {
+        DEFAULT, VIRTUAL
+    }
+
+    @Param
+    public GroupType groupType;
+
+    @Param({ "64" })
+    public int defaultGroupThreads;
+
+    @Param({ "1000" })
+    public int channels;
+
+    @Param({ "1" })
+    public int blockMillis;
+
+    private EventExecutorGroup group;
+    private EmbeddedChannel[] embeddedChannels;
+    private volatile CountDownLatch done;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        group = groupType == GroupType.DEFAULT ? new DefaultEventExecutorGroup(defaultGroupThreads)
+                : new VirtualThreadEventExecutorGroup();
+        embeddedChannels = new EmbeddedChannel[channels];
+        for (int i = 0; i < channels; i++) {
+            embeddedChannels[i] = new EmbeddedChannel();
+            embeddedChannels[i].pipeline().addLast(group, new BlockingHandler());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        for (EmbeddedChannel channel : embeddedChannels) {
+            channel.finishAndReleaseAll();
+        }
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+    }
+
+    @Benchmark
+    public void readAll() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(channels);
+        this.done = done;
+        for (EmbeddedChannel channel : embeddedChannels) {
+            channel.pipeline().fireChannelRead(MSG);
+        }
+        done.await();
+    }
+
+    private final class BlockingHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            Thread.sleep(blockMillis);
+            done.countDown();
+        }
+    }
+}
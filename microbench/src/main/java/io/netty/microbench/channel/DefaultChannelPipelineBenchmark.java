@@ -15,11 +15,16 @@
  */
 package io.netty.microbench.channel;
 
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalChannel;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Level;
@@ -56,11 +61,49 @@ public class DefaultChannelPipelineBenchmark extends AbstractMicrobenchmark {
         }
     };
 
+    private static final ChannelHandler ALLOCATING_HANDLER = new ChannelInboundHandlerAdapter() {
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.alloc().directBuffer(256).release();
+        }
+
+        @Override
+        public boolean isSharable() {
+            return true;
+        }
+    };
+
+    private static final ChannelHandler CHANNEL_ALLOCATING_HANDLER = new ChannelInboundHandlerAdapter() {
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.channel().alloc().directBuffer(256).release();
+        }
+
+        @Override
+        public boolean isSharable() {
+            return true;
+        }
+    };
+
     @Param({ "4" })
     public int extraHandlers;
 
     private ChannelPipeline pipeline;
 
+    private EventLoop eventLoop;
+    private ChannelPipeline ctxAllocatingPipeline;
+    private ChannelPipeline channelAllocatingPipeline;
+
+    @Override
+    protected String[] jvmArgs() {
+        // ChannelHandlerContext.alloc() only returns the thread-bound allocator when this is enabled.
+        String[] args = super.jvmArgs();
+        String[] jvmArgs = new String[args.length + 1];
+        System.arraycopy(args, 0, jvmArgs, 0, args.length);
+        jvmArgs[args.length] = "-Dio.netty.eventLoop.threadBoundAllocator=true";
+        return jvmArgs;
+    }
+
     @Setup(Level.Iteration)
     public void setup() {
         pipeline = new EmbeddedChannel().pipeline();
@@ -68,11 +111,27 @@ public class DefaultChannelPipelineBenchmark extends AbstractMicrobenchmark {
             pipeline.addLast(NOOP_HANDLER);
         }
         pipeline.addLast(CONSUMING_HANDLER);
+
+        // ChannelHandlerContext.alloc() only bypasses the thread local lookup on a real event loop.
+        eventLoop = new DefaultEventLoop();
+        ctxAllocatingPipeline = newEventLoopPipeline(ALLOCATING_HANDLER);
+        channelAllocatingPipeline = newEventLoopPipeline(CHANNEL_ALLOCATING_HANDLER);
+    }
+
+    private ChannelPipeline newEventLoopPipeline(ChannelHandler handler) {
+        Channel channel = new LocalChannel();
+        channel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+        eventLoop.register(channel).syncUninterruptibly();
+        channel.pipeline().addLast(handler);
+        return channel.pipeline();
     }
 
     @TearDown
     public void tearDown() {
         pipeline.channel().close();
+        ctxAllocatingPipeline.channel().close();
+        channelAllocatingPipeline.channel().close();
+        eventLoop.shutdownGracefully();
     }
 
     @Benchmark
@@ -81,4 +140,25 @@ public class DefaultChannelPipelineBenchmark extends AbstractMicrobenchmark {
             hole.consume(pipeline.fireChannelReadComplete());
         }
     }
+
+    @Benchmark
+    public void allocateInEventLoopWithContextAllocator() throws Exception {
+        fireInEventLoop(ctxAllocatingPipeline);
+    }
+
+    @Benchmark
+    public void allocateInEventLoopWithChannelAllocator() throws Exception {
+        fireInEventLoop(channelAllocatingPipeline);
+    }
+
+    private void fireInEventLoop(final ChannelPipeline pipeline) throws Exception {
+        eventLoop.submit(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 100; i++) {
+                    pipeline.fireChannelReadComplete();
+                }
+            }
+        }).sync();
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.unix.AffinityThreadFactory;
+import io.netty.channel.unix.CpuAffinityStrategy;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ping-pong latency between a client and a server {@link EpollEventLoopGroup} of one thread each, with
+ * the threads left to the scheduler and pinned to CPUs by an {@link AffinityThreadFactory}. Based on
+ * {@link EpollSocketChannelBenchmark}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EpollSocketChannelAffinityBenchmark extends AbstractMicrobenchmark {
+
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(EpollSocketChannelAffinityBenchmark.class);
+
+    @Param({ "none", "CPU", "PHYSICAL_CORE", "AVOID_SIBLINGS" })
+    public String affinity;
+
+    private AffinityThreadFactory affinityThreadFactory;
+    private EpollEventLoopGroup serverGroup;
+    private EpollEventLoopGroup clientGroup;
+    private Channel serverChan;
+    private Channel chan;
+    private ByteBuf abyte;
+
+    @Setup
+    public void setup() throws Exception {
+        ThreadFactory threadFactory;
+        if ("none".equals(affinity)) {
+            threadFactory = new DefaultThreadFactory(EpollEventLoopGroup.class, Thread.MAX_PRIORITY);
+        } else {
+            // Shared by both groups, so the client and the server thread get different CPUs.
+            affinityThreadFactory = new AffinityThreadFactory(EpollEventLoopGroup.class, false, Thread.MAX_PRIORITY,
+                    CpuAffinityStrategy.valueOf(affinity));
+            threadFactory = affinityThreadFactory;
+        }
+        serverGroup = new EpollEventLoopGroup(1, threadFactory);
+        clientGroup = new EpollEventLoopGroup(1, threadFactory);
+
+        serverChan = new ServerBootstrap()
+            .channel(EpollServerSocketChannel.class)
+            .group(serverGroup)
+            .childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(new ChannelDuplexHandler() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            if (msg instanceof ByteBuf) {
+                                ctx.writeAndFlush(msg, ctx.voidPromise());
+                            } else {
+                                throw new AssertionError();
+                            }
+                        }
+                    });
+                }
+            })
+            .bind(0)
+            .sync()
+            .channel();
+        chan = new Bootstrap()
+            .channel(EpollSocketChannel.class)
+            .handler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(new ChannelDuplexHandler() {
+                        private ChannelPromise lastWritePromise;
+
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            if (msg instanceof ByteBuf) {
+                                ByteBuf buf = (ByteBuf) msg;
+                                try {
+                                    if (buf.readableBytes() == 1) {
+                                        lastWritePromise.trySuccess();
+                                        lastWritePromise = null;
+                                    } else {
+                                        throw new AssertionError();
+                                    }
+                                } finally {
+                                    buf.release();
+                                }
+                            } else {
+                                throw new AssertionError();
+                            }
+                        }
+
+                        @Override
+                        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+                                throws Exception {
+                            if (lastWritePromise != null) {
+                                throw new IllegalStateException();
+                            }
+                            lastWritePromise = promise;
+                            super.write(ctx, msg, ctx.voidPromise());
+                        }
+                    });
+                }
+            })
+            .group(clientGroup)
+            .connect(serverChan.localAddress())
+            .sync()
+            .channel();
+
+        abyte = chan.alloc().directBuffer(1);
+        abyte.writeByte('a');
+
+        if (affinityThreadFactory != null && logger.isDebugEnabled()) {
+            for (Map.Entry<String, int[]> entry : affinityThreadFactory.mapping().entrySet()) {
+                logger.debug("{} pinned to CPUs {}", entry.getKey(), Arrays.toString(entry.getValue()));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        chan.close().sync();
+        serverChan.close().sync();
+        clientGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        serverGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        abyte.release();
+    }
+
+    @Benchmark
+    public Object pingPong() throws Exception {
+        return chan.pipeline().writeAndFlush(abyte.retainedSlice()).sync();
+    }
+}
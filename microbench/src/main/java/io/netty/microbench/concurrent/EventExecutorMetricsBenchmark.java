@@ -0,0 +1,104 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.concurrent;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutorMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what the {@link io.netty.util.concurrent.SingleThreadEventExecutor#enableMetrics() metrics} of an executor
+ * cost per task. With {@code metrics=false} the numbers should be the same as without the metrics support at all.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class EventExecutorMetricsBenchmark extends AbstractMicrobenchmark {
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @Param({ "false", "true" })
+    public boolean metrics;
+
+    @Param({ "1000" })
+    public int batchSize;
+
+    private DefaultEventExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = new DefaultEventExecutor();
+        if (metrics) {
+            executor.enableMetrics();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+    }
+
+    /**
+     * Submits a batch of tasks from another thread and waits until all of them ran, so the executor is busy running
+     * tasks and the cost of recording them shows.
+     */
+    @Benchmark
+    public void executeBatch() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        for (int i = 1; i < batchSize; i++) {
+            executor.execute(NOOP);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
+    /**
+     * Submits a single task and waits for it, so the executor wakes up for every task.
+     */
+    @Benchmark
+    public Object roundTrip() throws InterruptedException {
+        return executor.submit(NOOP).sync();
+    }
+
+    /**
+     * Takes a snapshot of the metrics, as a listener or a polling monitoring system would.
+     */
+    @Benchmark
+    public EventExecutorMetrics snapshot() {
+        return executor.metrics();
+    }
+}
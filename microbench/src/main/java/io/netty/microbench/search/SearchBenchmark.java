@@ -18,8 +18,10 @@ package io.netty.microbench.search;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
+import io.netty.buffer.search.AbstractBulkSearcher;
 import io.netty.buffer.search.AbstractMultiSearchProcessorFactory;
 import io.netty.buffer.search.AbstractSearchProcessorFactory;
+import io.netty.buffer.search.BulkSearcher;
 import io.netty.buffer.search.SearchProcessorFactory;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -90,7 +92,7 @@ public class SearchBenchmark extends AbstractMicrobenchmark {
                 return randomBytes(rnd, 2048, 0, 1);
             }
         },
-        WORST_CASE { // Bitap will fail on it because the needle is >64 bytes long
+        WORST_CASE { // Bitap and shift-or will fail on it because the needle is >64 bytes long
             @Override
             byte[] getNeedle(Random rnd) {
                 // aa(...)aab
@@ -122,6 +124,7 @@ public class SearchBenchmark extends AbstractMicrobenchmark {
     private ByteBuf needle, haystack;
     private byte[] needleBytes, haystackBytes;
     private SearchProcessorFactory kmpFactory, bitapFactory, ahoCorasicFactory;
+    private BulkSearcher boyerMooreHorspoolSearcher, shiftOrSearcher;
 
     @Setup
     public void setup() {
@@ -135,9 +138,11 @@ public class SearchBenchmark extends AbstractMicrobenchmark {
 
         kmpFactory = AbstractSearchProcessorFactory.newKmpSearchProcessorFactory(needleBytes);
         ahoCorasicFactory = AbstractMultiSearchProcessorFactory.newAhoCorasicSearchProcessorFactory(needleBytes);
+        boyerMooreHorspoolSearcher = AbstractBulkSearcher.newBoyerMooreHorspoolSearcher(needleBytes);
 
         if (needleBytes.length <= 64) {
             bitapFactory = AbstractSearchProcessorFactory.newBitapSearchProcessorFactory(needleBytes);
+            shiftOrSearcher = AbstractBulkSearcher.newShiftOrSearcher(needleBytes);
         }
     }
 
@@ -171,6 +176,18 @@ public class SearchBenchmark extends AbstractMicrobenchmark {
         return haystack.forEachByte(ahoCorasicFactory.newSearchProcessor());
     }
 
+    @Benchmark
+    @CompilerControl(Mode.DONT_INLINE)
+    public int boyerMooreHorspool() {
+        return boyerMooreHorspoolSearcher.indexOf(haystack);
+    }
+
+    @Benchmark
+    @CompilerControl(Mode.DONT_INLINE)
+    public int shiftOr() {
+        return shiftOrSearcher.indexOf(haystack);
+    }
+
     private static byte[] randomBytes(Random rnd, int size, int from, int to) {
         byte[] bytes = new byte[size];
         for (int i = 0; i < size; i++) {
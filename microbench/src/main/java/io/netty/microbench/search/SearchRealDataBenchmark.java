@@ -16,8 +16,10 @@
 package io.netty.microbench.search;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.search.AbstractBulkSearcher;
 import io.netty.buffer.search.AbstractMultiSearchProcessorFactory;
 import io.netty.buffer.search.AbstractSearchProcessorFactory;
+import io.netty.buffer.search.BulkSearcher;
 import io.netty.buffer.search.SearchProcessor;
 import io.netty.buffer.search.SearchProcessorFactory;
 import io.netty.microbench.util.AbstractMicrobenchmark;
@@ -67,8 +69,27 @@ public class SearchRealDataBenchmark extends AbstractMicrobenchmark {
             SearchProcessorFactory newFactory(byte[] needle) {
                 return AbstractSearchProcessorFactory.newBitapSearchProcessorFactory(needle);
             }
+        },
+        BOYER_MOORE_HORSPOOL {
+            @Override
+            BulkSearcher newBulkSearcher(byte[] needle) {
+                return AbstractBulkSearcher.newBoyerMooreHorspoolSearcher(needle);
+            }
+        },
+        SHIFT_OR {
+            @Override
+            BulkSearcher newBulkSearcher(byte[] needle) {
+                return AbstractBulkSearcher.newShiftOrSearcher(needle);
+            }
         };
-        abstract SearchProcessorFactory newFactory(byte[] needle);
+
+        SearchProcessorFactory newFactory(byte[] needle) {
+            return null;
+        }
+
+        BulkSearcher newBulkSearcher(byte[] needle) {
+            return null;
+        }
     }
 
     @Param
@@ -80,6 +101,8 @@ public class SearchRealDataBenchmark extends AbstractMicrobenchmark {
     private ByteBuf haystack;
     private SearchProcessorFactory[] searchProcessorFactories;
     private SearchProcessorFactory searchProcessorFactory;
+    private BulkSearcher[] bulkSearchers;
+    private BulkSearcher bulkSearcher;
 
     private static final byte[][] NEEDLES = {
             "Thank You".getBytes(),
@@ -107,8 +130,10 @@ public class SearchRealDataBenchmark extends AbstractMicrobenchmark {
         haystackLength = haystack.readableBytes();
 
         searchProcessorFactories = new SearchProcessorFactory[NEEDLES.length];
+        bulkSearchers = new BulkSearcher[NEEDLES.length];
         for (int i = 0; i < NEEDLES.length; i++) {
             searchProcessorFactories[i] = algorithm.newFactory(NEEDLES[i]);
+            bulkSearchers[i] = algorithm.newBulkSearcher(NEEDLES[i]);
         }
     }
 
@@ -116,6 +141,7 @@ public class SearchRealDataBenchmark extends AbstractMicrobenchmark {
     public void invocationSetup() {
         needleId = (needleId + 1) % searchProcessorFactories.length;
         searchProcessorFactory = searchProcessorFactories[needleId];
+        bulkSearcher = bulkSearchers[needleId];
     }
 
     @TearDown
@@ -126,6 +152,9 @@ public class SearchRealDataBenchmark extends AbstractMicrobenchmark {
     @Benchmark
     @CompilerControl(Mode.DONT_INLINE)
     public int findFirst() {
+        if (bulkSearcher != null) {
+            return bulkSearcher.indexOf(haystack);
+        }
         return haystack.forEachByte(searchProcessorFactory.newSearchProcessor());
     }
 
@@ -133,6 +162,9 @@ public class SearchRealDataBenchmark extends AbstractMicrobenchmark {
     @CompilerControl(Mode.DONT_INLINE)
     public int findFirstFromIndex() {
         searchFrom = (searchFrom + 100) % haystackLength;
+        if (bulkSearcher != null) {
+            return bulkSearcher.indexOf(haystack, searchFrom, haystackLength);
+        }
         return haystack.forEachByte(
                 searchFrom, haystackLength - searchFrom, searchProcessorFactory.newSearchProcessor());
     }
@@ -140,6 +172,14 @@ public class SearchRealDataBenchmark extends AbstractMicrobenchmark {
     @Benchmark
     @CompilerControl(Mode.DONT_INLINE)
     public void findAll(Blackhole blackHole) {
+        if (bulkSearcher != null) {
+            int pos = 0;
+            do {
+                pos = bulkSearcher.indexOf(haystack, pos, haystackLength) + 1;
+                blackHole.consume(pos);
+            } while (pos > 0);
+            return;
+        }
         SearchProcessor searchProcessor = searchProcessorFactory.newSearchProcessor();
         int pos = 0;
         do {
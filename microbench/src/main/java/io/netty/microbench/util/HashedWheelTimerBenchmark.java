@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.util;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.ShardedHashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of scheduling, cancelling and expiring timeouts from several threads with a
+ * {@link HashedWheelTimer} and a {@link ShardedHashedWheelTimer}.
+ */
+@Warmup(iterations = AbstractMicrobenchmarkBase.DEFAULT_WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = AbstractMicrobenchmarkBase.DEFAULT_MEASURE_ITERATIONS, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+public class HashedWheelTimerBenchmark extends AbstractMicrobenchmark {
+    private static final TimerTask NOOP = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) {
+        }
+    };
+
+    @Param({ "hashed", "sharded" })
+    public String timerType;
+
+    @Param({ "4" })
+    public int shards;
+
+    private Timer timer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if ("sharded".equals(timerType)) {
+            timer = new ShardedHashedWheelTimer(Executors.defaultThreadFactory(), shards, 1, TimeUnit.MILLISECONDS,
+                    512, false);
+        } else {
+            timer = new HashedWheelTimer(Executors.defaultThreadFactory(), 1, TimeUnit.MILLISECONDS, 512);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @State(Scope.Thread)
+    public static class ExpireState {
+        @Param({ "1000" })
+        public int batchSize;
+
+        CountDownLatch latch;
+        TimerTask task;
+
+        @Setup(Level.Invocation)
+        public void setup() {
+            final CountDownLatch latch = new CountDownLatch(batchSize);
+            this.latch = latch;
+            task = new TimerTask() {
+                @Override
+                public void run(Timeout timeout) {
+                    latch.countDown();
+                }
+            };
+        }
+    }
+
+    /**
+     * Schedules a timeout far in the future and cancels it again, like a read timeout that is reset for every read.
+     */
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        return timer.newTimeout(NOOP, 1, TimeUnit.HOURS).cancel();
+    }
+
+    /**
+     * Schedules a batch of timeouts that are due in the next tick, and waits for all of them to expire.
+     */
+    @Benchmark
+    public void scheduleAndExpire(ExpireState state) throws InterruptedException {
+        for (int i = 0; i < state.batchSize; i++) {
+            timer.newTimeout(state.task, 0, TimeUnit.MILLISECONDS);
+        }
+        state.latch.await();
+    }
+}
@@ -22,7 +22,9 @@ import org.openjdk.jmh.annotations.Group;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Control;
@@ -65,6 +67,31 @@ public class RecyclerBenchmark extends AbstractMicrobenchmark {
         return o;
     }
 
+    @State(Scope.Thread)
+    public static class BurstState {
+        @Param({ "16", "256", "1024" })
+        public int burstSize;
+
+        DummyObject[] objects;
+
+        @Setup
+        public void setup() {
+            objects = new DummyObject[burstSize];
+        }
+    }
+
+    @Benchmark
+    public DummyObject[] recyclerBurst(BurstState state) {
+        DummyObject[] objects = state.objects;
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = recycler.get();
+        }
+        for (DummyObject object : objects) {
+            object.recycle();
+        }
+        return objects;
+    }
+
     @State(Scope.Benchmark)
     public static class ProducerConsumerState {
         final ArrayBlockingQueue<DummyObject> queue = new ArrayBlockingQueue<DummyObject>(100);
@@ -96,6 +123,46 @@ public class RecyclerBenchmark extends AbstractMicrobenchmark {
         } while (!control.stopMeasurement);
     }
 
+    @State(Scope.Group)
+    public static class BatchProducerConsumerState {
+        @Param({ "16", "256" })
+        public int batchSize;
+
+        final ArrayBlockingQueue<DummyObject[]> queue = new ArrayBlockingQueue<DummyObject[]>(16);
+    }
+
+    // Recycles a batch of objects from another thread per operation, so the cost of the hand-off itself matters less
+    // than in producerConsumer.
+    @Benchmark
+    @Group("batchProducerConsumer")
+    public void batchProducer(BatchProducerConsumerState state, Control control) throws Exception {
+        DummyObject[] objects = new DummyObject[state.batchSize];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = recycler.get();
+        }
+        ArrayBlockingQueue<DummyObject[]> queue = state.queue;
+        while (!control.stopMeasurement) {
+            if (queue.offer(objects)) {
+                break;
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("batchProducerConsumer")
+    public void batchConsumer(BatchProducerConsumerState state, Control control) throws Exception {
+        DummyObject[] objects;
+        do {
+            objects = state.queue.poll();
+            if (objects != null) {
+                for (DummyObject object : objects) {
+                    object.recycle();
+                }
+                return;
+            }
+        } while (!control.stopMeasurement);
+    }
+
     @SuppressWarnings("unused")
     private static final class DummyObject {
         private final Recycler.Handle<DummyObject> handle;
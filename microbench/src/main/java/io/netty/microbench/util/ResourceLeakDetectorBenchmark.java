@@ -16,21 +16,47 @@
 package io.netty.microbench.util;
 
 import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakTracker;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
 
 public class ResourceLeakDetectorBenchmark extends AbstractMicrobenchmark {
 
     private static final Object DUMMY = new Object();
+
+    @Param({ "DISABLED", "SIMPLE", "SITE", "ADVANCED" })
+    public ResourceLeakDetector.Level level;
+
     private ResourceLeakDetector<Object> detector;
+    private ResourceLeakDetector.Level oldLevel;
 
     @Setup
     public void setup() {
+        oldLevel = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(level);
         detector = new ResourceLeakDetector<Object>(getClass(), 128, Long.MAX_VALUE);
     }
 
+    @TearDown
+    public void teardown() {
+        ResourceLeakDetector.setLevel(oldLevel);
+    }
+
     @Benchmark
     public Object open() {
         return detector.open(DUMMY);
     }
+
+    @Benchmark
+    public boolean trackRecordAndClose() {
+        Object object = new Object();
+        ResourceLeakTracker<Object> tracker = detector.track(object);
+        if (tracker == null) {
+            return false;
+        }
+        tracker.record();
+        return tracker.close(object);
+    }
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.netty.microbenchmark.common;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.collection.IntHashSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class IntHashSetBenchmark extends AbstractMicrobenchmark {
+    // Agrona's set uses this value to mark free slots, so it is never used as a key.
+    private static final int MISSING_VALUE = -1;
+
+    public enum SetType {
+        AGRONA,
+        JDK,
+        NETTY
+    }
+
+    public enum KeyDistribution {
+        HTTP2,
+        RANDOM
+    }
+
+    @Param({ "10", "100", "1000", "10000", "100000" })
+    public int size;
+
+    @Param
+    public SetType setType;
+
+    @Param
+    public KeyDistribution keyDistribution;
+
+    private Environment environment;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch(setType) {
+            case AGRONA: {
+                environment = new AgronaEnvironment();
+                break;
+            }
+            case JDK: {
+                environment = new JdkEnvironment();
+                break;
+            }
+            case NETTY: {
+                environment = new NettyEnvironment();
+                break;
+            }
+            default: {
+                throw new IllegalStateException("Invalid setType: " + setType);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void add(Blackhole bh) {
+        environment.add(bh);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void contains(Blackhole bh) {
+        environment.contains(bh);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void remove(Blackhole bh) {
+        environment.remove(bh);
+    }
+
+    private abstract class Environment {
+        final int[] keys;
+        Environment() {
+            keys = new int[size];
+            switch(keyDistribution) {
+                case HTTP2:
+                    for (int index = 0, key = 3; index < size; ++index, key += 2) {
+                        keys[index] = key;
+                    }
+                    break;
+                case RANDOM: {
+                    // Create a 'size' # of random integers.
+                    Random r = new Random();
+                    Set<Integer> keySet = new HashSet<Integer>();
+                    while (keySet.size() < size) {
+                        int key = r.nextInt();
+                        if (key != MISSING_VALUE) {
+                            keySet.add(key);
+                        }
+                    }
+
+                    int index = 0;
+                    for (Integer key : keySet) {
+                        keys[index++] = key;
+                    }
+                    break;
+                }
+                default: {
+                    throw new IllegalStateException("Unknown keyDistribution: " + keyDistribution);
+                }
+            }
+        }
+        abstract void add(Blackhole bh);
+        abstract void contains(Blackhole bh);
+        abstract void remove(Blackhole bh);
+    }
+
+    private class AgronaEnvironment extends Environment {
+        private final org.agrona.collections.IntHashSet set = newSet();
+
+        AgronaEnvironment() {
+            for (int key : keys) {
+                set.add(key);
+            }
+        }
+
+        private org.agrona.collections.IntHashSet newSet() {
+            return new org.agrona.collections.IntHashSet(16, MISSING_VALUE);
+        }
+
+        @Override
+        void add(Blackhole bh) {
+            org.agrona.collections.IntHashSet set = newSet();
+            for (int key : keys) {
+                bh.consume(set.add(key));
+            }
+        }
+
+        @Override
+        void contains(Blackhole bh) {
+            for (int key : keys) {
+                bh.consume(set.contains(key));
+            }
+        }
+
+        @Override
+        void remove(Blackhole bh) {
+            org.agrona.collections.IntHashSet copy = newSet();
+            for (int key : keys) {
+                copy.add(key);
+            }
+            for (int key : keys) {
+                bh.consume(copy.remove(key));
+            }
+        }
+    }
+
+    private class JdkEnvironment extends Environment {
+        private final Set<Integer> set = new HashSet<Integer>();
+
+        JdkEnvironment() {
+            for (int key : keys) {
+                set.add(key);
+            }
+        }
+
+        @Override
+        void add(Blackhole bh) {
+            Set<Integer> set = new HashSet<Integer>();
+            for (int key : keys) {
+                bh.consume(set.add(key));
+            }
+        }
+
+        @Override
+        void contains(Blackhole bh) {
+            for (int key : keys) {
+                bh.consume(set.contains(key));
+            }
+        }
+
+        @Override
+        void remove(Blackhole bh) {
+            Set<Integer> copy = new HashSet<Integer>(set);
+            for (int key : keys) {
+                bh.consume(copy.remove(key));
+            }
+        }
+    }
+
+    private class NettyEnvironment extends Environment {
+        private final IntHashSet set = new IntHashSet();
+
+        NettyEnvironment() {
+            for (int key : keys) {
+                set.add(key);
+            }
+        }
+
+        @Override
+        void add(Blackhole bh) {
+            IntHashSet set = new IntHashSet();
+            for (int key : keys) {
+                bh.consume(set.add(key));
+            }
+        }
+
+        @Override
+        void contains(Blackhole bh) {
+            for (int key : keys) {
+                bh.consume(set.contains(key));
+            }
+        }
+
+        @Override
+        void remove(Blackhole bh) {
+            IntHashSet copy = new IntHashSet();
+            for (int key : keys) {
+                copy.add(key);
+            }
+            for (int key : keys) {
+                bh.consume(copy.remove(key));
+            }
+        }
+    }
+}
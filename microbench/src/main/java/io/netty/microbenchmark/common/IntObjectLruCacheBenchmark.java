@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.netty.microbenchmark.common;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.collection.IntObjectLruCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class IntObjectLruCacheBenchmark extends AbstractMicrobenchmark {
+    private static final Long VALUE = Long.MAX_VALUE;
+
+    public enum CacheType {
+        JDK,
+        NETTY
+    }
+
+    @Param({ "16", "256", "4096" })
+    public int maxSize;
+
+    @Param
+    public CacheType cacheType;
+
+    // Keys are drawn from a range this many times larger than the cache, so some of the lookups miss.
+    @Param({ "1", "2" })
+    public int keyRangeFactor;
+
+    private Environment environment;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch(cacheType) {
+            case JDK: {
+                environment = new JdkEnvironment();
+                break;
+            }
+            case NETTY: {
+                environment = new NettyEnvironment();
+                break;
+            }
+            default: {
+                throw new IllegalStateException("Invalid cacheType: " + cacheType);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void getOrPut(Blackhole bh) {
+        environment.getOrPut(bh);
+    }
+
+    private abstract class Environment {
+        final int[] keys = new int[1024];
+        Environment() {
+            Random r = new Random(42);
+            for (int index = 0; index < keys.length; ++index) {
+                keys[index] = r.nextInt(maxSize * keyRangeFactor);
+            }
+        }
+        abstract void getOrPut(Blackhole bh);
+    }
+
+    private class JdkEnvironment extends Environment {
+        private final Map<Integer, Long> cache = new LinkedHashMap<Integer, Long>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+
+        @Override
+        void getOrPut(Blackhole bh) {
+            for (int key : keys) {
+                Long value = cache.get(key);
+                if (value == null) {
+                    cache.put(key, VALUE);
+                }
+                bh.consume(value);
+            }
+        }
+    }
+
+    private class NettyEnvironment extends Environment {
+        private final IntObjectLruCache<Long> cache = new IntObjectLruCache<Long>(maxSize);
+
+        @Override
+        void getOrPut(Blackhole bh) {
+            for (int key : keys) {
+                Long value = cache.get(key);
+                if (value == null) {
+                    cache.put(key, VALUE);
+                }
+                bh.consume(value);
+            }
+        }
+    }
+}
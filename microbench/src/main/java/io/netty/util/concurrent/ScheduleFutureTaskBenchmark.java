@@ -47,14 +47,19 @@ public class ScheduleFutureTaskBenchmark extends AbstractMicrobenchmark {
     @State(Scope.Thread)
     public static class ThreadState {
 
-        @Param({ "100000" })
+        @Param({ "100000", "1000000" })
         int num;
 
+        // 0 keeps the scheduled tasks in a binary heap.
+        @Param({ "0", "1000000" })
+        long wheelTickNanos;
+
         AbstractScheduledEventExecutor eventLoop;
 
         @Setup(Level.Trial)
         public void reset() {
             eventLoop = (AbstractScheduledEventExecutor) new NioEventLoopGroup(1).next();
+            useScheduledTaskWheel(eventLoop, wheelTickNanos);
         }
 
         @Setup(Level.Invocation)
@@ -87,6 +92,38 @@ public class ScheduleFutureTaskBenchmark extends AbstractMicrobenchmark {
         }).syncUninterruptibly();
     }
 
+    @Benchmark
+    @Threads(1)
+    public Future<?> scheduleCancelLots(final ThreadState threadState) {
+        return threadState.eventLoop.submit(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 1; i <= threadState.num; i++) {
+                    threadState.eventLoop.schedule(NO_OP, i, TimeUnit.SECONDS).cancel(false);
+                }
+            }
+        }).syncUninterruptibly();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Future<?> scheduleLotsCancelEarliest(final ThreadState threadState) {
+        return threadState.eventLoop.submit(new Runnable() {
+            @Override
+            public void run() {
+                ScheduledFuture<?>[] futures = new ScheduledFuture<?>[threadState.num];
+                for (int i = 0; i < futures.length; i++) {
+                    futures[i] = threadState.eventLoop.schedule(NO_OP, i + 1, TimeUnit.MILLISECONDS);
+                }
+                // Cancel the earliest task each time and peek like the event loop does after running its tasks.
+                for (ScheduledFuture<?> future : futures) {
+                    future.cancel(false);
+                    threadState.eventLoop.peekScheduledTask();
+                }
+            }
+        }).syncUninterruptibly();
+    }
+
     @Benchmark
     @Threads(1)
     public Future<?> scheduleLotsOutsideLoop(final ThreadState threadState) {
@@ -106,4 +143,15 @@ public class ScheduleFutureTaskBenchmark extends AbstractMicrobenchmark {
         }
         return null;
     }
+
+    static void useScheduledTaskWheel(final AbstractScheduledEventExecutor eventLoop, final long tickNanos) {
+        if (tickNanos > 0) {
+            eventLoop.submit(new Runnable() {
+                @Override
+                public void run() {
+                    eventLoop.scheduledTaskQueue = new ScheduledTaskWheel(eventLoop, tickNanos);
+                }
+            }).syncUninterruptibly();
+        }
+    }
 }
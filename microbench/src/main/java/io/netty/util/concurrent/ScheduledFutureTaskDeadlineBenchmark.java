@@ -20,6 +20,7 @@ import io.netty.microbench.util.AbstractMicrobenchmark;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -36,12 +37,28 @@ public class ScheduledFutureTaskDeadlineBenchmark extends AbstractMicrobenchmark
     @State(Scope.Thread)
     public static class ThreadState {
 
+        @Param({ "0", "1000000" })
+        int pendingTasks;
+
+        // 0 keeps the scheduled tasks in a binary heap.
+        @Param({ "0", "1000000" })
+        long wheelTickNanos;
+
         AbstractScheduledEventExecutor eventLoop;
         ScheduledFutureTask<?> future;
 
         @Setup(Level.Trial)
         public void reset() {
             eventLoop = (AbstractScheduledEventExecutor) new NioEventLoopGroup(1).next();
+            ScheduleFutureTaskBenchmark.useScheduledTaskWheel(eventLoop, wheelTickNanos);
+            eventLoop.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 1; i <= pendingTasks; i++) {
+                        eventLoop.schedule(ScheduleFutureTaskBenchmark.NO_OP, i, TimeUnit.SECONDS);
+                    }
+                }
+            }).syncUninterruptibly();
             future = (ScheduledFutureTask<?>) eventLoop.schedule(new Runnable() {
                 @Override
                 public void run() {
@@ -51,6 +68,12 @@ public class ScheduledFutureTaskDeadlineBenchmark extends AbstractMicrobenchmark
 
         @TearDown(Level.Trial)
         public void shutdown() {
+            eventLoop.submit(new Runnable() {
+                @Override
+                public void run() {
+                    eventLoop.cancelScheduledTasks();
+                }
+            }).awaitUninterruptibly();
             future.cancel(true);
             eventLoop.parent().shutdownGracefully().awaitUninterruptibly();
         }
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.testsuite.transport.socket;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoop;
+import io.netty.channel.LoadAwareEventLoopChooserFactory;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.testsuite.transport.TestsuitePermutation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Connects one connection which keeps its {@link EventLoop} busy, and then several cheap ones. With round-robin some
+ * of them share the {@link EventLoop} of the expensive connection and have to wait for it, while the
+ * {@link LoadAwareEventLoopChooserFactory} keeps them away from it. Only where the connections end up is checked, as
+ * their latencies vary too much between runs to be compared.
+ */
+public class SocketLoadAwareChooserTest extends AbstractSocketTest {
+
+    private static final byte HEAVY = 'H';
+    private static final byte LIGHT = 'L';
+    private static final long SPIN_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int LIGHT_CONNECTIONS = 6;
+    private static final int PINGS = 10;
+
+    @Test
+    @Timeout(value = 30000, unit = TimeUnit.MILLISECONDS)
+    public void testSkewedConnectionCosts(TestInfo testInfo) throws Throwable {
+        run(testInfo, new Runner<ServerBootstrap, Bootstrap>() {
+            @Override
+            public void run(ServerBootstrap serverBootstrap, Bootstrap bootstrap) throws Throwable {
+                testSkewedConnectionCosts(serverBootstrap);
+            }
+        });
+    }
+
+    public void testSkewedConnectionCosts(ServerBootstrap sb) throws Throwable {
+        Scenario roundRobin = runScenario(sb.clone());
+        Scenario loadAware = runScenario(sb.clone().childChooserFactory(LoadAwareEventLoopChooserFactory.INSTANCE));
+
+        // Round-robin hands out every loop in turn, so it also picks the busy one.
+        assertTrue(roundRobin.lightLoops.contains(roundRobin.heavyLoop));
+        // Two of the three loops are free, and the two choices always include at least one of them.
+        assertFalse(loadAware.lightLoops.contains(loadAware.heavyLoop));
+    }
+
+    private static Scenario runScenario(ServerBootstrap sb) throws Exception {
+        final Scenario scenario = new Scenario();
+        sb.childHandler(new ScenarioHandler(scenario));
+        Channel sc = sb.bind().syncUninterruptibly().channel();
+        InetSocketAddress address = (InetSocketAddress) sc.localAddress();
+        List<Socket> sockets = new ArrayList<Socket>();
+        try {
+            Socket heavy = new Socket(address.getAddress(), address.getPort());
+            sockets.add(heavy);
+            heavy.getOutputStream().write(HEAVY);
+            heavy.getOutputStream().flush();
+            // Long enough for the busy ratio of the loop to show.
+            Thread.sleep(300);
+
+            for (int i = 0; i < LIGHT_CONNECTIONS; i++) {
+                Socket light = new Socket(address.getAddress(), address.getPort());
+                light.setTcpNoDelay(true);
+                light.setSoTimeout(10000);
+                sockets.add(light);
+            }
+            for (int i = 1; i < sockets.size(); i++) {
+                OutputStream out = sockets.get(i).getOutputStream();
+                InputStream in = sockets.get(i).getInputStream();
+                for (int j = 0; j < PINGS; j++) {
+                    out.write(LIGHT);
+                    out.flush();
+                    assertEquals(LIGHT, in.read());
+                }
+            }
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            sc.close().syncUninterruptibly();
+        }
+        // Wait until the heavy connection noticed it is closed and stopped spinning.
+        Thread.sleep(200);
+        return scenario;
+    }
+
+    @Sharable
+    private static final class ScenarioHandler extends SimpleChannelInboundHandler<ByteBuf> {
+        private final Scenario scenario;
+
+        ScenarioHandler(Scenario scenario) {
+            this.scenario = scenario;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+            if (msg.getByte(msg.readerIndex()) == HEAVY) {
+                scenario.heavyLoop = ctx.channel().eventLoop();
+                spin(ctx.channel());
+            } else {
+                scenario.lightLoops.add(ctx.channel().eventLoop());
+                ctx.writeAndFlush(msg.retain());
+            }
+        }
+    }
+
+    private static void spin(final Channel channel) {
+        channel.eventLoop().execute(new Runnable() {
+            @Override
+            public void run() {
+                long deadline = System.nanoTime() + SPIN_NANOS;
+                while (System.nanoTime() - deadline < 0) {
+                    // Busy, like an expensive request.
+                }
+                if (channel.isActive()) {
+                    // Scheduled rather than executed, so the loop still handles I/O in between.
+                    channel.eventLoop().schedule(this, 0, TimeUnit.NANOSECONDS);
+                }
+            }
+        });
+    }
+
+    private static final class Scenario {
+        final Set<EventLoop> lightLoops = Collections.newSetFromMap(new ConcurrentHashMap<EventLoop, Boolean>());
+        volatile EventLoop heavyLoop;
+    }
+
+    @Override
+    protected List<TestsuitePermutation.BootstrapComboFactory<ServerBootstrap, Bootstrap>> newFactories() {
+        List<TestsuitePermutation.BootstrapComboFactory<ServerBootstrap, Bootstrap>> factories
+                = new ArrayList<TestsuitePermutation.BootstrapComboFactory<ServerBootstrap, Bootstrap>>();
+        for (TestsuitePermutation.BootstrapComboFactory<ServerBootstrap, Bootstrap> comboFactory
+                : SocketTestPermutation.INSTANCE.socket()) {
+            // Needs a fixed set of child EventLoops to choose from, and the client side does not matter.
+            if (comboFactory.newServerInstance().config().childGroup() instanceof NioEventLoopGroup) {
+                factories.add(comboFactory);
+                break;
+            }
+        }
+        return factories;
+    }
+}
@@ -311,6 +311,7 @@ class EpollEventLoop extends SingleThreadEventLoop {
     protected void run() {
         long prevDeadlineNanos = NONE;
         for (;;) {
+            iterationStarted();
             try {
                 int strategy = selectStrategy.calculateStrategy(selectNowSupplier, hasTasks());
                 switch (strategy) {
@@ -318,7 +319,13 @@ class EpollEventLoop extends SingleThreadEventLoop {
                         continue;
 
                     case SelectStrategy.BUSY_WAIT:
-                        strategy = epollBusyWait();
+                        // Spins until there are events, so it waits for work like a blocking epoll_wait.
+                        idleStarted();
+                        try {
+                            strategy = epollBusyWait();
+                        } finally {
+                            idleEnded();
+                        }
                         break;
 
                     case SelectStrategy.SELECT:
@@ -346,16 +353,21 @@ class EpollEventLoop extends SingleThreadEventLoop {
                         nextWakeupNanos.set(curDeadlineNanos);
                         try {
                             if (!hasTasks()) {
-                                if (curDeadlineNanos == prevDeadlineNanos) {
-                                    // No timer activity needed
-                                    strategy = epollWaitNoTimerChange();
-                                } else {
-                                    // Timerfd needs to be re-armed or disarmed
-                                    long result = epollWait(curDeadlineNanos);
-                                    // The result contains the actual return value and if a timer was used or not.
-                                    // We need to "unpack" using the helper methods exposed in Native.
-                                    strategy = Native.epollReady(result);
-                                    prevDeadlineNanos = Native.epollTimerWasUsed(result) ? curDeadlineNanos : NONE;
+                                idleStarted();
+                                try {
+                                    if (curDeadlineNanos == prevDeadlineNanos) {
+                                        // No timer activity needed
+                                        strategy = epollWaitNoTimerChange();
+                                    } else {
+                                        // Timerfd needs to be re-armed or disarmed
+                                        long result = epollWait(curDeadlineNanos);
+                                        // The result contains the actual return value and if a timer was used or
+                                        // not. We need to "unpack" using the helper methods exposed in Native.
+                                        strategy = Native.epollReady(result);
+                                        prevDeadlineNanos = Native.epollTimerWasUsed(result) ? curDeadlineNanos : NONE;
+                                    }
+                                } finally {
+                                    idleEnded();
                                 }
                             }
                         } finally {
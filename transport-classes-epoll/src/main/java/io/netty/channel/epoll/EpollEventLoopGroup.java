@@ -22,10 +22,18 @@ import io.netty.channel.EventLoopTaskQueueFactory;
 import io.netty.channel.MultithreadEventLoopGroup;
 import io.netty.channel.SelectStrategyFactory;
 import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.unix.AffinityThreadFactory;
+import io.netty.channel.unix.CpuAffinity;
+import io.netty.channel.unix.CpuAffinityStrategy;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.EventExecutorChooserFactory;
 import io.netty.util.concurrent.RejectedExecutionHandler;
 import io.netty.util.concurrent.RejectedExecutionHandlers;
+import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
@@ -33,8 +41,84 @@ import java.util.concurrent.ThreadFactory;
 /**
  * {@link EventLoopGroup} which uses epoll under the covers. Because of this
  * it only works on linux.
+ * <p>
+ * If no {@link ThreadFactory} or {@link Executor} is given, the threads of the group can be pinned to CPUs by setting
+ * the {@code io.netty.channel.epoll.eventLoopAffinity} system property to {@code cpu}, {@code physicalCore} or
+ * {@code avoidSiblings}, see {@link CpuAffinityStrategy}. The CPUs default to the ones the process may run on, and can
+ * be restricted with the {@code io.netty.channel.epoll.eventLoopCpus} system property, for example {@code 2-7}. To
+ * see which thread was pinned to which CPUs, use an {@link AffinityThreadFactory} instead.
  */
 public final class EpollEventLoopGroup extends MultithreadEventLoopGroup {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EpollEventLoopGroup.class);
+
+    private static final CpuAffinityStrategy AFFINITY_STRATEGY;
+    private static final int[] AFFINITY_CPUS;
+
+    static {
+        String affinity = SystemPropertyUtil.get("io.netty.channel.epoll.eventLoopAffinity");
+        String cpuList = SystemPropertyUtil.get("io.netty.channel.epoll.eventLoopCpus");
+        CpuAffinityStrategy strategy = affinityStrategy(affinity);
+        int[] cpus = strategy == null ? EmptyArrays.EMPTY_INTS : affinityCpus(cpuList);
+        // The affinity of the current thread is the default CPU set, and can only be read once JNI is initialized.
+        if (strategy != null && !Epoll.isAvailable()) {
+            strategy = null;
+        }
+        AFFINITY_STRATEGY = strategy;
+        AFFINITY_CPUS = cpus;
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.channel.epoll.eventLoopAffinity: {}", strategy);
+            logger.debug("-Dio.netty.channel.epoll.eventLoopCpus: {}", cpuList);
+        }
+    }
+
+    /**
+     * Returns the {@link CpuAffinityStrategy} for a value of {@code -Dio.netty.channel.epoll.eventLoopAffinity}, or
+     * {@code null} if the threads should not be pinned.
+     */
+    static CpuAffinityStrategy affinityStrategy(String affinity) {
+        if ("cpu".equalsIgnoreCase(affinity)) {
+            return CpuAffinityStrategy.CPU;
+        }
+        if ("physicalCore".equalsIgnoreCase(affinity)) {
+            return CpuAffinityStrategy.PHYSICAL_CORE;
+        }
+        if ("avoidSiblings".equalsIgnoreCase(affinity)) {
+            return CpuAffinityStrategy.AVOID_SIBLINGS;
+        }
+        if (affinity != null && !"none".equalsIgnoreCase(affinity)) {
+            logger.warn("-Dio.netty.channel.epoll.eventLoopAffinity: unknown value {}, not pinning threads",
+                    affinity);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the CPUs for a value of {@code -Dio.netty.channel.epoll.eventLoopCpus}, or none to use all the CPUs
+     * the process may run on.
+     */
+    static int[] affinityCpus(String cpuList) {
+        if (cpuList != null) {
+            try {
+                return CpuAffinity.parseCpuList(cpuList);
+            } catch (IllegalArgumentException e) {
+                logger.warn("-Dio.netty.channel.epoll.eventLoopCpus: invalid value {}, using all CPUs", cpuList, e);
+            }
+        }
+        return EmptyArrays.EMPTY_INTS;
+    }
+
+    /**
+     * Returns the {@link ThreadFactory} for the threads of a group which has no {@link ThreadFactory} or
+     * {@link Executor} given, as configured by {@code -Dio.netty.channel.epoll.eventLoopAffinity}.
+     */
+    static ThreadFactory newThreadFactory(Class<?> poolType, CpuAffinityStrategy strategy, int[] cpus) {
+        if (strategy == null) {
+            return new DefaultThreadFactory(poolType, Thread.MAX_PRIORITY);
+        }
+        return new AffinityThreadFactory(poolType, false, Thread.MAX_PRIORITY, strategy, cpus);
+    }
+
     {
         // Ensure JNI is initialized by the time this class is loaded.
         Epoll.ensureAvailability();
@@ -168,6 +252,11 @@ public final class EpollEventLoopGroup extends MultithreadEventLoopGroup {
         }
     }
 
+    @Override
+    protected ThreadFactory newDefaultThreadFactory() {
+        return newThreadFactory(getClass(), AFFINITY_STRATEGY, AFFINITY_CPUS);
+    }
+
     @Override
     protected EventLoop newChild(Executor executor, Object... args) throws Exception {
         Integer maxEvents = (Integer) args[0];
@@ -225,6 +225,7 @@ final class KQueueEventLoop extends SingleThreadEventLoop {
     @Override
     protected void run() {
         for (;;) {
+            iterationStarted();
             try {
                 int strategy = selectStrategy.calculateStrategy(selectNowSupplier, hasTasks());
                 switch (strategy) {
@@ -235,7 +236,12 @@ final class KQueueEventLoop extends SingleThreadEventLoop {
                         // fall-through to SELECT since the busy-wait is not supported with kqueue
 
                     case SelectStrategy.SELECT:
-                        strategy = kqueueWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+                        idleStarted();
+                        try {
+                            strategy = kqueueWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+                        } finally {
+                            idleEnded();
+                        }
 
                         // 'wakenUp.compareAndSet(false, true)' is always evaluated
                         // before calling 'selector.wakeup()' to reduce the wake-up
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.unix.AffinityThreadFactory;
+import io.netty.channel.unix.CpuAffinity;
+import io.netty.channel.unix.CpuAffinityStrategy;
+import io.netty.util.internal.EmptyArrays;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EpollCpuAffinityTest {
+
+    @BeforeAll
+    public static void loadJNI() {
+        Epoll.ensureAvailability();
+    }
+
+    @Test
+    public void testSetAndGetAffinity() throws Throwable {
+        assertTrue(CpuAffinity.isAvailable());
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        // Pin another thread, so the affinity of the test thread is left alone.
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    int[] cpus = CpuAffinity.currentThreadAffinity();
+                    assertTrue(cpus.length > 0);
+                    int cpu = cpus[cpus.length - 1];
+                    CpuAffinity.setCurrentThreadAffinity(cpu);
+                    assertArrayEquals(new int[] { cpu }, CpuAffinity.currentThreadAffinity());
+                    CpuAffinity.setCurrentThreadAffinity(cpus);
+                    assertArrayEquals(cpus, CpuAffinity.currentThreadAffinity());
+                } catch (Throwable cause) {
+                    error.set(cause);
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+
+    @Test
+    public void testEventLoopAffinityProperty() throws Exception {
+        assertSame(CpuAffinityStrategy.CPU, EpollEventLoopGroup.affinityStrategy("cpu"));
+        assertSame(CpuAffinityStrategy.PHYSICAL_CORE, EpollEventLoopGroup.affinityStrategy("physicalCore"));
+        assertSame(CpuAffinityStrategy.AVOID_SIBLINGS, EpollEventLoopGroup.affinityStrategy("AVOIDSIBLINGS"));
+        assertNull(EpollEventLoopGroup.affinityStrategy(null));
+        assertNull(EpollEventLoopGroup.affinityStrategy("none"));
+        assertNull(EpollEventLoopGroup.affinityStrategy("unknown"));
+
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, EpollEventLoopGroup.affinityCpus("0-3"));
+        assertArrayEquals(EmptyArrays.EMPTY_INTS, EpollEventLoopGroup.affinityCpus(null));
+        // Invalid lists fall back to all CPUs.
+        assertArrayEquals(EmptyArrays.EMPTY_INTS, EpollEventLoopGroup.affinityCpus("0-2000000000"));
+
+        assertFalse(EpollEventLoopGroup.newThreadFactory(EpollEventLoopGroup.class, null, EmptyArrays.EMPTY_INTS)
+                instanceof AffinityThreadFactory);
+
+        int[] cpus = CpuAffinity.currentThreadAffinity();
+        final int cpu = cpus[cpus.length - 1];
+        ThreadFactory threadFactory = EpollEventLoopGroup.newThreadFactory(
+                EpollEventLoopGroup.class, CpuAffinityStrategy.CPU, new int[] { cpu });
+        EventLoopGroup group = new EpollEventLoopGroup(1, threadFactory);
+        try {
+            int[] affinity = group.submit(new Callable<int[]>() {
+                @Override
+                public int[] call() throws Exception {
+                    return CpuAffinity.currentThreadAffinity();
+                }
+            }).sync().getNow();
+            assertArrayEquals(new int[] { cpu }, affinity);
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+}
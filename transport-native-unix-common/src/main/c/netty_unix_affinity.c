@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+#ifdef __linux__
+// Needed for the CPU_* macros and sched_setaffinity / sched_getaffinity.
+#ifndef _GNU_SOURCE
+#define _GNU_SOURCE
+#endif /* _GNU_SOURCE */
+#include <sched.h>
+#endif /* __linux__ */
+
+#include <errno.h>
+#include "netty_unix_affinity.h"
+#include "netty_unix_jni.h"
+#include "netty_unix_util.h"
+#include "netty_jni_util.h"
+
+#define AFFINITY_CLASSNAME "io/netty/channel/unix/CpuAffinity"
+
+// JNI Registered Methods Begin
+static jint netty_unix_affinity_setAffinity0(JNIEnv* env, jclass clazz, jintArray cpus) {
+#ifdef __linux__
+    cpu_set_t set;
+    CPU_ZERO(&set);
+    jint len = (*env)->GetArrayLength(env, cpus);
+    jint* elements = (*env)->GetIntArrayElements(env, cpus, NULL);
+    if (elements == NULL) {
+        // OOM exception is pending.
+        return -ENOMEM;
+    }
+    int i;
+    for (i = 0; i < len; i++) {
+        if (elements[i] < 0 || elements[i] >= CPU_SETSIZE) {
+            (*env)->ReleaseIntArrayElements(env, cpus, elements, JNI_ABORT);
+            return -EINVAL;
+        }
+        CPU_SET(elements[i], &set);
+    }
+    (*env)->ReleaseIntArrayElements(env, cpus, elements, JNI_ABORT);
+
+    // 0 is the calling thread.
+    if (sched_setaffinity(0, sizeof(set), &set) == -1) {
+        return -errno;
+    }
+    return 0;
+#else
+    return -ENOSYS;
+#endif /* __linux__ */
+}
+
+static jintArray netty_unix_affinity_getAffinity0(JNIEnv* env, jclass clazz) {
+#ifdef __linux__
+    cpu_set_t set;
+    CPU_ZERO(&set);
+    if (sched_getaffinity(0, sizeof(set), &set) == -1) {
+        return NULL;
+    }
+    jint cpus[CPU_SETSIZE];
+    jint len = 0;
+    int cpu;
+    for (cpu = 0; cpu < CPU_SETSIZE; cpu++) {
+        if (CPU_ISSET(cpu, &set)) {
+            cpus[len++] = cpu;
+        }
+    }
+    jintArray array = (*env)->NewIntArray(env, len);
+    if (array == NULL) {
+        // OOM exception is pending.
+        return NULL;
+    }
+    (*env)->SetIntArrayRegion(env, array, 0, len, cpus);
+    return array;
+#else
+    return NULL;
+#endif /* __linux__ */
+}
+// JNI Registered Methods End
+
+// JNI Method Registration Table Begin
+static const JNINativeMethod method_table[] = {
+  { "setAffinity0", "([I)I", (void *) netty_unix_affinity_setAffinity0 },
+  { "getAffinity0", "()[I", (void *) netty_unix_affinity_getAffinity0 }
+};
+static const jint method_table_size = sizeof(method_table) / sizeof(method_table[0]);
+// JNI Method Registration Table End
+
+// IMPORTANT: If you add any NETTY_JNI_UTIL_LOAD_CLASS or NETTY_JNI_UTIL_FIND_CLASS calls you also need to update
+//            Unix to reflect that.
+jint netty_unix_affinity_JNI_OnLoad(JNIEnv* env, const char* packagePrefix) {
+    if (netty_jni_util_register_natives(env, packagePrefix, AFFINITY_CLASSNAME, method_table, method_table_size) != 0) {
+        return JNI_ERR;
+    }
+    return NETTY_JNI_UTIL_JNI_VERSION;
+}
+
+void netty_unix_affinity_JNI_OnUnLoad(JNIEnv* env, const char* packagePrefix) {
+    netty_jni_util_unregister_natives(env, packagePrefix, AFFINITY_CLASSNAME);
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link DefaultThreadFactory} which pins every thread it creates to some of the given CPUs, as chosen by a
+ * {@link CpuAffinityStrategy}, so for example every {@code EventLoop} of a group gets a physical core of its own.
+ * The CPUs default to the ones the thread which creates the factory may run on, so an outer {@code taskset} or
+ * cgroup CPU set is respected.
+ * <p>
+ * The threads pin themselves when they start. If {@link CpuAffinity} is not {@linkplain CpuAffinity#isAvailable()
+ * available}, or pinning fails, the threads run unpinned and a warning is logged. {@link #mapping()} tells which
+ * threads were pinned to which CPUs.
+ */
+@UnstableApi
+public class AffinityThreadFactory extends DefaultThreadFactory {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AffinityThreadFactory.class);
+
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final List<int[]> slots;
+    private final Map<String, int[]> mapping = new LinkedHashMap<String, int[]>();
+
+    /**
+     * Creates a new factory.
+     *
+     * @param poolType  the type which names the threads, see {@link DefaultThreadFactory}.
+     * @param daemon    if the threads are daemon threads.
+     * @param priority  the priority of the threads.
+     * @param strategy  how the threads are spread over the CPUs.
+     * @param cpus      the CPUs to use, or none to use the ones the current thread may run on.
+     */
+    public AffinityThreadFactory(Class<?> poolType, boolean daemon, int priority, CpuAffinityStrategy strategy,
+                                 int... cpus) {
+        super(poolType, daemon, priority);
+        slots = slots(strategy, cpus);
+    }
+
+    /**
+     * Creates a new factory.
+     *
+     * @param poolName  the prefix of the names of the threads.
+     * @param daemon    if the threads are daemon threads.
+     * @param priority  the priority of the threads.
+     * @param strategy  how the threads are spread over the CPUs.
+     * @param cpus      the CPUs to use, or none to use the ones the current thread may run on.
+     */
+    public AffinityThreadFactory(String poolName, boolean daemon, int priority, CpuAffinityStrategy strategy,
+                                 int... cpus) {
+        super(poolName, daemon, priority);
+        slots = slots(strategy, cpus);
+    }
+
+    @Override
+    protected Thread newThread(Runnable r, String name) {
+        int[] cpus = slots.get((nextSlot.getAndIncrement() & Integer.MAX_VALUE) % slots.size());
+        return super.newThread(new PinningRunnable(r, name, cpus), name);
+    }
+
+    /**
+     * Returns the names of the threads which were pinned so far, and the CPUs each one was pinned to.
+     */
+    public Map<String, int[]> mapping() {
+        Map<String, int[]> copy = new LinkedHashMap<String, int[]>();
+        synchronized (mapping) {
+            for (Map.Entry<String, int[]> entry : mapping.entrySet()) {
+                copy.put(entry.getKey(), entry.getValue().clone());
+            }
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static List<int[]> slots(CpuAffinityStrategy strategy, int[] cpus) {
+        ObjectUtil.checkNotNull(strategy, "strategy");
+        ObjectUtil.checkNotNull(cpus, "cpus");
+        if (cpus.length == 0) {
+            try {
+                cpus = CpuAffinity.currentThreadAffinity();
+            } catch (Throwable cause) {
+                logger.debug("Unable to get the CPU affinity of the current thread, using all CPUs", cause);
+                cpus = new int[Runtime.getRuntime().availableProcessors()];
+                for (int i = 0; i < cpus.length; i++) {
+                    cpus[i] = i;
+                }
+            }
+        }
+        return slots(strategy, cpus, CpuAffinity.physicalCores(cpus));
+    }
+
+    /**
+     * Returns the CPUs of every thread, where thread {@code i} gets element {@code i % size}.
+     *
+     * @param cores the physical core of each of the {@code cpus}, see {@link CpuAffinity#physicalCores(int...)}.
+     */
+    static List<int[]> slots(CpuAffinityStrategy strategy, int[] cpus, String[] cores) {
+        List<int[]> slots = new ArrayList<int[]>(cpus.length);
+        switch (strategy) {
+            case CPU:
+                for (int cpu : cpus) {
+                    slots.add(new int[] { cpu });
+                }
+                break;
+            case PHYSICAL_CORE:
+                for (List<Integer> siblings : siblings(cpus, cores).values()) {
+                    int[] slot = new int[siblings.size()];
+                    for (int i = 0; i < slot.length; i++) {
+                        slot[i] = siblings.get(i);
+                    }
+                    slots.add(slot);
+                }
+                break;
+            case AVOID_SIBLINGS:
+                // The first CPU of every core, then the second of every core, and so on.
+                Map<String, List<Integer>> siblings = siblings(cpus, cores);
+                for (int i = 0; slots.size() < cpus.length; i++) {
+                    for (List<Integer> core : siblings.values()) {
+                        if (i < core.size()) {
+                            slots.add(new int[] { core.get(i) });
+                        }
+                    }
+                }
+                break;
+            default:
+                throw new Error();
+        }
+        return slots;
+    }
+
+    private static Map<String, List<Integer>> siblings(int[] cpus, String[] cores) {
+        Map<String, List<Integer>> siblings = new LinkedHashMap<String, List<Integer>>();
+        for (int i = 0; i < cpus.length; i++) {
+            List<Integer> core = siblings.get(cores[i]);
+            if (core == null) {
+                core = new ArrayList<Integer>(2);
+                siblings.put(cores[i], core);
+            }
+            core.add(cpus[i]);
+        }
+        return siblings;
+    }
+
+    private final class PinningRunnable implements Runnable {
+        private final Runnable task;
+        private final String name;
+        private final int[] cpus;
+
+        PinningRunnable(Runnable task, String name, int[] cpus) {
+            this.task = task;
+            this.name = name;
+            this.cpus = cpus;
+        }
+
+        @Override
+        public void run() {
+            try {
+                CpuAffinity.setCurrentThreadAffinity(cpus);
+                synchronized (mapping) {
+                    mapping.put(name, cpus);
+                }
+                logger.debug("Pinned {} to CPUs {}", name, CpuAffinity.toString(cpus));
+            } catch (IOException e) {
+                logger.warn("Unable to pin {} to CPUs {}", name, CpuAffinity.toString(cpus), e);
+            } catch (UnsatisfiedLinkError e) {
+                logger.warn("Unable to pin {} to CPUs {}, no native transport is loaded", name,
+                        CpuAffinity.toString(cpus));
+            }
+            task.run();
+        }
+    }
+}
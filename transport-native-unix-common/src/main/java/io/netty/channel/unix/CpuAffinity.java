@@ -0,0 +1,168 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.util.internal.NumaTopology;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+import static io.netty.channel.unix.Errors.newIOException;
+
+/**
+ * Sets and queries the CPUs the current thread may run on, with {@code sched_setaffinity} and
+ * {@code sched_getaffinity}. This is only supported on Linux, and only once a native transport which contains the
+ * {@code netty-transport-native-unix-common} code, like the epoll transport, is loaded.
+ */
+@UnstableApi
+public final class CpuAffinity {
+
+    private static final String CPU_SYSFS_DIR = "/sys/devices/system/cpu";
+    // CPU_SETSIZE of glibc, the size of the cpu_set_t which is passed to the kernel.
+    private static final int MAX_CPUS = 1024;
+
+    private CpuAffinity() { }
+
+    /**
+     * Returns {@code true} if the affinity of threads can be changed on this platform.
+     */
+    public static boolean isAvailable() {
+        if (!"linux".equals(PlatformDependent.normalizedOs())) {
+            return false;
+        }
+        try {
+            return getAffinity0() != null;
+        } catch (UnsatisfiedLinkError ignore) {
+            // No native transport loaded.
+            return false;
+        }
+    }
+
+    /**
+     * Returns the CPUs the current thread may run on, in ascending order.
+     */
+    public static int[] currentThreadAffinity() throws IOException {
+        int[] cpus = getAffinity0();
+        if (cpus == null) {
+            throw new IOException("sched_getaffinity() failed");
+        }
+        return cpus;
+    }
+
+    /**
+     * Restricts the current thread to the given CPUs, which must be below {@code 1024}.
+     */
+    public static void setCurrentThreadAffinity(int... cpus) throws IOException {
+        ObjectUtil.checkNotNull(cpus, "cpus");
+        if (cpus.length == 0) {
+            throw new IllegalArgumentException("cpus must not be empty");
+        }
+        for (int cpu : cpus) {
+            checkCpu(cpu);
+        }
+        int res = setAffinity0(cpus);
+        if (res < 0) {
+            throw newIOException("sched_setaffinity", res);
+        }
+    }
+
+    /**
+     * Returns an identifier of the physical core of each of the given CPUs, so CPUs which are hyper-threading
+     * siblings of each other have the same identifier. If the topology can not be read, every CPU is assumed to be a
+     * physical core of its own.
+     */
+    public static String[] physicalCores(int... cpus) {
+        String[] cores = new String[cpus.length];
+        for (int i = 0; i < cpus.length; i++) {
+            String dir = CPU_SYSFS_DIR + "/cpu" + cpus[i] + "/topology/";
+            String packageId = readLine(dir + "physical_package_id");
+            String coreId = readLine(dir + "core_id");
+            cores[i] = packageId == null || coreId == null ? "cpu" + cpus[i] : packageId + ':' + coreId;
+        }
+        return cores;
+    }
+
+    /**
+     * Parses a CPU list like {@code 0-3,8,10-11}, as used by {@code taskset} and the kernel, into the CPUs it
+     * contains in ascending order. All CPUs must be below {@code 1024}.
+     */
+    public static int[] parseCpuList(String cpuList) {
+        return NumaTopology.parseCpuList(ObjectUtil.checkNonEmptyAfterTrim(cpuList, "cpuList"));
+    }
+
+    private static int checkCpu(int cpu) {
+        if (cpu < 0 || cpu >= MAX_CPUS) {
+            throw new IllegalArgumentException("cpu: " + cpu + " (expected: 0-" + (MAX_CPUS - 1) + ')');
+        }
+        return cpu;
+    }
+
+    /**
+     * Formats the given CPUs like {@code taskset} does, for example {@code [0-3, 8]}.
+     */
+    static String toString(int[] cpus) {
+        int[] sorted = cpus.clone();
+        Arrays.sort(sorted);
+        StringBuilder buf = new StringBuilder().append('[');
+        for (int i = 0; i < sorted.length; i++) {
+            int first = sorted[i];
+            while (i + 1 < sorted.length && sorted[i + 1] == sorted[i] + 1) {
+                i++;
+            }
+            if (buf.length() > 1) {
+                buf.append(", ");
+            }
+            buf.append(first);
+            if (sorted[i] != first) {
+                buf.append('-').append(sorted[i]);
+            }
+        }
+        return buf.append(']').toString();
+    }
+
+    private static String readLine(String path) {
+        File file = new File(path);
+        if (!file.canRead()) {
+            return null;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "US-ASCII"));
+            String line = reader.readLine();
+            return line == null ? null : line.trim();
+        } catch (IOException ignore) {
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignore) {
+                    // Nothing we can do.
+                }
+            }
+        }
+    }
+
+    private static native int setAffinity0(int[] cpus);
+    private static native int[] getAffinity0();
+}
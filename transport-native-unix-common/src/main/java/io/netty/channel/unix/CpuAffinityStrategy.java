@@ -0,0 +1,41 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * How an {@link AffinityThreadFactory} spreads its threads over the CPUs it was given. If there are more threads
+ * than places to put them, the assignment starts from the beginning again.
+ */
+@UnstableApi
+public enum CpuAffinityStrategy {
+    /**
+     * Pins each thread to a single CPU, in the order of the CPUs.
+     */
+    CPU,
+    /**
+     * Pins each thread to one physical core, which means to all of its hyper-threading siblings that are in the CPU
+     * set, so no two threads share a core while there are as many cores as threads.
+     */
+    PHYSICAL_CORE,
+    /**
+     * Pins each thread to a single CPU, using the first CPU of every physical core before any of their siblings, so
+     * threads only share a core once every core has one. With fewer threads than cores, the siblings of the used
+     * CPUs stay free for other work.
+     */
+    AVOID_SIBLINGS
+}
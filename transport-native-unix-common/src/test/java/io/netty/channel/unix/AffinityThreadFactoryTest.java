@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AffinityThreadFactoryTest {
+
+    // Two cores with two hyper-threads each, numbered like Linux does: the siblings are 0 and 2, and 1 and 3.
+    private static final int[] CPUS = { 0, 1, 2, 3 };
+    private static final String[] CORES = { "0:0", "0:1", "0:0", "0:1" };
+
+    @Test
+    public void testCpuStrategy() {
+        List<int[]> slots = AffinityThreadFactory.slots(CpuAffinityStrategy.CPU, CPUS, CORES);
+        assertEquals(4, slots.size());
+        for (int i = 0; i < CPUS.length; i++) {
+            assertArrayEquals(new int[] { i }, slots.get(i));
+        }
+    }
+
+    @Test
+    public void testPhysicalCoreStrategy() {
+        List<int[]> slots = AffinityThreadFactory.slots(CpuAffinityStrategy.PHYSICAL_CORE, CPUS, CORES);
+        assertEquals(2, slots.size());
+        assertArrayEquals(new int[] { 0, 2 }, slots.get(0));
+        assertArrayEquals(new int[] { 1, 3 }, slots.get(1));
+    }
+
+    @Test
+    public void testAvoidSiblingsStrategy() {
+        int[] cpus = { 0, 1, 2, 3, 4 };
+        String[] cores = { "0:0", "0:0", "0:1", "0:1", "0:2" };
+        List<int[]> slots = AffinityThreadFactory.slots(CpuAffinityStrategy.AVOID_SIBLINGS, cpus, cores);
+        assertEquals(5, slots.size());
+        // One CPU of every core first, then the siblings.
+        assertArrayEquals(new int[] { 0 }, slots.get(0));
+        assertArrayEquals(new int[] { 2 }, slots.get(1));
+        assertArrayEquals(new int[] { 4 }, slots.get(2));
+        assertArrayEquals(new int[] { 1 }, slots.get(3));
+        assertArrayEquals(new int[] { 3 }, slots.get(4));
+    }
+
+    @Test
+    public void testParseCpuList() {
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 8, 10, 11 }, CpuAffinity.parseCpuList("0-3,8, 10-11"));
+        assertArrayEquals(new int[] { 1, 2 }, CpuAffinity.parseCpuList("2,1,2"));
+        assertEquals("[0-3, 8, 10-11]", CpuAffinity.toString(new int[] { 11, 10, 8, 3, 2, 1, 0 }));
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                CpuAffinity.parseCpuList("3-1");
+            }
+        });
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                CpuAffinity.parseCpuList("-1");
+            }
+        });
+        // Ranges are capped at CPU_SETSIZE, instead of looping over every number in them.
+        assertArrayEquals(new int[] { 1022, 1023 }, CpuAffinity.parseCpuList("1022-1023"));
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                CpuAffinity.parseCpuList("0-2000000000");
+            }
+        });
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                CpuAffinity.parseCpuList("1024");
+            }
+        });
+    }
+}
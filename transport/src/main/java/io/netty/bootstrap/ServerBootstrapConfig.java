@@ -17,9 +17,11 @@ package io.netty.bootstrap;
 
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
 import io.netty.util.internal.StringUtil;
 
 import java.util.Map;
@@ -64,6 +66,14 @@ public final class ServerBootstrapConfig extends AbstractBootstrapConfig<ServerB
         return bootstrap.childAttrs();
     }
 
+    /**
+     * Returns the configured {@link EventExecutorChooserFactory} which is used to choose the {@link EventLoop}s of
+     * the child channels, or {@code null} if the child {@link EventLoopGroup} chooses them itself.
+     */
+    public EventExecutorChooserFactory childChooserFactory() {
+        return bootstrap.childChooserFactory();
+    }
+
     @Override
     public String toString() {
         StringBuilder buf = new StringBuilder(super.toString());
@@ -75,6 +85,12 @@ public final class ServerBootstrapConfig extends AbstractBootstrapConfig<ServerB
             buf.append(StringUtil.simpleClassName(childGroup));
             buf.append(", ");
         }
+        EventExecutorChooserFactory childChooserFactory = childChooserFactory();
+        if (childChooserFactory != null) {
+            buf.append("childChooserFactory: ");
+            buf.append(StringUtil.simpleClassName(childChooserFactory));
+            buf.append(", ");
+        }
         Map<ChannelOption<?>, Object> childOptions = childOptions();
         if (!childOptions.isEmpty()) {
             buf.append("childOptions: ");
@@ -16,6 +16,7 @@
 package io.netty.channel;
 
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.util.Attribute;
 import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
@@ -85,6 +86,11 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
      */
     private static final int INIT = 0;
 
+    // Off by default, as alloc() then returns neither a PooledByteBufAllocator nor the allocator of the channel when
+    // called from the event loop.
+    private static final boolean THREAD_BOUND_ALLOCATOR =
+            SystemPropertyUtil.getBoolean("io.netty.eventLoop.threadBoundAllocator", false);
+
     private final DefaultChannelPipeline pipeline;
     private final String name;
     private final boolean ordered;
@@ -123,7 +129,14 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
 
     @Override
     public ByteBufAllocator alloc() {
-        return channel().config().getAllocator();
+        ByteBufAllocator allocator = channel().config().getAllocator();
+        if (THREAD_BOUND_ALLOCATOR && allocator instanceof PooledByteBufAllocator) {
+            EventExecutor executor = executor();
+            if (executor instanceof SingleThreadEventLoop && executor.inEventLoop()) {
+                return pipeline.threadBoundAllocator((EventLoop) executor, (PooledByteBufAllocator) allocator);
+            }
+        }
+        return allocator;
     }
 
     @Override
@@ -15,6 +15,8 @@
  */
 package io.netty.channel;
 
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel.Unsafe;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ResourceLeakDetector;
@@ -89,6 +91,12 @@ public class DefaultChannelPipeline implements ChannelPipeline {
      */
     private boolean registered;
 
+    // The last thread-bound allocator returned by threadBoundAllocator(...), with the allocator and event loop it was
+    // created for. Only accessed from that event loop.
+    private ByteBufAllocator boundAllocator;
+    private PooledByteBufAllocator boundAllocatorParent;
+    private EventLoop boundAllocatorLoop;
+
     protected DefaultChannelPipeline(Channel channel) {
         this.channel = ObjectUtil.checkNotNull(channel, "channel");
         succeededFuture = new SucceededChannelFuture(channel, null);
@@ -116,6 +124,21 @@ public class DefaultChannelPipeline implements ChannelPipeline {
         return touch ? ReferenceCountUtil.touch(msg, next) : msg;
     }
 
+    /**
+     * Returns the {@link PooledByteBufAllocator#threadBoundAllocator()} of the given {@code allocator} for the given
+     * {@code loop}. It is kept until the channel uses another allocator or event loop, so allocators are not referenced
+     * for longer than by the channel itself. Must only be called from the {@code loop}.
+     */
+    final ByteBufAllocator threadBoundAllocator(EventLoop loop, PooledByteBufAllocator allocator) {
+        assert loop.inEventLoop();
+        if (boundAllocatorParent != allocator || boundAllocatorLoop != loop) {
+            boundAllocator = allocator.threadBoundAllocator();
+            boundAllocatorParent = allocator;
+            boundAllocatorLoop = loop;
+        }
+        return boundAllocator;
+    }
+
     private AbstractChannelHandlerContext newContext(EventExecutorGroup group, String name, ChannelHandler handler) {
         return new DefaultChannelHandlerContext(this, childExecutor(group), name, handler);
     }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link EventExecutorChooserFactory} which chooses the {@link EventLoop} with the lowest recent load, so that a few
+ * expensive long-lived connections do not pile up on the same {@link EventLoop} while others are idle.
+ * <p>
+ * The load of an {@link EventLoop} is the sum of its {@linkplain SingleThreadEventExecutor#pendingTasks() pending
+ * tasks}, its {@linkplain SingleThreadEventLoop#registeredChannels() registered channels}, and its busy ratio (the
+ * share of the last 100 milliseconds or more its thread was not {@linkplain SingleThreadEventExecutor#idleTimeNanos()
+ * idle}) times 100. So an {@link EventLoop} that is busy all the time weighs as much as 100 channels. Values an
+ * {@link EventExecutor} does not provide count as zero.
+ * <p>
+ * To stay cheap, the chooser does not look at all {@link EventExecutor}s but at a few picked at random, by default
+ * two, and returns the least loaded of them. Choosing the better of two random choices avoids that every caller
+ * picks the same executor based on slightly stale values, and is almost as well balanced as looking at all of them.
+ * <p>
+ * Use it when creating a {@link MultithreadEventLoopGroup}, for all groups by setting the
+ * {@code io.netty.eventLoopGroup.chooser} system property to {@code loadAware}, or only for the accepted channels of
+ * a server with {@link io.netty.bootstrap.ServerBootstrap#childChooserFactory(EventExecutorChooserFactory)}.
+ */
+@UnstableApi
+public final class LoadAwareEventLoopChooserFactory implements EventExecutorChooserFactory {
+
+    public static final LoadAwareEventLoopChooserFactory INSTANCE = new LoadAwareEventLoopChooserFactory(2);
+
+    private static final long BUSY_RATIO_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int BUSY_RATIO_WEIGHT = 100;
+
+    private final int choices;
+
+    /**
+     * Creates a new factory.
+     *
+     * @param choices the number of {@link EventExecutor}s which are compared for each choice. If it is at least the
+     *                number of {@link EventExecutor}s, all of them are compared.
+     */
+    public LoadAwareEventLoopChooserFactory(int choices) {
+        this.choices = ObjectUtil.checkPositive(choices, "choices");
+    }
+
+    @Override
+    public EventExecutorChooser newChooser(EventExecutor[] executors) {
+        return new LoadAwareEventExecutorChooser(executors, choices);
+    }
+
+    private static final class LoadAwareEventExecutorChooser implements EventExecutorChooser {
+        private final EventExecutor[] executors;
+        private final int choices;
+        // The last idle time of each executor, to compute its busy ratio.
+        private final AtomicReferenceArray<BusySample> samples;
+
+        LoadAwareEventExecutorChooser(EventExecutor[] executors, int choices) {
+            this.executors = executors;
+            this.choices = choices;
+            samples = new AtomicReferenceArray<BusySample>(executors.length);
+            long now = System.nanoTime();
+            for (int i = 0; i < executors.length; i++) {
+                samples.set(i, new BusySample(now, idleTimeNanos(executors[i]), 0));
+            }
+        }
+
+        @Override
+        public EventExecutor next() {
+            int length = executors.length;
+            if (length == 1) {
+                return executors[0];
+            }
+            long now = System.nanoTime();
+            if (choices >= length) {
+                int best = 0;
+                double bestLoad = load(0, now);
+                for (int i = 1; i < length; i++) {
+                    double load = load(i, now);
+                    if (load < bestLoad) {
+                        best = i;
+                        bestLoad = load;
+                    }
+                }
+                return executors[best];
+            }
+
+            Random random = PlatformDependent.threadLocalRandom();
+            int best = random.nextInt(length);
+            double bestLoad = load(best, now);
+            int index = best;
+            for (int i = 1; i < choices; i++) {
+                // Never the same as the previous one, so two choices are always two different executors.
+                index = (index + 1 + random.nextInt(length - 1)) % length;
+                double load = load(index, now);
+                if (load < bestLoad) {
+                    best = index;
+                    bestLoad = load;
+                }
+            }
+            return executors[best];
+        }
+
+        private double load(int index, long now) {
+            EventExecutor executor = executors[index];
+            double load = 0;
+            if (executor instanceof SingleThreadEventExecutor) {
+                load += ((SingleThreadEventExecutor) executor).pendingTasks();
+            }
+            if (executor instanceof SingleThreadEventLoop) {
+                load += Math.max(0, ((SingleThreadEventLoop) executor).registeredChannels());
+            }
+            return load + busyRatio(index, now) * BUSY_RATIO_WEIGHT;
+        }
+
+        private double busyRatio(int index, long now) {
+            BusySample sample = samples.get(index);
+            long elapsed = now - sample.nanoTime;
+            if (elapsed < BUSY_RATIO_INTERVAL_NANOS) {
+                return sample.busyRatio;
+            }
+            long idleTimeNanos = idleTimeNanos(executors[index]);
+            double busyRatio = 1 - (double) (idleTimeNanos - sample.idleTimeNanos) / elapsed;
+            busyRatio = Math.min(1, Math.max(0, busyRatio));
+            // If another thread updated the sample in the meantime, its value is as good as ours.
+            samples.compareAndSet(index, sample, new BusySample(now, idleTimeNanos, busyRatio));
+            return busyRatio;
+        }
+
+        private static long idleTimeNanos(EventExecutor executor) {
+            // Executors which can not tell are never busy, so only the other values count for them.
+            return executor instanceof SingleThreadEventExecutor ?
+                    ((SingleThreadEventExecutor) executor).idleTimeNanos() : System.nanoTime();
+        }
+    }
+
+    private static final class BusySample {
+        final long nanoTime;
+        final long idleTimeNanos;
+        final double busyRatio;
+
+        BusySample(long nanoTime, long idleTimeNanos, double busyRatio) {
+            this.nanoTime = nanoTime;
+            this.idleTimeNanos = idleTimeNanos;
+            this.busyRatio = busyRatio;
+        }
+    }
+}
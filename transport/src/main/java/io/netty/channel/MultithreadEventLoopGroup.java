@@ -16,9 +16,11 @@
 package io.netty.channel;
 
 import io.netty.util.NettyRuntime;
+import io.netty.util.concurrent.DefaultEventExecutorChooserFactory;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.concurrent.EventExecutorChooserFactory;
 import io.netty.util.concurrent.MultithreadEventExecutorGroup;
+import io.netty.util.concurrent.ThreadPerTaskExecutor;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -35,13 +37,26 @@ public abstract class MultithreadEventLoopGroup extends MultithreadEventExecutor
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(MultithreadEventLoopGroup.class);
 
     private static final int DEFAULT_EVENT_LOOP_THREADS;
+    private static final EventExecutorChooserFactory DEFAULT_CHOOSER_FACTORY;
 
     static {
         DEFAULT_EVENT_LOOP_THREADS = Math.max(1, SystemPropertyUtil.getInt(
                 "io.netty.eventLoopThreads", NettyRuntime.availableProcessors() * 2));
 
+        String chooser = SystemPropertyUtil.get("io.netty.eventLoopGroup.chooser", "roundRobin");
+        if ("loadAware".equalsIgnoreCase(chooser)) {
+            DEFAULT_CHOOSER_FACTORY = LoadAwareEventLoopChooserFactory.INSTANCE;
+        } else {
+            if (!"roundRobin".equalsIgnoreCase(chooser)) {
+                logger.warn("-Dio.netty.eventLoopGroup.chooser: unknown value {}, using roundRobin", chooser);
+                chooser = "roundRobin";
+            }
+            DEFAULT_CHOOSER_FACTORY = DefaultEventExecutorChooserFactory.INSTANCE;
+        }
+
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.eventLoopThreads: {}", DEFAULT_EVENT_LOOP_THREADS);
+            logger.debug("-Dio.netty.eventLoopGroup.chooser: {}", chooser);
         }
     }
 
@@ -49,14 +64,15 @@ public abstract class MultithreadEventLoopGroup extends MultithreadEventExecutor
      * @see MultithreadEventExecutorGroup#MultithreadEventExecutorGroup(int, Executor, Object...)
      */
     protected MultithreadEventLoopGroup(int nThreads, Executor executor, Object... args) {
-        super(nThreads == 0 ? DEFAULT_EVENT_LOOP_THREADS : nThreads, executor, args);
+        super(nThreads == 0 ? DEFAULT_EVENT_LOOP_THREADS : nThreads, executor, DEFAULT_CHOOSER_FACTORY, args);
     }
 
     /**
      * @see MultithreadEventExecutorGroup#MultithreadEventExecutorGroup(int, ThreadFactory, Object...)
      */
     protected MultithreadEventLoopGroup(int nThreads, ThreadFactory threadFactory, Object... args) {
-        super(nThreads == 0 ? DEFAULT_EVENT_LOOP_THREADS : nThreads, threadFactory, args);
+        super(nThreads == 0 ? DEFAULT_EVENT_LOOP_THREADS : nThreads,
+                threadFactory == null ? null : new ThreadPerTaskExecutor(threadFactory), DEFAULT_CHOOSER_FACTORY, args);
     }
 
     /**
@@ -438,6 +438,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     protected void run() {
         int selectCnt = 0;
         for (;;) {
+            iterationStarted();
             try {
                 int strategy;
                 try {
@@ -457,7 +458,12 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                         nextWakeupNanos.set(curDeadlineNanos);
                         try {
                             if (!hasTasks()) {
-                                strategy = select(curDeadlineNanos);
+                                idleStarted();
+                                try {
+                                    strategy = select(curDeadlineNanos);
+                                } finally {
+                                    idleEnded();
+                                }
                             }
                         } finally {
                             // This update is just to help block unnecessary selector wakeups
@@ -19,6 +19,8 @@ package io.netty.channel;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerMask.Skip;
@@ -41,6 +43,7 @@ import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.ImmediateEventExecutor;
 import io.netty.util.concurrent.Promise;
 import io.netty.util.concurrent.UnorderedThreadPoolEventExecutor;
+import io.netty.util.concurrent.VirtualThreadEventExecutorGroup;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -347,6 +350,68 @@ public class DefaultChannelPipelineTest {
         verifyContextNumber(pipeline, HANDLER_ARRAY_LEN * 2);
     }
 
+    @Test
+    @Timeout(value = 3000, unit = TimeUnit.MILLISECONDS)
+    public void testAllocIsChannelAllocatorByDefault() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true);
+        Channel channel = new LocalChannel();
+        channel.config().setAllocator(allocator);
+        try {
+            group.register(channel).syncUninterruptibly();
+            channel.pipeline().addLast(new ChannelInboundHandlerAdapter());
+            final ChannelHandlerContext ctx = channel.pipeline().firstContext();
+
+            assertSame(allocator, ctx.alloc());
+            final AtomicReference<ByteBufAllocator> alloc = new AtomicReference<ByteBufAllocator>();
+            channel.eventLoop().submit(new Runnable() {
+                @Override
+                public void run() {
+                    alloc.set(ctx.alloc());
+                }
+            }).sync();
+            assertSame(allocator, alloc.get());
+        } finally {
+            channel.close().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    @Timeout(value = 3000, unit = TimeUnit.MILLISECONDS)
+    public void testThreadBoundAllocatorIsCachedPerChannel() throws Exception {
+        final PooledByteBufAllocator first = new PooledByteBufAllocator(true);
+        final PooledByteBufAllocator second = new PooledByteBufAllocator(true);
+        Channel channel = new LocalChannel();
+        try {
+            group.register(channel).syncUninterruptibly();
+            final EventLoop loop = channel.eventLoop();
+            final DefaultChannelPipeline pipeline = (DefaultChannelPipeline) channel.pipeline();
+            final List<ByteBufAllocator> bound = new ArrayList<ByteBufAllocator>();
+            final AtomicReference<ByteBufAllocator> alloc = new AtomicReference<ByteBufAllocator>();
+            loop.submit(new Runnable() {
+                @Override
+                public void run() {
+                    bound.add(pipeline.threadBoundAllocator(loop, first));
+                    bound.add(pipeline.threadBoundAllocator(loop, first));
+                    // Only the allocator that the channel uses now is kept.
+                    bound.add(pipeline.threadBoundAllocator(loop, second));
+                    bound.add(pipeline.threadBoundAllocator(loop, first));
+                    ByteBuf buffer = bound.get(0).directBuffer(16);
+                    alloc.set(buffer.alloc());
+                    buffer.release();
+                }
+            }).sync();
+
+            assertNotSame(first, bound.get(0));
+            assertSame(bound.get(0), bound.get(1));
+            assertNotSame(second, bound.get(2));
+            assertNotSame(bound.get(0), bound.get(2));
+            assertNotSame(bound.get(0), bound.get(3));
+            assertSame(first, alloc.get());
+        } finally {
+            channel.close().syncUninterruptibly();
+        }
+    }
+
     @Test
     @Timeout(value = 3000, unit = TimeUnit.MILLISECONDS)
     public void testThrowInExceptionCaught() throws InterruptedException {
@@ -1323,6 +1388,85 @@ public class DefaultChannelPipelineTest {
         group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
     }
 
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testVirtualThreadEventExecutorGroupKeepsChannelOrder() throws Exception {
+        final int messages = 1000;
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup();
+        try {
+            EmbeddedChannel[] channels = new EmbeddedChannel[4];
+            OrderRecordingHandler[] handlers = new OrderRecordingHandler[channels.length];
+            for (int i = 0; i < channels.length; i++) {
+                channels[i] = new EmbeddedChannel();
+                handlers[i] = new OrderRecordingHandler(messages);
+                channels[i].pipeline().addLast(group, "first", new ChannelInboundHandlerAdapter());
+                channels[i].pipeline().addLast(group, "recorder", handlers[i]);
+            }
+            // The handlers of one channel share an executor, the ones of different channels do not.
+            assertSame(channels[0].pipeline().context("first").executor(),
+                    channels[0].pipeline().context("recorder").executor());
+            assertNotSame(channels[0].pipeline().context("recorder").executor(),
+                    channels[1].pipeline().context("recorder").executor());
+
+            for (int i = 0; i < messages; i++) {
+                for (EmbeddedChannel channel : channels) {
+                    channel.pipeline().fireChannelRead(i);
+                }
+            }
+            for (int i = 0; i < channels.length; i++) {
+                handlers[i].done.await();
+                List<Object> expected = new ArrayList<Object>();
+                for (int j = 0; j < messages; j++) {
+                    expected.add(j);
+                }
+                // The scheduled task runs on the same executor, after all messages.
+                expected.add("scheduled");
+                assertEquals(expected, handlers[i].received);
+                assertFalse(handlers[i].overlapped);
+                channels[i].finishAndReleaseAll();
+            }
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    private static final class OrderRecordingHandler extends ChannelInboundHandlerAdapter {
+        private final int messages;
+        private final AtomicInteger active = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        volatile boolean overlapped;
+
+        OrderRecordingHandler(int messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void channelRead(final ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (active.getAndIncrement() != 0) {
+                overlapped = true;
+            }
+            int id = (Integer) msg;
+            if (id % 100 == 0) {
+                // Block from time to time, like a handler doing a blocking call.
+                Thread.sleep(1);
+            }
+            received.add(id);
+            if (id == messages - 1) {
+                ctx.executor().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (ctx.executor().inEventLoop()) {
+                            received.add("scheduled");
+                        }
+                        done.countDown();
+                    }
+                }, 10, TimeUnit.MILLISECONDS);
+            }
+            active.decrementAndGet();
+        }
+    }
+
     @Test
     @Timeout(value = 3000, unit = TimeUnit.MILLISECONDS)
     public void testVoidPromiseNotify() {
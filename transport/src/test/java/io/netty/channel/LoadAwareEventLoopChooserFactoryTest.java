@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory.EventExecutorChooser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+public class LoadAwareEventLoopChooserFactoryTest {
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private DefaultEventLoopGroup group;
+    private EventExecutor[] loops;
+    private CountDownLatch latch;
+
+    @BeforeEach
+    public void setUp() {
+        group = new DefaultEventLoopGroup(3);
+        List<EventExecutor> list = new ArrayList<EventExecutor>();
+        for (EventExecutor loop : group) {
+            list.add(loop);
+        }
+        loops = list.toArray(new EventExecutor[0]);
+        latch = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        latch.countDown();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testAvoidsPendingTasks() throws Exception {
+        block(loops[0]);
+        for (int i = 0; i < 5; i++) {
+            loops[0].execute(NOOP);
+        }
+
+        // With as many choices as loops, the least loaded loop is always chosen.
+        EventExecutorChooser chooser = new LoadAwareEventLoopChooserFactory(3).newChooser(loops);
+        for (int i = 0; i < 10; i++) {
+            EventExecutor next = chooser.next();
+            assertNotSame(loops[0], next);
+        }
+
+        // With two choices out of three, the most loaded loop is never chosen, and the others are.
+        chooser = LoadAwareEventLoopChooserFactory.INSTANCE.newChooser(loops);
+        Set<EventExecutor> chosen = new HashSet<EventExecutor>();
+        for (int i = 0; i < 100; i++) {
+            EventExecutor next = chooser.next();
+            assertNotSame(loops[0], next);
+            chosen.add(next);
+        }
+        assertEquals(2, chosen.size());
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testAvoidsBusyLoop() throws Exception {
+        EventExecutorChooser chooser = new LoadAwareEventLoopChooserFactory(3).newChooser(loops);
+        for (EventExecutor loop : loops) {
+            loop.submit(NOOP).sync();
+        }
+        // The loop has no pending tasks, but is not idle.
+        block(loops[2]);
+        Thread.sleep(200);
+
+        for (int i = 0; i < 10; i++) {
+            assertNotSame(loops[2], chooser.next());
+        }
+    }
+
+    private void block(EventExecutor loop) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        started.await();
+    }
+}
@@ -29,8 +29,11 @@ import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.IntSupplier;
 import io.netty.util.concurrent.DefaultEventExecutorChooserFactory;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorStallDetector;
+import io.netty.util.concurrent.EventExecutorStallListener;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.RejectedExecutionHandlers;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
 import io.netty.util.concurrent.ThreadPerTaskExecutor;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
@@ -345,4 +348,58 @@ public class NioEventLoopTest extends AbstractEventLoopTest {
         }
     }
 
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testStallDetector() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(1);
+        EventExecutorStallDetector detector = new EventExecutorStallDetector(100, TimeUnit.MILLISECONDS);
+        final AtomicReference<StackTraceElement[]> stackTrace = new AtomicReference<StackTraceElement[]>();
+        final CountDownLatch ended = new CountDownLatch(1);
+        detector.addListener(new EventExecutorStallListener() {
+            @Override
+            public void stallDetected(SingleThreadEventExecutor executor, long stalledNanos,
+                                      StackTraceElement[] trace) {
+                stackTrace.set(trace);
+            }
+
+            @Override
+            public void stallEnded(SingleThreadEventExecutor executor, long stalledNanos) {
+                ended.countDown();
+            }
+        });
+        try {
+            detector.monitor(group);
+            // Waiting in select() is not a stall.
+            group.next().submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).sync();
+            Thread.sleep(300);
+            assertEquals(0, detector.stalls());
+
+            group.next().submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(300);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }).sync();
+            ended.await();
+            assertEquals(1, detector.stalls());
+            boolean inEventLoop = false;
+            for (StackTraceElement element : stackTrace.get()) {
+                if (NioEventLoop.class.getName().equals(element.getClassName())) {
+                    inEventLoop = true;
+                }
+            }
+            assertTrue(inEventLoop);
+        } finally {
+            detector.stop();
+            group.shutdownGracefully();
+        }
+    }
 }